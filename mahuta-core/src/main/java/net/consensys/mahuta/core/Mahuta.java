@@ -1,10 +1,13 @@
 package net.consensys.mahuta.core;
 
+import java.io.Closeable;
 import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
 import net.consensys.mahuta.core.domain.Builder;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingRequest;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingRequestBuilder;
 import net.consensys.mahuta.core.domain.createindex.CreateIndexRequestBuilder;
 import net.consensys.mahuta.core.domain.deindexing.DeindexingRequestBuilder;
 import net.consensys.mahuta.core.domain.get.GetRequestBuilder;
@@ -28,7 +31,7 @@ import net.consensys.mahuta.core.service.MahutaService;
  * @author gjeanmart
  *
  */
-public class Mahuta {
+public class Mahuta implements Closeable {
 
     private final MahutaService service;
 
@@ -95,6 +98,15 @@ public class Mahuta {
         return builder.request(request);
     }
 
+    public BulkIndexingRequestBuilder prepareBulkIndexing() {
+        return prepare(BulkIndexingRequestBuilder.class);
+    }
+    
+    public BulkIndexingRequestBuilder prepareBulkIndexing(BulkIndexingRequest request) {
+        BulkIndexingRequestBuilder builder =  prepare(BulkIndexingRequestBuilder.class);
+        return builder.request(request);
+    }
+
     public DeindexingRequestBuilder prepareDeindexing(String indexName, String indexDocId) {
         DeindexingRequestBuilder builder =  prepare(DeindexingRequestBuilder.class);
         return builder.indexName(indexName).indexDocId(indexDocId);
@@ -119,4 +131,12 @@ public class Mahuta {
         return prepare(SearchRequestBuilder.class);
     }
 
+    /**
+     * Close the service (see MahutaService.close)
+     */
+    @Override
+    public void close() {
+        service.close();
+    }
+
 }
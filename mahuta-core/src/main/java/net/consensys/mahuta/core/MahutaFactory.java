@@ -3,6 +3,8 @@ package net.consensys.mahuta.core;
 import net.consensys.mahuta.core.service.AsynchonousPinningMahutaService;
 import net.consensys.mahuta.core.service.DefaultMahutaService;
 import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.pinning.PinningExecutor;
+import net.consensys.mahuta.core.service.pinning.journal.PinJournal;
 import net.consensys.mahuta.core.service.storage.StorageService;
 
 /**
@@ -31,8 +33,20 @@ public class MahutaFactory {
         return Mahuta.of(new DefaultMahutaService(storageService, indexingService)); 
     }
 
+    public Mahuta defaultImplementation(PinningExecutor pinningExecutor) {
+        return Mahuta.of(new DefaultMahutaService(storageService, indexingService, pinningExecutor)); 
+    }
+
     public Mahuta asynchronousPinningImplementation(long schedulerPeriod) {
         return Mahuta.of(new AsynchonousPinningMahutaService(storageService, indexingService, schedulerPeriod)); 
     }
+
+    public Mahuta asynchronousPinningImplementation(long schedulerPeriod, int concurrency, int batchSize) {
+        return Mahuta.of(new AsynchonousPinningMahutaService(storageService, indexingService, schedulerPeriod, concurrency, batchSize)); 
+    }
+
+    public Mahuta asynchronousPinningImplementation(long schedulerPeriod, int concurrency, int batchSize, PinJournal journal) {
+        return Mahuta.of(new AsynchonousPinningMahutaService(storageService, indexingService, schedulerPeriod, concurrency, batchSize, journal)); 
+    }
     
 }
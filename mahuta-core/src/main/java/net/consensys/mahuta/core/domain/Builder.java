@@ -1,9 +1,22 @@
 package net.consensys.mahuta.core.domain;
 
+import java.util.concurrent.CompletableFuture;
+
+import net.consensys.mahuta.core.utils.FutureUtils;
+
 public interface Builder<R extends Request, S extends Response> {
 
     R getRequest();
     
     S execute();
     
+    /**
+     * Execute the request without blocking the calling thread (if the service supports it for this request, 
+     * otherwise the request is executed on the calling thread)
+     * @return Future completed with the response
+     */
+    default CompletableFuture<S> executeAsync() {
+        return FutureUtils.supply(this::execute);
+    }
+    
 }
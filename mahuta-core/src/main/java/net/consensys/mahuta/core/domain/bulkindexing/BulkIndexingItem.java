@@ -0,0 +1,30 @@
+package net.consensys.mahuta.core.domain.bulkindexing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import net.consensys.mahuta.core.domain.indexing.IndexingResponse;
+
+/**
+ * Result of one request of a bulk indexing: the indexing response on success, the error otherwise
+ */
+@Getter @Setter
+@AllArgsConstructor @NoArgsConstructor
+public class BulkIndexingItem {
+
+    private IndexingResponse response;
+    private String error;
+    
+    public static BulkIndexingItem success(IndexingResponse response) {
+        return new BulkIndexingItem(response, null);
+    }
+    
+    public static BulkIndexingItem failure(String error) {
+        return new BulkIndexingItem(null, error);
+    }
+    
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,20 @@
+package net.consensys.mahuta.core.domain.bulkindexing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.consensys.mahuta.core.domain.Request;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
+import net.consensys.mahuta.core.domain.indexing.IndexingRequest;
+
+@Getter @Setter
+public class BulkIndexingRequest implements Request {
+    
+    private List<IndexingRequest> requests = new ArrayList<>();
+    private int concurrency;
+    private int batchSize;
+    private RefreshPolicy refreshPolicy;
+
+}
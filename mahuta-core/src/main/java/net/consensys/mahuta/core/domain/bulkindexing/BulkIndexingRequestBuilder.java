@@ -0,0 +1,59 @@
+package net.consensys.mahuta.core.domain.bulkindexing;
+
+import java.util.Collection;
+
+import lombok.Getter;
+import net.consensys.mahuta.core.domain.AbstractBuilder;
+import net.consensys.mahuta.core.domain.Builder;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
+import net.consensys.mahuta.core.domain.indexing.IndexingRequest;
+import net.consensys.mahuta.core.service.MahutaService;
+
+public class BulkIndexingRequestBuilder extends AbstractBuilder implements Builder<BulkIndexingRequest, BulkIndexingResponse> {
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    protected @Getter BulkIndexingRequest request;
+
+    public BulkIndexingRequestBuilder(MahutaService service) {
+        super(service);
+        request = new BulkIndexingRequest();
+        request.setConcurrency(DEFAULT_CONCURRENCY);
+        request.setBatchSize(DEFAULT_BATCH_SIZE);
+    }
+
+    @Override
+    public BulkIndexingResponse execute() {
+        return service.bulkIndex(request);
+    }
+
+    public BulkIndexingRequestBuilder request(BulkIndexingRequest request) {
+        this.request = request;
+        return this;
+    }
+
+    public BulkIndexingRequestBuilder add(IndexingRequest request) {
+        this.request.getRequests().add(request);
+        return this;
+    }
+
+    public BulkIndexingRequestBuilder requests(Collection<? extends IndexingRequest> requests) {
+        this.request.getRequests().addAll(requests);
+        return this;
+    }
+
+    public BulkIndexingRequestBuilder concurrency(int concurrency) {
+        request.setConcurrency(concurrency);
+        return this;
+    }
+
+    public BulkIndexingRequestBuilder batchSize(int batchSize) {
+        request.setBatchSize(batchSize);
+        return this;
+    }
+
+    public BulkIndexingRequestBuilder refreshPolicy(RefreshPolicy refreshPolicy) {
+        request.setRefreshPolicy(refreshPolicy);
+        return this;
+    }
+}
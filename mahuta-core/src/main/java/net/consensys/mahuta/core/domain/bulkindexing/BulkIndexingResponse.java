@@ -0,0 +1,38 @@
+package net.consensys.mahuta.core.domain.bulkindexing;
+
+import java.util.List;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import net.consensys.mahuta.core.domain.Response;
+
+@Getter @Setter
+@NoArgsConstructor
+public class BulkIndexingResponse implements Response {
+
+    private ResponseStatus status;
+    private List<BulkIndexingItem> items;
+    
+    private BulkIndexingResponse(ResponseStatus status) {
+        this.status = status;
+    }
+    
+    public static BulkIndexingResponse of() {
+        return of(ResponseStatus.SUCCESS);
+    }
+    
+    public static BulkIndexingResponse of(ResponseStatus status) {
+        return new BulkIndexingResponse(status);
+    }
+    
+    public BulkIndexingResponse items(List<BulkIndexingItem> items) {
+        this.items = items;
+        return this;
+    }
+    
+    public boolean hasFailures() {
+        return items != null && items.stream().anyMatch(item -> !item.isSuccess());
+    }
+
+}
@@ -0,0 +1,14 @@
+package net.consensys.mahuta.core.domain.common;
+
+/**
+ * Visibility of a write operation (index, update, deindex) to the search
+ * 
+ * IMMEDIATE: the write is visible to the search when the operation returns (forces a refresh, expensive under load)
+ * WAIT_UNTIL: the operation returns once the write has been made visible by a scheduled refresh
+ * NONE: the operation returns straight away, the write will be visible after the next scheduled refresh
+ * 
+ * A document is always available by id (get) straight after the write, whatever the policy.
+ */
+public enum RefreshPolicy {
+    IMMEDIATE, WAIT_UNTIL, NONE
+}
@@ -18,8 +18,9 @@ public class Page<T> {
     private List<T> elements;
     private Integer totalElements;
     private Integer totalPages;
+    private String nextCursor;
     
-    private Page(PageRequest pageRequest, List<T> elements, Integer totalElements) {
+    private Page(PageRequest pageRequest, List<T> elements, Integer totalElements, String nextCursor) {
         ValidatorUtils.rejectIfNull("pageRequest", pageRequest);
         ValidatorUtils.rejectIfNull("elements", elements);
         ValidatorUtils.rejectIfNegative("totalElements", totalElements);
@@ -28,14 +29,23 @@ public class Page<T> {
         this.elements = elements;
         this.totalElements = totalElements;
         this.totalPages = (totalElements + pageRequest.getSize() - 1) / pageRequest.getSize();
+        this.nextCursor = nextCursor;
     }
     
     public static <T> Page<T> of(PageRequest pageRequest, List<T> elements, Integer totalElements) {
-        return new Page<>(pageRequest, elements, totalElements);
+        return new Page<>(pageRequest, elements, totalElements, null);
+    }
+    
+    /**
+     * Page of a cursor-based pagination
+     * @param nextCursor Opaque cursor to fetch the next page (null if it's the last page)
+     */
+    public static <T> Page<T> of(PageRequest pageRequest, List<T> elements, Integer totalElements, String nextCursor) {
+        return new Page<>(pageRequest, elements, totalElements, nextCursor);
     }
     
     public static <T> Page<T> of(T element) {
-        return new Page<>(PageRequest.singleElementPage(), Arrays.asList(element), 1);
+        return new Page<>(PageRequest.singleElementPage(), Arrays.asList(element), 1, null);
     }
 
     @JsonIgnore
@@ -45,6 +55,9 @@ public class Page<T> {
 
     @JsonIgnore
     public boolean hasNext() {
+        if (pageRequest.isCursorBased()) {
+            return nextCursor != null;
+        }
         return pageRequest.getPage() + 1 < getTotalPages();
     }
 
@@ -55,6 +68,10 @@ public class Page<T> {
 
     @JsonIgnore
     public PageRequest nextPageRequest() {
+        if (pageRequest.isCursorBased()) {
+            ValidatorUtils.rejectIfNull("nextCursor", nextCursor, "No page after the last page");
+            return PageRequest.ofCursor(nextCursor, pageRequest.getPage()+1, pageRequest.getSize(), pageRequest.getSort(), pageRequest.getDirection());
+        }
         return PageRequest.of(pageRequest.getPage()+1, pageRequest.getSize(), pageRequest.getSort(), pageRequest.getDirection());
     }
 }
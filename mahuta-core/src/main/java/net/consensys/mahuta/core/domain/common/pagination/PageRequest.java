@@ -12,6 +12,7 @@ import net.consensys.mahuta.core.utils.ValidatorUtils;
 public class PageRequest {
     public static final int FIRST_PAGE = 0;
     public static final int DEFAULT_SIZE = 20;
+    public static final String FIRST_CURSOR = "*";
 
     public enum SortDirection {
         ASC, DESC
@@ -21,8 +22,13 @@ public class PageRequest {
     private Integer size;
     private String sort;
     private SortDirection direction;
+    private String cursor;
 
     private PageRequest(Integer page, Integer size, String sort, SortDirection direction) {
+        this(page, size, sort, direction, null);
+    }
+
+    private PageRequest(Integer page, Integer size, String sort, SortDirection direction, String cursor) {
         ValidatorUtils.rejectIfNegative("page", page);
         ValidatorUtils.rejectIfNegative("size", size);
         
@@ -30,6 +36,7 @@ public class PageRequest {
         this.size = size;
         this.sort = sort;
         this.direction = direction;
+        this.cursor = cursor;
     }
 
     public static PageRequest of() {
@@ -44,6 +51,34 @@ public class PageRequest {
         return new PageRequest(page, size, sort, direction);
     }
     
+    /**
+     * First page of a cursor-based pagination: each page is fetched after the last element of the previous page 
+     * (constant cost whatever the depth) instead of skipping page*size elements. Walk the pages with Page.nextPageRequest()
+     */
+    public static PageRequest ofCursor(final int size) {
+        return ofCursor(FIRST_CURSOR, size, null, SortDirection.ASC);
+    }
+
+    public static PageRequest ofCursor(final int size, final String sort, final SortDirection direction) {
+        return ofCursor(FIRST_CURSOR, size, sort, direction);
+    }
+
+    /**
+     * Page of a cursor-based pagination
+     * @param cursor Opaque cursor returned by the previous page (Page.getNextCursor()), or FIRST_CURSOR
+     */
+    public static PageRequest ofCursor(final String cursor, final int size, final String sort, final SortDirection direction) {
+        ValidatorUtils.rejectIfEmpty("cursor", cursor);
+        return new PageRequest(FIRST_PAGE, size, sort, direction, cursor);
+    }
+
+    /**
+     * Next page of a cursor-based pagination
+     */
+    static PageRequest ofCursor(final String cursor, final int page, final int size, final String sort, final SortDirection direction) {
+        return new PageRequest(page, size, sort, direction, cursor);
+    }
+    
     public static PageRequest singleElementPage() {
         return PageRequest.of(FIRST_PAGE, 1);
     }
@@ -52,4 +87,14 @@ public class PageRequest {
     public boolean isAscending() {
         return direction.equals(SortDirection.ASC);
     }
+    
+    @JsonIgnore
+    public boolean isCursorBased() {
+        return cursor != null;
+    }
+    
+    @JsonIgnore
+    public boolean isFirstCursor() {
+        return FIRST_CURSOR.equals(cursor);
+    }
 }
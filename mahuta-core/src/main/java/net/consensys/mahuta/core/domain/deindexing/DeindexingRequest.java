@@ -3,11 +3,13 @@ package net.consensys.mahuta.core.domain.deindexing;
 import lombok.Getter;
 import lombok.Setter;
 import net.consensys.mahuta.core.domain.Request;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 
 @Getter @Setter
 public class DeindexingRequest implements Request {
     
     private String indexName;
     private String indexDocId;
+    private RefreshPolicy refreshPolicy;
 
 }
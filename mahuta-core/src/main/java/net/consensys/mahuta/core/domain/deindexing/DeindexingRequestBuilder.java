@@ -1,8 +1,11 @@
 package net.consensys.mahuta.core.domain.deindexing;
 
+import java.util.concurrent.CompletableFuture;
+
 import lombok.Getter;
 import net.consensys.mahuta.core.domain.AbstractBuilder;
 import net.consensys.mahuta.core.domain.Builder;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 import net.consensys.mahuta.core.service.MahutaService;
 
 public class DeindexingRequestBuilder extends AbstractBuilder implements Builder<DeindexingRequest, DeindexingResponse> {
@@ -19,6 +22,11 @@ public class DeindexingRequestBuilder extends AbstractBuilder implements Builder
         return service.deindex(request);
     }
 
+    @Override
+    public CompletableFuture<DeindexingResponse> executeAsync() {
+        return service.deindexAsync(request);
+    }
+
     public DeindexingRequestBuilder indexName(String indexName) {
         request.setIndexName(indexName);
         return this;
@@ -28,4 +36,9 @@ public class DeindexingRequestBuilder extends AbstractBuilder implements Builder
         request.setIndexDocId(indexDocId);
         return this;
     }
+
+    public DeindexingRequestBuilder refreshPolicy(RefreshPolicy refreshPolicy) {
+        request.setRefreshPolicy(refreshPolicy);
+        return this;
+    }
 }
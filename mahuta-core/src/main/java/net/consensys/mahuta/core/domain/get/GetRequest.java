@@ -11,5 +11,8 @@ public class GetRequest implements Request {
     private String indexDocId;
     private String contentId;
     private boolean loadFile;
+    private boolean streamFile;
+    private Long rangeStart;
+    private Long rangeEnd;
 
 }
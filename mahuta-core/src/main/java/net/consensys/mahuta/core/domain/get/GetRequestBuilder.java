@@ -1,5 +1,7 @@
 package net.consensys.mahuta.core.domain.get;
 
+import java.util.concurrent.CompletableFuture;
+
 import lombok.Getter;
 import net.consensys.mahuta.core.domain.AbstractBuilder;
 import net.consensys.mahuta.core.domain.Builder;
@@ -13,6 +15,7 @@ public class GetRequestBuilder extends AbstractBuilder implements Builder<GetReq
         super(service);
         request = new GetRequest();
         request.setLoadFile(false);
+        request.setStreamFile(false);
     }
 
     @Override
@@ -20,6 +23,11 @@ public class GetRequestBuilder extends AbstractBuilder implements Builder<GetReq
         return service.get(request);
     }
 
+    @Override
+    public CompletableFuture<GetResponse> executeAsync() {
+        return service.getAsync(request);
+    }
+
     public GetRequestBuilder indexName(String indexName) {
         request.setIndexName(indexName);
         return this;
@@ -39,4 +47,23 @@ public class GetRequestBuilder extends AbstractBuilder implements Builder<GetReq
         request.setLoadFile(loadFile);
         return this;
     }
+
+    public GetRequestBuilder streamFile(boolean streamFile) {
+        request.setStreamFile(streamFile);
+        return this;
+    }
+
+    /**
+     * Only stream a portion of the file (HTTP byte-range semantic, bounds included)
+     * - range(start, null): from start to the end of the file
+     * - range(null, n): last n bytes of the file
+     * @param start Position of the first byte
+     * @param end Position of the last byte
+     * @return builder
+     */
+    public GetRequestBuilder range(Long start, Long end) {
+        request.setRangeStart(start);
+        request.setRangeEnd(end);
+        return this;
+    }
 }
@@ -1,7 +1,10 @@
 package net.consensys.mahuta.core.domain.get;
 
+import java.io.InputStream;
 import java.io.OutputStream;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -14,6 +17,10 @@ import net.consensys.mahuta.core.domain.common.MetadataAndPayload;
 public class GetResponse extends MetadataAndPayload implements Response {
 
     private ResponseStatus status;
+    private @JsonIgnore InputStream payloadStream;
+    private Long payloadLength;
+    private Long rangeStart;
+    private Long rangeEnd;
 
     private GetResponse(ResponseStatus status) {
         this.status = status;
@@ -37,4 +44,25 @@ public class GetResponse extends MetadataAndPayload implements Response {
         return this;
     }
 
+    public GetResponse payloadStream(InputStream payloadStream) {
+        this.setPayloadStream(payloadStream);
+        return this;
+    }
+
+    public GetResponse payloadLength(Long payloadLength) {
+        this.setPayloadLength(payloadLength);
+        return this;
+    }
+
+    public GetResponse range(Long rangeStart, Long rangeEnd) {
+        this.setRangeStart(rangeStart);
+        this.setRangeEnd(rangeEnd);
+        return this;
+    }
+
+    @JsonIgnore
+    public boolean isPartial() {
+        return rangeStart != null && rangeEnd != null;
+    }
+
 }
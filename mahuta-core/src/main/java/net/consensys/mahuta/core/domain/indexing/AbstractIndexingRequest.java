@@ -4,6 +4,7 @@ import java.util.Map;
 
 import lombok.Getter;
 import lombok.Setter;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 
 @Getter @Setter
 public abstract class AbstractIndexingRequest implements IndexingRequest {
@@ -13,4 +14,5 @@ public abstract class AbstractIndexingRequest implements IndexingRequest {
     protected String contentType;
     protected Map<String, Object> indexFields;
     protected boolean indexContent;
+    protected RefreshPolicy refreshPolicy;
 }
@@ -1,10 +1,12 @@
 package net.consensys.mahuta.core.domain.indexing;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import lombok.Getter;
 import net.consensys.mahuta.core.domain.AbstractBuilder;
 import net.consensys.mahuta.core.domain.Builder;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 import net.consensys.mahuta.core.service.MahutaService;
 
 public class CIDIndexingRequestBuilder extends AbstractBuilder implements Builder<IndexingRequest, IndexingResponse> {
@@ -21,6 +23,11 @@ public class CIDIndexingRequestBuilder extends AbstractBuilder implements Builde
         return service.index(request);
     }
 
+    @Override
+    public CompletableFuture<IndexingResponse> executeAsync() {
+        return service.indexAsync(request);
+    }
+
     public CIDIndexingRequestBuilder request(CIDIndexingRequest request) {
         this.request = request;
         return this;
@@ -56,4 +63,9 @@ public class CIDIndexingRequestBuilder extends AbstractBuilder implements Builde
         return this;
     }
 
+    public CIDIndexingRequestBuilder refreshPolicy(RefreshPolicy refreshPolicy) {
+        request.setRefreshPolicy(refreshPolicy);
+        return this;
+    }
+
 }
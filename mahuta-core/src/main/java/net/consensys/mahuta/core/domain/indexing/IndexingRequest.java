@@ -3,6 +3,7 @@ package net.consensys.mahuta.core.domain.indexing;
 import java.util.Map;
 
 import net.consensys.mahuta.core.domain.Request;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 
 public interface IndexingRequest extends Request {
 
@@ -25,4 +26,8 @@ public interface IndexingRequest extends Request {
     void setIndexContent(boolean indexContent);
     
     boolean isIndexContent();
+    
+    RefreshPolicy getRefreshPolicy();
+    
+    void setRefreshPolicy(RefreshPolicy refreshPolicy);
 }
@@ -1,9 +1,10 @@
 package net.consensys.mahuta.core.domain.indexing;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -11,10 +12,21 @@ import net.consensys.mahuta.core.domain.common.Metadata;
 import net.consensys.mahuta.core.domain.Response;
 
 @Getter @Setter
-@AllArgsConstructor @NoArgsConstructor
+@NoArgsConstructor
 public class IndexingResponse extends Metadata implements Response {
 
     private @Getter ResponseStatus status;
+    
+    /**
+     * Future completed once the content is pinned on all the replicas (already completed if there is nothing to pin 
+     * in background)
+     */
+    @JsonIgnore
+    private transient CompletableFuture<Void> replicaPinning = CompletableFuture.completedFuture(null);
+
+    public IndexingResponse(ResponseStatus status) {
+        this.status = status;
+    }
 
     public static IndexingResponse of(String indexName, String indexDocId, String contentId, String contentType, boolean pinned,
             Map<String, Object> indexFields) {
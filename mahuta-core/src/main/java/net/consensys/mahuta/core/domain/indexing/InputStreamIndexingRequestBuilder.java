@@ -2,10 +2,12 @@ package net.consensys.mahuta.core.domain.indexing;
 
 import java.io.InputStream;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import lombok.Getter;
 import net.consensys.mahuta.core.domain.AbstractBuilder;
 import net.consensys.mahuta.core.domain.Builder;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 import net.consensys.mahuta.core.service.MahutaService;
 
 public class InputStreamIndexingRequestBuilder extends AbstractBuilder implements Builder<IndexingRequest, IndexingResponse> {
@@ -22,6 +24,11 @@ public class InputStreamIndexingRequestBuilder extends AbstractBuilder implement
         return service.index(request);
     }
 
+    @Override
+    public CompletableFuture<IndexingResponse> executeAsync() {
+        return service.indexAsync(request);
+    }
+
     public InputStreamIndexingRequestBuilder request(InputStreamIndexingRequest request) {
         this.request = request;
         return this;
@@ -57,4 +64,9 @@ public class InputStreamIndexingRequestBuilder extends AbstractBuilder implement
         return this;
     }
 
+    public InputStreamIndexingRequestBuilder refreshPolicy(RefreshPolicy refreshPolicy) {
+        request.setRefreshPolicy(refreshPolicy);
+        return this;
+    }
+
 }
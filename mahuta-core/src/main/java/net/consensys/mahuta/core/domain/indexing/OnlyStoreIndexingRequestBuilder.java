@@ -1,6 +1,7 @@
 package net.consensys.mahuta.core.domain.indexing;
 
 import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 
 import lombok.Getter;
 import net.consensys.mahuta.core.domain.AbstractBuilder;
@@ -21,6 +22,11 @@ public class OnlyStoreIndexingRequestBuilder extends AbstractBuilder implements
         return service.index(request);
     }
 
+    @Override
+    public CompletableFuture<IndexingResponse> executeAsync() {
+        return service.indexAsync(request);
+    }
+
     public OnlyStoreIndexingRequestBuilder request(OnylStoreIndexingRequest request) {
         this.request = request;
         return this;
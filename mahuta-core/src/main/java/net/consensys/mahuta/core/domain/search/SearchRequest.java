@@ -13,4 +13,6 @@ public class SearchRequest implements Request {
     private Query query;
     private PageRequest pageRequest;
     private boolean loadFile;
+    private int loadFileConcurrency;
+    private long loadFileTimeout;
 }
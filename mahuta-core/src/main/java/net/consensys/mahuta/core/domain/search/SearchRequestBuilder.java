@@ -1,5 +1,7 @@
 package net.consensys.mahuta.core.domain.search;
 
+import java.util.concurrent.CompletableFuture;
+
 import lombok.Getter;
 import net.consensys.mahuta.core.domain.AbstractBuilder;
 import net.consensys.mahuta.core.domain.Builder;
@@ -8,6 +10,8 @@ import net.consensys.mahuta.core.domain.common.query.Query;
 import net.consensys.mahuta.core.service.MahutaService;
 
 public class SearchRequestBuilder extends AbstractBuilder implements Builder<SearchRequest, SearchResponse> {
+    public static final int DEFAULT_LOAD_FILE_CONCURRENCY = 8;
+    public static final long DEFAULT_LOAD_FILE_TIMEOUT = 30000;
 
     protected @Getter SearchRequest request;
 
@@ -15,6 +19,8 @@ public class SearchRequestBuilder extends AbstractBuilder implements Builder<Sea
         super(service);
         request = new SearchRequest();
         request.setLoadFile(false);
+        request.setLoadFileConcurrency(DEFAULT_LOAD_FILE_CONCURRENCY);
+        request.setLoadFileTimeout(DEFAULT_LOAD_FILE_TIMEOUT);
         request.setPageRequest(PageRequest.of());
         request.setQuery(Query.newQuery());
     }
@@ -24,6 +30,11 @@ public class SearchRequestBuilder extends AbstractBuilder implements Builder<Sea
         return service.search(request);
     }
 
+    @Override
+    public CompletableFuture<SearchResponse> executeAsync() {
+        return service.searchAsync(request);
+    }
+
     public SearchRequestBuilder pageRequest(PageRequest pageRequest) {
         request.setPageRequest(pageRequest);
         return this;
@@ -43,4 +54,14 @@ public class SearchRequestBuilder extends AbstractBuilder implements Builder<Sea
         request.setLoadFile(loadFile);
         return this;
     }
+
+    public SearchRequestBuilder loadFileConcurrency(int loadFileConcurrency) {
+        request.setLoadFileConcurrency(loadFileConcurrency);
+        return this;
+    }
+
+    public SearchRequestBuilder loadFileTimeout(long loadFileTimeout) {
+        request.setLoadFileTimeout(loadFileTimeout);
+        return this;
+    }
 }
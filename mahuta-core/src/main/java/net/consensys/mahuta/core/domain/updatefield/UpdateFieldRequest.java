@@ -3,6 +3,7 @@ package net.consensys.mahuta.core.domain.updatefield;
 import lombok.Getter;
 import lombok.Setter;
 import net.consensys.mahuta.core.domain.Request;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 
 @Getter @Setter
 public class UpdateFieldRequest implements Request {
@@ -11,5 +12,6 @@ public class UpdateFieldRequest implements Request {
     protected String indexDocId;
     protected String key;
     protected Object value;
+    protected RefreshPolicy refreshPolicy;
 
 }
@@ -3,6 +3,7 @@ package net.consensys.mahuta.core.domain.updatefield;
 import lombok.Getter;
 import net.consensys.mahuta.core.domain.AbstractBuilder;
 import net.consensys.mahuta.core.domain.Builder;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 import net.consensys.mahuta.core.service.MahutaService;
 
 public class UpdateFieldRequestBuilder extends AbstractBuilder implements Builder<UpdateFieldRequest, UpdateFieldResponse> {
@@ -43,4 +44,9 @@ public class UpdateFieldRequestBuilder extends AbstractBuilder implements Builde
         request.setValue(value);
         return this;
     }
+
+    public UpdateFieldRequestBuilder refreshPolicy(RefreshPolicy refreshPolicy) {
+        request.setRefreshPolicy(refreshPolicy);
+        return this;
+    }
 }
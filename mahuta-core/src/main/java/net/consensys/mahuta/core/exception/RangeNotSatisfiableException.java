@@ -0,0 +1,16 @@
+package net.consensys.mahuta.core.exception;
+
+import lombok.Getter;
+
+public class RangeNotSatisfiableException extends ValidationException {
+
+    private static final long serialVersionUID = 4920185273957216409L;
+    private static final String messageFormat = "Range [start: %s, end: %s] cannot be satisfied for a content of %s bytes";
+    
+    private final @Getter long contentLength;
+
+    public RangeNotSatisfiableException(Long rangeStart, Long rangeEnd, long contentLength) {
+        super(String.format(messageFormat, rangeStart, rangeEnd, contentLength));
+        this.contentLength = contentLength;
+    }
+}
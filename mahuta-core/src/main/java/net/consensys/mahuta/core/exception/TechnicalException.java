@@ -1,11 +1,15 @@
-package net.consensys.mahuta.core.exception;
-
-public class TechnicalException extends RuntimeException {
-
-    private static final long serialVersionUID = 9201898433665734132L;
-
-    public TechnicalException(String message, Throwable cause) {
-        super(message, cause);
-    }
-
-}
+package net.consensys.mahuta.core.exception;
+
+public class TechnicalException extends RuntimeException {
+
+    private static final long serialVersionUID = 9201898433665734132L;
+
+    public TechnicalException(String message) {
+        super(message);
+    }
+
+    public TechnicalException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
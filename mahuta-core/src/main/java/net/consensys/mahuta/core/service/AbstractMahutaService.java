@@ -1,18 +1,30 @@
 package net.consensys.mahuta.core.service;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingItem;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingRequest;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingResponse;
 import net.consensys.mahuta.core.domain.common.Content;
 import net.consensys.mahuta.core.domain.common.Metadata;
 import net.consensys.mahuta.core.domain.common.MetadataAndPayload;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 import net.consensys.mahuta.core.domain.common.pagination.Page;
 import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
 import net.consensys.mahuta.core.domain.common.query.Query;
@@ -34,10 +46,13 @@ import net.consensys.mahuta.core.domain.search.SearchRequest;
 import net.consensys.mahuta.core.domain.search.SearchResponse;
 import net.consensys.mahuta.core.domain.updatefield.UpdateFieldRequest;
 import net.consensys.mahuta.core.domain.updatefield.UpdateFieldResponse;
+import net.consensys.mahuta.core.exception.RangeNotSatisfiableException;
 import net.consensys.mahuta.core.exception.ValidationException;
 import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.pinning.PinningExecutor;
 import net.consensys.mahuta.core.service.storage.StorageService;
 import net.consensys.mahuta.core.utils.BytesUtils;
+import net.consensys.mahuta.core.utils.FutureUtils;
 import net.consensys.mahuta.core.utils.ValidatorUtils;
 import net.consensys.mahuta.core.utils.lamba.Throwing;
 
@@ -54,14 +69,27 @@ public abstract class AbstractMahutaService implements MahutaService {
     protected final StorageService storageService;
     protected final IndexingService indexingService;
     protected final boolean noPin;
+    protected final PinningExecutor pinningExecutor;
 
+    /**
+     * Service pinning the replicas with the shared pinning executor (PinningExecutor.shared())
+     */
     protected AbstractMahutaService(StorageService storageService, IndexingService indexingService, boolean noPin) {
+        this(storageService, indexingService, noPin, noPin ? null : PinningExecutor.shared());
+    }
+
+    protected AbstractMahutaService(StorageService storageService, IndexingService indexingService, boolean noPin, 
+            PinningExecutor pinningExecutor) {
         ValidatorUtils.rejectIfNull("storageService", storageService, "Configure the storage service");
         ValidatorUtils.rejectIfNull("indexingService", indexingService, "Configure the indexer service");
+        if (!noPin) {
+            ValidatorUtils.rejectIfNull("pinningExecutor", pinningExecutor, "Configure the pinning executor");
+        }
 
         this.storageService = storageService;
         this.indexingService = indexingService;
         this.noPin = noPin;
+        this.pinningExecutor = pinningExecutor;
     }
 
     @Override
@@ -86,16 +114,162 @@ public abstract class AbstractMahutaService implements MahutaService {
         ValidatorUtils.rejectIfNull(REQUEST, request);
 
         // Write content
+        Metadata document = write(request);
+        
+        if (request instanceof OnylStoreIndexingRequest) {
+            return IndexingResponse.of(document.getContentId());
+        }
+
+        // Index content
+        String indexDocId = indexingService.index(request.getIndexName(), request.getIndexDocId(), document.getContentId(), 
+                document.getContentType(), document.getContent(), !noPin, request.getIndexFields(), request.getRefreshPolicy());
+
+        // Pin replica
+        CompletableFuture<Void> replicaPinning = pinReplicas(request.getIndexName(), indexDocId, document.getContentId(), request.getIndexFields(), true);
+
+        // Result 
+        IndexingResponse response = IndexingResponse.of(request.getIndexName(), indexDocId, document.getContentId(), document.getContentType(),
+                !noPin, request.getIndexFields());
+        response.setReplicaPinning(replicaPinning);
+        return response;
+    }
+
+    /**
+     * Index without blocking: the content is written then indexed with non-blocking I/O, except the content of an 
+     * InputStream request which is read (and written) on the calling thread
+     * 
+     * The pins are submitted from the thread completing the indexing, so they are never run on it: with the 
+     * CALLER_RUNS policy, a pin submitted when the pinning queue is full is skipped (its replicaPinning future fails)
+     */
+    @Override
+    public CompletableFuture<IndexingResponse> indexAsync(IndexingRequest request) {
+
+        ValidatorUtils.rejectIfNull(REQUEST, request);
+
+        return writeAsync(request).thenCompose(document -> {
+            if (request instanceof OnylStoreIndexingRequest) {
+                return CompletableFuture.completedFuture(IndexingResponse.of(document.getContentId()));
+            }
+            
+            return indexingService.indexAsync(request.getIndexName(), request.getIndexDocId(), document.getContentId(), 
+                    document.getContentType(), document.getContent(), !noPin, request.getIndexFields(), request.getRefreshPolicy())
+                .thenApply(indexDocId -> {
+                    IndexingResponse response = IndexingResponse.of(request.getIndexName(), indexDocId, document.getContentId(), 
+                            document.getContentType(), !noPin, request.getIndexFields());
+                    response.setReplicaPinning(pinReplicas(request.getIndexName(), indexDocId, document.getContentId(), 
+                            request.getIndexFields(), false));
+                    return response;
+                });
+        });
+    }
+
+    @Override
+    public BulkIndexingResponse bulkIndex(BulkIndexingRequest request) {
+
+        ValidatorUtils.rejectIfNull(REQUEST, request);
+        ValidatorUtils.rejectIfNull("requests", request.getRequests());
+        if (request.getConcurrency() < 1 || request.getBatchSize() < 1) {
+            throw new ValidationException("concurrency and batchSize must be greater than 0");
+        }
+
+        List<IndexingRequest> requests = request.getRequests();
+        BulkIndexingItem[] items = new BulkIndexingItem[requests.size()];
+        
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(request.getConcurrency(), Math.max(1, requests.size())));
+        try {
+            // Batches are processed one after another so only one batch of content is held in memory
+            for (int from = 0; from < requests.size(); from += request.getBatchSize()) {
+                int to = Math.min(from + request.getBatchSize(), requests.size());
+                bulkIndexBatch(requests, from, to, request.getRefreshPolicy(), items, executor);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        return BulkIndexingResponse.of().items(Arrays.asList(items));
+    }
+
+    /**
+     * Write the contents of the requests [from, to[ with the executor, then index the written contents in one batch 
+     * @param items Results (filled in for the requests [from, to[)
+     */
+    private void bulkIndexBatch(List<IndexingRequest> requests, int from, int to, RefreshPolicy refreshPolicy, 
+            BulkIndexingItem[] items, ExecutorService executor) {
+        
+        // Write contents (concurrently)
+        Metadata[] documents = new Metadata[to - from];
+        CompletableFuture.allOf(IntStream.range(from, to)
+            .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                try {
+                    ValidatorUtils.rejectIfNull(REQUEST, requests.get(i));
+                    documents[i - from] = write(requests.get(i));
+                } catch (Exception ex) {
+                    log.warn("Error while writing the content of the request {} of the bulk indexing: {}", i, ex.getMessage());
+                    items[i] = BulkIndexingItem.failure(ex.getMessage());
+                }
+            }, executor))
+            .toArray(CompletableFuture[]::new)).join();
+        
+        // Index the written contents (single batch)
+        List<Integer> positions = new ArrayList<>();
+        List<Metadata> toIndex = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            Metadata document = documents[i - from];
+            if (items[i] != null) {
+                continue;
+            } else if (requests.get(i) instanceof OnylStoreIndexingRequest) {
+                items[i] = BulkIndexingItem.success(IndexingResponse.of(document.getContentId()));
+            } else {
+                positions.add(i);
+                toIndex.add(document);
+            }
+        }
+        
+        if (toIndex.isEmpty()) {
+            return;
+        }
+
+        List<BulkIndexingItem> results;
+        try {
+            results = indexingService.bulkIndex(toIndex, refreshPolicy);
+        } catch (Exception ex) {
+            log.warn("Error while indexing a batch of {} documents of the bulk indexing: {}", toIndex.size(), ex.getMessage());
+            results = toIndex.stream().map(d -> BulkIndexingItem.failure(ex.getMessage())).collect(Collectors.toList());
+        }
+        
+        // Pin replica
+        for (int j = 0; j < positions.size(); j++) {
+            BulkIndexingItem item = results.get(j);
+            items[positions.get(j)] = item;
+            if (item.isSuccess()) {
+                IndexingResponse response = item.getResponse();
+                response.setReplicaPinning(pinReplicas(response.getIndexName(), response.getIndexDocId(), response.getContentId(), 
+                        response.getIndexFields(), true));
+            }
+        }
+    }
+
+    /**
+     * Write the content of a request to the storage
+     * @return Document to index (content only present if the content has to be indexed)
+     */
+    protected Metadata write(IndexingRequest request) {
         byte[] content = null;
         String contentId = null;
         String contentType = request.getContentType();
 
         if (request instanceof InputStreamIndexingRequest) {
-            InputStream contentIS = ((InputStreamIndexingRequest) request).getContent();
-            content = BytesUtils.convertToByteArray(contentIS);
-            contentId = storageService.write(content, noPin);
+            InputStream contentIS = new BufferedInputStream(((InputStreamIndexingRequest) request).getContent());
             contentType = Optional.ofNullable(contentType)
                     .orElseGet(Throwing.rethrowSupplier(() -> URLConnection.guessContentTypeFromStream(contentIS)));
+            
+            // Only buffer the content if it needs to be indexed, otherwise stream it to the storage
+            if(request.isIndexContent()) {
+                content = BytesUtils.convertToByteArray(contentIS);
+                contentId = storageService.write(content, noPin);
+            } else {
+                contentId = storageService.write(contentIS, noPin);
+            }
 
         } else if (request instanceof CIDIndexingRequest) {
             String cid = ((CIDIndexingRequest) request).getCid();
@@ -108,39 +282,58 @@ public abstract class AbstractMahutaService implements MahutaService {
             contentId = storageService.write(contentStr.getBytes(), noPin);
 
         } else if (request instanceof OnylStoreIndexingRequest) {
-            contentId = storageService.write(BytesUtils.convertToByteArray(((OnylStoreIndexingRequest) request).getContent()), false);
-            
-            return IndexingResponse.of(contentId);
+            contentId = storageService.write(((OnylStoreIndexingRequest) request).getContent(), false);
 
         } else {
             throw new UnsupportedOperationException(request.getClass().getName() + " isn't supported yet");
         }
+        
+        return document(request, contentId, contentType, content);
+    }
+
+    /**
+     * Write the content of a request to the storage without blocking (String and CID requests), the content of an 
+     * InputStream request is read and written on the calling thread
+     * @return Future completed with the document to index
+     */
+    protected CompletableFuture<Metadata> writeAsync(IndexingRequest request) {
+        if (request instanceof StringIndexingRequest) {
+            byte[] content = ((StringIndexingRequest) request).getContent().getBytes();
+            return storageService.writeAsync(content, noPin)
+                    .thenApply(contentId -> document(request, contentId, request.getContentType(), content));
+
+        } else if (request instanceof CIDIndexingRequest) {
+            String cid = ((CIDIndexingRequest) request).getCid();
+            return storageService.readAsync(cid)
+                    .thenApply(content -> document(request, cid, request.getContentType(), ((ByteArrayOutputStream) content).toByteArray()));
 
-        // Index content
-        String indexDocId;
-        if(request.isIndexContent()) {
-            indexDocId = indexingService.index(request.getIndexName(), request.getIndexDocId(), contentId, 
-                    contentType, content, !noPin, request.getIndexFields());
         } else {
-            indexDocId = indexingService.index(request.getIndexName(), request.getIndexDocId(), contentId, 
-                    contentType, null, !noPin, request.getIndexFields());
+            return FutureUtils.supply(() -> write(request));
         }
-        
+    }
 
-        // Pin replica
-        if(!noPin) {
-            Content contentToPin = Content.of(contentId);
-            storageService.getReplicaSet().forEach(pinningService ->
-                CompletableFuture.runAsync(() -> pinningService.pin(
-                        contentToPin.getContentId(), 
-                        request.getIndexName() + "_" + indexDocId, 
-                        request.getIndexFields()))
-            );
+    private Metadata document(IndexingRequest request, String contentId, String contentType, byte[] content) {
+        return Metadata.of(request.getIndexName(), request.getIndexDocId(), contentId, contentType, 
+                request.isIndexContent() ? content : null, !noPin, request.getIndexFields());
+    }
+
+    /**
+     * Pin a content on each replica (asynchronously, with the pinning executor)
+     * @param callerRuns Allow the pins to run on the calling thread when the pinning queue is full (CALLER_RUNS policy)
+     * @return Future completed once the content is pinned on all the replicas
+     */
+    protected CompletableFuture<Void> pinReplicas(String indexName, String indexDocId, String contentId, Map<String, Object> indexFields, 
+            boolean callerRuns) {
+        if(noPin) {
+            return CompletableFuture.completedFuture(null);
         }
 
-        // Result 
-        return IndexingResponse.of(request.getIndexName(), indexDocId, contentId, contentType,
-                !noPin, request.getIndexFields());
+        Content contentToPin = Content.of(contentId);
+        return CompletableFuture.allOf(storageService.getReplicaSet().stream()
+            .map(pinningService -> callerRuns 
+                    ? pinningExecutor.pin(pinningService, contentToPin.getContentId(), indexName + "_" + indexDocId, indexFields)
+                    : pinningExecutor.pinAsync(pinningService, contentToPin.getContentId(), indexName + "_" + indexDocId, indexFields))
+            .toArray(CompletableFuture[]::new));
     }
 
     @Override
@@ -151,7 +344,8 @@ public abstract class AbstractMahutaService implements MahutaService {
                 request.getIndexName(), 
                 request.getIndexDocId(), 
                 request.getKey(), 
-                request.getValue());
+                request.getValue(),
+                request.getRefreshPolicy());
 
         return UpdateFieldResponse.of();
     }
@@ -163,7 +357,7 @@ public abstract class AbstractMahutaService implements MahutaService {
 
         Metadata metadata = indexingService.getDocument(request.getIndexName(), request.getIndexDocId());
 
-        indexingService.deindex(request.getIndexName(), request.getIndexDocId());
+        indexingService.deindex(request.getIndexName(), request.getIndexDocId(), request.getRefreshPolicy());
 
         storageService.getReplicaSet()
             .forEach(pinningService -> pinningService.unpin(metadata.getContentId()));
@@ -171,6 +365,19 @@ public abstract class AbstractMahutaService implements MahutaService {
         return DeindexingResponse.of();
     }
 
+    @Override
+    public CompletableFuture<DeindexingResponse> deindexAsync(DeindexingRequest request) {
+
+        ValidatorUtils.rejectIfNull(REQUEST, request);
+
+        return indexingService.getDocumentAsync(request.getIndexName(), request.getIndexDocId())
+            .thenCompose(metadata -> indexingService.deindexAsync(request.getIndexName(), request.getIndexDocId(), request.getRefreshPolicy())
+                .thenCompose(deindexed -> CompletableFuture.allOf(storageService.getReplicaSet().stream()
+                    .map(pinningService -> pinningService.unpinAsync(metadata.getContentId()))
+                    .toArray(CompletableFuture[]::new))))
+            .thenApply(unpinned -> DeindexingResponse.of());
+    }
+
     @Override
     public GetResponse get(GetRequest request) {
 
@@ -221,30 +428,173 @@ public abstract class AbstractMahutaService implements MahutaService {
         } else if (request.isLoadFile() && content != null) {
             payload = BytesUtils.convertToOutputStream(content);
         }
+        
+        GetResponse response = GetResponse.of().metadata(metadata).payload(payload);
 
-        return GetResponse.of().metadata(metadata).payload(payload);
+        // Payload (stream)
+        if (request.isStreamFile() && request.getRangeStart() == null && request.getRangeEnd() == null) {
+            if (content == null) {
+                response.payloadStream(storageService.readStream(contentId));
+            } else {
+                response.payloadStream(new ByteArrayInputStream(content)).payloadLength((long) content.length);
+            }
+            
+        } else if (request.isStreamFile()) {
+            long length = content == null ? storageService.getSize(contentId) : content.length;
+            long[] range = resolveRange(request.getRangeStart(), request.getRangeEnd(), length);
+            long rangeLength = range[1] - range[0] + 1;
+            
+            if (content == null) {
+                response.payloadStream(storageService.readStream(contentId, range[0], rangeLength));
+            } else {
+                response.payloadStream(new ByteArrayInputStream(content, (int) range[0], (int) rangeLength));
+            }
+            response.payloadLength(length).range(range[0], range[1]);
+        }
+
+        return response;
     }
 
+    /**
+     * Get without blocking, except a request streaming the file: the stream is opened on the calling thread
+     */
     @Override
-    public SearchResponse search(SearchRequest request) {
+    public CompletableFuture<GetResponse> getAsync(GetRequest request) {
 
         ValidatorUtils.rejectIfNull(REQUEST, request);
 
+        if (request.isStreamFile()) {
+            return FutureUtils.supply(() -> get(request));
+        }
+
+        // If an index is passed, we try to find some metadata, either by indexDocId or contentId
+        CompletableFuture<Metadata> metadata;
+        if(!ValidatorUtils.isEmpty(request.getIndexName())) {
+            
+            if (!ValidatorUtils.isEmpty(request.getIndexDocId())) {
+                metadata = indexingService.getDocumentAsync(request.getIndexName(), request.getIndexDocId());
+
+            } else if (!ValidatorUtils.isEmpty(request.getContentId())) {
+                Query query = Query.newQuery().equals(IndexingService.HASH_INDEX_KEY, request.getContentId());
+                metadata = indexingService.searchDocumentsAsync(request.getIndexName(), query, PageRequest.singleElementPage())
+                    .thenApply(result -> {
+                        if (result.isEmpty()) {
+                            log.warn("Document [hash: {}] not found in the index {}", request.getContentId(), request.getIndexName());
+                            return null;
+                        }
+                        return result.getElements().get(0);
+                    });
+                
+            } else {
+                throw new ValidationException("request must contain 'indexDocId' or 'contentId'");
+            }
+            
+        } else if(ValidatorUtils.isEmpty(request.getContentId())) {
+            throw new ValidationException("request must contain 'contentId'");
+        
+        } else {
+            metadata = CompletableFuture.completedFuture(null);
+        }
+
+        return metadata.thenCompose(m -> loadAsync(request.isLoadFile(), 
+                    m != null ? m.getContentId() : request.getContentId(), m != null ? m.getContent() : null)
+                .thenApply(payload -> GetResponse.of().metadata(m).payload(payload)));
+    }
+
+    /**
+     * Search, the payloads of the page (loadFile) are read concurrently (see loadFileConcurrency and loadFileTimeout)
+     */
+    @Override
+    public SearchResponse search(SearchRequest request) {
+
+        validate(request);
+
         Page<Metadata> metadatas = indexingService.searchDocuments(request.getIndexName(), request.getQuery(),
                 request.getPageRequest());
 
-        List<MetadataAndPayload> elements = metadatas.getElements().stream().map(m -> {
-            MetadataAndPayload mp = new MetadataAndPayload();
-            mp.setMetadata(m);
-            if (request.isLoadFile() && m.getContent() == null) {
-                mp.setPayload(storageService.read(m.getContentId()));
-            } else if (request.isLoadFile() && m.getContent() != null) {
-                mp.setPayload(BytesUtils.convertToOutputStream(m.getContent()));
-            }
-            return mp;
-        }).collect(Collectors.toList());
+        return FutureUtils.join(toResponse(request, metadatas));
+    }
+
+    /**
+     * Search without blocking, the payloads of the page (loadFile) are read concurrently
+     */
+    @Override
+    public CompletableFuture<SearchResponse> searchAsync(SearchRequest request) {
 
-        return SearchResponse.of().result(Page.of(request.getPageRequest(), elements, metadatas.getTotalElements()));
+        validate(request);
+
+        return indexingService.searchDocumentsAsync(request.getIndexName(), request.getQuery(), request.getPageRequest())
+            .thenCompose(metadatas -> toResponse(request, metadatas));
+    }
+
+    private static void validate(SearchRequest request) {
+        ValidatorUtils.rejectIfNull(REQUEST, request);
+        if (request.isLoadFile() && (request.getLoadFileConcurrency() < 1 || request.getLoadFileTimeout() < 1)) {
+            throw new ValidationException("loadFileConcurrency and loadFileTimeout must be greater than 0");
+        }
+    }
+
+    /**
+     * Attach the payloads to a page of documents (if loadFile): contents shared by several documents are read once, 
+     * at most loadFileConcurrency at the same time and within loadFileTimeout ms for the whole page
+     */
+    private CompletableFuture<SearchResponse> toResponse(SearchRequest request, Page<Metadata> metadatas) {
+        
+        CompletableFuture<List<OutputStream>> payloads = request.isLoadFile()
+                ? PayloadLoader.load(storageService, metadatas.getElements(), request.getLoadFileConcurrency(), request.getLoadFileTimeout())
+                : CompletableFuture.completedFuture(null);
+
+        return payloads.thenApply(loaded -> {
+            List<MetadataAndPayload> elements = IntStream.range(0, metadatas.getElements().size()).mapToObj(i -> {
+                MetadataAndPayload mp = new MetadataAndPayload();
+                mp.setMetadata(metadatas.getElements().get(i));
+                mp.setPayload(loaded != null ? loaded.get(i) : null);
+                return mp;
+            }).collect(Collectors.toList());
+
+            return SearchResponse.of().result(Page.of(request.getPageRequest(), elements, metadatas.getTotalElements(), 
+                    metadatas.getNextCursor()));
+        });
+    }
+
+    /**
+     * Load the payload of a document: content indexed, or read from the storage without blocking
+     * @return Future completed with the payload (null if loadFile is false)
+     */
+    private CompletableFuture<OutputStream> loadAsync(boolean loadFile, String contentId, byte[] content) {
+        if (!loadFile) {
+            return CompletableFuture.completedFuture(null);
+        } else if (content != null) {
+            return CompletableFuture.completedFuture(BytesUtils.convertToOutputStream(content));
+        } else {
+            return storageService.readAsync(contentId);
+        }
+    }
+
+    /**
+     * Resolve a byte-range (bounds included) against the length of a content
+     * @param start Position of the first byte (null: suffix range of 'end' bytes)
+     * @param end Position of the last byte (null: until the end of the content)
+     * @param length Content length
+     * @return [first, last] positions
+     */
+    protected static long[] resolveRange(Long start, Long end, long length) {
+        long first;
+        long last;
+        
+        if (start == null) {
+            first = Math.max(0, length - end);
+            last = length - 1;
+        } else {
+            first = start;
+            last = end == null ? length - 1 : Math.min(end, length - 1);
+        }
+        
+        if (first < 0 || first >= length || last < first) {
+            throw new RangeNotSatisfiableException(start, end, length);
+        }
+        
+        return new long[] {first, last};
     }
 
 }
@@ -1,16 +1,36 @@
 package net.consensys.mahuta.core.service;
 
-import java.util.Optional;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
 import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 import net.consensys.mahuta.core.domain.common.pagination.Page;
 import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
 import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.domain.deindexing.DeindexingRequest;
+import net.consensys.mahuta.core.domain.deindexing.DeindexingResponse;
+import net.consensys.mahuta.core.exception.NoIndexException;
+import net.consensys.mahuta.core.exception.NotFoundException;
+import net.consensys.mahuta.core.exception.ValidationException;
 import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.service.pinning.journal.PinJournal;
+import net.consensys.mahuta.core.service.pinning.journal.PinTask;
 import net.consensys.mahuta.core.service.storage.StorageService;
 
 /**
@@ -23,66 +43,310 @@ import net.consensys.mahuta.core.service.storage.StorageService;
 public class AsynchonousPinningMahutaService extends AbstractMahutaService {
     private static final Integer SCHEDULER_THREAD_POOL = 1;
     private static final Integer SCHEDULER_INITIAL_DELAY = 0;
-    private static final Integer PAGE_SIZE = 50;
-    
+    public static final int DEFAULT_CONCURRENCY = 4;
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    public static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(30);
+    private static final String THREAD_PREFIX = "mahuta-async-pinning-";
+
     private final ScheduledExecutorService scheduler;
+    private final ExecutorService workers;
+    private final int batchSize;
+    private final PinJournal journal;
+    private boolean recovered;
 
     public AsynchonousPinningMahutaService(StorageService storageService, IndexingService indexingService, long schedulerPeriod) {
+        this(storageService, indexingService, schedulerPeriod, DEFAULT_CONCURRENCY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param concurrency Number of pins running at the same time (across documents and replicas)
+     * @param batchSize Number of documents fetched and flagged as pinned per request to the indexer
+     */
+    public AsynchonousPinningMahutaService(StorageService storageService, IndexingService indexingService, long schedulerPeriod,
+            int concurrency, int batchSize) {
+        this(storageService, indexingService, schedulerPeriod, concurrency, batchSize, null);
+    }
+
+    /**
+     * @param concurrency Number of pins running at the same time (across documents and replicas)
+     * @param batchSize Number of documents fetched and flagged as pinned per request to the indexer
+     * @param journal Durable queue of the pending pins (null: the pending pins are searched in the indexer on each run)
+     */
+    public AsynchonousPinningMahutaService(StorageService storageService, IndexingService indexingService, long schedulerPeriod,
+            int concurrency, int batchSize, PinJournal journal) {
         super(storageService, indexingService, true);
 
-        log.info("Start scheduled pinning process [thread-pool: {}, delay: {}, period: {}]", 
-                SCHEDULER_THREAD_POOL, SCHEDULER_INITIAL_DELAY, schedulerPeriod);
-        this.scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREAD_POOL);
+        if (concurrency < 1 || batchSize < 1) {
+            throw new ValidationException("concurrency and batchSize must be greater than 0");
+        }
+
+        log.info("Start scheduled pinning process [thread-pool: {}, delay: {}, period: {}, concurrency: {}, batchSize: {}, journal: {}]",
+                SCHEDULER_THREAD_POOL, SCHEDULER_INITIAL_DELAY, schedulerPeriod, concurrency, batchSize, journal != null);
+        this.batchSize = batchSize;
+        this.journal = journal;
+        this.recovered = false;
+        this.workers = Executors.newFixedThreadPool(concurrency, threadFactory("worker-"));
+        this.scheduler = Executors.newScheduledThreadPool(SCHEDULER_THREAD_POOL, threadFactory("scheduler-"));
         this.scheduler.scheduleAtFixedRate(this::run, SCHEDULER_INITIAL_DELAY, schedulerPeriod, TimeUnit.MILLISECONDS);
-        
+
+    }
+
+    /**
+     * Queue the pin of a content indexed (journal only, otherwise the content is found in the indexer via the flag __pinned=false)
+     */
+    @Override
+    protected CompletableFuture<Void> pinReplicas(String indexName, String indexDocId, String contentId, Map<String, Object> indexFields, 
+            boolean callerRuns) {
+        if (journal != null) {
+            journal.add(indexName, indexDocId, contentId, indexFields);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Remove the pending pin of the document from the journal before deindexing it (if the deindexing fails, the pin 
+     * is queued again from the indexer on the next start)
+     */
+    @Override
+    public DeindexingResponse deindex(DeindexingRequest request) {
+        if (journal != null && request != null) {
+            journal.remove(request.getIndexName(), request.getIndexDocId());
+        }
+        return super.deindex(request);
+    }
+
+    @Override
+    public CompletableFuture<DeindexingResponse> deindexAsync(DeindexingRequest request) {
+        if (journal != null && request != null) {
+            journal.remove(request.getIndexName(), request.getIndexDocId());
+        }
+        return super.deindexAsync(request);
     }
 
     /**
      * run
      * Pin all files with the flag __pinned=false
+     * 
+     * With a journal, the files with the flag __pinned=false are only searched in the indexer on the first run (to 
+     * queue the files indexed without journal), the next runs only consume the journal
      */
-    public void run() {
+    public synchronized void run() {
         log.debug("Run asynchromous pinning process");
 
         try {
+            if (journal == null) {
+                indexingService.getIndexes().forEach(indexName -> 
+                    forEachPendingBatch(indexName, (documents, last) -> pin(indexName, documents, last)));
+                
+            } else {
+                if (!recovered) {
+                    indexingService.getIndexes().forEach(indexName -> 
+                        forEachPendingBatch(indexName, (documents, last) -> documents.forEach(m -> 
+                            journal.add(indexName, m.getIndexDocId(), m.getContentId(), m.getIndexFields()))));
+                    recovered = true;
+                }
+                consumeJournal();
+            }
+
+        } catch(Exception ex) {
+            log.error("Error while running the asynchromous pinning process", ex);
+        }
+    }
+
+    /**
+     * Walk the files of an index with the flag __pinned=false, batch by batch
+     *
+     * The documents are walked with a cursor (and not page by page) so that flipping the flag of a batch doesn't shift
+     * the next batches
+     * @param consumer Consumer of each batch (documents, last batch)
+     */
+    private void forEachPendingBatch(String indexName, BiConsumer<List<Metadata>, Boolean> consumer) {
+        log.trace("indexName: {}", indexName);
+
+        final Query query = Query.newQuery().equals(IndexingService.PINNED_KEY, false);
+
+        PageRequest pageReq = PageRequest.ofCursor(batchSize);
+        do {
+            Page<Metadata> page = indexingService.searchDocuments(indexName, query, pageReq);
+            pageReq = page.hasNext() ? page.nextPageRequest() : null;
+
+            consumer.accept(page.getElements(), pageReq == null);
+
+        } while(pageReq != null);
+    }
+
+    /**
+     * Pin a batch of documents of an index, then flag them as pinned in bulk without waiting for a refresh (except for the last batch)
+     */
+    private void pin(String indexName, List<Metadata> documents, boolean last) {
+        List<String> pinned = pin(documents);
+
+        // Set the flag __pinned to true
+        if (!pinned.isEmpty()) {
+            indexingService.bulkUpdateField(indexName, pinned, IndexingService.PINNED_KEY, true,
+                    last ? RefreshPolicy.WAIT_UNTIL : RefreshPolicy.NONE);
+        }
+        log.debug("{} documents pinned out of {} [indexName: {}]", pinned.size(), documents.size(), indexName);
+    }
 
-            final Query query = Query.newQuery().equals(IndexingService.PINNED_KEY, false);
+    /**
+     * Pin a batch of documents on each replica node in parallel
+     *
+     * @return IDs of the documents pinned on all the replica nodes
+     */
+    private List<String> pin(List<Metadata> documents) {
+        Set<PinningService> replicaSet = storageService.getReplicaSet();
 
-            indexingService.getIndexes().forEach(indexName -> {
-                log.trace("indexName: {}", indexName);
-                Page<Metadata> page = null;
-                do {
-                    PageRequest pageReq = Optional.ofNullable(page)
-                        .map(Page::nextPageRequest)
-                        .orElse(PageRequest.of(0, PAGE_SIZE));
+        List<CompletableFuture<String>> futures = documents.stream()
+            .map(m -> CompletableFuture.allOf(replicaSet.stream()
+                    .map(pinningService -> CompletableFuture.runAsync(() -> pin(pinningService, 
+                            m.getIndexName(), m.getIndexDocId(), m.getContentId(), m.getIndexFields()), workers))
+                    .toArray(CompletableFuture[]::new))
+                .handle((result, ex) -> ex == null ? m.getIndexDocId() : null))
+            .collect(Collectors.toList());
 
-                    page = indexingService.searchDocuments(indexName, query, pageReq);
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-                    page.getElements().forEach(m -> {
-                        String[] current = new String[1];
+    /**
+     * Run the tasks of the journal due now (batch by batch): pin the contents on the replicas (in parallel), record the 
+     * result of each pin (failed pins are retried after a backoff), then flag the documents pinned on all the replicas 
+     * in bulk and remove their task
+     */
+    private void consumeJournal() {
+        Set<PinningService> replicaSet = storageService.getReplicaSet();
+        List<String> replicaNames = replicaSet.stream().map(PinningService::getName).collect(Collectors.toList());
+        long now = System.currentTimeMillis();
+
+        List<PinTask> tasks = journal.due(replicaNames, now, 0, batchSize);
+        while (!tasks.isEmpty()) {
+            Set<Long> failures = ConcurrentHashMap.newKeySet();
+
+            // Pin
+            CompletableFuture.allOf(tasks.stream()
+                .flatMap(task -> replicaSet.stream()
+                    .filter(pinningService -> task.isDue(pinningService.getName(), now))
+                    .map(pinningService -> CompletableFuture.runAsync(() -> {
                         try {
-                            // Pin each replica node
-                            storageService.getReplicaSet().forEach(pinningService -> {
-                                current[0] = pinningService.getName();
-                                pinningService.pin(
-                                        m.getContentId(), 
-                                        m.getIndexName() + "_" + m.getIndexDocId(), 
-                                        m.getIndexFields());
-                            });
-                            
-                            // Set the flag __pinned to true
-                            indexingService.updateField(indexName, m.getIndexDocId(), IndexingService.PINNED_KEY, true);
-
-                        } catch(Exception ex) {
-                            log.warn("Error while pinning content during the asynchromous pinning process [node: {}, cid {}]: {} - retry soon", 
-                                    current[0], m.getContentId(), ex.getMessage());
+                            pin(pinningService, task.getIndexName(), task.getIndexDocId(), task.getContentId(), task.getIndexFields());
+                            journal.pinned(task.getId(), pinningService.getName());
+                        } catch (Exception ex) {
+                            failures.add(task.getId());
+                            journal.failed(task.getId(), pinningService.getName());
                         }
-                    });
-                } while(!page.isLast());
-            });
-            
+                    }, workers)))
+                .toArray(CompletableFuture[]::new)).join();
+
+            // Set the flag __pinned to true (except for the tasks replaced in the meantime by the task of another content)
+            tasks.stream()
+                .filter(task -> !failures.contains(task.getId()))
+                .filter(task -> replicaNames.stream().allMatch(replica -> task.isPinned(replica) || task.isDue(replica, now)))
+                .filter(task -> journal.isPending(task.getId()))
+                .collect(Collectors.groupingBy(PinTask::getIndexName))
+                .forEach((indexName, pinned) -> {
+                    try {
+                        indexingService.bulkUpdateField(indexName, 
+                                pinned.stream().map(PinTask::getIndexDocId).collect(Collectors.toList()), 
+                                IndexingService.PINNED_KEY, true, RefreshPolicy.NONE);
+                        pinned.forEach(task -> journal.done(task.getId()));
+
+                    } catch(Exception ex) {
+                        log.warn("Error while flagging {} documents as pinned [indexName: {}]: {} - flag them one by one", 
+                                pinned.size(), indexName, ex.getMessage());
+                        pinned.forEach(this::flag);
+                    }
+                });
+            log.debug("{} pin tasks run ({} failed), {} pending", tasks.size(), failures.size(), journal.size());
+
+            tasks = journal.due(replicaNames, now, tasks.get(tasks.size() - 1).getId(), batchSize);
+        }
+    }
+
+    /**
+     * Flag a document as pinned and remove its task. The task of a document deindexed (or of an index deleted) since 
+     * it was queued is removed, the others are retried on the next run
+     */
+    private void flag(PinTask task) {
+        try {
+            indexingService.updateField(task.getIndexName(), task.getIndexDocId(), IndexingService.PINNED_KEY, true, RefreshPolicy.NONE);
+            journal.done(task.getId());
+
         } catch(Exception ex) {
-            log.error("Error while running the asynchromous pinning process", ex);
+            if (exists(task.getIndexName(), task.getIndexDocId())) {
+                log.warn("Error while flagging document as pinned [indexName: {}, indexDocId: {}]: {} - retry soon",
+                        task.getIndexName(), task.getIndexDocId(), ex.getMessage());
+            } else {
+                log.debug("Document not found, pin task removed [indexName: {}, indexDocId: {}]", task.getIndexName(), task.getIndexDocId());
+                journal.done(task.getId());
+            }
+        }
+    }
+
+    private boolean exists(String indexName, String indexDocId) {
+        try {
+            indexingService.getDocument(indexName, indexDocId);
+            return true;
+        } catch(NotFoundException | NoIndexException ex) {
+            return false;
+        } catch(Exception ex) {
+            return true; // unknown, keep the task
+        }
+    }
+
+    /**
+     * Stop the scheduled pinning process: the next runs are cancelled, the run in progress and its pins are drained 
+     * (within DRAIN_TIMEOUT), then the journal is closed
+     */
+    @Override
+    public void close() {
+        log.info("Stop scheduled pinning process");
+        try {
+            scheduler.shutdown();
+            if (!scheduler.awaitTermination(DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Asynchronous pinning process stopped before the end of the run in progress");
+                scheduler.shutdownNow();
+            }
+            workers.shutdown();
+            if (!workers.awaitTermination(DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            scheduler.shutdownNow();
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Daemon threads: a service never closed doesn't prevent the JVM from exiting
+     */
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, THREAD_PREFIX + name + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void pin(PinningService pinningService, String indexName, String indexDocId, String contentId, Map<String, Object> indexFields) {
+        try {
+            pinningService.pin(
+                    contentId,
+                    indexName + "_" + indexDocId,
+                    indexFields);
+
+        } catch(Exception ex) {
+            log.warn("Error while pinning content during the asynchromous pinning process [node: {}, cid {}]: {} - retry soon",
+                    pinningService.getName(), contentId, ex.getMessage());
+            throw ex;
         }
     }
 }
@@ -1,6 +1,7 @@
 package net.consensys.mahuta.core.service;
 
 import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.pinning.PinningExecutor;
 import net.consensys.mahuta.core.service.storage.StorageService;
 
 /**
@@ -14,4 +15,8 @@ public class DefaultMahutaService extends AbstractMahutaService {
     public DefaultMahutaService(StorageService storageService, IndexingService indexingService) {
         super(storageService, indexingService, false);
     }
+
+    public DefaultMahutaService(StorageService storageService, IndexingService indexingService, PinningExecutor pinningExecutor) {
+        super(storageService, indexingService, false, pinningExecutor);
+    }
 }
@@ -1,5 +1,10 @@
 package net.consensys.mahuta.core.service;
 
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingRequest;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingResponse;
 import net.consensys.mahuta.core.domain.createindex.CreateIndexRequest;
 import net.consensys.mahuta.core.domain.createindex.CreateIndexResponse;
 import net.consensys.mahuta.core.domain.deindexing.DeindexingRequest;
@@ -14,8 +19,9 @@ import net.consensys.mahuta.core.domain.search.SearchRequest;
 import net.consensys.mahuta.core.domain.search.SearchResponse;
 import net.consensys.mahuta.core.domain.updatefield.UpdateFieldRequest;
 import net.consensys.mahuta.core.domain.updatefield.UpdateFieldResponse;
+import net.consensys.mahuta.core.utils.FutureUtils;
 
-public interface MahutaService {
+public interface MahutaService extends Closeable {
     
     CreateIndexResponse createIndex(CreateIndexRequest request);
 
@@ -23,6 +29,8 @@ public interface MahutaService {
 
     IndexingResponse index(IndexingRequest request);
     
+    BulkIndexingResponse bulkIndex(BulkIndexingRequest request);
+    
     UpdateFieldResponse updateField(UpdateFieldRequest request);
     
     DeindexingResponse deindex(DeindexingRequest request);
@@ -30,4 +38,34 @@ public interface MahutaService {
     GetResponse get(GetRequest request);
     
     SearchResponse search(SearchRequest request);
+    
+    /*
+     * Non-blocking variants: the futures are completed by the I/O threads of the storage and indexer clients, 
+     * so many requests can be in flight without a thread per request. The default implementations run the 
+     * blocking variant on the calling thread.
+     */
+    
+    default CompletableFuture<IndexingResponse> indexAsync(IndexingRequest request) {
+        return FutureUtils.supply(() -> index(request));
+    }
+    
+    default CompletableFuture<DeindexingResponse> deindexAsync(DeindexingRequest request) {
+        return FutureUtils.supply(() -> deindex(request));
+    }
+    
+    default CompletableFuture<GetResponse> getAsync(GetRequest request) {
+        return FutureUtils.supply(() -> get(request));
+    }
+    
+    default CompletableFuture<SearchResponse> searchAsync(SearchRequest request) {
+        return FutureUtils.supply(() -> search(request));
+    }
+
+    /**
+     * Release the resources (threads, files) the service created itself. The storage and indexing services are left 
+     * open (owned by the caller)
+     */
+    @Override
+    default void close() {
+    }
 }
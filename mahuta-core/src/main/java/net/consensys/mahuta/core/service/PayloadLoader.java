@@ -0,0 +1,173 @@
+package net.consensys.mahuta.core.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.exception.TimeoutException;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.utils.BytesUtils;
+
+/**
+ * Load the payloads of a page of documents.
+ *
+ * Contents indexed with the documents are used as is, the others are read from the storage without blocking: each
+ * content is read once (documents sharing a CID share the read), at most `concurrency` reads are in flight (the
+ * next one starts when one completes) and the page fails with a TimeoutException if it isn't loaded within
+ * `timeout` ms (the reads in flight are cancelled).
+ */
+@Slf4j
+class PayloadLoader {
+
+    private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "mahuta-payload-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final StorageService storageService;
+    private final List<Metadata> documents;
+    private final Map<String, CompletableFuture<OutputStream>> reads;
+    private final Iterator<String> pending;
+    private final CompletableFuture<List<OutputStream>> result;
+    private final AtomicInteger wip;
+    private final AtomicBoolean failed;
+    private int permits;
+
+    private PayloadLoader(StorageService storageService, List<Metadata> documents, int concurrency) {
+        this.storageService = storageService;
+        this.documents = documents;
+        this.reads = new LinkedHashMap<>();
+        documents.stream()
+            .filter(m -> m.getContent() == null)
+            .forEach(m -> reads.computeIfAbsent(m.getContentId(), contentId -> new CompletableFuture<>()));
+        this.pending = reads.keySet().iterator();
+        this.result = new CompletableFuture<>();
+        this.wip = new AtomicInteger();
+        this.failed = new AtomicBoolean();
+        this.permits = concurrency;
+    }
+
+    /**
+     * Load the payloads of the documents
+     * @param storageService Storage service
+     * @param documents Documents
+     * @param concurrency Maximum number of contents read at the same time
+     * @param timeout Deadline (ms) to load all the payloads
+     * @return Future completed with the payloads (same order as the documents)
+     */
+    static CompletableFuture<List<OutputStream>> load(StorageService storageService, List<Metadata> documents,
+            int concurrency, long timeout) {
+        return new PayloadLoader(storageService, documents, concurrency).start(timeout);
+    }
+
+    private CompletableFuture<List<OutputStream>> start(long timeout) {
+        log.trace("Load {} payloads ({} reads) [concurrency: {}, timeout: {}]", documents.size(), reads.size(), permits, timeout);
+
+        ScheduledFuture<?> deadline = DEADLINES.schedule(
+                () -> fail(new TimeoutException("Payloads not loaded within %s ms", timeout)), timeout, TimeUnit.MILLISECONDS);
+        result.whenComplete((payloads, ex) -> deadline.cancel(false));
+
+        CompletableFuture.allOf(reads.values().toArray(new CompletableFuture[0]))
+            .thenRun(() -> result.complete(payloads()));
+        drain();
+
+        return result;
+    }
+
+    /**
+     * Start reads until the concurrency limit is reached. A read completing on the calling thread (cache) releases
+     * its permit in a nested call which only flags more work for the outer loop, so the stack doesn't grow with the page
+     */
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            String contentId;
+            while ((contentId = next()) != null) {
+                read(contentId);
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+    /**
+     * Fail the page and cancel the reads still in flight (the reads not started yet won't be)
+     */
+    private void fail(Throwable ex) {
+        // The reads are cancelled before the page fails, their own failures don't replace the cause
+        if (failed.compareAndSet(false, true)) {
+            reads.values().forEach(read -> read.cancel(true));
+            result.completeExceptionally(ex);
+        }
+    }
+
+    private synchronized String next() {
+        if (permits == 0 || !pending.hasNext() || failed.get()) {
+            return null;
+        }
+        permits--;
+        return pending.next();
+    }
+
+    private synchronized void release() {
+        permits++;
+    }
+
+    private void read(String contentId) {
+        CompletableFuture<OutputStream> read = reads.get(contentId);
+        CompletableFuture<OutputStream> storage;
+        try {
+            storage = storageService.readAsync(contentId);
+        } catch (Exception ex) {
+            storage = new CompletableFuture<>();
+            storage.completeExceptionally(ex);
+        }
+
+        // Cancel the storage read if the page times out
+        CompletableFuture<OutputStream> inFlight = storage;
+        read.whenComplete((payload, ex) -> inFlight.cancel(true));
+
+        storage.whenComplete((payload, ex) -> {
+            if (ex != null) {
+                read.completeExceptionally(ex);
+                fail(ex instanceof CompletionException ? ex.getCause() : ex);
+            } else {
+                read.complete(payload);
+            }
+            release();
+            drain();
+        });
+    }
+
+    private List<OutputStream> payloads() {
+        Set<String> used = new HashSet<>();
+        return documents.stream().map(m -> {
+            if (m.getContent() != null) {
+                return BytesUtils.convertToOutputStream(m.getContent());
+            }
+            OutputStream payload = reads.get(m.getContentId()).join();
+            // Each document sharing a CID gets its own copy of the payload
+            if (!used.add(m.getContentId()) && payload instanceof ByteArrayOutputStream) {
+                return BytesUtils.convertToOutputStream(((ByteArrayOutputStream) payload).toByteArray());
+            }
+            return payload;
+        }).collect(Collectors.toList());
+    }
+}
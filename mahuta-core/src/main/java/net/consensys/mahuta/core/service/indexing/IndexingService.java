@@ -1,13 +1,20 @@
 package net.consensys.mahuta.core.service.indexing;
 
 import java.io.InputStream;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingItem;
 import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 import net.consensys.mahuta.core.domain.common.pagination.Page;
 import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
 import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.domain.indexing.IndexingResponse;
+import net.consensys.mahuta.core.utils.FutureUtils;
 
 public interface IndexingService {
 
@@ -22,14 +29,107 @@ public interface IndexingService {
     
     List<String> getIndexes();
     
+    default String index(String indexName, String indexDocId, String contentId, String contentType, byte[] content, 
+            boolean pinned, Map<String, Object> indexFields) {
+        return index(indexName, indexDocId, contentId, contentType, content, pinned, indexFields, null);
+    }
+    
+    /**
+     * Index a document
+     * @param refreshPolicy Refresh policy of the write (null: refresh policy configured for the index)
+     */
     String index(String indexName, String indexDocId, String contentId, String contentType, byte[] content, 
-            boolean pinned, Map<String, Object> indexFields);
+            boolean pinned, Map<String, Object> indexFields, RefreshPolicy refreshPolicy);
+    
+    /**
+     * Index a document without blocking the calling thread. The default implementation indexes the document on the 
+     * calling thread, implementations should override it to send the request with non-blocking I/O
+     * @param refreshPolicy Refresh policy of the write (null: refresh policy configured for the index)
+     * @return Future completed with the document ID
+     */
+    default CompletableFuture<String> indexAsync(String indexName, String indexDocId, String contentId, String contentType, 
+            byte[] content, boolean pinned, Map<String, Object> indexFields, RefreshPolicy refreshPolicy) {
+        return FutureUtils.supply(() -> index(indexName, indexDocId, contentId, contentType, content, pinned, indexFields, refreshPolicy));
+    }
+    
+    /**
+     * Index a batch of documents. The default implementation indexes the documents one by one, implementations 
+     * should override it to send the batch in a single request
+     * @param documents Documents to index (indexDocId null: autogenerated ID)
+     * @param refreshPolicy Refresh policy of the batch (null: refresh policy configured for the indexes)
+     * @return Result of each document, in the same order as the documents
+     */
+    default List<BulkIndexingItem> bulkIndex(List<Metadata> documents, RefreshPolicy refreshPolicy) {
+        return documents.stream().map(d -> {
+            try {
+                String indexDocId = index(d.getIndexName(), d.getIndexDocId(), d.getContentId(), d.getContentType(), 
+                        d.getContent(), d.isPinned(), d.getIndexFields(), refreshPolicy);
+                return BulkIndexingItem.success(IndexingResponse.of(d.getIndexName(), indexDocId, d.getContentId(), 
+                        d.getContentType(), d.isPinned(), d.getIndexFields()));
+            } catch (Exception ex) {
+                return BulkIndexingItem.failure(ex.getMessage());
+            }
+        }).collect(Collectors.toList());
+    }
+    
+    default void updateField(String indexName, String indexDocId, String key, Object value) {
+        updateField(indexName, indexDocId, key, value, null);
+    }
+    
+    /**
+     * Update a field of a document
+     * @param refreshPolicy Refresh policy of the write (null: refresh policy configured for the index)
+     */
+    void updateField(String indexName, String indexDocId, String key, Object value, RefreshPolicy refreshPolicy);
     
-    void updateField(String indexName, String indexDocId, String key, Object value);
+    /**
+     * Set a field to the same value on several documents of an index. The default implementation updates the documents 
+     * one by one, implementations should override it to send the updates in a single request
+     * @param refreshPolicy Refresh policy of the write (null: refresh policy configured for the index)
+     */
+    default void bulkUpdateField(String indexName, Collection<String> indexDocIds, String key, Object value, RefreshPolicy refreshPolicy) {
+        indexDocIds.forEach(indexDocId -> updateField(indexName, indexDocId, key, value, refreshPolicy));
+    }
     
-    void deindex(String indexName, String indexDocId);
+    default void deindex(String indexName, String indexDocId) {
+        deindex(indexName, indexDocId, null);
+    }
+    
+    /**
+     * Remove a document from the index
+     * @param refreshPolicy Refresh policy of the write (null: refresh policy configured for the index)
+     */
+    void deindex(String indexName, String indexDocId, RefreshPolicy refreshPolicy);
+    
+    /**
+     * Remove a document from the index without blocking the calling thread. The default implementation removes the 
+     * document on the calling thread, implementations should override it to send the request with non-blocking I/O
+     * @param refreshPolicy Refresh policy of the write (null: refresh policy configured for the index)
+     * @return Future completed once the document is removed
+     */
+    default CompletableFuture<Void> deindexAsync(String indexName, String indexDocId, RefreshPolicy refreshPolicy) {
+        return FutureUtils.run(() -> deindex(indexName, indexDocId, refreshPolicy));
+    }
     
     Metadata getDocument(String indexName, String indexDocId);
     
+    /**
+     * Get a document without blocking the calling thread. The default implementation gets the document on the 
+     * calling thread, implementations should override it to send the request with non-blocking I/O
+     * @return Future completed with the document
+     */
+    default CompletableFuture<Metadata> getDocumentAsync(String indexName, String indexDocId) {
+        return FutureUtils.supply(() -> getDocument(indexName, indexDocId));
+    }
+    
     Page<Metadata> searchDocuments(String index, Query query, PageRequest pageRequest);
+    
+    /**
+     * Search documents without blocking the calling thread. The default implementation searches the documents on the 
+     * calling thread, implementations should override it to send the request with non-blocking I/O
+     * @return Future completed with the page of documents
+     */
+    default CompletableFuture<Page<Metadata>> searchDocumentsAsync(String index, Query query, PageRequest pageRequest) {
+        return FutureUtils.supply(() -> searchDocuments(index, query, pageRequest));
+    }
 }
@@ -0,0 +1,591 @@
+package net.consensys.mahuta.core.service.indexing.memory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
+import net.consensys.mahuta.core.domain.common.pagination.Page;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+import net.consensys.mahuta.core.domain.common.query.Filter;
+import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.exception.NoIndexException;
+import net.consensys.mahuta.core.exception.NotFoundException;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.exception.ValidationException;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.indexing.memory.MemoryIndex.StoredDocument;
+import net.consensys.mahuta.core.utils.ValidatorUtils;
+
+/**
+ * IndexingService keeping the indexes in memory (tests, benchmarks, ephemeral jobs): no cluster to run, nothing is
+ * persisted.
+ *
+ * The semantics are the ones of the ElasticSearch indexer (index names in lowercase, upsert merging the fields, null
+ * values, query operations, sort and pagination), except that a write is always visible to the searches straight
+ * away (the refresh policy is ignored) and the index configuration (mapping) is ignored.
+ */
+@Slf4j
+public class InMemoryIndexingService implements IndexingService {
+
+    public static final boolean DEFAULT_INDEX_NULL_VALUES = true;
+
+    private static final String NULL = "null";
+    private static final Set<String> SPECIAL_KEYS = new HashSet<>(Arrays.asList(HASH_INDEX_KEY, CONTENT_TYPE_INDEX_KEY, PINNED_KEY));
+
+    private final Map<String, MemoryIndex> indexes = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private volatile boolean indexNullValue = DEFAULT_INDEX_NULL_VALUES;
+
+    private InMemoryIndexingService() {
+    }
+
+    public static InMemoryIndexingService of() {
+        return new InMemoryIndexingService();
+    }
+
+    public InMemoryIndexingService configureIndexNullValue(boolean indexNullValue) {
+        this.indexNullValue = indexNullValue;
+        return this;
+    }
+
+    public InMemoryIndexingService withIndex(String indexName) {
+        return this.withIndex(indexName, null);
+    }
+
+    public InMemoryIndexingService withIndex(String indexName, InputStream configuration) {
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+
+        this.createIndex(indexName, configuration);
+
+        return this;
+    }
+
+    @Override
+    public void createIndex(String indexName) {
+        this.createIndex(indexName, null);
+    }
+
+    /**
+     * Create an index (if it doesn't exist). The configuration (ElasticSearch mapping) is ignored
+     */
+    @Override
+    public void createIndex(String indexName, InputStream configuration) {
+        log.debug("Create index in memory [indexName: {}, configuration present: {}]", indexName, configuration != null);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+
+        // Format index
+        String index = indexName.toLowerCase();
+
+        indexes.computeIfAbsent(index, MemoryIndex::new);
+    }
+
+    @Override
+    public List<String> getIndexes() {
+        return new ArrayList<>(indexes.keySet());
+    }
+
+    @Override
+    public String index(String indexName, String indexDocId, String contentId, String contentType,
+            byte[] content, boolean pinned, Map<String, Object> indexFields, RefreshPolicy refreshPolicy) {
+
+        log.debug(
+                "Index document in memory [indexName: {}, indexDocId:{}, contentId: {}, contentType: {}, content: {}, pinned: {}, indexFields: {}]",
+                indexName, indexDocId, contentId, contentType, content != null ? "present" : "null", pinned, indexFields);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+
+        MemoryIndex index = getIndex(indexName);
+        String id = Optional.ofNullable(indexDocId).orElseGet(() -> UUID.randomUUID().toString());
+
+        // Source: special keys and index fields
+        Map<String, Object> source = new HashMap<>();
+        source.put(HASH_INDEX_KEY, contentId);
+        source.put(CONTENT_TYPE_INDEX_KEY, contentType);
+        source.put(PINNED_KEY, pinned);
+        if (indexFields != null) {
+            source.putAll(transformFields(indexFields));
+        }
+        byte[] copy = content != null ? content.clone() : null;
+
+        // Upsert: merge into the existing document
+        index.write(() -> {
+            StoredDocument current = index.get(id);
+            if (current == null) {
+                index.put(new StoredDocument(id, sequence.incrementAndGet(), source, copy));
+            } else {
+                Map<String, Object> merged = new HashMap<>(current.getSource());
+                merged.putAll(source);
+                index.put(new StoredDocument(id, current.getSequence(), merged, copy != null ? copy : current.getContent()));
+            }
+            return null;
+        });
+
+        log.debug("Document indexed in memory [indexName: {}, indexDocId:{}, contentId: {}]. Result ID= {} ",
+                indexName, indexDocId, contentId, id);
+
+        return id;
+    }
+
+    @Override
+    public void updateField(String indexName, String indexDocId, String key, Object value, RefreshPolicy refreshPolicy) {
+        log.debug("Update field on document in memory [indexName: {}, indexDocId: {}, key: {}, value: {}]", indexName, indexDocId, key, value);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("indexDocId", indexDocId);
+        ValidatorUtils.rejectIfEmpty("key", key);
+
+        MemoryIndex index = getIndex(indexName);
+        index.write(() -> {
+            updateField(index, indexDocId, key, value);
+            return null;
+        });
+    }
+
+    @Override
+    public void bulkUpdateField(String indexName, Collection<String> indexDocIds, String key, Object value, RefreshPolicy refreshPolicy) {
+        log.debug("Bulk update field on documents in memory [indexName: {}, indexDocIds: {}, key: {}, value: {}]", indexName, indexDocIds.size(), key, value);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("key", key);
+
+        // All the documents under one lock
+        MemoryIndex index = getIndex(indexName);
+        index.write(() -> {
+            indexDocIds.forEach(indexDocId -> updateField(index, indexDocId, key, value));
+            return null;
+        });
+    }
+
+    private void updateField(MemoryIndex index, String indexDocId, String key, Object value) {
+        StoredDocument current = index.get(indexDocId);
+        if (current == null) {
+            throw new NotFoundException("Document [indexName: " + index.getName() + ", indexDocId: " + indexDocId + "] not found");
+        }
+
+        Map<String, Object> source = new HashMap<>(current.getSource());
+        source.put(key, transformValue(value));
+        index.put(new StoredDocument(indexDocId, current.getSequence(), source, current.getContent()));
+    }
+
+    @Override
+    public void deindex(String indexName, String indexDocId, RefreshPolicy refreshPolicy) {
+        log.debug("Deindex document in memory [indexName: {}, indexDocId:{}]", indexName, indexDocId);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("indexDocId", indexDocId);
+
+        MemoryIndex index = getIndex(indexName);
+        if (index.write(() -> index.remove(indexDocId)) == null) {
+            throw new NotFoundException("Document [indexName: " + index.getName() + ", id: " + indexDocId + "] not found");
+        }
+    }
+
+    @Override
+    public Metadata getDocument(String indexName, String indexDocId) {
+        log.debug("Get document in memory [indexName: {}, indexDocId:{}]", indexName, indexDocId);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("indexDocId", indexDocId);
+
+        MemoryIndex index = getIndex(indexName);
+        StoredDocument document = index.read(() -> index.get(indexDocId));
+        if (document == null) {
+            throw new NotFoundException(
+                    "Document [indexName: " + index.getName() + ", indexDocId: " + indexDocId + "] not found");
+        }
+
+        return convert(index.getName(), document);
+    }
+
+    @Override
+    public Page<Metadata> searchDocuments(String indexName, Query query, PageRequest pageRequest) {
+        log.debug("Search documents in memory [indexName: {}, query: {}]", indexName, query);
+
+        // Validation
+        ValidatorUtils.rejectIfNull("pageRequest", pageRequest);
+
+        // All the indexes if no index is passed
+        Collection<MemoryIndex> targets = indexName != null ? Collections.singletonList(getIndex(indexName)) : indexes.values();
+
+        // Matching documents (with the value of the sort field)
+        List<Hit> hits = new ArrayList<>();
+        for (MemoryIndex index : targets) {
+            index.read(() -> {
+                for (String id : search(index, query)) {
+                    StoredDocument document = index.get(id);
+                    hits.add(new Hit(index.getName(), document, sortValue(document, pageRequest)));
+                }
+                return null;
+            });
+        }
+
+        Comparator<Hit> comparator = comparator(pageRequest);
+        List<Hit> result;
+        if (pageRequest.isCursorBased()) {
+            // Resume after the last hit of the previous page
+            List<Hit> remaining = hits;
+            if (!pageRequest.isFirstCursor()) {
+                Hit after = decodeCursor(pageRequest.getCursor());
+                remaining = hits.stream().filter(hit -> comparator.compare(hit, after) > 0).collect(Collectors.toList());
+            }
+            result = top(remaining, comparator, pageRequest.getSize());
+        } else {
+            int from = pageRequest.getSize() * pageRequest.getPage();
+            List<Hit> top = top(hits, comparator, from + pageRequest.getSize());
+            result = top.subList(Math.min(from, top.size()), top.size());
+        }
+
+        // Cursor of the next page: last hit (no next page if this page isn't full)
+        String nextCursor = null;
+        if (pageRequest.isCursorBased() && !result.isEmpty() && result.size() == pageRequest.getSize()) {
+            nextCursor = encodeCursor(result.get(result.size() - 1));
+        }
+
+        List<Metadata> elements = result.stream().map(hit -> convert(hit.index, hit.document)).collect(Collectors.toList());
+        log.debug("Search documents in memory [query: {}]: {}", query, elements);
+
+        return Page.of(pageRequest, elements, hits.size(), nextCursor);
+    }
+
+    private MemoryIndex getIndex(String indexName) {
+        MemoryIndex index = indexes.get(indexName.toLowerCase());
+        if (index == null) {
+            throw new NoIndexException(indexName.toLowerCase());
+        }
+        return index;
+    }
+
+    private Map<String, Object> transformFields(Map<String, Object> indexFields) {
+
+        return indexFields.entrySet().stream()
+                .filter(e -> indexNullValue || e.getValue() != null)
+                .collect(HashMap::new, (map, e) -> map.put(e.getKey(), transformValue(e.getValue())), HashMap::putAll);
+    }
+
+    private Object transformValue(Object value) {
+
+        // Manage null values
+        if (indexNullValue
+                && (value == null || value instanceof String && ValidatorUtils.isEmpty((String) value))) {
+            value = NULL;
+        }
+
+        return MemoryIndex.copy(value);
+    }
+
+    private static Metadata convert(String indexName, StoredDocument document) {
+        Map<String, Object> source = document.getSource();
+
+        Map<String, Object> indexFields = new HashMap<>();
+        source.forEach((key, value) -> {
+            if (!SPECIAL_KEYS.contains(key)) {
+                indexFields.put(key, MemoryIndex.copy(value));
+            }
+        });
+
+        return Metadata.of(indexName, document.getId(),
+                Optional.ofNullable(source.get(HASH_INDEX_KEY)).map(Object::toString).orElse(null),
+                Optional.ofNullable(source.get(CONTENT_TYPE_INDEX_KEY)).map(Object::toString).orElse(null),
+                document.getContent() != null ? document.getContent().clone() : null,
+                Boolean.TRUE.equals(source.get(PINNED_KEY)),
+                indexFields);
+    }
+
+    /**
+     * Documents matching a query, to be called under the read lock. As with the ElasticSearch indexer, the sub-queries
+     * (OR) only filter the documents if the query has no other positive clause
+     */
+    private Set<String> search(MemoryIndex index, Query query) {
+        if (query == null || query.isEmpty()) {
+            return index.ids();
+        }
+
+        List<Set<String>> must = new ArrayList<>();
+        List<Set<String>> mustNot = new ArrayList<>();
+
+        // Filters
+        for (Filter f : query.getFilterClauses()) {
+            Object value = transformValue(f.getValue());
+
+            try {
+                switch (f.getOperation()) {
+                case FULL_TEXT:
+                    must.add(MemoryIndex.union(Arrays.stream(f.getNames())
+                            .map(name -> phrasePrefix(index, name, value.toString()))
+                            .collect(Collectors.toList())));
+                    break;
+                case EQUALS:
+                    must.add(index.term(f.getName(), value));
+                    break;
+                case NOT_EQUALS:
+                    mustNot.add(index.term(f.getName(), value));
+                    break;
+                case CONTAINS:
+                    must.add(MemoryIndex.union(MemoryIndex.tokenize(value.toString()).stream()
+                            .map(token -> index.token(f.getName(), token))
+                            .collect(Collectors.toList())));
+                    break;
+                case IN:
+                    must.add(terms(index, f.getName(), value));
+                    break;
+                case NOT_IN:
+                    mustNot.add(terms(index, f.getName(), value));
+                    break;
+                case LT:
+                    must.add(index.range(f.getName(), null, false, value, false));
+                    break;
+                case LTE:
+                    must.add(index.range(f.getName(), null, false, value, true));
+                    break;
+                case GT:
+                    must.add(index.range(f.getName(), value, false, null, false));
+                    break;
+                case GTE:
+                    must.add(index.range(f.getName(), value, true, null, false));
+                    break;
+                default:
+                    log.warn("Operation [" + f.getOperation() + "] not supported for  filter [" + f + "]- Ignore it!");
+                    break;
+                }
+
+            } catch (Exception e) {
+                log.warn("Error while converting filter [" + f + "] - Ignore it!", e);
+            }
+        }
+
+        Set<String> result;
+        if (!must.isEmpty()) {
+            result = intersection(must);
+        } else if (!query.getSubFilterClauses().isEmpty()) {
+            // Sub queries (OR)
+            result = new HashSet<>();
+            for (Query q : query.getSubFilterClauses()) {
+                result.addAll(search(index, q));
+            }
+        } else {
+            result = new HashSet<>(index.ids());
+        }
+
+        mustNot.forEach(result::removeAll);
+        return result;
+    }
+
+    private static Set<String> terms(MemoryIndex index, String field, Object value) {
+        if (!(value instanceof Collection<?>)) {
+            throw new IllegalArgumentException("in operation: expected type Collection<?>");
+        }
+
+        return MemoryIndex.union(((Collection<?>) value).stream()
+                .map(v -> index.term(field, v))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Documents containing the words of the text in the same order, the last one as a prefix (search as you type)
+     */
+    private static Set<String> phrasePrefix(MemoryIndex index, String field, String text) {
+        List<String> tokens = MemoryIndex.tokenize(text);
+        if (tokens.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        List<Set<String>> sets = new ArrayList<>();
+        tokens.subList(0, tokens.size() - 1).forEach(token -> sets.add(index.token(field, token)));
+        sets.add(index.prefix(field, tokens.get(tokens.size() - 1)));
+        Set<String> candidates = intersection(sets);
+        if (tokens.size() == 1) {
+            return candidates;
+        }
+
+        // Check the order of the words in the candidates
+        candidates.removeIf(id -> !containsPhrasePrefix(index.get(id), field, tokens));
+        return candidates;
+    }
+
+    private static boolean containsPhrasePrefix(StoredDocument document, String field, List<String> phrase) {
+        List<String> texts = new ArrayList<>();
+        MemoryIndex.flatten(field, document.getSource().get(field), (n, v) -> {
+            if (v instanceof String) {
+                texts.add((String) v);
+            }
+        });
+
+        int last = phrase.size() - 1;
+        for (String text : texts) {
+            List<String> tokens = MemoryIndex.tokenize(text);
+            for (int i = 0; i + last < tokens.size(); i++) {
+                if (tokens.subList(i, i + last).equals(phrase.subList(0, last)) && tokens.get(i + last).startsWith(phrase.get(last))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Intersection of sets, iterating over the smallest one
+     */
+    private static Set<String> intersection(List<Set<String>> sets) {
+        List<Set<String>> sorted = new ArrayList<>(sets);
+        sorted.sort(Comparator.comparingInt(Set::size));
+
+        Set<String> result = new HashSet<>();
+        Set<String> smallest = sorted.get(0);
+        List<Set<String>> others = sorted.subList(1, sorted.size());
+        for (String id : smallest) {
+            if (others.stream().allMatch(set -> set.contains(id))) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Value of the sort field of a document: the smallest (ascending) or the largest (descending) of its values
+     */
+    private static Comparable<?> sortValue(StoredDocument document, PageRequest pageRequest) {
+        if (pageRequest.getSort() == null) {
+            return null;
+        }
+
+        String sort = pageRequest.getSort();
+        List<Comparable<?>> values = new ArrayList<>();
+        MemoryIndex.flatten(sort, document.getSource().get(sort), (n, v) -> {
+            if (!NULL.equals(v)) {
+                values.add(MemoryIndex.key(v));
+            }
+        });
+        // Field of a map (name.key)
+        if (values.isEmpty() && sort.contains(".")) {
+            document.getSource().forEach((field, value) -> MemoryIndex.flatten(field, value, (n, v) -> {
+                if (n.equals(sort) && !NULL.equals(v)) {
+                    values.add(MemoryIndex.key(v));
+                }
+            }));
+        }
+
+        return pageRequest.isAscending() ? values.stream().min(InMemoryIndexingService::compareValues).orElse(null)
+                : values.stream().max(InMemoryIndexingService::compareValues).orElse(null);
+    }
+
+    /**
+     * Order of the hits: the sort field (missing values last), then the index and the ID for a cursor-based page so
+     * the order is unique, or the order of creation otherwise
+     */
+    private static Comparator<Hit> comparator(PageRequest pageRequest) {
+        boolean reverse = pageRequest.getSort() != null && !pageRequest.isAscending();
+
+        Comparator<Hit> comparator = (a, b) -> {
+            if (a.sortValue == null || b.sortValue == null) {
+                return a.sortValue == null ? (b.sortValue == null ? 0 : 1) : -1;
+            }
+            int result = compareValues(a.sortValue, b.sortValue);
+            return reverse ? -result : result;
+        };
+
+        if (pageRequest.isCursorBased()) {
+            return comparator.thenComparing(hit -> hit.index).thenComparing(hit -> hit.document.getId());
+        }
+        return comparator.thenComparingLong(hit -> hit.document.getSequence());
+    }
+
+    /**
+     * Compare two sort values: numbers before strings
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static int compareValues(Comparable a, Comparable b) {
+        if (a.getClass() != b.getClass()) {
+            return a instanceof Double ? -1 : 1;
+        }
+        return a.compareTo(b);
+    }
+
+    /**
+     * First k hits, without sorting all of them
+     */
+    private static List<Hit> top(List<Hit> hits, Comparator<Hit> comparator, int k) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        if (hits.size() <= k) {
+            hits.sort(comparator);
+            return hits;
+        }
+
+        PriorityQueue<Hit> queue = new PriorityQueue<>(k + 1, comparator.reversed());
+        for (Hit hit : hits) {
+            queue.add(hit);
+            if (queue.size() > k) {
+                queue.poll();
+            }
+        }
+
+        List<Hit> top = new ArrayList<>(queue);
+        top.sort(comparator);
+        return top;
+    }
+
+    private String encodeCursor(Hit hit) {
+        try {
+            byte[] json = mapper.writeValueAsBytes(Arrays.asList(hit.sortValue, hit.index, hit.document.getId()));
+            return new String(Base64.getUrlEncoder().withoutPadding().encode(json), StandardCharsets.UTF_8);
+        } catch (JsonProcessingException ex) {
+            throw new TechnicalException("Error while encoding the cursor", ex);
+        }
+    }
+
+    private Hit decodeCursor(String cursor) {
+        try {
+            Object[] values = mapper.readValue(Base64.getUrlDecoder().decode(cursor), Object[].class);
+            if (values.length != 3 || !(values[1] instanceof String) || !(values[2] instanceof String)) {
+                throw new ValidationException("Invalid cursor: " + cursor);
+            }
+
+            Comparable<?> sortValue = values[0] instanceof Number ? ((Number) values[0]).doubleValue() : (Comparable<?>) values[0];
+            StoredDocument document = new StoredDocument((String) values[2], 0, Collections.emptyMap(), null);
+            return new Hit((String) values[1], document, sortValue);
+
+        } catch (IllegalArgumentException | ClassCastException | IOException ex) {
+            throw new ValidationException("Invalid cursor: " + cursor);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class Hit {
+        private final String index;
+        private final StoredDocument document;
+        private final Comparable<?> sortValue;
+    }
+}
@@ -0,0 +1,313 @@
+package net.consensys.mahuta.core.service.indexing.memory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * An index held in memory: the documents by ID and, for each field, secondary indexes pointing to the IDs of the
+ * documents:
+ * - terms: hash map of the values (EQUALS, IN)
+ * - numbers/keywords: sorted maps of the numeric (numbers, dates) and string values (ranges), sharing the sets of
+ * the terms
+ * - tokens: sorted map of the words of the string values (FULL_TEXT, CONTAINS)
+ *
+ * A document is immutable (the values written and read are copied), a write replaces it and updates the secondary
+ * indexes under the write lock. The reads (get, search) run concurrently under the read lock.
+ */
+class MemoryIndex {
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final @Getter String name;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, StoredDocument> documents = new HashMap<>();
+    private final Map<String, FieldIndex> fields = new HashMap<>();
+
+    MemoryIndex(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Read under the read lock
+     */
+    <T> T read(Supplier<T> reader) {
+        lock.readLock().lock();
+        try {
+            return reader.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write under the write lock
+     */
+    <T> T write(Supplier<T> writer) {
+        lock.writeLock().lock();
+        try {
+            return writer.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param id Document ID
+     * @return Document (null if it doesn't exist), to be called under the read or write lock
+     */
+    StoredDocument get(String id) {
+        return documents.get(id);
+    }
+
+    /**
+     * Add or replace a document, to be called under the write lock
+     */
+    void put(StoredDocument document) {
+        remove(document.getId());
+        documents.put(document.getId(), document);
+        document.getSource().forEach((field, value) -> flatten(field, value, (n, v) -> fieldIndex(n).add(v, document.getId())));
+    }
+
+    /**
+     * Remove a document, to be called under the write lock
+     * @return Removed document (null if it doesn't exist)
+     */
+    StoredDocument remove(String id) {
+        StoredDocument document = documents.remove(id);
+        if (document != null) {
+            document.getSource().forEach((field, value) -> flatten(field, value, (n, v) -> {
+                FieldIndex fieldIndex = fields.get(n);
+                if (fieldIndex != null && fieldIndex.remove(v, id)) {
+                    fields.remove(n);
+                }
+            }));
+        }
+        return document;
+    }
+
+    /**
+     * IDs of all the documents, to be called under the read lock
+     */
+    Set<String> ids() {
+        return Collections.unmodifiableSet(documents.keySet());
+    }
+
+    /**
+     * Documents having a value, to be called under the read lock
+     */
+    Set<String> term(String field, Object value) {
+        FieldIndex fieldIndex = fields.get(field);
+        return fieldIndex == null ? Collections.emptySet() : fieldIndex.terms.getOrDefault(key(value), Collections.emptySet());
+    }
+
+    /**
+     * Documents having a value in a range (numeric if the bound is a number or a date, alphabetical otherwise), to be
+     * called under the read lock
+     * @param lower Lower bound (null: unbounded)
+     * @param upper Upper bound (null: unbounded)
+     */
+    Set<String> range(String field, Object lower, boolean includeLower, Object upper, boolean includeUpper) {
+        FieldIndex fieldIndex = fields.get(field);
+        if (fieldIndex == null) {
+            return Collections.emptySet();
+        }
+
+        Object bound = lower != null ? lower : upper;
+        NavigableMap<?, Set<String>> values = isNumeric(bound) ? range(fieldIndex.numbers, lower, includeLower, upper, includeUpper)
+                : range(fieldIndex.keywords, lower, includeLower, upper, includeUpper);
+        return union(values.values());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K extends Comparable<K>> NavigableMap<K, Set<String>> range(NavigableMap<K, Set<String>> values,
+            Object lower, boolean includeLower, Object upper, boolean includeUpper) {
+        if (lower != null) {
+            values = values.tailMap((K) key(lower), includeLower);
+        }
+        if (upper != null) {
+            values = values.headMap((K) key(upper), includeUpper);
+        }
+        return values;
+    }
+
+    /**
+     * Documents containing a word, to be called under the read lock
+     */
+    Set<String> token(String field, String token) {
+        FieldIndex fieldIndex = fields.get(field);
+        return fieldIndex == null ? Collections.emptySet() : fieldIndex.tokens.getOrDefault(token, Collections.emptySet());
+    }
+
+    /**
+     * Documents containing a word starting with a prefix, to be called under the read lock
+     */
+    Set<String> prefix(String field, String prefix) {
+        FieldIndex fieldIndex = fields.get(field);
+        if (fieldIndex == null) {
+            return Collections.emptySet();
+        }
+        return union(fieldIndex.tokens.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+
+    /**
+     * Index a value of a field: each element of a collection, each entry of a map (name.key)
+     */
+    static void flatten(String name, Object value, BiConsumer<String, Object> consumer) {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Collection<?>) {
+            ((Collection<?>) value).forEach(v -> flatten(name, v, consumer));
+        } else if (value instanceof Map<?, ?>) {
+            ((Map<?, ?>) value).forEach((k, v) -> flatten(name + "." + k, v, consumer));
+        } else {
+            consumer.accept(name, value);
+        }
+    }
+
+    /**
+     * Deep copy of a value: collections, maps and dates are copied so that neither the caller nor the index can change
+     * the values of the other
+     */
+    static Object copy(Object value) {
+        if (value instanceof Collection<?>) {
+            List<Object> copy = new ArrayList<>(((Collection<?>) value).size());
+            ((Collection<?>) value).forEach(v -> copy.add(copy(v)));
+            return copy;
+        } else if (value instanceof Map<?, ?>) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            ((Map<?, ?>) value).forEach((k, v) -> copy.put(k, copy(v)));
+            return copy;
+        } else if (value instanceof Date) {
+            return new Date(((Date) value).getTime());
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Indexed form of a value: numbers and dates as double (10 and 10.0 are equal), the others as string
+     */
+    static Comparable<?> key(Object value) {
+        if (value instanceof Date) {
+            return (double) ((Date) value).getTime();
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else {
+            return value.toString();
+        }
+    }
+
+    static boolean isNumeric(Object value) {
+        return value instanceof Number || value instanceof Date;
+    }
+
+    /**
+     * Split a text in lowercase words
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    static Set<String> union(Collection<Set<String>> sets) {
+        if (sets.size() == 1) {
+            return sets.iterator().next();
+        }
+        Set<String> union = new HashSet<>();
+        sets.forEach(union::addAll);
+        return union;
+    }
+
+    private FieldIndex fieldIndex(String field) {
+        return fields.computeIfAbsent(field, f -> new FieldIndex());
+    }
+
+    private static class FieldIndex {
+        private final Map<Object, Set<String>> terms = new HashMap<>();
+        private final NavigableMap<Double, Set<String>> numbers = new TreeMap<>();
+        private final NavigableMap<String, Set<String>> keywords = new TreeMap<>();
+        private final NavigableMap<String, Set<String>> tokens = new TreeMap<>();
+
+        private void add(Object value, String id) {
+            Comparable<?> key = key(value);
+            terms.computeIfAbsent(key, k -> {
+                Set<String> ids = new HashSet<>();
+                if (k instanceof Double) {
+                    numbers.put((Double) k, ids);
+                } else {
+                    keywords.put((String) k, ids);
+                }
+                return ids;
+            }).add(id);
+
+            if (value instanceof String) {
+                tokenize((String) value).forEach(token -> tokens.computeIfAbsent(token, t -> new HashSet<>()).add(id));
+            }
+        }
+
+        /**
+         * @return true if the field doesn't index any value anymore
+         */
+        private boolean remove(Object value, String id) {
+            Comparable<?> key = key(value);
+            Set<String> ids = terms.get(key);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                terms.remove(key);
+                if (key instanceof Double) {
+                    numbers.remove(key);
+                } else {
+                    keywords.remove(key);
+                }
+            }
+
+            if (value instanceof String) {
+                tokenize((String) value).forEach(token -> {
+                    Set<String> tokenIds = tokens.get(token);
+                    if (tokenIds != null && tokenIds.remove(id) && tokenIds.isEmpty()) {
+                        tokens.remove(token);
+                    }
+                });
+            }
+            return terms.isEmpty();
+        }
+    }
+
+    /**
+     * A document: the special keys and the index fields (source), the content and the order of creation
+     * The values of the source are copies (see copy) that are never handed out, so they can't change without the
+     * secondary indexes being updated
+     */
+    @Getter
+    @AllArgsConstructor
+    static class StoredDocument {
+        private final String id;
+        private final long sequence;
+        private final Map<String, Object> source;
+        private final byte[] content;
+    }
+}
@@ -0,0 +1,206 @@
+package net.consensys.mahuta.core.service.pinning;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.utils.ValidatorUtils;
+
+/**
+ * Gather the pin and unpin requests of a pinning service over a short window, then send them concurrently.
+ *
+ * The requests received during the window are coalesced by CID: a request identical to a pending one shares its
+ * result, a request opposite to a pending one (unpin after pin, or pin after unpin) replaces it. At most maxInFlight
+ * requests are sent at the same time, the window is flushed early when maxBatchSize requests are pending.
+ */
+@Slf4j
+public class PinCoalescer implements Closeable {
+
+    public static final Duration DEFAULT_WINDOW = Duration.ofMillis(20);
+    public static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+
+    public enum Operation {
+        PIN, UNPIN
+    }
+
+    /**
+     * Send one request to the pinning service
+     */
+    @FunctionalInterface
+    public interface Sender {
+        CompletableFuture<Void> send(Operation operation, String cid);
+    }
+
+    private final Sender sender;
+    private final @Getter Duration window;
+    private final @Getter int maxInFlight;
+    private final @Getter int maxBatchSize;
+    private final Semaphore inFlight;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicLong coalesced;
+    private Map<String, Pending> pending;
+    private boolean scheduled;
+    private boolean closed;
+
+    private PinCoalescer(Sender sender, Duration window, int maxInFlight, int maxBatchSize) {
+        this.sender = sender;
+        this.window = window;
+        this.maxInFlight = maxInFlight;
+        this.maxBatchSize = maxBatchSize;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.coalesced = new AtomicLong();
+        this.pending = new LinkedHashMap<>();
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "mahuta-pin-coalescer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false); // flushed by close()
+        this.scheduler = executor;
+    }
+
+    public static PinCoalescer of(Sender sender) {
+        return of(sender, DEFAULT_WINDOW, DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    public static PinCoalescer of(Sender sender, Duration window, int maxInFlight, int maxBatchSize) {
+        ValidatorUtils.rejectIfNull("sender", sender);
+        ValidatorUtils.rejectIfNull("window", window);
+        if (maxInFlight < 1 || maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxInFlight and maxBatchSize should be greater than 0.");
+        }
+
+        return new PinCoalescer(sender, window, maxInFlight, maxBatchSize);
+    }
+
+    /**
+     * Queue a request
+     * @return Future completed once the request is sent (shared by the identical requests of the window)
+     */
+    public synchronized CompletableFuture<Void> submit(Operation operation, String cid) {
+        ValidatorUtils.rejectIfNull("operation", operation);
+        ValidatorUtils.rejectIfEmpty("cid", cid);
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new TechnicalException("Pin coalescer closed"));
+            return future;
+        }
+
+        Pending existing = pending.remove(cid);
+        if (existing != null && existing.getOperation() == operation) {
+            coalesced.incrementAndGet();
+            pending.put(cid, existing);
+            return existing.getFuture();
+        } else if (existing != null) {
+            existing.getFuture().completeExceptionally(new TechnicalException(
+                    String.format("%s of %s cancelled by a %s", existing.getOperation(), cid, operation)));
+        }
+        pending.put(cid, new Pending(operation, future));
+
+        if (pending.size() >= maxBatchSize) {
+            scheduler.execute(this::flush);
+        } else if (!scheduled) {
+            scheduled = true;
+            scheduler.schedule(this::flush, window.toMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        return future;
+    }
+
+    /**
+     * @return Number of requests merged into a pending identical request since the start
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /**
+     * @return Number of requests sent and not answered yet
+     */
+    public int getInFlight() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Send the pending requests and wait for the requests in flight
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            flush();
+            if (inFlight.tryAcquire(maxInFlight, 1, TimeUnit.MINUTES)) {
+                inFlight.release(maxInFlight);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush() {
+        Map<String, Pending> batch;
+        synchronized (this) {
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            scheduled = false;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        log.debug("Send {} pin requests [maxInFlight: {}]", batch.size(), maxInFlight);
+
+        batch.forEach((cid, request) -> {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                request.getFuture().completeExceptionally(ex);
+                return;
+            }
+
+            CompletableFuture<Void> sent;
+            try {
+                sent = sender.send(request.getOperation(), cid);
+            } catch (Exception ex) {
+                sent = new CompletableFuture<>();
+                sent.completeExceptionally(ex);
+            }
+
+            sent.whenComplete((result, ex) -> {
+                inFlight.release();
+                if (ex == null) {
+                    request.getFuture().complete(null);
+                } else {
+                    request.getFuture().completeExceptionally(ex);
+                }
+            });
+        });
+    }
+
+    @Getter @AllArgsConstructor
+    private static class Pending {
+        private final Operation operation;
+        private final CompletableFuture<Void> future;
+    }
+}
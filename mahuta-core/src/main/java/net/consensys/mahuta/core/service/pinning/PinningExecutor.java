@@ -0,0 +1,237 @@
+package net.consensys.mahuta.core.service.pinning;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.utils.ValidatorUtils;
+
+/**
+ * Bounded thread pool pinning the contents on the replicas in background.
+ *
+ * At most `threads` pins run at the same time and at most `queueCapacity` pins wait for a thread, a pin submitted
+ * when the queue is full is handled according to the rejection policy. The pins in flight (running or queued) are
+ * tracked and drained when the executor is closed (also on JVM shutdown if it isn't closed before), within the drain
+ * timeout.
+ */
+@Slf4j
+public class PinningExecutor implements Closeable {
+
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    public static final RejectionPolicy DEFAULT_REJECTION_POLICY = RejectionPolicy.CALLER_RUNS;
+    public static final Duration DEFAULT_DRAIN_TIMEOUT = Duration.ofSeconds(30);
+
+    private static final String THREAD_PREFIX = "mahuta-pinning-";
+
+    /**
+     * What to do with a pin submitted when the queue is full
+     */
+    public enum RejectionPolicy {
+        /** Run the pin on the thread submitting it (slows down the indexing until the queue has room) */
+        CALLER_RUNS,
+        /** Reject the indexing request (TechnicalException) */
+        ABORT,
+        /** Skip the pin (its future fails with a RejectedExecutionException) */
+        DISCARD
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final @Getter int threads;
+    private final @Getter int queueCapacity;
+    private final @Getter RejectionPolicy rejectionPolicy;
+    private final AtomicInteger inFlight;
+    private final AtomicLong failed;
+    private final AtomicLong rejected;
+    private final Thread shutdownHook;
+    private @Getter Duration drainTimeout;
+
+    private PinningExecutor(int threads, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+        this.inFlight = new AtomicInteger();
+        this.failed = new AtomicLong();
+        this.rejected = new AtomicLong();
+        this.drainTimeout = DEFAULT_DRAIN_TIMEOUT;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory(), new ThreadPoolExecutor.AbortPolicy());
+
+        this.shutdownHook = new Thread(this::close, THREAD_PREFIX + "shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public static PinningExecutor of() {
+        return of(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY, DEFAULT_REJECTION_POLICY);
+    }
+
+    /**
+     * Default executor shared by the services built without their own executor, created on first use and drained on
+     * JVM shutdown (a single pool and shutdown hook however many services are built). It mustn't be closed.
+     * @return Shared executor (default settings)
+     */
+    public static PinningExecutor shared() {
+        return SharedExecutorHolder.INSTANCE;
+    }
+
+    public static PinningExecutor of(int threads, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        ValidatorUtils.rejectIfNull("rejectionPolicy", rejectionPolicy);
+        if (threads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("threads and queueCapacity should be greater than 0.");
+        }
+
+        log.info("Start pinning executor [threads: {}, queueCapacity: {}, rejectionPolicy: {}]", threads, queueCapacity, rejectionPolicy);
+
+        return new PinningExecutor(threads, queueCapacity, rejectionPolicy);
+    }
+
+    /**
+     * Configure the maximum time to wait for the pins in flight when the executor is closed
+     */
+    public PinningExecutor configureDrainTimeout(Duration drainTimeout) {
+        ValidatorUtils.rejectIfNull("drainTimeout", drainTimeout);
+        this.drainTimeout = drainTimeout;
+        return this;
+    }
+
+    /**
+     * Pin a content on a replica in background
+     * @param pinningService Replica
+     * @param contentId Content ID (hash, CID)
+     * @param name Content name
+     * @param metadata Content metadata
+     * @return Future completed once the content is pinned (or completed exceptionally if the pin failed or was rejected)
+     */
+    public CompletableFuture<Void> pin(PinningService pinningService, String contentId, String name, Map<String, Object> metadata) {
+        return pin(pinningService, contentId, name, metadata, rejectionPolicy == RejectionPolicy.CALLER_RUNS);
+    }
+
+    /**
+     * Pin a content on a replica in background, without ever running the pin on the calling thread (to be used from 
+     * the threads which mustn't block, like the I/O threads completing the futures): with the CALLER_RUNS policy, a 
+     * pin submitted when the queue is full is skipped as with DISCARD
+     * @param pinningService Replica
+     * @param contentId Content ID (hash, CID)
+     * @param name Content name
+     * @param metadata Content metadata
+     * @return Future completed once the content is pinned (or completed exceptionally if the pin failed or was rejected)
+     */
+    public CompletableFuture<Void> pinAsync(PinningService pinningService, String contentId, String name, Map<String, Object> metadata) {
+        return pin(pinningService, contentId, name, metadata, false);
+    }
+
+    private CompletableFuture<Void> pin(PinningService pinningService, String contentId, String name, Map<String, Object> metadata, 
+            boolean callerRuns) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Runnable task = () -> {
+            try {
+                pinningService.pin(contentId, name, metadata);
+                future.complete(null);
+            } catch (Exception ex) {
+                failed.incrementAndGet();
+                log.warn("Error while pinning content [node: {}, cid: {}]: {}", pinningService.getName(), contentId, ex.getMessage());
+                future.completeExceptionally(ex);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        };
+
+        inFlight.incrementAndGet();
+        try {
+            executor.execute(task);
+
+        } catch (RejectedExecutionException ex) {
+            rejected.incrementAndGet();
+
+            if (callerRuns && !executor.isShutdown()) {
+                log.debug("Pinning queue full, pin content on the caller thread [node: {}, cid: {}]", pinningService.getName(), contentId);
+                task.run();
+                return future;
+            }
+
+            inFlight.decrementAndGet();
+            log.warn("Pinning queue full or closed, pin rejected [node: {}, cid: {}, policy: {}]", pinningService.getName(), contentId, rejectionPolicy);
+            if (rejectionPolicy == RejectionPolicy.ABORT) {
+                throw new TechnicalException("Pinning queue full or closed (" + inFlight.get() + " pins in flight)", ex);
+            }
+            future.completeExceptionally(ex);
+        }
+
+        return future;
+    }
+
+    /**
+     * @return Number of pins running or waiting for a thread
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return Number of pins failed since the start
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return Number of pins rejected by a full queue since the start (including the pins run on the caller thread)
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Stop accepting pins and wait (up to the drain timeout) for the pins in flight
+     * 
+     * The shutdown hook is removed, so that a closed executor isn't retained until the JVM exits.
+     */
+    @Override
+    public void close() {
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ex) {
+            // JVM shutting down (close called by the shutdown hook)
+        }
+        if (executor.isTerminated()) {
+            return;
+        }
+
+        log.info("Stop pinning executor [pins in flight: {}, drainTimeout: {}]", inFlight.get(), drainTimeout);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(drainTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Pinning executor stopped before the end of {} pins", inFlight.get());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class SharedExecutorHolder {
+        private static final PinningExecutor INSTANCE = PinningExecutor.of();
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, THREAD_PREFIX + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
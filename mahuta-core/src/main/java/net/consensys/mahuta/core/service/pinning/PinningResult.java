@@ -0,0 +1,28 @@
+package net.consensys.mahuta.core.service.pinning;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Result of the pin (or unpin) of one content of a batch: the error if it failed
+ */
+@Getter @ToString
+@AllArgsConstructor
+public class PinningResult {
+
+    private final String cid;
+    private final String error;
+
+    public static PinningResult success(String cid) {
+        return new PinningResult(cid, null);
+    }
+
+    public static PinningResult failure(String cid, String error) {
+        return new PinningResult(cid, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -2,6 +2,10 @@ package net.consensys.mahuta.core.service.pinning;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import net.consensys.mahuta.core.utils.FutureUtils;
 
 /**
  * Interface representing a pinning service.
@@ -40,9 +44,29 @@ public interface PinningService {
      */
     void unpin(String id);
     
+    /**
+     * unpin content without blocking the calling thread
+     * default implementation unpins the content on the calling thread
+     * @param id Content ID (hash, CID)
+     * @return Future completed once the content is unpinned
+     */
+    default CompletableFuture<Void> unpinAsync(String id) {
+        return FutureUtils.run(() -> unpin(id));
+    }
+    
     /**
      * Get list of all tracked files
      * @return List of Content ID
      */
     List<String> getTracked();
+
+    /**
+     * Stream all tracked files without loading the whole list in memory
+     * The stream may hold a connection to the service and must be closed (try-with-resources)
+     * default implementation streams getTracked()
+     * @return Stream of Content ID
+     */
+    default Stream<String> streamTracked() {
+        return getTracked().stream();
+    }
 }
@@ -1,36 +1,58 @@
 package net.consensys.mahuta.core.service.pinning.ipfs;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import kong.unirest.HttpResponse;
 import kong.unirest.Unirest;
 import kong.unirest.UnirestException;
+import kong.unirest.UnirestInstance;
 import lombok.extern.slf4j.Slf4j;
 import net.consensys.mahuta.core.exception.ConnectionException;
 import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.service.pinning.PinCoalescer;
+import net.consensys.mahuta.core.service.pinning.PinCoalescer.Operation;
+import net.consensys.mahuta.core.service.pinning.PinningResult;
 import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.utils.JsonStreamUtils;
 import net.consensys.mahuta.core.utils.ValidatorUtils;
 
+/**
+ * IPFS-Cluster pinning service
+ *
+ * The pin and unpin requests are coalesced over a short window and sent concurrently (see PinCoalescer) through a
+ * dedicated pool of keep-alive connections.
+ */
 @Slf4j
-public class IPFSClusterPinningService implements PinningService {
+public class IPFSClusterPinningService implements PinningService, Closeable {
 
     private static final String BASE_URI = "%s://%s:%s";
     private static final String DEFAULT_PROTOCOL = "http";
     private static final String DEFAULT_HOST = "localhost";
     private static final int DEFAULT_PORT = 9094;
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final int MAX_CONNECTIONS = 64;
 
     private final String protocol;
     private final String host;
     private final Integer port;
+    private final UnirestInstance client;
+    private volatile PinCoalescer coalescer;
 
-    private IPFSClusterPinningService(String host, Integer port, String protocol) {
+    private IPFSClusterPinningService(String host, Integer port, String protocol, UnirestInstance client) {
         this.host = host;
         this.port = port;
         this.protocol = protocol;
+        this.client = client;
+        this.coalescer = PinCoalescer.of(this::send);
     }
 
     public static IPFSClusterPinningService connect() {
@@ -46,84 +68,122 @@ public class IPFSClusterPinningService implements PinningService {
         ValidatorUtils.rejectIfNegative("port", port);
         ValidatorUtils.rejectIfDifferentThan("protocol", protocol, "http", "https");
 
+        UnirestInstance client = Unirest.spawnInstance();
+        client.config().concurrency(MAX_CONNECTIONS, MAX_CONNECTIONS);
+
         try {
             log.trace("call GET {}://{}:{}/id", protocol, host, port);
-            HttpResponse<String> response = Unirest.get(String.format(BASE_URI + "/id", protocol, host, port))
+            HttpResponse<String> response = client.get(String.format(BASE_URI + "/id", protocol, host, port))
                     .asString()
                     .ifFailure(r -> { throw new UnirestException(r.getStatus() + " - " + r.getBody()); });
             log.info("Connected to IPFS-Cluster [protocol: {}, host: {}, port: {}]: Info {}", protocol, host, port,
                     response.getBody());
 
-            return new IPFSClusterPinningService(host, port, protocol);
+            return new IPFSClusterPinningService(host, port, protocol, client);
 
         } catch (UnirestException ex) {
+            client.shutDown();
             String msg = String.format("Error whilst connecting to IPFS-Cluster [host: %s, port: %s]", host, port);
             log.error(msg, ex);
             throw new ConnectionException(msg, ex);
         }
     }
 
+    /**
+     * Configure the coalescing of the pin and unpin requests
+     * @param window Time during which the requests are gathered before being sent
+     * @param maxInFlight Maximum number of requests sent at the same time
+     */
+    public IPFSClusterPinningService configureCoalescing(Duration window, int maxInFlight) {
+        if (maxInFlight > MAX_CONNECTIONS) {
+            throw new IllegalArgumentException("maxInFlight should be lower than " + MAX_CONNECTIONS + ".");
+        }
+        PinCoalescer previous = this.coalescer;
+        this.coalescer = PinCoalescer.of(this::send, window, maxInFlight, PinCoalescer.DEFAULT_MAX_BATCH_SIZE);
+        previous.close();
+        return this;
+    }
+
+    /**
+     * Pin a content
+     * The request is coalesced with the other requests of the window, so a single call waits for the end of the window 
+     * (20ms by default) before being sent. Use configureCoalescing(Duration.ZERO, maxInFlight) to send it immediately
+     */
     @Override
     public void pin(String cid) {
         log.debug("pin CID {} on IPFS-cluster", cid);
 
-        try {
-            ValidatorUtils.rejectIfEmpty("cid", cid);
-            
-            log.trace("call POST {}://{}:{}/pins/{}", protocol, host, port, cid);
-            
-            Unirest.post(String.format(BASE_URI + "/pins/%s", protocol, host, port, cid))
-                .asString()
-                .ifFailure(r -> { throw new UnirestException(r.getStatus() + " - " + r.getBody()); });
-            
-            log.debug("CID {} pinned on IPFS-cluster", cid);
-            
-        } catch (UnirestException ex) {
-            String msg = String.format("Error whilst sending request to IPFS-Cluster [host: %s, port: %s]", host, port);
-            log.error(msg, ex);
-            throw new TechnicalException(msg, ex);
-        }
+        ValidatorUtils.rejectIfEmpty("cid", cid);
+        join(coalescer.submit(Operation.PIN, cid));
+
+        log.debug("CID {} pinned on IPFS-cluster", cid);
     }
-    
+
+    /**
+     * Pin a batch of contents (the requests are sent concurrently)
+     * @param cids Content IDs
+     * @return Result per content ID
+     */
+    public List<PinningResult> pin(Collection<String> cids) {
+        return submit(Operation.PIN, cids);
+    }
+
+    /**
+     * Unpin a content
+     * As pin(String), a single call waits for the end of the coalescing window before being sent
+     */
     @Override
     public void unpin(String cid) {
         log.debug("unpin CID {} on IPFS-cluster", cid);
 
-        try {
-            ValidatorUtils.rejectIfEmpty("cid", cid);
+        ValidatorUtils.rejectIfEmpty("cid", cid);
+        join(coalescer.submit(Operation.UNPIN, cid));
 
-            log.trace("call DELETE {}://{}:{}/pins/{}", protocol, host, port, cid);
-            
-            Unirest.delete(String.format(BASE_URI + "/pins/%s", protocol, host, port, cid))
-                .asString()
-                .ifFailure(r -> { throw new UnirestException(r.getStatus() + " - " + r.getBody()); });
+        log.debug("unpin {} pinned on IPFS-cluster", cid);
+    }
 
-            log.debug("unpin {} pinned on IPFS-cluster", cid);
-        } catch (UnirestException ex) {
-            String msg = String.format("Error whilst sending request to IPFS-Cluster [host: %s, port: %s]", host, port);
-            log.error(msg, ex);
-            throw new TechnicalException(msg, ex);
-        }
+    /**
+     * Unpin a batch of contents (the requests are sent concurrently)
+     * @param cids Content IDs
+     * @return Result per content ID
+     */
+    public List<PinningResult> unpin(Collection<String> cids) {
+        return submit(Operation.UNPIN, cids);
     }
 
     @Override
     public List<String> getTracked() {
         log.debug("get pinned files on IPFS-cluster");
 
-        try {
-            log.trace("GET {}://{}:{}/pins", protocol, host, port);
-            HttpResponse<String> response = Unirest.get(String.format(BASE_URI + "/pins", protocol, host, port))
-                    .asString()
-                    .ifFailure(r -> { throw new UnirestException(r.getStatus() + " - " + r.getBody()); });
-            log.debug("response: {}", response);
-            IPFSClusterTrackedResponse result = mapper.readValue(response.getBody(), IPFSClusterTrackedResponse.class);
+        try (Stream<String> tracked = streamTracked()) {
+            return tracked.collect(Collectors.toList());
+        }
+    }
 
-            log.debug("get pinned files on IPFS-cluster");
-            return result.getPins();
+    /**
+     * Stream the pinned files, the response of /pins ({"pins":["Qm...",...]}) is parsed incrementally
+     */
+    @Override
+    public Stream<String> streamTracked() {
+        log.debug("stream pinned files on IPFS-cluster");
 
-        } catch (UnirestException | IOException ex) {
-            log.error("Exception converting HTTP response to JSON", ex);
-            throw new TechnicalException("Exception converting HTTP response to JSON", ex);
+        String url = String.format(BASE_URI + "/pins", protocol, host, port);
+        try {
+            // Unirest releases the connection once the response is read: the body is streamed by a plain connection
+            log.trace("GET {}", url);
+            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setUseCaches(false);
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                connection.disconnect();
+                throw new IOException("GET " + url + " returned HTTP " + status);
+            }
+
+            return JsonStreamUtils.streamArrayValues(connection.getInputStream(), "pins");
+
+        } catch (IOException ex) {
+            log.error("Exception whilst requesting the tracked data", ex);
+            throw new TechnicalException("Exception whilst requesting the tracked data", ex);
         }
     }
 
@@ -131,4 +191,59 @@ public class IPFSClusterPinningService implements PinningService {
     public String getName() {
         return "ipfs-cluster ["+host + ":" + port +"]";
     }
-}
\ No newline at end of file
+
+    /**
+     * Send the pending requests, then release the connections
+     */
+    @Override
+    public void close() {
+        coalescer.close();
+        client.shutDown();
+    }
+
+    private List<PinningResult> submit(Operation operation, Collection<String> cids) {
+        ValidatorUtils.rejectIfNull("cids", cids);
+        log.debug("{} {} CIDs on IPFS-cluster", operation, cids.size());
+
+        List<CompletableFuture<PinningResult>> results = cids.stream()
+            .map(cid -> coalescer.submit(operation, cid)
+                .handle((result, ex) -> ex == null
+                    ? PinningResult.success(cid)
+                    : PinningResult.failure(cid, unwrap(ex).getMessage())))
+            .collect(Collectors.toList());
+
+        return results.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    private CompletableFuture<Void> send(Operation operation, String cid) {
+        String url = String.format(BASE_URI + "/pins/%s", protocol, host, port, cid);
+        log.trace("call {} {}", operation == Operation.PIN ? "POST" : "DELETE", url);
+
+        return (operation == Operation.PIN ? client.post(url) : client.delete(url))
+            .asStringAsync()
+            .thenAccept(r -> {
+                if (!r.isSuccess()) {
+                    throw new TechnicalException(String.format("Error whilst sending request to IPFS-Cluster [host: %s, port: %s]: %s - %s",
+                            host, port, r.getStatus(), r.getBody()));
+                }
+            });
+    }
+
+    private void join(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = unwrap(ex);
+            if (cause instanceof TechnicalException) {
+                throw (TechnicalException) cause;
+            }
+            String msg = String.format("Error whilst sending request to IPFS-Cluster [host: %s, port: %s]", host, port);
+            log.error(msg, cause);
+            throw new TechnicalException(msg, cause);
+        }
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        return ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    }
+}
@@ -1,17 +1,31 @@
 package net.consensys.mahuta.core.service.pinning.ipfs;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.ipfs.multiaddr.MultiAddress;
+import kong.unirest.HttpRequest;
 import kong.unirest.HttpResponse;
 import kong.unirest.Unirest;
 import kong.unirest.UnirestException;
@@ -19,6 +33,7 @@ import lombok.extern.slf4j.Slf4j;
 import net.consensys.mahuta.core.exception.ConnectionException;
 import net.consensys.mahuta.core.exception.TechnicalException;
 import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.utils.RateLimiter;
 import net.consensys.mahuta.core.utils.ValidatorUtils;
 
 @Slf4j
@@ -29,19 +44,32 @@ public class PinataPinningService implements PinningService {
     private static final String HEADER_CONTENT_TYPE_VAL = "application/json";
     private static final String HEADER_API_KEY = "pinata_api_key";
     private static final String HEADER_SECRET_API_KEY = "pinata_secret_api_key";
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
     private static final int MAX_METADATA = 10;
+    private static final int PAGE_LIMIT = 1000;
+    private static final int STATUS_TOO_MANY_REQUESTS = 429;
+    public static final double DEFAULT_RATE = 3; // 180 requests per minute
+    public static final int DEFAULT_BURST = 10;
+    public static final int DEFAULT_MAX_RETRY = 5;
+    public static final Duration DEFAULT_RETRY_DELAY = Duration.ofSeconds(1);
     private static final ObjectMapper mapper = new ObjectMapper();
 
     private final String endpoint;
     private final String apiKey;
     private final String secretApiKey;
     private final List<String> addresses;
+    private RateLimiter rateLimiter;
+    private int maxRetry;
+    private Duration retryDelay;
 
     private PinataPinningService(String endpoint, String apiKey, String secretApiKey, List<String> addresses) {
         this.endpoint = endpoint;
         this.apiKey = apiKey;
         this.secretApiKey = secretApiKey;
         this.addresses = addresses;
+        this.rateLimiter = RateLimiter.of(DEFAULT_RATE, DEFAULT_BURST);
+        this.maxRetry = DEFAULT_MAX_RETRY;
+        this.retryDelay = DEFAULT_RETRY_DELAY;
     }
 
     public static PinataPinningService connect(String apiKey, String secretApiKey) {
@@ -81,6 +109,29 @@ public class PinataPinningService implements PinningService {
         }
     }
 
+    /**
+     * Configure the rate limit of the requests sent to Pinata
+     * @param ratePerSecond Maximum number of requests per second
+     * @param burst Maximum number of requests sent at once
+     */
+    public PinataPinningService configureRateLimit(double ratePerSecond, int burst) {
+        this.rateLimiter = RateLimiter.of(ratePerSecond, burst);
+        return this;
+    }
+
+    /**
+     * Configure the retry of the requests rejected by the rate limit of Pinata (429 Too Many Requests)
+     * @param maxRetry Maximum number of retries
+     * @param delay Delay before the first retry if Pinata doesn't send a Retry-After header (doubled after each retry)
+     */
+    public PinataPinningService configureRetry(int maxRetry, Duration delay) {
+        ValidatorUtils.rejectIfNegative("maxRetry", maxRetry);
+        ValidatorUtils.rejectIfNull("delay", delay);
+        this.maxRetry = maxRetry;
+        this.retryDelay = delay;
+        return this;
+    }
+
     @Override
     public void pin(String cid) {
         this.pin(cid, null, null);
@@ -104,13 +155,12 @@ public class PinataPinningService implements PinningService {
                     new PinataMetadata(name, keyvalues));
             log.trace("call POST {}/pinning/pinHashToIPFS {}", endpoint, mapper.writeValueAsString(request));
             
-            HttpResponse<String> response = Unirest.post(endpoint + "/pinning/pinHashToIPFS")
+            String body = mapper.writeValueAsString(request);
+            HttpResponse<String> response = send(() -> Unirest.post(endpoint + "/pinning/pinHashToIPFS")
                 .header(HEADER_CONTENT_TYPE, HEADER_CONTENT_TYPE_VAL)
                 .header(HEADER_API_KEY, apiKey)
                 .header(HEADER_SECRET_API_KEY, secretApiKey)
-                .body(mapper.writeValueAsString(request))
-                .asString()
-                .ifFailure(r -> { throw new UnirestException(r.getStatus() + " - " + r.getBody()); });
+                .body(body));
             log.trace("response: {}", response.getBody());
             
             log.debug("CID {} pinned on Pinata", cid);
@@ -132,13 +182,12 @@ public class PinataPinningService implements PinningService {
             PinataUnpinRequest request = new PinataUnpinRequest(cid);
             log.trace("call POST {}/pinning/removePinFromIPFS {}", endpoint, mapper.writeValueAsString(request));
             
-            HttpResponse<String> response = Unirest.post(endpoint + "/pinning/removePinFromIPFS")
+            String body = mapper.writeValueAsString(request);
+            HttpResponse<String> response = send(() -> Unirest.post(endpoint + "/pinning/removePinFromIPFS")
                 .header(HEADER_CONTENT_TYPE, HEADER_CONTENT_TYPE_VAL)
                 .header(HEADER_API_KEY, apiKey)
                 .header(HEADER_SECRET_API_KEY, secretApiKey)
-                .body(mapper.writeValueAsString(request))
-                .asString()
-                .ifFailure(r -> { throw new UnirestException(r.getStatus() + " - " + r.getBody()); });
+                .body(body));
             log.trace("response: {}", response.getBody());
             
             log.debug("CID {} unpinned on Pinata", cid);
@@ -154,34 +203,118 @@ public class PinataPinningService implements PinningService {
     public List<String> getTracked() {
         log.debug("get pinned files on Pinata");
 
-        try {
-            log.trace("GET {}/data/pinList?status=pinned&pageLimit=1000", endpoint);
-            HttpResponse<String> response = Unirest.get(endpoint + "/data/pinList?status=pinned&pageLimit=1000")
-                    .header(HEADER_API_KEY, apiKey)
-                    .header(HEADER_SECRET_API_KEY, secretApiKey)
-                    .asString()
-                    .ifFailure(r -> { throw new UnirestException(r.getStatus() + " - " + r.getBody()); });
-            log.trace("response: {}", response.getBody());
-
-            PinataTrackedResponse result = mapper.readValue(response.getBody(), PinataTrackedResponse.class);
-            
-            log.debug("get pinned files on Pinata [count: {}]", result.getCount());
-            return result.getRows()
-                    .stream()
-                    .map(r -> r.getHash())
-                    .collect(Collectors.toList());
-
-        } catch (UnirestException | IOException ex) {
-            log.error("Exception whilst requesting the tracked data", ex);
-            throw new TechnicalException("Exception whilst requesting the tracked data", ex);
+        try (Stream<String> stream = streamTracked()) {
+            List<String> tracked = stream.collect(Collectors.toList());
+            log.debug("get pinned files on Pinata [count: {}]", tracked.size());
+            return tracked;
         }
     }
 
+    /**
+     * Stream all the pinned files, the pages of the pin list are fetched lazily (while consuming the stream)
+     */
+    @Override
+    public Stream<String> streamTracked() {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new TrackedIterator(), Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     @Override
     public String getName() {
         return "Pinata [endpoint: "+endpoint+", apiKey: "+apiKey+"]";
     }
     
+    /**
+     * Send a request within the rate limit, a request rejected by the rate limit (429) is retried after the delay
+     * requested by Pinata (Retry-After) or an exponential backoff
+     */
+    private HttpResponse<String> send(Supplier<HttpRequest<?>> request) {
+        for (int attempt = 0;; attempt++) {
+            rateLimiter.acquire();
+            HttpResponse<String> response = request.get().asString();
+
+            if (response.getStatus() == STATUS_TOO_MANY_REQUESTS && attempt < maxRetry) {
+                Duration retryAfter = retryAfter(response, attempt);
+                log.warn("Rate limit of Pinata reached, retry in {} ms [attempt: {}/{}, rate: {}/s]", 
+                        retryAfter.toMillis(), attempt + 1, maxRetry, rateLimiter.getRate());
+                rateLimiter.throttled(retryAfter);
+                continue;
+            } else if (!response.isSuccess()) {
+                throw new UnirestException(response.getStatus() + " - " + response.getBody());
+            }
+
+            rateLimiter.succeeded();
+            return response;
+        }
+    }
+
+    private Duration retryAfter(HttpResponse<String> response, int attempt) {
+        Duration backoff = retryDelay.multipliedBy(1L << Math.min(attempt, 20));
+        String header = response.getHeaders().getFirst(HEADER_RETRY_AFTER);
+        if (header == null || header.trim().isEmpty()) {
+            return backoff;
+        }
+
+        try {
+            return Duration.ofSeconds(Long.parseLong(header.trim()));
+        } catch (NumberFormatException ex) {
+            try {
+                Duration delay = Duration.between(Instant.now(), ZonedDateTime.parse(header.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+                return delay.isNegative() ? Duration.ZERO : delay;
+            } catch (DateTimeParseException e) {
+                log.debug("Invalid Retry-After header: {}", header);
+                return backoff;
+            }
+        }
+    }
+
+    /**
+     * Iterator over the pages of the pin list (pageLimit/pageOffset)
+     */
+    private class TrackedIterator implements Iterator<String> {
+        private Iterator<String> page = Collections.emptyIterator();
+        private int offset = 0;
+        private boolean last = false;
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext() && !last) {
+                fetch();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.next();
+        }
+
+        private void fetch() {
+            String url = String.format("%s/data/pinList?status=pinned&pageLimit=%d&pageOffset=%d", endpoint, PAGE_LIMIT, offset);
+
+            try {
+                log.trace("GET {}", url);
+                HttpResponse<String> response = send(() -> Unirest.get(url)
+                        .header(HEADER_API_KEY, apiKey)
+                        .header(HEADER_SECRET_API_KEY, secretApiKey));
+                log.trace("response: {}", response.getBody());
+
+                PinataTrackedResponse result = mapper.readValue(response.getBody(), PinataTrackedResponse.class);
+                List<PinataTrackedRowResponse> rows = Optional.ofNullable(result.getRows()).orElseGet(Collections::emptyList);
+
+                offset += rows.size();
+                last = rows.size() < PAGE_LIMIT || (result.getCount() != null && offset >= result.getCount());
+                page = rows.stream().map(PinataTrackedRowResponse::getHash).iterator();
+
+            } catch (UnirestException | IOException ex) {
+                log.error("Exception whilst requesting the tracked data", ex);
+                throw new TechnicalException("Exception whilst requesting the tracked data", ex);
+            }
+        }
+    }
+
     private static String obfuscateKey(String key) {
         ValidatorUtils.rejectIfEmpty("key", key);
         
@@ -0,0 +1,477 @@
+package net.consensys.mahuta.core.service.pinning.journal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.service.pinning.journal.PinTask.ReplicaState;
+import net.consensys.mahuta.core.utils.ValidatorUtils;
+
+/**
+ * Durable queue of the pending pins, stored in an append-only memory-mapped file (directory/pins.journal).
+ *
+ * Each change (task added, pinned or failed on a replica, done) is appended to the journal as a checksummed record,
+ * the pending tasks are kept in memory and rebuilt from the journal on startup (a record torn by a crash is
+ * discarded with everything after it). When the file is full, it is compacted: the live tasks are rewritten to a new
+ * file which atomically replaces the journal.
+ *
+ * A failed pin is retried on the same replica after an exponential backoff (delay * 2^(attempts-1), capped to
+ * maxDelay) with a random jitter of up to 50%.
+ */
+@Slf4j
+public class PinJournal implements Closeable {
+
+    public static final long DEFAULT_INITIAL_SIZE = 16L * 1024 * 1024;
+    public static final Duration DEFAULT_BACKOFF_DELAY = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_BACKOFF_MAX_DELAY = Duration.ofHours(1);
+
+    private static final String JOURNAL_FILE = "pins.journal";
+    private static final String COMPACT_SUFFIX = ".compact";
+    private static final int RECORD_HEADER_SIZE = 8; // length + checksum
+    private static final byte ADDED = 1;
+    private static final byte PINNED = 2;
+    private static final byte FAILED = 3;
+    private static final byte DONE = 4;
+
+    private final Path file;
+    private final long initialSize;
+    private final ObjectMapper mapper;
+    private final TreeMap<Long, PinTask> tasks;
+    private final Map<String, Long> keys;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long nextId;
+    private @Getter Duration backoffDelay;
+    private @Getter Duration backoffMaxDelay;
+    private @Getter boolean sync;
+
+    private PinJournal(Path file, long initialSize) {
+        this.file = file;
+        this.initialSize = initialSize;
+        this.mapper = new ObjectMapper();
+        this.tasks = new TreeMap<>();
+        this.keys = new HashMap<>();
+        this.nextId = 1;
+        this.backoffDelay = DEFAULT_BACKOFF_DELAY;
+        this.backoffMaxDelay = DEFAULT_BACKOFF_MAX_DELAY;
+        this.sync = false;
+    }
+
+    public static PinJournal open(String directory) {
+        return open(directory, DEFAULT_INITIAL_SIZE);
+    }
+
+    public static PinJournal open(String directory, long initialSize) {
+        ValidatorUtils.rejectIfEmpty("directory", directory);
+        if (initialSize < RECORD_HEADER_SIZE || initialSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("initialSize should be between " + RECORD_HEADER_SIZE + " and " + Integer.MAX_VALUE + ".");
+        }
+
+        try {
+            Path path = Paths.get(directory);
+            Files.createDirectories(path);
+
+            PinJournal journal = new PinJournal(path.resolve(JOURNAL_FILE), initialSize);
+            journal.replay();
+            journal.compact(0);
+
+            log.info("Pin journal opened [file: {}, pending tasks: {}]", journal.file, journal.tasks.size());
+
+            return journal;
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while opening the pin journal " + directory, ex);
+        }
+    }
+
+    /**
+     * Configure the backoff between two attempts to pin a content on a replica
+     * @param delay Delay after the first failure (doubled after each failure)
+     * @param maxDelay Maximum delay
+     */
+    public PinJournal configureBackoff(Duration delay, Duration maxDelay) {
+        ValidatorUtils.rejectIfNull("delay", delay);
+        ValidatorUtils.rejectIfNull("maxDelay", maxDelay);
+        this.backoffDelay = delay;
+        this.backoffMaxDelay = maxDelay;
+        return this;
+    }
+
+    /**
+     * Configure the durability of the journal
+     * @param sync Flush each record to the disk (survives a power loss). Otherwise the records survive a crash of the
+     * process but are only flushed by the operating system
+     */
+    public PinJournal configureSync(boolean sync) {
+        this.sync = sync;
+        return this;
+    }
+
+    /**
+     * Add a task to the journal
+     * If a task is already pending for the same document, it is kept if it pins the same content, and replaced
+     * otherwise (the document was re-indexed with another content)
+     * @return Task
+     */
+    public synchronized PinTask add(String indexName, String indexDocId, String contentId, Map<String, Object> indexFields) {
+        ValidatorUtils.rejectIfEmpty("contentId", contentId);
+
+        Long existing = keys.get(PinTask.key(indexName, indexDocId));
+        if (existing != null) {
+            PinTask task = tasks.get(existing);
+            if (contentId.equals(task.getContentId())) {
+                return task.copy();
+            }
+            log.debug("Pending pin task replaced [indexName: {}, indexDocId: {}, contentId: {} -> {}]", 
+                    indexName, indexDocId, task.getContentId(), contentId);
+            done(existing);
+        }
+
+        PinTask task = new PinTask(nextId++, indexName, indexDocId, contentId, indexFields);
+        append(record(ADDED, task.getId(), out -> {
+            writeString(out, indexName);
+            writeString(out, indexDocId);
+            writeString(out, contentId);
+            writeString(out, indexFields == null ? null : mapper.writeValueAsString(indexFields));
+        }));
+        tasks.put(task.getId(), task);
+        keys.put(task.getKey(), task.getId());
+
+        return task.copy();
+    }
+
+    /**
+     * @return true if a task is pending for the document
+     */
+    public synchronized boolean contains(String indexName, String indexDocId) {
+        return keys.containsKey(PinTask.key(indexName, indexDocId));
+    }
+
+    /**
+     * @return true if a task is still pending (not done nor replaced by a task of another content)
+     */
+    public synchronized boolean isPending(long id) {
+        return tasks.containsKey(id);
+    }
+
+    /**
+     * Remove the task pending for a document (deindexed)
+     */
+    public synchronized void remove(String indexName, String indexDocId) {
+        Long existing = keys.get(PinTask.key(indexName, indexDocId));
+        if (existing != null) {
+            done(existing);
+        }
+    }
+
+    /**
+     * Tasks having something to do on the replica set at a given time
+     * @param replicaSet Names of the replicas
+     * @param now Current time (in milliseconds)
+     * @param afterId Only the tasks added after this one (0: from the first task)
+     * @param limit Maximum number of tasks
+     * @return Copy of the tasks, in the order they were added
+     */
+    public synchronized List<PinTask> due(Collection<String> replicaSet, long now, long afterId, int limit) {
+        return tasks.tailMap(afterId, false).values().stream()
+                .filter(task -> task.isDue(replicaSet, now))
+                .limit(limit)
+                .map(PinTask::copy)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Record that a content is pinned on a replica
+     */
+    public synchronized void pinned(long id, String replica) {
+        PinTask task = tasks.get(id);
+        if (task == null) {
+            return;
+        }
+
+        append(record(PINNED, id, out -> writeString(out, replica)));
+        task.getReplicas().put(replica, new ReplicaState(true, attempts(task, replica), 0));
+    }
+
+    /**
+     * Record a failure to pin a content on a replica, the next attempt is delayed by the backoff
+     * @return Time (in milliseconds) of the next attempt
+     */
+    public synchronized long failed(long id, String replica) {
+        PinTask task = tasks.get(id);
+        if (task == null) {
+            return 0;
+        }
+
+        int attempts = attempts(task, replica) + 1;
+        long delay = Math.min(backoffMaxDelay.toMillis(), backoffDelay.toMillis() << Math.min(attempts - 1, 30));
+        long nextAttemptAt = System.currentTimeMillis() + delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+
+        append(record(FAILED, id, out -> {
+            writeString(out, replica);
+            out.writeInt(attempts);
+            out.writeLong(nextAttemptAt);
+        }));
+        task.getReplicas().put(replica, new ReplicaState(false, attempts, nextAttemptAt));
+
+        return nextAttemptAt;
+    }
+
+    /**
+     * Remove a task from the journal (pinned on all the replicas)
+     */
+    public synchronized void done(long id) {
+        PinTask task = tasks.get(id);
+        if (task == null) {
+            return;
+        }
+
+        append(record(DONE, id, out -> {}));
+        tasks.remove(id);
+        keys.remove(task.getKey());
+    }
+
+    /**
+     * @return Number of pending tasks
+     */
+    public synchronized int size() {
+        return tasks.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.force();
+            channel.close();
+            channel = null;
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while closing the pin journal " + file, ex);
+        }
+    }
+
+    private static int attempts(PinTask task, String replica) {
+        return Optional.ofNullable(task.getReplicas().get(replica)).map(ReplicaState::getAttempts).orElse(0);
+    }
+
+    /**
+     * Rebuild the pending tasks from the journal
+     */
+    private void replay() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (FileChannel input = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer records = input.map(MapMode.READ_ONLY, 0, input.size());
+
+            while (records.remaining() >= RECORD_HEADER_SIZE) {
+                int length = records.getInt();
+                int checksum = records.getInt();
+                if (length <= 0 || length > records.remaining()) {
+                    break; // end of the journal
+                }
+
+                byte[] payload = new byte[length];
+                records.get(payload);
+                if (checksum(payload) != checksum) {
+                    log.warn("Corrupted record found in the pin journal {} at position {}, the next records are ignored",
+                            file, records.position() - length - RECORD_HEADER_SIZE);
+                    break;
+                }
+                apply(payload);
+            }
+        }
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        long id = in.readLong();
+        PinTask task = tasks.get(id);
+
+        switch (type) {
+        case ADDED:
+            String indexName = readString(in);
+            String indexDocId = readString(in);
+            String contentId = readString(in);
+            String indexFields = readString(in);
+            task = new PinTask(id, indexName, indexDocId, contentId,
+                    indexFields == null ? null : mapper.readValue(indexFields, new TypeReference<Map<String, Object>>() {}));
+            tasks.put(id, task);
+            keys.put(task.getKey(), id);
+            nextId = Math.max(nextId, id + 1);
+            break;
+        case PINNED:
+            if (task != null) {
+                String replica = readString(in);
+                task.getReplicas().put(replica, new ReplicaState(true, attempts(task, replica), 0));
+            }
+            break;
+        case FAILED:
+            if (task != null) {
+                task.getReplicas().put(readString(in), new ReplicaState(false, in.readInt(), in.readLong()));
+            }
+            break;
+        case DONE:
+            if (task != null) {
+                tasks.remove(id);
+                keys.remove(task.getKey());
+            }
+            break;
+        default:
+            log.warn("Unknown record type {} in the pin journal {}", type, file);
+        }
+    }
+
+    private void append(byte[] payload) {
+        try {
+            if (buffer.remaining() < RECORD_HEADER_SIZE + payload.length) {
+                compact(RECORD_HEADER_SIZE + payload.length);
+            }
+
+            buffer.putInt(payload.length);
+            buffer.putInt(checksum(payload));
+            buffer.put(payload);
+            if (sync) {
+                buffer.force();
+            }
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while writing to the pin journal " + file, ex);
+        }
+    }
+
+    /**
+     * Rewrite the live tasks to a new file (twice as large as the live records, at least initialSize) and replace the
+     * journal with it
+     * @param reserve Free space required after the live records
+     */
+    private void compact(int reserve) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        for (PinTask task : tasks.values()) {
+            records.add(record(ADDED, task.getId(), out -> {
+                writeString(out, task.getIndexName());
+                writeString(out, task.getIndexDocId());
+                writeString(out, task.getContentId());
+                writeString(out, task.getIndexFields() == null ? null : mapper.writeValueAsString(task.getIndexFields()));
+            }));
+            for (Map.Entry<String, ReplicaState> replica : task.getReplicas().entrySet()) {
+                ReplicaState state = replica.getValue();
+                records.add(record(state.isPinned() ? PINNED : FAILED, task.getId(), out -> {
+                    writeString(out, replica.getKey());
+                    if (!state.isPinned()) {
+                        out.writeInt(state.getAttempts());
+                        out.writeLong(state.getNextAttemptAt());
+                    }
+                }));
+            }
+        }
+
+        long liveSize = records.stream().mapToLong(r -> RECORD_HEADER_SIZE + (long) r.length).sum();
+        long capacity = Math.max(initialSize, (liveSize + reserve) * 2);
+        if (capacity > Integer.MAX_VALUE) {
+            throw new TechnicalException("Pin journal " + file + " is full (" + tasks.size() + " pending tasks)");
+        }
+
+        // Write the live records to a new file
+        Path compacted = file.resolveSibling(file.getFileName() + COMPACT_SUFFIX);
+        Files.deleteIfExists(compacted);
+        try (FileChannel output = FileChannel.open(compacted, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer out = output.map(MapMode.READ_WRITE, 0, capacity);
+            for (byte[] record : records) {
+                out.putInt(record.length);
+                out.putInt(checksum(record));
+                out.put(record);
+            }
+            out.force();
+        }
+
+        // Replace the journal
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(MapMode.READ_WRITE, 0, capacity);
+        buffer.position((int) liveSize);
+
+        log.debug("Pin journal compacted [file: {}, pending tasks: {}, size: {}, capacity: {}]", file, tasks.size(), liveSize, capacity);
+    }
+
+    private static byte[] record(byte type, long id, RecordWriter writer) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeLong(id);
+            writer.write(out);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while serializing a pin journal record", ex);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    @FunctionalInterface
+    private interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,89 @@
+package net.consensys.mahuta.core.service.pinning.journal;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Pending pin of a content on the replica set, with the state of the pin on each replica
+ */
+@Getter @ToString
+public class PinTask {
+
+    private final long id;
+    private final String indexName;
+    private final String indexDocId;
+    private final String contentId;
+    private final Map<String, Object> indexFields;
+    private final Map<String, ReplicaState> replicas;
+
+    PinTask(long id, String indexName, String indexDocId, String contentId, Map<String, Object> indexFields) {
+        this(id, indexName, indexDocId, contentId, indexFields, new HashMap<>());
+    }
+
+    private PinTask(long id, String indexName, String indexDocId, String contentId, Map<String, Object> indexFields, 
+            Map<String, ReplicaState> replicas) {
+        this.id = id;
+        this.indexName = indexName;
+        this.indexDocId = indexDocId;
+        this.contentId = contentId;
+        this.indexFields = indexFields;
+        this.replicas = replicas;
+    }
+
+    /**
+     * @return true if the content is pinned on the replica
+     */
+    public boolean isPinned(String replica) {
+        ReplicaState state = replicas.get(replica);
+        return state != null && state.isPinned();
+    }
+
+    /**
+     * @return true if the content is pinned on all the replicas
+     */
+    public boolean isPinned(Collection<String> replicaSet) {
+        return replicaSet.stream().allMatch(this::isPinned);
+    }
+
+    /**
+     * @return true if the content isn't pinned on the replica yet and the backoff delay of the last failure has elapsed
+     */
+    public boolean isDue(String replica, long now) {
+        ReplicaState state = replicas.get(replica);
+        return state == null || !state.isPinned() && state.getNextAttemptAt() <= now;
+    }
+
+    /**
+     * @return true if the task has something to do on one of the replicas (or is ready to complete)
+     */
+    public boolean isDue(Collection<String> replicaSet, long now) {
+        return isPinned(replicaSet) || replicaSet.stream().anyMatch(replica -> isDue(replica, now));
+    }
+
+    String getKey() {
+        return key(indexName, indexDocId);
+    }
+
+    static String key(String indexName, String indexDocId) {
+        return indexName + "/" + indexDocId;
+    }
+
+    PinTask copy() {
+        Map<String, ReplicaState> copy = new HashMap<>();
+        replicas.forEach((replica, state) -> copy.put(replica, new ReplicaState(state.isPinned(), state.getAttempts(), state.getNextAttemptAt())));
+        return new PinTask(id, indexName, indexDocId, contentId, indexFields, copy);
+    }
+
+    @Getter @ToString
+    @AllArgsConstructor
+    public static class ReplicaState {
+        private boolean pinned;
+        private int attempts;
+        private long nextAttemptAt;
+    }
+}
@@ -0,0 +1,48 @@
+package net.consensys.mahuta.core.service.pinning.reconciliation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+/**
+ * Result of a reconciliation of the indexed contents with the contents pinned on the replicas
+ */
+@Getter @Setter(AccessLevel.PACKAGE) @ToString
+public class ReconciliationReport {
+
+    /** Number of indexed documents */
+    private long indexed;
+    /** Time taken by the reconciliation (ms) */
+    private long duration;
+    /** Result per replica (by name) */
+    private final Map<String, Replica> replicas = new LinkedHashMap<>();
+
+    @Getter @ToString
+    public static class Replica {
+        /** Number of contents pinned on the replica */
+        private long tracked;
+        /** Number of contents pinned on the replica and not indexed */
+        private long orphans;
+        /** Number of indexed contents flagged as pinned and not pinned on the replica */
+        private long missing;
+        /** Number of missing contents pinned again */
+        private long repaired;
+        /** Number of missing contents which couldn't be pinned again */
+        private long failed;
+        /** Probability that a missing content isn't detected (false positive of the Bloom filter of the replica) */
+        private double falsePositiveProbability;
+
+        void incrementTracked() { tracked++; }
+        void incrementOrphans() { orphans++; }
+        void incrementMissing() { missing++; }
+        void incrementRepaired() { repaired++; }
+        void incrementFailed() { failed++; }
+        void setFalsePositiveProbability(double falsePositiveProbability) {
+            this.falsePositiveProbability = falsePositiveProbability;
+        }
+    }
+}
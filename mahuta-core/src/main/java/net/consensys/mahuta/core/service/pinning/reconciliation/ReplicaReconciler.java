@@ -0,0 +1,261 @@
+package net.consensys.mahuta.core.service.pinning.reconciliation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.pagination.Page;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.pinning.PinningExecutor;
+import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.utils.ValidatorUtils;
+
+/**
+ * Reconcile the contents indexed (__hash) with the contents pinned on each replica of the storage
+ *
+ * Neither side is sorted (the pin lists are returned in any order), so the two sides are diffed with Bloom filters
+ * instead of a sorted merge, in memory bounded by the number of documents (about 2 bytes per document and replica at
+ * the default false positive probability):
+ * 1. the indexes are walked to fill a Bloom filter of the indexed contents
+ * 2. the pin list of each replica is streamed to fill a Bloom filter of its pinned contents, a pinned content absent
+ * from the indexed filter is an orphan
+ * 3. the indexes are walked again, a document flagged as pinned and absent from the filter of a replica is missing on
+ * this replica and is pinned again
+ *
+ * A Bloom filter never misses an added element, so every orphan or missing content found is real. An orphan or a
+ * missing content can however be overlooked with the false positive probability of the filter, it is found by a later
+ * run. Orphans are only reported (a document indexed during the run would be reported as orphan).
+ */
+@Slf4j
+public class ReplicaReconciler implements Runnable {
+
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.001;
+    private static final int MIN_EXPECTED_INSERTIONS = 1000;
+
+    private final StorageService storageService;
+    private final IndexingService indexingService;
+    private int batchSize;
+    private double falsePositiveProbability;
+    private boolean repair;
+    private PinningExecutor executor;
+    private BiConsumer<PinningService, List<String>> orphanReporter;
+
+    private ReplicaReconciler(StorageService storageService, IndexingService indexingService) {
+        this.storageService = storageService;
+        this.indexingService = indexingService;
+        this.batchSize = DEFAULT_BATCH_SIZE;
+        this.falsePositiveProbability = DEFAULT_FALSE_POSITIVE_PROBABILITY;
+        this.repair = true;
+        this.orphanReporter = (replica, cids) -> log.warn("{} orphan contents pinned on {} (not indexed): {}",
+                cids.size(), replica.getName(), cids);
+    }
+
+    public static ReplicaReconciler of(StorageService storageService, IndexingService indexingService) {
+        ValidatorUtils.rejectIfNull("storageService", storageService);
+        ValidatorUtils.rejectIfNull("indexingService", indexingService);
+
+        return new ReplicaReconciler(storageService, indexingService);
+    }
+
+    /**
+     * @param batchSize Number of documents fetched per request to the indexer, and size of the batches of orphans
+     * reported and missing contents pinned again
+     */
+    public ReplicaReconciler configureBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize should be greater than 0.");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * @param falsePositiveProbability False positive probability of the Bloom filters (memory/accuracy trade-off)
+     */
+    public ReplicaReconciler configureFalsePositiveProbability(double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("falsePositiveProbability should be between 0 and 1.");
+        }
+        this.falsePositiveProbability = falsePositiveProbability;
+        return this;
+    }
+
+    /**
+     * @param repair Pin again the missing contents (false: only count them)
+     */
+    public ReplicaReconciler configureRepair(boolean repair) {
+        this.repair = repair;
+        return this;
+    }
+
+    /**
+     * @param executor Executor pinning the missing contents concurrently (default: pinned one by one by the reconciling thread)
+     */
+    public ReplicaReconciler configureExecutor(PinningExecutor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * @param orphanReporter Consumer of the batches of orphan contents of a replica (default: logged)
+     */
+    public ReplicaReconciler configureOrphanReporter(BiConsumer<PinningService, List<String>> orphanReporter) {
+        ValidatorUtils.rejectIfNull("orphanReporter", orphanReporter);
+        this.orphanReporter = orphanReporter;
+        return this;
+    }
+
+    /**
+     * Run a reconciliation (e.g. from a scheduler)
+     */
+    @Override
+    public void run() {
+        try {
+            log.info("Reconciliation done: {}", reconcile());
+        } catch (Exception ex) {
+            log.error("Error while reconciling the replicas", ex);
+        }
+    }
+
+    /**
+     * Reconcile the indexed contents with the contents pinned on each replica, repair the missing pins and report the
+     * orphans
+     * @return Report
+     */
+    public ReconciliationReport reconcile() {
+        long start = System.currentTimeMillis();
+        ReconciliationReport report = new ReconciliationReport();
+        List<String> indexes = indexingService.getIndexes();
+        Set<PinningService> replicaSet = storageService.getReplicaSet();
+        log.debug("Reconcile [indexes: {}, replicas: {}]", indexes, replicaSet.stream().map(PinningService::getName).collect(Collectors.toList()));
+
+        // 1. Indexed contents
+        long expectedInsertions = Math.max(MIN_EXPECTED_INSERTIONS, indexes.stream().mapToLong(this::count).sum());
+        BloomFilter<String> indexed = newFilter(expectedInsertions);
+        indexes.forEach(indexName -> forEachBatch(indexName, documents -> documents.forEach(m -> {
+            indexed.put(m.getContentId());
+            report.setIndexed(report.getIndexed() + 1);
+        })));
+
+        // 2. Pinned contents and orphans of each replica
+        Map<PinningService, BloomFilter<String>> pinned = new LinkedHashMap<>();
+        replicaSet.forEach(replica -> {
+            ReconciliationReport.Replica replicaReport = new ReconciliationReport.Replica();
+            report.getReplicas().put(replica.getName(), replicaReport);
+            pinned.put(replica, scan(replica, indexed, newFilter(expectedInsertions), replicaReport));
+        });
+
+        // 3. Missing contents of each replica
+        indexes.forEach(indexName -> forEachBatch(indexName, documents -> pinned.forEach((replica, filter) -> {
+            ReconciliationReport.Replica replicaReport = report.getReplicas().get(replica.getName());
+            List<Metadata> missing = documents.stream()
+                    .filter(m -> m.isPinned() && !filter.mightContain(m.getContentId()))
+                    .collect(Collectors.toList());
+            missing.forEach(m -> replicaReport.incrementMissing());
+            if (repair && !missing.isEmpty()) {
+                repair(replica, missing, replicaReport);
+            }
+        })));
+
+        report.setDuration(System.currentTimeMillis() - start);
+        return report;
+    }
+
+    /**
+     * Stream the pin list of a replica into its filter and report the contents absent from the indexed filter
+     */
+    private BloomFilter<String> scan(PinningService replica, BloomFilter<String> indexed, BloomFilter<String> filter,
+            ReconciliationReport.Replica replicaReport) {
+        List<String> orphans = new ArrayList<>(batchSize);
+
+        try (Stream<String> tracked = replica.streamTracked()) {
+            tracked.forEach(cid -> {
+                filter.put(cid);
+                replicaReport.incrementTracked();
+                if (!indexed.mightContain(cid)) {
+                    replicaReport.incrementOrphans();
+                    orphans.add(cid);
+                    if (orphans.size() >= batchSize) {
+                        orphanReporter.accept(replica, new ArrayList<>(orphans));
+                        orphans.clear();
+                    }
+                }
+            });
+        }
+        if (!orphans.isEmpty()) {
+            orphanReporter.accept(replica, orphans);
+        }
+
+        replicaReport.setFalsePositiveProbability(filter.expectedFpp());
+        log.debug("Replica {} scanned: {}", replica.getName(), replicaReport);
+        return filter;
+    }
+
+    /**
+     * Pin again a batch of missing contents on a replica
+     */
+    private void repair(PinningService replica, List<Metadata> missing, ReconciliationReport.Replica replicaReport) {
+        log.debug("Pin {} missing contents on {}", missing.size(), replica.getName());
+
+        List<CompletableFuture<Void>> futures = missing.stream()
+                .map(m -> pin(replica, m))
+                .collect(Collectors.toList());
+
+        futures.forEach(future -> {
+            try {
+                future.join();
+                replicaReport.incrementRepaired();
+            } catch (Exception ex) {
+                log.warn("Error while pinning a missing content on {}", replica.getName(), ex);
+                replicaReport.incrementFailed();
+            }
+        });
+    }
+
+    private CompletableFuture<Void> pin(PinningService replica, Metadata m) {
+        String name = m.getIndexName() + "_" + m.getIndexDocId();
+        if (executor != null) {
+            return executor.pin(replica, m.getContentId(), name, m.getIndexFields());
+        }
+        return CompletableFuture.runAsync(() -> replica.pin(m.getContentId(), name, m.getIndexFields()), Runnable::run);
+    }
+
+    private long count(String indexName) {
+        return indexingService.searchDocuments(indexName, Query.newQuery(), PageRequest.of(0, 1)).getTotalElements();
+    }
+
+    /**
+     * Walk all the documents of an index with a cursor, batch by batch
+     */
+    private void forEachBatch(String indexName, Consumer<List<Metadata>> consumer) {
+        PageRequest pageReq = PageRequest.ofCursor(batchSize);
+        do {
+            Page<Metadata> page = indexingService.searchDocuments(indexName, Query.newQuery(), pageReq);
+            pageReq = page.hasNext() ? page.nextPageRequest() : null;
+
+            consumer.accept(page.getElements().stream().filter(m -> m.getContentId() != null).collect(Collectors.toList()));
+
+        } while(pageReq != null);
+    }
+
+    private BloomFilter<String> newFilter(long expectedInsertions) {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedInsertions, falsePositiveProbability);
+    }
+}
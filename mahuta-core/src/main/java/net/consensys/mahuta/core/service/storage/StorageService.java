@@ -1,10 +1,20 @@
 package net.consensys.mahuta.core.service.storage;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.apache.commons.io.output.NullOutputStream;
+
+import net.consensys.mahuta.core.exception.TechnicalException;
 import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.utils.FutureUtils;
 
 /**
  * Interface representing a storage layer
@@ -22,6 +32,7 @@ public interface StorageService {
    
     /**
      * Write content on the storage layer
+     * The content is streamed to the storage layer and isn't loaded in memory
      * @param content InputStream
      * @param noPin Disable persistence, require to pin/persist asynchrounsly (can improve the writing performance)
      * @return Content ID (hash, CID)
@@ -36,6 +47,56 @@ public interface StorageService {
      */
     String write(byte[] content, boolean noPin);
 
+    /**
+     * Open a stream on content from the storage layer
+     * Bytes are read from the storage layer as they are consumed, the content isn't loaded in memory
+     * The default implementation reads the whole content in memory, implementations should override it to stream it
+     * @param id Content ID (hash, CID)
+     * @return InputStream to read the content from (must be closed by the caller)
+     */
+    default InputStream readStream(String id) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        read(id, content);
+        return new ByteArrayInputStream(content.toByteArray());
+    }
+
+    /**
+     * Open a stream on a portion of a content from the storage layer
+     * @param id Content ID (hash, CID)
+     * @param offset Position of the first byte to read
+     * @param length Number of bytes to read
+     * The default implementation skips the first bytes of readStream(id), implementations should override it to only 
+     * read the portion of content
+     * @return InputStream to read the portion of content from (must be closed by the caller)
+     */
+    default InputStream readStream(String id, long offset, long length) {
+        InputStream content = readStream(id);
+        try {
+            IOUtils.skipFully(content, offset);
+            return new BoundedInputStream(content, length);
+            
+        } catch (IOException ex) {
+            IOUtils.closeQuietly(content);
+            throw new TechnicalException("Exception while skipping the first " + offset + " bytes of " + id, ex);
+        }
+    }
+
+    /**
+     * Get the size of a content
+     * The default implementation reads the whole content, implementations should override it to get the size from 
+     * the metadata of the content
+     * @param id Content ID (hash, CID)
+     * @return Size of the content in bytes
+     */
+    default long getSize(String id) {
+        try (InputStream content = readStream(id)) {
+            return IOUtils.copyLarge(content, NullOutputStream.NULL_OUTPUT_STREAM);
+            
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception while reading the size of " + id, ex);
+        }
+    }
+
     /**
      * Read content from the storage layer and write it in a ByteArrayOutputStream
      * @param id Content ID (hash, CID
@@ -50,4 +111,27 @@ public interface StorageService {
      * @return Outputstream passed as argument
      */
     OutputStream read(String id, OutputStream output);
+
+    /**
+     * Write content on the storage layer without blocking the calling thread
+     * The default implementation writes the content on the calling thread, implementations should override it to 
+     * send the content with non-blocking I/O
+     * @param content Byte array
+     * @param noPin Disable persistence, require to pin/persist asynchrounsly (can improve the writing performance)
+     * @return Future completed with the content ID (hash, CID)
+     */
+    default CompletableFuture<String> writeAsync(byte[] content, boolean noPin) {
+        return FutureUtils.supply(() -> write(content, noPin));
+    }
+
+    /**
+     * Read content from the storage layer in a ByteArrayOutputStream without blocking the calling thread
+     * The default implementation reads the content on the calling thread, implementations should override it to 
+     * read the content with non-blocking I/O
+     * @param id Content ID (hash, CID)
+     * @return Future completed with the content
+     */
+    default CompletableFuture<OutputStream> readAsync(String id) {
+        return FutureUtils.supply(() -> read(id));
+    }
 }
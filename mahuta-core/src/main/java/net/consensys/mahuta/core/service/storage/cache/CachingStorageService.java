@@ -0,0 +1,428 @@
+package net.consensys.mahuta.core.service.storage.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.IOUtils;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.utils.FutureUtils;
+import net.consensys.mahuta.core.utils.MappedFileUtils;
+import net.consensys.mahuta.core.utils.ValidatorUtils;
+
+/**
+ * StorageService decorator keeping a size-bounded copy of the content read on the local disk.
+ * 
+ * Content is addressed by its CID and therefore immutable, so a cached copy never needs to be invalidated.
+ * Files are stored under directory/[shard]/[cid] where shard is the last two characters of the CID (the first ones
+ * are the same for every CID of a given version), and are read through memory-mapped buffers.
+ * The least recently used files are evicted once the cache exceeds maxSize bytes. The cache is reloaded from the
+ * directory on startup (last modified time is used as the last access time).
+ */
+@Slf4j
+public class CachingStorageService implements StorageService {
+
+    public static final long DEFAULT_MAX_SIZE = 1024L * 1024 * 1024;
+    
+    private static final int SHARD_LENGTH = 2;
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern CACHEABLE_ID = Pattern.compile("^[A-Za-z0-9]{" + (SHARD_LENGTH+1) + ",}$");
+
+    private final StorageService storage;
+    private final Path directory;
+    private final @Getter long maxSize;
+    private final LinkedHashMap<String, Long> entries;
+    private @Getter long size;
+
+    private CachingStorageService(StorageService storage, Path directory, long maxSize) {
+        this.storage = storage;
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true); // access-order = LRU
+        this.size = 0;
+        this.load();
+    }
+
+    public static CachingStorageService of(StorageService storage, String directory) {
+        return of(storage, directory, DEFAULT_MAX_SIZE);
+    }
+
+    public static CachingStorageService of(StorageService storage, String directory, long maxSize) {
+        ValidatorUtils.rejectIfNull("storage", storage);
+        ValidatorUtils.rejectIfEmpty("directory", directory);
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize should not be negative.");
+        }
+
+        return new CachingStorageService(storage, Paths.get(directory), maxSize);
+    }
+
+    @Override
+    public Set<PinningService> getReplicaSet() {
+        return storage.getReplicaSet();
+    }
+
+    @Override
+    public String write(InputStream content, boolean noPin) {
+        return storage.write(content, noPin);
+    }
+
+    @Override
+    public String write(byte[] content, boolean noPin) {
+        return storage.write(content, noPin);
+    }
+
+    @Override
+    public CompletableFuture<String> writeAsync(byte[] content, boolean noPin) {
+        return storage.writeAsync(content, noPin);
+    }
+
+    @Override
+    public InputStream readStream(String id) {
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        Path file = lookup(id);
+        if (file != null) {
+            log.debug("Cache hit [id: {}]", id);
+            try {
+                return MappedFileUtils.open(file, 0, Long.MAX_VALUE);
+            } catch (IOException ex) {
+                log.warn("Error while reading cached file [id: {}], reading from the storage", id, ex);
+                remove(id);
+            }
+        }
+
+        log.debug("Cache miss [id: {}]", id);
+        InputStream content = storage.readStream(id);
+        if (!isCacheable(id)) {
+            return content;
+        }
+
+        try {
+            return new CachingInputStream(id, content);
+        } catch (IOException ex) {
+            log.warn("Error while creating cache file [id: {}]", id, ex);
+            return content;
+        }
+    }
+
+    @Override
+    public InputStream readStream(String id, long offset, long length) {
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        Path file = lookup(id);
+        if (file != null) {
+            log.debug("Cache hit [id: {}, offset: {}, length: {}]", id, offset, length);
+            try {
+                return MappedFileUtils.open(file, offset, length);
+            } catch (IOException ex) {
+                log.warn("Error while reading cached file [id: {}], reading from the storage", id, ex);
+                remove(id);
+            }
+        }
+
+        // A portion of a file isn't enough to populate the cache
+        return storage.readStream(id, offset, length);
+    }
+
+    @Override
+    public long getSize(String id) {
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        synchronized (entries) {
+            Long cached = entries.get(id);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        return storage.getSize(id);
+    }
+
+    @Override
+    public OutputStream read(String id) {
+        return read(id, new ByteArrayOutputStream());
+    }
+
+    @Override
+    public OutputStream read(String id, OutputStream output) {
+        try (InputStream content = readStream(id)) {
+            IOUtils.copyLarge(content, output, new byte[BUFFER_SIZE]);
+            return output;
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception while reading file " + id, ex);
+        }
+    }
+
+    /**
+     * A cached file is read on the calling thread (local disk), otherwise the content is read from the storage 
+     * without blocking and isn't added to the cache (the cache is only populated by the streamed reads, so the I/O 
+     * threads of the storage never write to the disk)
+     */
+    @Override
+    public CompletableFuture<OutputStream> readAsync(String id) {
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        synchronized (entries) {
+            if (!entries.containsKey(id)) {
+                return storage.readAsync(id);
+            }
+        }
+        return FutureUtils.supply(() -> read(id));
+    }
+
+    /**
+     * Remove all the files from the cache
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.keySet().forEach(id -> delete(path(id)));
+            entries.clear();
+            size = 0;
+        }
+    }
+
+    /**
+     * Number of files in the cache
+     * @return Number of files
+     */
+    public int count() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private Path path(String id) {
+        return directory.resolve(id.substring(id.length() - SHARD_LENGTH)).resolve(id);
+    }
+
+    private static boolean isCacheable(String id) {
+        return CACHEABLE_ID.matcher(id).matches();
+    }
+
+    private Path lookup(String id) {
+        synchronized (entries) {
+            if (entries.get(id) == null) { // get() moves the entry to the tail of the LRU
+                return null;
+            }
+        }
+
+        Path file = path(id);
+        try {
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            log.debug("Error while updating access time of cached file [id: {}]", id, ex);
+        }
+        return file;
+    }
+
+    private void commit(String id, Path tmp, long length) {
+        if (length > maxSize) {
+            delete(tmp);
+            return;
+        }
+
+        synchronized (entries) {
+            try {
+                Files.move(tmp, path(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException ex) {
+                log.warn("Error while adding file to the cache [id: {}]", id, ex);
+                delete(tmp);
+                return;
+            }
+            Long previous = entries.put(id, length);
+            size += length - (previous == null ? 0 : previous);
+            evict();
+        }
+        log.debug("File cached [id: {}, size: {}]", id, length);
+    }
+
+    private void remove(String id) {
+        synchronized (entries) {
+            Long previous = entries.remove(id);
+            if (previous != null) {
+                size -= previous;
+            }
+            delete(path(id));
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+        while (size > maxSize && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            delete(path(eldest.getKey()));
+            size -= eldest.getValue();
+            it.remove();
+            log.debug("File evicted from cache [id: {}]", eldest.getKey());
+        }
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Error while deleting cached file {}", file, ex);
+        }
+    }
+
+    /**
+     * Rebuild the LRU from the files present in the cache directory (oldest first) and remove incomplete files
+     */
+    private void load() {
+        try {
+            Files.createDirectories(directory);
+
+            try (Stream<Path> files = Files.walk(directory, 2)) {
+                Map<Boolean, List<Path>> partition = files
+                        .filter(Files::isRegularFile)
+                        .filter(f -> directory.equals(f.getParent().getParent()))
+                        .collect(Collectors.partitioningBy(f -> f.getFileName().toString().endsWith(TMP_SUFFIX)));
+
+                partition.get(true).forEach(CachingStorageService::delete);
+                partition.get(false).stream()
+                        .sorted(Comparator.comparing(CachingStorageService::lastModified))
+                        .forEach(f -> {
+                            long length = f.toFile().length();
+                            entries.put(f.getFileName().toString(), length);
+                            size += length;
+                        });
+            }
+            evict();
+            log.info("Cache loaded from {} [files: {}, size: {}, maxSize: {}]", directory, entries.size(), size, maxSize);
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while loading cache directory " + directory, ex);
+        }
+    }
+
+    private static long lastModified(Path file) {
+        return file.toFile().lastModified();
+    }
+
+    /**
+     * Copy the bytes read from the storage to a temporary file, the file is added to the cache once the whole
+     * content has been read, and discarded if the stream is closed before the end.
+     */
+    private class CachingInputStream extends FilterInputStream {
+        private final String id;
+        private final Path tmp;
+        private OutputStream out;
+        private long length;
+        private boolean eof;
+
+        CachingInputStream(String id, InputStream in) throws IOException {
+            super(in);
+            this.id = id;
+            Path file = path(id);
+            Files.createDirectories(file.getParent());
+            this.tmp = file.resolveSibling(id + "." + UUID.randomUUID() + TMP_SUFFIX);
+            this.out = Files.newOutputStream(tmp);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b == -1) {
+                eof = true;
+            } else {
+                tee(new byte[] { (byte) b }, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n == -1) {
+                eof = true;
+            } else {
+                tee(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes must still be copied to the cache file
+            byte[] buffer = new byte[(int) Math.min(n, BUFFER_SIZE)];
+            long skipped = 0;
+            while (skipped < n) {
+                int r = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (r == -1) {
+                    break;
+                }
+                skipped += r;
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        private void tee(byte[] b, int off, int len) {
+            if (out == null) {
+                return;
+            }
+            try {
+                out.write(b, off, len);
+                length += len;
+                if (length > maxSize) {
+                    abort();
+                }
+            } catch (IOException ex) {
+                log.warn("Error while writing cache file [id: {}]", id, ex);
+                abort();
+            }
+        }
+
+        private void abort() {
+            IOUtils.closeQuietly(out);
+            out = null;
+            delete(tmp);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (out != null) {
+                    out.close();
+                    out = null;
+                    if (eof) {
+                        commit(id, tmp, length);
+                    } else {
+                        delete(tmp);
+                    }
+                }
+            }
+        }
+    }
+}
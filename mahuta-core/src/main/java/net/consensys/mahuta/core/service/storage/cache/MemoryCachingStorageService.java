@@ -0,0 +1,198 @@
+package net.consensys.mahuta.core.service.storage.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.utils.BytesUtils;
+import net.consensys.mahuta.core.utils.ValidatorUtils;
+
+/**
+ * StorageService decorator keeping small and frequently read content in memory.
+ * 
+ * Only content smaller than maxObjectSize bytes is cached, and the total size of the cache is bounded by maxSize bytes.
+ * Once the cache is full, a new content is only admitted if it is read more often than the content it would
+ * evict (W-TinyLFU), so a burst of one-off reads can't flush the hot set.
+ */
+@Slf4j
+public class MemoryCachingStorageService implements StorageService {
+
+    public static final long DEFAULT_MAX_SIZE = 64L * 1024 * 1024;
+    public static final int DEFAULT_MAX_OBJECT_SIZE = 64 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final StorageService storage;
+    private final @Getter long maxSize;
+    private final @Getter int maxObjectSize;
+    private final Cache<String, byte[]> cache;
+
+    private MemoryCachingStorageService(StorageService storage, long maxSize, int maxObjectSize) {
+        this.storage = storage;
+        this.maxSize = maxSize;
+        this.maxObjectSize = maxObjectSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize)
+                .weigher((String id, byte[] content) -> content.length)
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+    }
+
+    public static MemoryCachingStorageService of(StorageService storage) {
+        return of(storage, DEFAULT_MAX_SIZE, DEFAULT_MAX_OBJECT_SIZE);
+    }
+
+    public static MemoryCachingStorageService of(StorageService storage, long maxSize, Integer maxObjectSize) {
+        ValidatorUtils.rejectIfNull("storage", storage);
+        ValidatorUtils.rejectIfNegative("maxObjectSize", maxObjectSize);
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize should not be negative.");
+        }
+
+        return new MemoryCachingStorageService(storage, maxSize, maxObjectSize);
+    }
+
+    @Override
+    public Set<PinningService> getReplicaSet() {
+        return storage.getReplicaSet();
+    }
+
+    @Override
+    public String write(InputStream content, boolean noPin) {
+        return storage.write(content, noPin);
+    }
+
+    @Override
+    public String write(byte[] content, boolean noPin) {
+        return storage.write(content, noPin);
+    }
+
+    @Override
+    public CompletableFuture<String> writeAsync(byte[] content, boolean noPin) {
+        return storage.writeAsync(content, noPin);
+    }
+
+    @Override
+    public InputStream readStream(String id) {
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        byte[] cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return new ByteArrayInputStream(cached);
+        }
+
+        // Read up to maxObjectSize+1 bytes: content found smaller than the threshold is cached,
+        // larger content is streamed through without being cached
+        InputStream content = storage.readStream(id);
+        try {
+            byte[] head = IOUtils.toByteArray(new BoundedInputStream(content, maxObjectSize + 1L));
+            if (head.length <= maxObjectSize) {
+                content.close();
+                cache.put(id, head);
+                return new ByteArrayInputStream(head);
+            }
+            return new SequenceInputStream(new ByteArrayInputStream(head), content);
+
+        } catch (IOException ex) {
+            IOUtils.closeQuietly(content);
+            throw new TechnicalException("Exception while reading file " + id, ex);
+        }
+    }
+
+    @Override
+    public InputStream readStream(String id, long offset, long length) {
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        byte[] cached = cache.getIfPresent(id);
+        if (cached != null) {
+            int start = (int) Math.min(offset, cached.length);
+            return new ByteArrayInputStream(cached, start, (int) Math.min(length, cached.length - start));
+        }
+        return storage.readStream(id, offset, length);
+    }
+
+    @Override
+    public long getSize(String id) {
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        byte[] cached = cache.getIfPresent(id);
+        return cached != null ? cached.length : storage.getSize(id);
+    }
+
+    @Override
+    public OutputStream read(String id) {
+        return read(id, new ByteArrayOutputStream());
+    }
+
+    @Override
+    public OutputStream read(String id, OutputStream output) {
+        try (InputStream content = readStream(id)) {
+            IOUtils.copyLarge(content, output, new byte[BUFFER_SIZE]);
+            return output;
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception while reading file " + id, ex);
+        }
+    }
+
+    @Override
+    public CompletableFuture<OutputStream> readAsync(String id) {
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        byte[] cached = cache.getIfPresent(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(BytesUtils.convertToOutputStream(cached));
+        }
+
+        // The content read asynchronously is already in memory, cache it if it is small enough
+        return storage.readAsync(id).thenApply(content -> {
+            if (content instanceof ByteArrayOutputStream && ((ByteArrayOutputStream) content).size() <= maxObjectSize) {
+                cache.put(id, ((ByteArrayOutputStream) content).toByteArray());
+            }
+            return content;
+        });
+    }
+
+    /**
+     * Get the cache statistics (hits, misses, evictions...)
+     * @return CacheStats
+     */
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    /**
+     * Total size (in bytes) of the content in the cache
+     * @return Size in bytes
+     */
+    public long getSize() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+    }
+
+    /**
+     * Remove all the content from the cache
+     */
+    public void clear() {
+        cache.invalidateAll();
+    }
+}
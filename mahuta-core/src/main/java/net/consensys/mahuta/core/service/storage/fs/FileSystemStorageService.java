@@ -0,0 +1,260 @@
+package net.consensys.mahuta.core.service.storage.fs;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.IOUtils;
+
+import com.google.common.collect.Sets;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.exception.NotFoundException;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.exception.ValidationException;
+import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.utils.MappedFileUtils;
+import net.consensys.mahuta.core.utils.ValidatorUtils;
+
+/**
+ * StorageService keeping the content on the local disk, without IPFS node.
+ *
+ * Content is addressed by the CID an IPFS node would give it with the default options of `ipfs add` (CIDv0, chunks of
+ * 256 KiB, balanced DAG), so the same content gets the same ID on both storages. Files are stored under
+ * directory/[shard]/[cid] where shard is the last two characters of the CID. A content is written to a temporary file
+ * while its CID is computed, then moved atomically to its final path, so a file is either complete or absent. Files
+ * are read through memory-mapped buffers.
+ *
+ * The storage is its own pinning service: every file written is kept (noPin is ignored), and unpinning a content
+ * deletes its file.
+ */
+@Slf4j
+public class FileSystemStorageService implements StorageService, PinningService {
+
+    private static final int SHARD_LENGTH = 2;
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Pattern VALID_ID = Pattern.compile("^[A-Za-z0-9]{" + (SHARD_LENGTH+1) + ",}$");
+
+    private final Path directory;
+    private final @Getter Set<PinningService> replicaSet;
+
+    private FileSystemStorageService(Path directory) {
+        this.directory = directory;
+        this.replicaSet = Sets.newHashSet(this); // FileSystemStorageService is a PinningService
+        this.load();
+    }
+
+    public static FileSystemStorageService of(String directory) {
+        ValidatorUtils.rejectIfEmpty("directory", directory);
+
+        return new FileSystemStorageService(Paths.get(directory));
+    }
+
+    public FileSystemStorageService addReplica(PinningService pinningService) {
+        ValidatorUtils.rejectIfNull("pinningService", pinningService);
+
+        this.replicaSet.add(pinningService);
+        return this;
+    }
+
+    @Override
+    public String write(InputStream content, boolean noPin) {
+        log.debug("Write file on the file system [noPin: {}]", noPin);
+
+        ValidatorUtils.rejectIfNull("content", content);
+
+        Path tmp = directory.resolve(UUID.randomUUID() + TMP_SUFFIX);
+        try {
+            UnixFSDagBuilder builder = new UnixFSDagBuilder();
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int n;
+                while ((n = content.read(buffer)) != -1) {
+                    builder.update(buffer, 0, n);
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, n);
+                    while (bytes.hasRemaining()) {
+                        channel.write(bytes);
+                    }
+                }
+                channel.force(false);
+            }
+
+            String id = builder.build();
+            Path file = path(id);
+            Files.createDirectories(file.getParent());
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("File written on the file system [id: {}]", id);
+            return id;
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception while writing file on the file system", ex);
+        } finally {
+            delete(tmp);
+        }
+    }
+
+    @Override
+    public String write(byte[] content, boolean noPin) {
+        ValidatorUtils.rejectIfNull("content", content);
+
+        return write(new ByteArrayInputStream(content), noPin);
+    }
+
+    @Override
+    public InputStream readStream(String id) {
+        return readStream(id, 0, Long.MAX_VALUE);
+    }
+
+    @Override
+    public InputStream readStream(String id, long offset, long length) {
+        log.debug("Stream file on the file system [id: {}, offset: {}, length: {}]", id, offset, length);
+
+        try {
+            return MappedFileUtils.open(validate(id), offset, length);
+
+        } catch (NoSuchFileException ex) {
+            throw new NotFoundException("File [id: %s] not found on the file system", id);
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception while reading file " + id + " on the file system", ex);
+        }
+    }
+
+    @Override
+    public long getSize(String id) {
+        try {
+            return Files.size(validate(id));
+
+        } catch (NoSuchFileException ex) {
+            throw new NotFoundException("File [id: %s] not found on the file system", id);
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception while getting file size " + id + " on the file system", ex);
+        }
+    }
+
+    @Override
+    public OutputStream read(String id) {
+        return read(id, new ByteArrayOutputStream());
+    }
+
+    @Override
+    public OutputStream read(String id, OutputStream output) {
+        try (InputStream content = readStream(id)) {
+            IOUtils.copyLarge(content, output, new byte[BUFFER_SIZE]);
+            return output;
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception while reading file " + id, ex);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "file system [" + directory + "]";
+    }
+
+    /**
+     * The content is always stored on write, pinning only checks it is present
+     */
+    @Override
+    public void pin(String id) {
+        log.debug("Pin CID {} on the file system", id);
+
+        if (!Files.isRegularFile(validate(id))) {
+            throw new NotFoundException("File [id: %s] not found on the file system", id);
+        }
+    }
+
+    /**
+     * Delete the file of the content
+     */
+    @Override
+    public void unpin(String id) {
+        log.debug("Unpin CID {} on the file system", id);
+
+        try {
+            Files.deleteIfExists(validate(id));
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception unpinning cid " + id + " on the file system", ex);
+        }
+    }
+
+    @Override
+    public List<String> getTracked() {
+        try (Stream<String> tracked = streamTracked()) {
+            return tracked.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Stream the files of the directory, the stream holds the directory open and must be closed
+     */
+    @Override
+    public Stream<String> streamTracked() {
+        try {
+            return Files.walk(directory, 2)
+                    .filter(f -> Files.isRegularFile(f) && directory.equals(f.getParent().getParent()))
+                    .map(f -> f.getFileName().toString());
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception getting stored files on the file system", ex);
+        }
+    }
+
+    private Path path(String id) {
+        return directory.resolve(id.substring(id.length() - SHARD_LENGTH)).resolve(id);
+    }
+
+    private Path validate(String id) {
+        ValidatorUtils.rejectIfEmpty("id", id);
+        if (!VALID_ID.matcher(id).matches()) {
+            throw new ValidationException("id " + id + " isn't a valid content ID");
+        }
+        return path(id);
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Error while deleting file {}", file, ex);
+        }
+    }
+
+    /**
+     * Create the directory and remove the temporary files of the writes interrupted by a crash
+     */
+    private void load() {
+        try {
+            Files.createDirectories(directory);
+
+            try (Stream<Path> files = Files.walk(directory, 2)) {
+                files.filter(f -> f.getFileName().toString().endsWith(TMP_SUFFIX))
+                        .filter(Files::isRegularFile)
+                        .forEach(FileSystemStorageService::delete);
+            }
+            log.info("File system storage loaded from {}", directory);
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while loading storage directory " + directory, ex);
+        }
+    }
+}
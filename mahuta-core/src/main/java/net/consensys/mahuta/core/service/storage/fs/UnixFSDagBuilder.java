@@ -0,0 +1,222 @@
+package net.consensys.mahuta.core.service.storage.fs;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.consensys.mahuta.core.exception.TechnicalException;
+
+/**
+ * Compute the CID (v0) of a content the same way a go-ipfs node does with the default options of `ipfs add`:
+ * - the content is split in chunks of 256 KiB (size splitter)
+ * - each chunk is a dag-pb leaf node holding a UnixFS File with the bytes of the chunk
+ * - the leaves are linked by a balanced tree of dag-pb nodes of at most 174 links (UnixFS File with the sizes of the
+ * children)
+ * - the CID is the base58 sha2-256 multihash of the root node
+ *
+ * The tree is built bottom-up as the bytes are consumed: a level is flushed into a node of the level above as soon as
+ * it holds 174 links, so only a chunk and the pending links of each level are kept in memory.
+ */
+class UnixFSDagBuilder {
+
+    static final int CHUNK_SIZE = 256 * 1024;
+    static final int MAX_LINKS = 174;
+
+    private static final int SHA2_256 = 0x12;
+    private static final int SHA2_256_LENGTH = 32;
+    private static final int UNIXFS_FILE = 2;
+    private static final String BASE58_ALPHABET = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
+
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int chunkLength;
+    private final List<List<Link>> levels = new ArrayList<>();
+    private final MessageDigest digest;
+
+    UnixFSDagBuilder() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new TechnicalException("SHA-256 isn't supported", ex);
+        }
+    }
+
+    /**
+     * Consume bytes of the content
+     */
+    void update(byte[] b, int off, int len) {
+        while (len > 0) {
+            int n = Math.min(len, CHUNK_SIZE - chunkLength);
+            System.arraycopy(b, off, chunk, chunkLength, n);
+            chunkLength += n;
+            off += n;
+            len -= n;
+            if (chunkLength == CHUNK_SIZE) {
+                flushChunk();
+            }
+        }
+    }
+
+    /**
+     * Complete the tree once the whole content has been consumed
+     * @return CID of the content
+     */
+    String build() {
+        // The last chunk (or the single empty chunk of an empty content)
+        if (chunkLength > 0 || levels.isEmpty()) {
+            flushChunk();
+        }
+
+        for (int level = 0; ; level++) {
+            List<Link> links = levels.get(level);
+            if (level == levels.size() - 1 && links.size() == 1) {
+                return base58(links.get(0).multihash);
+            }
+            if (!links.isEmpty()) {
+                flushLevel(level);
+            }
+        }
+    }
+
+    private void flushChunk() {
+        // PBNode { Data: UnixFS { Type: File, Data: chunk, filesize: length } }
+        ByteArrayOutputStream unixfs = new ByteArrayOutputStream();
+        tag(unixfs, 1, 0);
+        varint(unixfs, UNIXFS_FILE);
+        int prefixLength = unixfs.size();
+        int dataLength = chunkLength > 0 ? 1 + varintLength(chunkLength) + chunkLength : 0;
+        ByteArrayOutputStream filesize = new ByteArrayOutputStream();
+        tag(filesize, 3, 0);
+        varint(filesize, chunkLength);
+        int unixfsLength = prefixLength + dataLength + filesize.size();
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        tag(header, 1, 2);
+        varint(header, unixfsLength);
+        header.write(unixfs.toByteArray(), 0, prefixLength);
+        if (chunkLength > 0) {
+            tag(header, 2, 2);
+            varint(header, chunkLength);
+        }
+
+        // The chunk is hashed in place instead of being copied in the encoded node
+        digest.update(header.toByteArray());
+        digest.update(chunk, 0, chunkLength);
+        digest.update(filesize.toByteArray());
+        long blockLength = (long) header.size() + chunkLength + filesize.size();
+
+        add(0, new Link(multihash(digest.digest()), blockLength, chunkLength));
+        chunkLength = 0;
+    }
+
+    private void flushLevel(int level) {
+        List<Link> links = levels.get(level);
+
+        // PBNode { Links: [{ Hash, Name: "", Tsize }], Data: UnixFS { Type: File, filesize, blocksizes } }
+        ByteArrayOutputStream node = new ByteArrayOutputStream();
+        long filesize = 0;
+        long tsize = 0;
+        for (Link link : links) {
+            ByteArrayOutputStream pbLink = new ByteArrayOutputStream();
+            tag(pbLink, 1, 2);
+            varint(pbLink, link.multihash.length);
+            pbLink.write(link.multihash, 0, link.multihash.length);
+            tag(pbLink, 2, 2);
+            varint(pbLink, 0);
+            tag(pbLink, 3, 0);
+            varint(pbLink, link.tsize);
+
+            tag(node, 2, 2);
+            varint(node, pbLink.size());
+            node.write(pbLink.toByteArray(), 0, pbLink.size());
+            filesize += link.filesize;
+            tsize += link.tsize;
+        }
+
+        ByteArrayOutputStream unixfs = new ByteArrayOutputStream();
+        tag(unixfs, 1, 0);
+        varint(unixfs, UNIXFS_FILE);
+        tag(unixfs, 3, 0);
+        varint(unixfs, filesize);
+        for (Link link : links) {
+            tag(unixfs, 4, 0);
+            varint(unixfs, link.filesize);
+        }
+        tag(node, 1, 2);
+        varint(node, unixfs.size());
+        node.write(unixfs.toByteArray(), 0, unixfs.size());
+
+        byte[] block = node.toByteArray();
+        links.clear();
+        add(level + 1, new Link(multihash(digest.digest(block)), block.length + tsize, filesize));
+    }
+
+    private void add(int level, Link link) {
+        if (levels.size() == level) {
+            levels.add(new ArrayList<>(MAX_LINKS));
+        }
+        List<Link> links = levels.get(level);
+        links.add(link);
+        if (links.size() == MAX_LINKS) {
+            flushLevel(level);
+        }
+    }
+
+    private static byte[] multihash(byte[] hash) {
+        byte[] multihash = new byte[hash.length + 2];
+        multihash[0] = SHA2_256;
+        multihash[1] = SHA2_256_LENGTH;
+        System.arraycopy(hash, 0, multihash, 2, hash.length);
+        return multihash;
+    }
+
+    private static void tag(ByteArrayOutputStream out, int field, int wireType) {
+        out.write(field << 3 | wireType);
+    }
+
+    private static void varint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static String base58(byte[] bytes) {
+        StringBuilder encoded = new StringBuilder();
+        BigInteger value = new BigInteger(1, bytes);
+        BigInteger base = BigInteger.valueOf(BASE58_ALPHABET.length());
+        while (value.signum() > 0) {
+            BigInteger[] divmod = value.divideAndRemainder(base);
+            encoded.append(BASE58_ALPHABET.charAt(divmod[1].intValue()));
+            value = divmod[0];
+        }
+        // Leading zero bytes are encoded as leading '1'
+        for (int i = 0; i < bytes.length && bytes[i] == 0; i++) {
+            encoded.append(BASE58_ALPHABET.charAt(0));
+        }
+        return encoded.reverse().toString();
+    }
+
+    private static class Link {
+        private final byte[] multihash;
+        private final long tsize;
+        private final long filesize;
+
+        private Link(byte[] multihash, long tsize, long filesize) {
+            this.multihash = multihash;
+            this.tsize = tsize;
+            this.filesize = filesize;
+        }
+    }
+}
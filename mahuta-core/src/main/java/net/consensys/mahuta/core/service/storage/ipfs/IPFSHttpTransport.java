@@ -0,0 +1,366 @@
+package net.consensys.mahuta.core.service.storage.ipfs;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.primitives.Bytes;
+
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.exception.TechnicalException;
+
+/**
+ * HTTP transport of the IPFS API: a pool of keep-alive connections shared by all the calls of an IPFSService
+ *
+ * Each call is a POST to /api/v0/{command}. The response body is returned as a stream, the connection goes back to
+ * the pool once the stream is closed (read until the end) or aborted (closed before the end).
+ * The non-blocking calls go through a second pool served by a few I/O threads (started on the first non-blocking
+ * call), their response body is returned in memory.
+ * The pool size, keep-alive and timeouts are read from the settings on each call, so they can be changed at any time.
+ */
+@Slf4j
+class IPFSHttpTransport implements Closeable {
+
+    private static final String API_PATH = "/api/v0/";
+    private static final String MULTIPART_BOUNDARY_PREFIX = "----MahutaBoundary";
+    private static final String MULTIPART_CONTENT_TYPE = "multipart/form-data; boundary=";
+    private static final String CRLF = "\r\n";
+    // The I/O reactor checks the socket timeouts of the non-blocking calls at each select (1s by default)
+    private static final long SELECT_INTERVAL = 100;
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private final IPFSSettings settings;
+    private final PoolingHttpClientConnectionManager connectionManager;
+    private final CloseableHttpClient client;
+    private PoolingNHttpClientConnectionManager asyncConnectionManager;
+    private CloseableHttpAsyncClient asyncClient;
+
+    private IPFSHttpTransport(IPFSSettings settings) {
+        this.settings = settings;
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        configurePool();
+        this.client = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy(this::getKeepAliveDuration)
+                .evictExpiredConnections()
+                .disableContentCompression()
+                .build();
+    }
+
+    static IPFSHttpTransport of(IPFSSettings settings) {
+        return new IPFSHttpTransport(settings);
+    }
+
+    /**
+     * Apply the pool size of the settings (all the connections go to the same node)
+     */
+    synchronized void configurePool() {
+        connectionManager.setMaxTotal(settings.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(settings.getMaxConnections());
+        if (asyncConnectionManager != null) {
+            asyncConnectionManager.setMaxTotal(settings.getMaxConnections());
+            asyncConnectionManager.setDefaultMaxPerRoute(settings.getMaxConnections());
+        }
+    }
+
+    /**
+     * Keep-alive requested by the node (Keep-Alive: timeout=x), bounded by the settings
+     */
+    private long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+        long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        return keepAlive > 0 ? Math.min(keepAlive, settings.getKeepAlive()) : settings.getKeepAlive();
+    }
+
+    /**
+     * Call a command
+     * @param command Command and query string (e.g. cat?arg=Qm...)
+     * @return Response body (must be closed)
+     * @throws IOException Error, or response status other than 200 OK
+     */
+    InputStream call(String command) throws IOException {
+        return call(command, null);
+    }
+
+    /**
+     * Call a command and read the whole response
+     * @param command Command and query string (e.g. id)
+     * @return Response body
+     * @throws IOException Error, or response status other than 200 OK
+     */
+    String callForString(String command) throws IOException {
+        try (InputStream in = call(command)) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Call a command returning a JSON object
+     * @param command Command and query string (e.g. id)
+     * @return Response body
+     * @throws IOException Error, or response status other than 200 OK
+     */
+    Map<String, Object> callForJson(String command) throws IOException {
+        try (InputStream in = call(command)) {
+            return mapper.readValue(in, new TypeReference<Map<String, Object>>() {});
+        }
+    }
+
+    /**
+     * Call a command with a file, returning a stream of JSON objects (e.g. add)
+     * @param command Command and query string (e.g. add?pin=true)
+     * @param content File
+     * @return JSON objects of the response body
+     * @throws IOException Error, or response status other than 200 OK
+     */
+    List<Map<String, Object>> callForJson(String command, InputStream content) throws IOException {
+        try (InputStream in = call(command, content);
+                MappingIterator<Map<String, Object>> values = mapper.readerFor(new TypeReference<Map<String, Object>>() {}).readValues(in)) {
+            return values.readAll();
+        }
+    }
+
+    /**
+     * Call a command with a file, sent as multipart/form-data in chunks of settings.chunkSize bytes (HTTP chunked
+     * transfer encoding) instead of being buffered in memory before the request is sent
+     * @param command Command and query string (e.g. add?pin=true)
+     * @param content File
+     * @return Response body (must be closed)
+     * @throws IOException Error, or response status other than 200 OK
+     */
+    InputStream call(String command, InputStream content) throws IOException {
+        HttpPost request = post(command, settings.getConnectTimeout());
+        if (content != null) {
+            request.setEntity(multipartEntity(content, settings.getChunkSize()));
+        }
+
+        CloseableHttpResponse response;
+        try {
+            response = client.execute(request);
+        } catch (ConnectTimeoutException ex) {
+            throw timeout(ex);
+        }
+
+        int status = response.getStatusLine().getStatusCode();
+        if (status != HttpStatus.SC_OK) {
+            try {
+                String error = response.getEntity() != null ? EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8) : "";
+                throw error(command, status, error);
+            } finally {
+                response.close();
+            }
+        }
+
+        if (response.getEntity() == null) {
+            response.close();
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        return new ResponseStream(response.getEntity().getContent(), response);
+    }
+
+    /**
+     * Call a command without blocking the calling thread
+     * 
+     * The calls wait for a connection of the pool without timeout (a call waiting for a connection doesn't hold 
+     * a thread), the timeouts apply once a connection is leased.
+     * @param command Command and query string (e.g. cat?arg=Qm...)
+     * @param content File sent as multipart/form-data (null: no body)
+     * @return Future completed with the response body, or completed exceptionally with an IOException (response 
+     * status other than 200 OK, SocketTimeoutException...)
+     */
+    CompletableFuture<byte[]> callAsync(String command, byte[] content) {
+        HttpPost request = post(command, -1);
+        if (content != null) {
+            String boundary = newBoundary();
+            ByteArrayEntity entity = new ByteArrayEntity(Bytes.concat(multipartHead(boundary), content, multipartTail(boundary)));
+            entity.setContentType(MULTIPART_CONTENT_TYPE + boundary);
+            request.setEntity(entity);
+        }
+
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        getAsyncClient().execute(request, new FutureCallback<HttpResponse>() {
+            @Override
+            public void completed(HttpResponse response) {
+                try {
+                    // The body is already buffered by the response consumer
+                    byte[] body = response.getEntity() != null ? EntityUtils.toByteArray(response.getEntity()) : new byte[0];
+                    int status = response.getStatusLine().getStatusCode();
+                    if (status != HttpStatus.SC_OK) {
+                        future.completeExceptionally(error(command, status, new String(body, StandardCharsets.UTF_8)));
+                    } else {
+                        future.complete(body);
+                    }
+                } catch (IOException ex) {
+                    future.completeExceptionally(ex);
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                future.completeExceptionally(ex instanceof ConnectTimeoutException ? timeout(ex) : ex);
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        client.close();
+        if (asyncClient != null) {
+            asyncClient.close();
+        }
+    }
+
+    private HttpPost post(String command, int connectionRequestTimeout) {
+        String url = settings.getProtocol() + "://" + settings.getHost() + ":" + settings.getPort() + API_PATH + command;
+        log.trace("url: {}", url);
+
+        HttpPost request = new HttpPost(url);
+        request.setConfig(RequestConfig.custom()
+                .setConnectTimeout(settings.getConnectTimeout())
+                .setConnectionRequestTimeout(connectionRequestTimeout)
+                .setSocketTimeout(settings.getTimeout())
+                .build());
+        return request;
+    }
+
+    private synchronized CloseableHttpAsyncClient getAsyncClient() {
+        if (asyncClient == null) {
+            try {
+                asyncConnectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(
+                        IOReactorConfig.custom().setSelectInterval(SELECT_INTERVAL).build()));
+            } catch (IOReactorException ex) {
+                throw new TechnicalException("Error while starting the IPFS HTTP I/O reactor", ex);
+            }
+            configurePool();
+            asyncClient = HttpAsyncClients.custom()
+                    .setConnectionManager(asyncConnectionManager)
+                    .setKeepAliveStrategy(this::getKeepAliveDuration)
+                    .build();
+            asyncClient.start();
+        }
+        return asyncClient;
+    }
+
+    private static IOException error(String command, int status, String error) {
+        return new IOException("IPFS API " + API_PATH + command + " returned HTTP " + status + ": " + error);
+    }
+
+    private static SocketTimeoutException timeout(Exception ex) {
+        SocketTimeoutException timeout = new SocketTimeoutException(ex.getMessage());
+        timeout.initCause(ex);
+        return timeout;
+    }
+
+    private static String newBoundary() {
+        return MULTIPART_BOUNDARY_PREFIX + UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private static byte[] multipartHead(String boundary) {
+        return ("--" + boundary + CRLF
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"\"" + CRLF
+                + "Content-Type: application/octet-stream" + CRLF
+                + "Content-Transfer-Encoding: binary" + CRLF + CRLF).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] multipartTail(String boundary) {
+        return (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * File sent as the single part of a multipart/form-data body: the head of the part, the file and the tail of the 
+     * body are streamed one after the other (chunked, the entity can't be repeated as the file is consumed), the file
+     * being read chunkSize bytes at a time
+     */
+    private static InputStreamEntity multipartEntity(InputStream content, int chunkSize) {
+        String boundary = newBoundary();
+        InputStream body = new SequenceInputStream(Collections.enumeration(Arrays.asList(
+                new ByteArrayInputStream(multipartHead(boundary)),
+                new BufferedInputStream(content, chunkSize),
+                new ByteArrayInputStream(multipartTail(boundary)))));
+
+        InputStreamEntity entity = new InputStreamEntity(body);
+        entity.setContentType(MULTIPART_CONTENT_TYPE + boundary);
+        entity.setChunked(true);
+        return entity;
+    }
+
+    /**
+     * Response body: the connection goes back to the pool if the body is read until the end, otherwise the connection
+     * is closed (instead of reading the rest of the body, e.g. a large file partially read)
+     */
+    private static class ResponseStream extends FilterInputStream {
+        private final CloseableHttpResponse response;
+        private boolean eof;
+
+        private ResponseStream(InputStream in, CloseableHttpResponse response) {
+            super(in);
+            this.response = response;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            eof |= b == -1;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            eof |= n == -1;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (eof) {
+                super.close();
+            } else {
+                response.close();
+            }
+        }
+    }
+}
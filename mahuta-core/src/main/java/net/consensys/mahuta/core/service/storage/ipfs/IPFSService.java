@@ -1,27 +1,29 @@
 package net.consensys.mahuta.core.service.storage.ipfs;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Paths;
+import java.net.SocketTimeoutException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.io.IOUtils;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Sets;
 
-import io.ipfs.api.IPFS;
 import io.ipfs.api.IPFS.PinType;
-import io.ipfs.api.JSONParser;
-import io.ipfs.api.MerkleNode;
-import io.ipfs.api.Multipart;
-import io.ipfs.api.NamedStreamable;
 import io.ipfs.multiaddr.MultiAddress;
 import io.ipfs.multihash.Multihash;
 import lombok.Getter;
@@ -31,27 +33,33 @@ import net.consensys.mahuta.core.exception.TechnicalException;
 import net.consensys.mahuta.core.exception.TimeoutException;
 import net.consensys.mahuta.core.service.pinning.PinningService;
 import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.utils.JsonStreamUtils;
+import net.consensys.mahuta.core.utils.SpooledContent;
 import net.consensys.mahuta.core.utils.ValidatorUtils;
+import net.consensys.mahuta.core.utils.lamba.Throwing;
 import net.jodah.failsafe.Failsafe;
 import net.jodah.failsafe.RetryPolicy;
 
 @Slf4j
-public class IPFSService implements StorageService, PinningService {
+public class IPFSService implements StorageService, PinningService, Closeable {
+
+    private static final String IPFS_PATH_PREFIX = "/ipfs/";
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final RetryPolicy<Object> NO_RETRY = new RetryPolicy<>().withMaxRetries(0);
 
     private final IPFSSettings settings;
-    private IPFS ipfs;
+    private final IPFSHttpTransport transport;
     private RetryPolicy<Object> retryPolicy;
     private @Getter Set<PinningService> replicaSet;
 
-    private IPFSService(IPFSSettings settings, IPFS ipfs) {
+    private IPFSService(IPFSSettings settings, IPFSHttpTransport transport) {
         ValidatorUtils.rejectIfNull("settings", settings);
-        ValidatorUtils.rejectIfNull("ipfs", ipfs);
+        ValidatorUtils.rejectIfNull("transport", transport);
 
         this.settings = settings;
-        this.ipfs = ipfs;
+        this.transport = transport;
         this.replicaSet = Sets.newHashSet(this); // IPFSService is a PinningService
         this.configureRetry(2);
-        this.configureTimeout(settings.getTimeout());
     }
 
     public static IPFSService connect() {
@@ -86,14 +94,16 @@ public class IPFSService implements StorageService, PinningService {
     private static IPFSService connect(String protocol, String host, Integer port, String multiaddress) {
         IPFSSettings settings = IPFSSettings.of(protocol, host, port, multiaddress);
 
+        IPFSHttpTransport transport = IPFSHttpTransport.of(settings);
         try {
-            IPFS ipfs = Optional.ofNullable(multiaddress).map(IPFS::new).orElseGet(() -> new IPFS(host, port));
+            Map<String, Object> version = transport.callForJson("version");
             log.info("Connected to ipfs [protocol: {}, host: {}, port: {}, multiaddress: {}]: Node v.{}", protocol, host, port, multiaddress,
-                    ipfs.version());
+                    version.get("Version"));
 
-            return new IPFSService(settings, ipfs);
+            return new IPFSService(settings, transport);
 
         } catch (Exception ex) {
+            IOUtils.closeQuietly(transport);
             String msg = String.format("Error whilst connecting to IPFS [protocol: {}, host: %s, port: %s, multiaddress: %s]", 
                     protocol, host, port, multiaddress);
 
@@ -102,10 +112,40 @@ public class IPFSService implements StorageService, PinningService {
         }
     }
 
+    /**
+     * Configure the connect and read timeouts
+     * @param timeout Timeout (in milliseconds)
+     */
     public IPFSService configureTimeout(Integer timeout) {
-        ValidatorUtils.rejectIfNegative("timeout", timeout);
-        this.settings.setTimeout(timeout);
-        this.ipfs = this.ipfs.timeout(timeout);
+        return configureTimeout(timeout, timeout);
+    }
+
+    /**
+     * @param connectTimeout Timeout (in milliseconds) to open a connection, or to wait for a connection of the pool
+     * @param readTimeout Timeout (in milliseconds) waiting for data on an open connection
+     */
+    public IPFSService configureTimeout(Integer connectTimeout, Integer readTimeout) {
+        ValidatorUtils.rejectIfNegative("connectTimeout", connectTimeout);
+        ValidatorUtils.rejectIfNegative("readTimeout", readTimeout);
+        this.settings.setConnectTimeout(connectTimeout);
+        this.settings.setTimeout(readTimeout);
+        return this;
+    }
+
+    /**
+     * Configure the pool of keep-alive connections to the node
+     * @param maxConnections Maximum number of connections open at the same time
+     * @param keepAlive Time an idle connection is kept open (bounded by the Keep-Alive requested by the node)
+     */
+    public IPFSService configureConnectionPool(Integer maxConnections, Duration keepAlive) {
+        ValidatorUtils.rejectIfNegative("maxConnections", maxConnections);
+        ValidatorUtils.rejectIfNull("keepAlive", keepAlive);
+        if (maxConnections < 1) {
+            throw new IllegalArgumentException("maxConnections should be greater than 0.");
+        }
+        this.settings.setMaxConnections(maxConnections);
+        this.settings.setKeepAlive(keepAlive.toMillis());
+        this.transport.configurePool();
         return this;
     }
 
@@ -129,6 +169,25 @@ public class IPFSService implements StorageService, PinningService {
         return this;
     }
 
+    public IPFSService configureChunkSize(Integer chunkSize) {
+        ValidatorUtils.rejectIfNegative("chunkSize", chunkSize);
+        this.settings.setChunkSize(chunkSize);
+        return this;
+    }
+
+    /**
+     * Configure the retry of the writes of an InputStream (disabled by default: a stream can only be read once, its 
+     * write is attempted once whatever the retry policy)
+     * @param streamReplay Spool the streamed content to a temporary file while it is sent, so the write can be 
+     * retried by replaying the file. Each write then needs as much free space in the temporary directory as the 
+     * size of its content
+     * @return this
+     */
+    public IPFSService configureStreamReplay(boolean streamReplay) {
+        this.settings.setStreamReplay(streamReplay);
+        return this;
+    }
+
     public IPFSService addReplica(PinningService pinningService) {
         ValidatorUtils.rejectIfNull("pinningService", pinningService);
         
@@ -138,13 +197,20 @@ public class IPFSService implements StorageService, PinningService {
 
     @Override
     public String write(InputStream content, boolean noPin) {
-        
-        try {
-            return this.write(IOUtils.toByteArray(content), noPin);
-            
+        log.debug("Write file on IPFS [noPin: {}, streaming: true]", noPin);
+
+        ValidatorUtils.rejectIfNull("content", content);
+
+        // A stream can only be sent once, unless it is spooled to disk during the first attempt (stream replay)
+        if (!settings.isStreamReplay() || retryPolicy.getMaxRetries() == 0) {
+            return write(() -> content, noPin, NO_RETRY);
+        }
+        try (SpooledContent spooledContent = SpooledContent.of(content, true)) {
+            return write(Throwing.rethrowSupplier(spooledContent::open), noPin, retryPolicy);
+
         } catch (IOException ex) {
-            log.error("Exception converting Inputstream to byte array", ex);
-            throw new TechnicalException("Exception converting Inputstream to byte array", ex);
+            log.error("Exception while releasing the spool file", ex);
+            throw new TechnicalException("Exception while releasing the spool file", ex);
         }
     }
 
@@ -154,26 +220,49 @@ public class IPFSService implements StorageService, PinningService {
 
         ValidatorUtils.rejectIfNull("content", content);
 
+        return write(() -> new ByteArrayInputStream(content), noPin, retryPolicy);
+    }
+
+    private String write(Supplier<InputStream> content, boolean noPin, RetryPolicy<Object> retryPolicy) {
+
         return Failsafe.with(retryPolicy)
                 .onFailure(event -> log.error("Exception writing file on IPFS after {} attemps.", event.getAttemptCount()))
                 .onSuccess(event -> log.debug("File written on IPFS: [id: {}, noPin: {}] ", event.getResult(), noPin))
                 .get(() -> {
-                    try {
-                        NamedStreamable.ByteArrayWrapper file = new NamedStreamable.ByteArrayWrapper(content);
-                        MerkleNode response = add(file, noPin).get(0);
-                        return response.hash.toString();
-                    } catch (RuntimeException ex) {
-                        if(ex.getMessage().contains("timeout")) { //TODO find something more elegant
-                            throw new TimeoutException("Exception while writing file on IPFS", ex);
-                        } else {
-                            throw ex;
-                        }
+                    try (InputStream is = content.get()) {
+                        return add(is, noPin);
+                    } catch (SocketTimeoutException ex) {
+                        throw new TimeoutException("Exception while writing file on IPFS", ex);
                     } catch (IOException ex) {
                         throw new TechnicalException("Exception while writing file on IPFS", ex);
                     }
                 });
     }
 
+    /**
+     * Write a content without blocking: the content is sent by the I/O threads of the transport, the attempts are 
+     * retried according to the retry policy
+     */
+    @Override
+    public CompletableFuture<String> writeAsync(byte[] content, boolean noPin) {
+        log.debug("Write file on IPFS [noPin: {}, async: true]", noPin);
+
+        ValidatorUtils.rejectIfNull("content", content);
+
+        return Failsafe.with(retryPolicy)
+                .onFailure(event -> log.error("Exception writing file on IPFS after {} attemps.", event.getAttemptCount()))
+                .onSuccess(event -> log.debug("File written on IPFS: [id: {}, noPin: {}] ", event.getResult(), noPin))
+                .getStageAsync(() -> translate(transport.callAsync("add?stream-channels=true&pin="+!noPin, content), 
+                        "Exception while writing file on IPFS")
+                    .thenApply(response -> {
+                        try {
+                            return (String) JSON.readValue(response, Map.class).get("Hash");
+                        } catch (IOException ex) {
+                            throw new TechnicalException("Exception while writing file on IPFS", ex);
+                        }
+                    }));
+    }
+
     @Override
     public void pin(String cid) {
         log.debug("Pin CID {} on IPFS", cid);
@@ -181,8 +270,8 @@ public class IPFSService implements StorageService, PinningService {
         ValidatorUtils.rejectIfEmpty("cid", cid);
         
         try {
-            Multihash hash = Multihash.fromBase58(cid);
-            this.ipfs.pin.add(hash);
+            Multihash.fromBase58(cid); // validate the CID
+            transport.callForString("pin/add?arg=" + encode(cid));
             
         } catch (Exception ex) {
             throw new TechnicalException("Exception pinning cid " +cid+ " on IPFS", ex);
@@ -196,8 +285,8 @@ public class IPFSService implements StorageService, PinningService {
         ValidatorUtils.rejectIfEmpty("cid", cid);
         
         try {
-            Multihash hash = Multihash.fromBase58(cid);
-            this.ipfs.pin.rm(hash);
+            Multihash.fromBase58(cid); // validate the CID
+            transport.callForString("pin/rm?arg=" + encode(cid));
             
         } catch (Exception ex) {
             throw new TechnicalException("Exception unpinning cid " +cid+ " on IPFS", ex);
@@ -205,20 +294,53 @@ public class IPFSService implements StorageService, PinningService {
     }
     
     @Override
-    public List<String> getTracked() {
-
-        log.debug("Get pinned files on IPFS");
+    public CompletableFuture<Void> unpinAsync(String cid) {
+        log.debug("Unpin CID {} on IPFS [async: true]", cid);
+        
+        ValidatorUtils.rejectIfEmpty("cid", cid);
         
         try {
-            Map<Multihash, Object> cids = this.ipfs.pin.ls(PinType.all);
-
-            return cids.entrySet().stream()
-                    .map(e-> e.getKey().toBase58())
-                    .collect(Collectors.toList());
+            Multihash.fromBase58(cid); // validate the CID
+            return translate(transport.callAsync("pin/rm?arg=" + encode(cid), null), "Exception unpinning cid " +cid+ " on IPFS")
+                    .thenApply(response -> null);
             
         } catch (Exception ex) {
-            throw new TechnicalException("Exception getting pinned files on IPFS", ex);
-        } 
+            throw new TechnicalException("Exception unpinning cid " +cid+ " on IPFS", ex);
+        }
+    }
+    
+    @Override
+    public List<String> getTracked() {
+
+        log.debug("Get pinned files on IPFS");
+
+        try (Stream<String> tracked = streamTracked()) {
+            return tracked.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Stream the pinned files, the response of pin/ls ({"Keys":{"Qm...":{"Type":"recursive"},...}}) is parsed
+     * incrementally
+     * Only the recursive pins (the files pinned) are listed, the indirect pins (the blocks of a file larger than a 
+     * chunk) aren't files
+     */
+    @Override
+    public Stream<String> streamTracked() {
+
+        log.debug("Stream pinned files on IPFS");
+
+        return Failsafe.with(retryPolicy)
+                .onFailure(event -> log.error("Exception getting pinned files on IPFS after {} attempts.", event.getAttemptCount(), event.getFailure()))
+                .get(() -> {
+                    try {
+                        return JsonStreamUtils.streamFieldNames(transport.call("pin/ls?type=" + PinType.recursive), "Keys");
+                    } catch (SocketTimeoutException ex) {
+                        throw new TimeoutException("Exception getting pinned files on IPFS", ex);
+                    } catch (IOException ex) {
+                        throw new TechnicalException("Exception getting pinned files on IPFS", ex);
+                    }
+                });
     }
 
     @Override
@@ -229,23 +351,52 @@ public class IPFSService implements StorageService, PinningService {
     @Override
     public OutputStream read(String id, OutputStream output) {
         log.debug("Read file on IPFS [id: {}]", id);
-       
+
+        try (InputStream content = readStream(id)) {
+            IOUtils.copyLarge(content, output, new byte[settings.getChunkSize()]);
+            return output;
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception while fetching file from IPFS " + id, ex);
+        }
+    }
+
+    /**
+     * Read a content without blocking: the content is received by the I/O threads of the transport, the attempts are 
+     * retried according to the retry policy
+     */
+    @Override
+    public CompletableFuture<OutputStream> readAsync(String id) {
+        log.debug("Read file on IPFS [id: {}, async: true]", id);
+
+        ValidatorUtils.rejectIfEmpty("id", id);
+
         return Failsafe.with(retryPolicy)
                 .onFailure(event -> log.error("Exception reading file [id: {}] on IPFS after {} attempts.", id, event.getAttemptCount(), event.getFailure()))
                 .onSuccess(event -> log.debug("File read on IPFS: [id: {}] ", id))
+                .getStageAsync(() -> translate(transport.callAsync("cat?arg=" + encode(id), null), 
+                        "Exception while fetching file from IPFS [id: " + id + "]")
+                    .thenApply(content -> {
+                        ByteArrayOutputStream output = new ByteArrayOutputStream(content.length);
+                        output.write(content, 0, content.length);
+                        return output;
+                    }));
+    }
+
+    @Override
+    public InputStream readStream(String id) {
+        log.debug("Stream file on IPFS [id: {}]", id);
+
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        return Failsafe.with(retryPolicy)
+                .onFailure(event -> log.error("Exception reading file [id: {}] on IPFS after {} attempts.", id, event.getAttemptCount(), event.getFailure()))
+                .onSuccess(event -> log.debug("File stream opened on IPFS: [id: {}] ", id))
                 .get(() -> {
                     try {
-                        Multihash multihash = Multihash.fromBase58(id);
-                        byte[] content =  this.ipfs.cat(multihash);
-                        IOUtils.write(content, output);
-
-                        return output;
-                    } catch (RuntimeException ex) {
-                        if(ex.getMessage().contains("timeout")) { //TODO find something more elegant
-                            throw new TimeoutException("Exception while fetching file from IPFS [id: {}]", ex);
-                        } else {
-                            throw ex;
-                        }
+                        return transport.call("cat?arg=" + encode(id));
+                    } catch (SocketTimeoutException ex) {
+                        throw new TimeoutException("Exception while fetching file from IPFS [id: " + id + "]", ex);
                     } catch (IOException ex) {
                         throw new TechnicalException("Exception while fetching file from IPFS " + id, ex);
                     }
@@ -265,28 +416,93 @@ public class IPFSService implements StorageService, PinningService {
     public Object getPeerConfig(String key) {
         
         try {
-            return ipfs.id().get(key);
+            return transport.callForJson("id").get(key);
         } catch (IOException ex) {
             log.error("Exception while fetching config from IPFS [key: {}]", key, ex);
             throw new TechnicalException("Exception while fetching config from IPFS. key:" + key, ex);
         }
     }
     
+    @Override
+    public InputStream readStream(String id, long offset, long length) {
+        log.debug("Stream file on IPFS [id: {}, offset: {}, length: {}]", id, offset, length);
+
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        return Failsafe.with(retryPolicy)
+                .onFailure(event -> log.error("Exception reading file [id: {}, offset: {}, length: {}] on IPFS after {} attempts.", id, offset, length, event.getAttemptCount(), event.getFailure()))
+                .onSuccess(event -> log.debug("File stream opened on IPFS: [id: {}, offset: {}, length: {}] ", id, offset, length))
+                .get(() -> {
+                    try {
+                        return transport.call("cat?arg=" + encode(id) + "&offset=" + offset + "&length=" + length);
+                    } catch (SocketTimeoutException ex) {
+                        throw new TimeoutException("Exception while fetching file from IPFS [id: " + id + "]", ex);
+                    } catch (IOException ex) {
+                        throw new TechnicalException("Exception while fetching file from IPFS " + id, ex);
+                    }
+                });
+    }
+
+    @Override
+    public long getSize(String id) {
+        log.debug("Get file size on IPFS [id: {}]", id);
+
+        ValidatorUtils.rejectIfEmpty("id", id);
+
+        return Failsafe.with(retryPolicy)
+                .onFailure(event -> log.error("Exception getting file size [id: {}] on IPFS after {} attempts.", id, event.getAttemptCount(), event.getFailure()))
+                .get(() -> {
+                    try {
+                        return ((Number) transport.callForJson("files/stat?arg=" + encode(IPFS_PATH_PREFIX + id)).get("Size")).longValue();
+                    } catch (SocketTimeoutException ex) {
+                        throw new TimeoutException("Exception while getting file size from IPFS [id: " + id + "]", ex);
+                    } catch (IOException ex) {
+                        throw new TechnicalException("Exception while getting file size from IPFS " + id, ex);
+                    }
+                });
+    }
+
     /**
      * Special method to add content with extra flag not implemented in java-ipfs
-     * @param file Content to add
+     * The content is streamed to the node in chunks of settings.chunkSize bytes (HTTP chunked transfer encoding)
+     * instead of being buffered in memory before the request is sent.
+     * @param content Content to add
      * @param noPin Add flag pin=!noPin to the request
-     * @return List<MerkleNode>
+     * @return Hash of the content
      * @throws IOException
      */
-    private List<MerkleNode> add(NamedStreamable.ByteArrayWrapper file, boolean noPin) throws IOException {
-        String url = settings.getProtocol() + "://" + settings.getHost() + ":" + settings.getPort() + "/api/v0/" + "add?stream-channels=true&pin="+!noPin;
-        log.trace("url: {}", url);
-        Multipart m = new Multipart(url, "UTF-8");
-        m.addFilePart("file", Paths.get(""), file);
-        String res = m.finish();
-        return JSONParser.parseStream(res).stream()
-                .map(x -> MerkleNode.fromJSON((Map<String, Object>) x))
-                .collect(Collectors.toList());
+    private String add(InputStream content, boolean noPin) throws IOException {
+        return (String) transport.callForJson("add?stream-channels=true&pin="+!noPin, content).get(0).get("Hash");
+    }
+
+    /**
+     * Release the connections to the node
+     */
+    @Override
+    public void close() {
+        IOUtils.closeQuietly(transport);
+    }
+
+    /**
+     * Complete a non-blocking call exceptionally with the same exceptions as the blocking calls
+     */
+    private static <T> CompletableFuture<T> translate(CompletableFuture<T> call, String message) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        call.whenComplete((result, ex) -> {
+            if (ex == null) {
+                future.complete(result);
+            } else if (ex instanceof SocketTimeoutException) {
+                future.completeExceptionally(new TimeoutException(message, ex));
+            } else if (ex instanceof IOException) {
+                future.completeExceptionally(new TechnicalException(message, ex));
+            } else {
+                future.completeExceptionally(ex);
+            }
+        });
+        return future;
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
     }
 }
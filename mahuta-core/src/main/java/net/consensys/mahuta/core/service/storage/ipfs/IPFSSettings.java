@@ -9,12 +9,21 @@ public class IPFSSettings {
     public static final String DEFAULT_HOST = "localhost";
     public static final int DEFAULT_PORT = 5001;
     public static final int DEFAULT_READ_TIMEOUT = 5000;
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    public static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+    public static final int DEFAULT_MAX_CONNECTIONS = 20;
+    public static final long DEFAULT_KEEP_ALIVE = 30000;
 
     private @Setter @Getter String protocol = DEFAULT_PROTOCOL;
     private @Setter @Getter String host = DEFAULT_HOST;
     private @Setter @Getter Integer port = DEFAULT_PORT;
     private @Setter @Getter String multiaddress;
     private @Setter @Getter int timeout = DEFAULT_READ_TIMEOUT;
+    private @Setter @Getter int chunkSize = DEFAULT_CHUNK_SIZE;
+    private @Setter @Getter int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private @Setter @Getter int maxConnections = DEFAULT_MAX_CONNECTIONS;
+    private @Setter @Getter long keepAlive = DEFAULT_KEEP_ALIVE;
+    private @Setter @Getter boolean streamReplay = false;
     
     public static IPFSSettings of(String protocol, String host, Integer port, String multiaddress) {
         IPFSSettings s = new IPFSSettings();
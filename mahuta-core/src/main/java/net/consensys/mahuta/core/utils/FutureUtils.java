@@ -0,0 +1,64 @@
+package net.consensys.mahuta.core.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import net.consensys.mahuta.core.exception.TechnicalException;
+
+public class FutureUtils {
+
+    private FutureUtils() { }
+
+    /**
+     * Run a blocking operation on the calling thread
+     * @param supplier Operation
+     * @return Future completed with the result, or completed exceptionally with the exception thrown
+     */
+    public static <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.completedFuture(supplier.get());
+        } catch (Exception ex) {
+            return failed(ex);
+        }
+    }
+
+    /**
+     * Run a blocking operation on the calling thread
+     * @param runnable Operation
+     * @return Future completed once the operation is done, or completed exceptionally with the exception thrown
+     */
+    public static CompletableFuture<Void> run(Runnable runnable) {
+        return supply(() -> {
+            runnable.run();
+            return null;
+        });
+    }
+
+    /**
+     * @param ex Exception
+     * @return Future completed exceptionally
+     */
+    public static <T> CompletableFuture<T> failed(Throwable ex) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(ex);
+        return future;
+    }
+
+    /**
+     * Wait for the result of a future
+     * @param future Future
+     * @return Result
+     * @throws RuntimeException the exception the future completed with (checked exceptions are wrapped in a TechnicalException)
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new TechnicalException("Error while waiting for the result", ex.getCause());
+        }
+    }
+}
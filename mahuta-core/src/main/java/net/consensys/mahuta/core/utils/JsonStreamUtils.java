@@ -0,0 +1,146 @@
+package net.consensys.mahuta.core.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+
+import net.consensys.mahuta.core.exception.TechnicalException;
+
+/**
+ * Incremental parsing of large JSON documents: the elements are read from the input stream one by one, so a document
+ * of any size is processed in constant memory.
+ */
+public class JsonStreamUtils {
+
+    private static final JsonFactory factory = new JsonFactory();
+
+    private JsonStreamUtils() { }
+
+    /**
+     * Stream the field names of an object of the root object
+     * e.g. streamFieldNames(in, "Keys") on {"Keys":{"Qm1":{...},"Qm2":{...}}} returns Qm1, Qm2
+     * @param in JSON document (closed when the stream is closed or consumed)
+     * @param field Field of the root object
+     * @return Stream of field names
+     */
+    public static Stream<String> streamFieldNames(InputStream in, String field) {
+        ValidatorUtils.rejectIfNull("in", in);
+        ValidatorUtils.rejectIfEmpty("field", field);
+
+        return stream(in, parser -> {
+            JsonStreamContext parent = parser.getParsingContext().getParent();
+            if (parser.currentToken() != JsonToken.FIELD_NAME || !isRootField(parent, field)) {
+                return null;
+            }
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            parser.skipChildren();
+            return name;
+        });
+    }
+
+    /**
+     * Stream the string values of an array of the root object
+     * e.g. streamArrayValues(in, "pins") on {"pins":["Qm1","Qm2"]} returns Qm1, Qm2
+     * @param in JSON document (closed when the stream is closed or consumed)
+     * @param field Field of the root object
+     * @return Stream of values
+     */
+    public static Stream<String> streamArrayValues(InputStream in, String field) {
+        ValidatorUtils.rejectIfNull("in", in);
+        ValidatorUtils.rejectIfEmpty("field", field);
+
+        return stream(in, parser -> {
+            JsonStreamContext context = parser.getParsingContext();
+            if (parser.currentToken() != JsonToken.VALUE_STRING || !context.inArray() || !isRootField(context.getParent(), field)) {
+                return null;
+            }
+            return parser.getText();
+        });
+    }
+
+    private static boolean isRootField(JsonStreamContext context, String field) {
+        return context != null && context.inObject() && field.equals(context.getCurrentName())
+                && context.getParent() != null && context.getParent().inRoot();
+    }
+
+    private static Stream<String> stream(InputStream in, Matcher matcher) {
+        try {
+            JsonParser parser = factory.createParser(in);
+            TokenIterator iterator = new TokenIterator(parser, matcher);
+
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                    .onClose(iterator::close);
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Exception while parsing JSON", ex);
+        }
+    }
+
+    /**
+     * Return the element at the current token of the parser, or null if the token isn't an element
+     */
+    @FunctionalInterface
+    private interface Matcher {
+        String match(JsonParser parser) throws IOException;
+    }
+
+    private static class TokenIterator implements Iterator<String> {
+        private final JsonParser parser;
+        private final Matcher matcher;
+        private String next;
+        private boolean finished;
+
+        private TokenIterator(JsonParser parser, Matcher matcher) {
+            this.parser = parser;
+            this.matcher = matcher;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (next == null && !finished) {
+                    if (parser.nextToken() == null) {
+                        close();
+                    } else {
+                        next = matcher.match(parser);
+                    }
+                }
+                return next != null;
+
+            } catch (IOException ex) {
+                close();
+                throw new TechnicalException("Exception while parsing JSON", ex);
+            }
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            String result = next;
+            next = null;
+            return result;
+        }
+
+        private void close() {
+            finished = true;
+            try {
+                parser.close();
+            } catch (IOException ex) {
+                throw new TechnicalException("Exception while closing JSON stream", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package net.consensys.mahuta.core.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.input.BoundedInputStream;
+
+public class MappedFileUtils {
+
+    private MappedFileUtils() { }
+
+    /**
+     * Open a stream on a portion of a file through a memory-mapped buffer
+     * @param file File
+     * @param offset Position of the first byte to read
+     * @param length Number of bytes to read (bounded by the size of the file)
+     * @return InputStream (closing it is optional, the mapping is released once the stream is garbage collected)
+     * @throws IOException
+     */
+    public static InputStream open(Path file, long offset, long length) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        long start = Math.min(offset, channel.size());
+        long count = Math.min(length, channel.size() - start);
+
+        // A single mapping is limited to Integer.MAX_VALUE bytes, larger files are read through the channel
+        if (count > Integer.MAX_VALUE) {
+            channel.position(start);
+            return new BoundedInputStream(Channels.newInputStream(channel), count);
+        }
+
+        try {
+            return new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, start, count));
+        } finally {
+            channel.close(); // the mapping stays valid once the channel is closed
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package net.consensys.mahuta.core.utils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import net.consensys.mahuta.core.exception.TechnicalException;
+
+/**
+ * Adaptive token bucket limiting the rate of the requests sent to a rate-limited API.
+ *
+ * Up to `burst` requests can be sent at once, then one request every 1/rate second. When the API rejects a request
+ * (throttled), no request is sent until the delay requested by the API has elapsed and the rate is halved. Each
+ * successful request then raises the rate back by 5% of maxRate, so the throughput converges to the highest rate
+ * the API accepts.
+ */
+public class RateLimiter {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double INCREASE_FACTOR = 0.05;
+    private static final double DECREASE_FACTOR = 0.5;
+
+    private final @Getter double maxRate;
+    private final @Getter int burst;
+    private final double minRate;
+    private @Getter double rate;
+    private double tokens;
+    private long lastRefill;
+    private long blockedUntil;
+
+    private RateLimiter(double maxRate, int burst) {
+        this.maxRate = maxRate;
+        this.burst = burst;
+        this.minRate = maxRate / 100;
+        this.rate = maxRate;
+        this.tokens = burst;
+        this.lastRefill = System.nanoTime();
+        this.blockedUntil = lastRefill;
+    }
+
+    /**
+     * @param ratePerSecond Maximum number of requests per second
+     * @param burst Maximum number of requests sent at once
+     */
+    public static RateLimiter of(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("ratePerSecond and burst should be greater than 0.");
+        }
+        return new RateLimiter(ratePerSecond, burst);
+    }
+
+    /**
+     * Wait until a request can be sent
+     */
+    public void acquire() {
+        while (true) {
+            long wait;
+            synchronized (this) {
+                long now = System.nanoTime();
+                refill(now);
+                if (now - blockedUntil >= 0 && tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                wait = now - blockedUntil < 0 ? blockedUntil - now : (long) ((1 - tokens) / rate * NANOS_PER_SECOND);
+            }
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(Math.max(wait, 1));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new TechnicalException("Interrupted whilst waiting for the rate limiter", ex);
+            }
+        }
+    }
+
+    /**
+     * Record a request accepted by the API (raise the rate)
+     */
+    public synchronized void succeeded() {
+        refill(System.nanoTime());
+        rate = Math.min(maxRate, rate + maxRate * INCREASE_FACTOR);
+    }
+
+    /**
+     * Record a request rejected by the API because of its rate limit (halve the rate)
+     * @param retryAfter Delay before the next request
+     */
+    public synchronized void throttled(Duration retryAfter) {
+        long now = System.nanoTime();
+        refill(now);
+        rate = Math.max(minRate, rate * DECREASE_FACTOR);
+        tokens = 0;
+        long until = now + retryAfter.toNanos();
+        if (until - blockedUntil > 0) {
+            blockedUntil = until;
+        }
+    }
+
+    private void refill(long now) {
+        long from = now - blockedUntil < 0 ? now : (lastRefill - blockedUntil > 0 ? lastRefill : blockedUntil);
+        if (now - from > 0) {
+            tokens = Math.min(burst, tokens + (now - from) * rate / NANOS_PER_SECOND);
+        }
+        lastRefill = now;
+    }
+}
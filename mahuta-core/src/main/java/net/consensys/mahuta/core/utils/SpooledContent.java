@@ -0,0 +1,97 @@
+package net.consensys.mahuta.core.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
+import org.apache.commons.io.input.TeeInputStream;
+
+import net.consensys.mahuta.core.exception.TechnicalException;
+
+/**
+ * Wrap a one-shot InputStream so it can be read again (e.g. on retry) without holding it in memory.
+ *
+ * The first read goes straight to the source and copies every byte read to a temporary file on the way.
+ * Any subsequent read drains what is left of the source into the file and replays the file from the start.
+ * When the content is replayable, the source is closed with the SpooledContent.
+ */
+public class SpooledContent implements Closeable {
+
+    private static final String SPOOL_PREFIX = "mahuta-";
+    private static final String SPOOL_SUFFIX = ".spool";
+
+    private final InputStream source;
+    private final Path spool;
+    private OutputStream spoolOutput;
+    private boolean opened;
+
+    private SpooledContent(InputStream source, Path spool) {
+        this.source = source;
+        this.spool = spool;
+        this.opened = false;
+    }
+
+    /**
+     * Wrap an InputStream
+     * @param source Content
+     * @param replayable Spool the content to a temporary file so it can be read more than once
+     * @return SpooledContent
+     */
+    public static SpooledContent of(InputStream source, boolean replayable) {
+        ValidatorUtils.rejectIfNull("source", source);
+
+        try {
+            return new SpooledContent(source, replayable ? Files.createTempFile(SPOOL_PREFIX, SPOOL_SUFFIX) : null);
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while creating the spool file", ex);
+        }
+    }
+
+    /**
+     * Open a new InputStream on the content
+     * @return InputStream positioned at the beginning of the content
+     * @throws IOException
+     */
+    public synchronized InputStream open() throws IOException {
+
+        // First attempt: read the source and copy it on the fly into the spool
+        if (!opened) {
+            opened = true;
+            if (spool == null) {
+                return source;
+            }
+            spoolOutput = Files.newOutputStream(spool);
+            // Closing the first stream must not close the source, which is drained on the next attempt
+            return new TeeInputStream(new CloseShieldInputStream(source), spoolOutput, false);
+        }
+
+        if (spool == null) {
+            throw new IllegalStateException("content is not replayable");
+        }
+
+        // Next attempts: complete the spool with what hasn't been read yet, then replay it
+        if (spoolOutput != null) {
+            IOUtils.copy(source, spoolOutput);
+            spoolOutput.close();
+            spoolOutput = null;
+        }
+        return Files.newInputStream(spool);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (spoolOutput != null) {
+            spoolOutput.close();
+            spoolOutput = null;
+        }
+        if (spool != null) {
+            source.close();
+            Files.deleteIfExists(spool);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.Test;
 import net.consensys.mahuta.core.exception.ConnectionException;
 import net.consensys.mahuta.core.exception.MahutaException;
 import net.consensys.mahuta.core.exception.NotFoundException;
+import net.consensys.mahuta.core.exception.RangeNotSatisfiableException;
 import net.consensys.mahuta.core.exception.TechnicalException;
 import net.consensys.mahuta.core.exception.TimeoutException;
 import net.consensys.mahuta.core.exception.ValidationException;
@@ -30,6 +31,10 @@ public class ExceptionTest {
     public void ValidationException() {
         throw new ValidationException(MESSAGE_FORMAT, "hello");
     }
+    @Test(expected=ValidationException.class)
+    public void RangeNotSatisfiableException() {
+        throw new RangeNotSatisfiableException(100L, null, 10L);
+    }
     @Test(expected=TechnicalException.class)
     public void TechnicalException() {
         throw new TechnicalException(MESSAGE, new Exception());
@@ -0,0 +1,91 @@
+package net.consensys.mahuta.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.utils.JsonStreamUtils;
+
+public class JsonStreamUtilsTest {
+
+    @Test
+    public void streamFieldNames() {
+        String json = "{\"Other\":{\"a\":1},\"Keys\":{\"Qm1\":{\"Type\":\"recursive\"},\"Qm2\":{\"Type\":\"direct\",\"Keys\":{\"x\":1}}}}";
+
+        try (Stream<String> names = JsonStreamUtils.streamFieldNames(toStream(json), "Keys")) {
+            assertEquals(Arrays.asList("Qm1", "Qm2"), names.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void streamArrayValues() {
+        String json = "{\"other\":[\"a\"],\"pins\":[\"Qm1\",{\"pins\":[\"x\"]},\"Qm2\"]}";
+
+        try (Stream<String> values = JsonStreamUtils.streamArrayValues(toStream(json), "pins")) {
+            assertEquals(Arrays.asList("Qm1", "Qm2"), values.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void streamIsLazy() {
+        // {"pins":["Qm0","Qm1",... (never ending) generated on the fly
+        InputStream in = new InputStream() {
+            private int next = 0;
+            private byte[] buffer = "{\"pins\":[".getBytes(StandardCharsets.UTF_8);
+            private int position = 0;
+
+            @Override
+            public int read() {
+                if (position == buffer.length) {
+                    buffer = ((next == 0 ? "" : ",") + "\"Qm" + next++ + "\"").getBytes(StandardCharsets.UTF_8);
+                    position = 0;
+                }
+                return buffer[position++];
+            }
+        };
+
+        try (Stream<String> values = JsonStreamUtils.streamArrayValues(in, "pins")) {
+            assertEquals("Qm99999", values.skip(99999).findFirst().get());
+        }
+    }
+
+    @Test
+    public void closeReleasesInput() {
+        AtomicBoolean closed = new AtomicBoolean();
+        InputStream in = new FilterInputStream(toStream("{\"pins\":[\"Qm1\",\"Qm2\"]}")) {
+            @Override
+            public void close() throws IOException {
+                closed.set(true);
+                super.close();
+            }
+        };
+
+        try (Stream<String> values = JsonStreamUtils.streamArrayValues(in, "pins")) {
+            assertEquals("Qm1", values.findFirst().get());
+        }
+        assertTrue(closed.get());
+    }
+
+    @Test(expected = TechnicalException.class)
+    public void invalidJson() {
+        try (Stream<String> values = JsonStreamUtils.streamArrayValues(toStream("{\"pins\":[\"Qm1\",}"), "pins")) {
+            values.count();
+        }
+    }
+
+    private static InputStream toStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
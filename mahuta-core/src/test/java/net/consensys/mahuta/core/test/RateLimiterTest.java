@@ -0,0 +1,61 @@
+package net.consensys.mahuta.core.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import net.consensys.mahuta.core.utils.RateLimiter;
+
+public class RateLimiterTest {
+
+    @Test
+    public void burstThenRate() {
+        RateLimiter limiter = RateLimiter.of(20, 5);
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            limiter.acquire();
+        }
+        assertTrue(System.currentTimeMillis() - start < 100);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+        assertTrue(System.currentTimeMillis() - start >= 150);
+    }
+
+    @Test
+    public void throttledBlocksAndHalvesRate() {
+        RateLimiter limiter = RateLimiter.of(100, 10);
+
+        limiter.throttled(Duration.ofMillis(200));
+        assertEquals(50, limiter.getRate(), 0.001);
+
+        long start = System.currentTimeMillis();
+        limiter.acquire();
+        assertTrue(System.currentTimeMillis() - start >= 190);
+    }
+
+    @Test
+    public void succeededRaisesRateUpToMax() {
+        RateLimiter limiter = RateLimiter.of(100, 10);
+        limiter.throttled(Duration.ZERO);
+        limiter.throttled(Duration.ZERO);
+        assertEquals(25, limiter.getRate(), 0.001);
+
+        limiter.succeeded();
+        assertEquals(30, limiter.getRate(), 0.001);
+        for (int i = 0; i < 100; i++) {
+            limiter.succeeded();
+        }
+        assertEquals(100, limiter.getRate(), 0.001);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidRate() {
+        RateLimiter.of(0, 1);
+    }
+}
@@ -0,0 +1,66 @@
+package net.consensys.mahuta.core.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import net.consensys.mahuta.core.test.utils.FileTestUtils;
+import net.consensys.mahuta.core.test.utils.FileTestUtils.FileInfo;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+import net.consensys.mahuta.core.utils.SpooledContent;
+
+public class SpooledContentTest extends TestUtils {
+
+    @Test
+    public void readOnce() throws Exception {
+        FileInfo file = mockNeat.fromValues(FileTestUtils.files).get();
+        
+        try(SpooledContent content = SpooledContent.of(file.getIs(), false)) {
+            assertArrayEquals(file.getBytearray(), IOUtils.toByteArray(content.open()));
+        }
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void readTwiceNotReplayable() throws Exception {
+        FileInfo file = mockNeat.fromValues(FileTestUtils.files).get();
+        
+        try(SpooledContent content = SpooledContent.of(file.getIs(), false)) {
+            IOUtils.toByteArray(content.open());
+            content.open();
+        }
+    }
+
+    @Test
+    public void replayAfterPartialRead() throws Exception {
+        FileInfo file = mockNeat.fromValues(FileTestUtils.files).get();
+        
+        try(SpooledContent content = SpooledContent.of(file.getIs(), true)) {
+            InputStream first = content.open();
+            byte[] partial = new byte[10];
+            assertEquals(10, IOUtils.read(first, partial));
+            
+            assertArrayEquals(file.getBytearray(), IOUtils.toByteArray(content.open()));
+            assertArrayEquals(file.getBytearray(), IOUtils.toByteArray(content.open()));
+        }
+    }
+
+    @Test
+    public void replayAfterClose() throws Exception {
+        FileInfo file = mockNeat.fromValues(FileTestUtils.files).get();
+        
+        try(SpooledContent content = SpooledContent.of(new BufferedInputStream(file.getIs()), true)) {
+            try (InputStream first = content.open()) {
+                byte[] partial = new byte[10];
+                assertEquals(10, IOUtils.read(first, partial));
+            }
+            
+            assertArrayEquals(file.getBytearray(), IOUtils.toByteArray(content.open()));
+        }
+    }
+    
+}
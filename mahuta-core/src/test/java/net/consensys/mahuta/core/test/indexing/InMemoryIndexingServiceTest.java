@@ -0,0 +1,329 @@
+package net.consensys.mahuta.core.test.indexing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.Mahuta;
+import net.consensys.mahuta.core.MahutaFactory;
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.MetadataAndPayload;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
+import net.consensys.mahuta.core.domain.common.pagination.Page;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest.SortDirection;
+import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.domain.common.query.QueryOperation;
+import net.consensys.mahuta.core.exception.NoIndexException;
+import net.consensys.mahuta.core.exception.NotFoundException;
+import net.consensys.mahuta.core.exception.ValidationException;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.indexing.memory.InMemoryIndexingService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+import net.consensys.mahuta.core.utils.BytesUtils;
+
+public class InMemoryIndexingServiceTest extends TestUtils {
+
+    private static final String INDEX_NAME = "article";
+    private static final String TITLE_FIELD = "title";
+    private static final String AUTHOR_FIELD = "author";
+    private static final String VIEWS_FIELD = "views";
+    private static final String DATE_CREATED_FIELD = "dateCreated";
+    private static final String TAGS_FIELD = "tags";
+
+    private InMemoryIndexingService service;
+
+    @Before
+    public void setup() {
+        service = InMemoryIndexingService.of().withIndex(INDEX_NAME);
+    }
+
+    @Test
+    public void createIndex() {
+        service.createIndex("Other");
+        service.createIndex("other");
+
+        assertTrue(service.getIndexes().containsAll(Arrays.asList(INDEX_NAME, "other")));
+        assertEquals(2, service.getIndexes().size());
+    }
+
+    @Test
+    public void indexWithId() {
+        byte[] content = "hello".getBytes();
+        String id = service.index(INDEX_NAME, "doc1", "cid1", "text/plain", content, true, fields("Hello world", "alice", 10, new Date(1000)));
+        content[0] = 'H';
+
+        Metadata metadata = service.getDocument(INDEX_NAME, id);
+        assertEquals("doc1", id);
+        assertEquals(INDEX_NAME, metadata.getIndexName());
+        assertEquals("cid1", metadata.getContentId());
+        assertEquals("text/plain", metadata.getContentType());
+        assertArrayEquals("hello".getBytes(), metadata.getContent());
+        assertTrue(metadata.isPinned());
+        assertEquals("Hello world", metadata.getIndexFields().get(TITLE_FIELD));
+        assertEquals(10, metadata.getIndexFields().get(VIEWS_FIELD));
+        assertEquals(new Date(1000), metadata.getIndexFields().get(DATE_CREATED_FIELD));
+        assertFalse(metadata.getIndexFields().containsKey(IndexingService.HASH_INDEX_KEY));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void valuesAreCopied() {
+        Map<String, Object> fields = fields("Hello world", "alice", 10, new Date(1000));
+        fields.put(TAGS_FIELD, new ArrayList<>(Arrays.asList("tag-alice", "all")));
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, false, fields);
+
+        // Change the list written and the list read
+        ((List<String>) fields.get(TAGS_FIELD)).set(0, "written");
+        ((List<String>) service.getDocument(INDEX_NAME, "doc1").getIndexFields().get(TAGS_FIELD)).set(0, "read");
+        ((List<String>) search(Query.newQuery()).getElements().get(0).getIndexFields().get(TAGS_FIELD)).clear();
+
+        assertEquals(Arrays.asList("tag-alice", "all"), service.getDocument(INDEX_NAME, "doc1").getIndexFields().get(TAGS_FIELD));
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().equals(TAGS_FIELD, "tag-alice"))));
+        assertTrue(search(Query.newQuery().equals(TAGS_FIELD, "read")).getElements().isEmpty());
+
+        // The values replaced are removed from the secondary indexes
+        service.updateField(INDEX_NAME, "doc1", TAGS_FIELD, Arrays.asList("other"));
+        assertTrue(search(Query.newQuery().equals(TAGS_FIELD, "tag-alice")).getElements().isEmpty());
+        assertTrue(search(Query.newQuery().fullText(TAGS_FIELD, "alice")).getElements().isEmpty());
+    }
+
+    @Test
+    public void indexWithoutId() {
+        String id = service.index(INDEX_NAME, null, "cid1", null, null, false, null);
+
+        assertNotNull(id);
+        assertEquals("cid1", service.getDocument(INDEX_NAME, id).getContentId());
+    }
+
+    @Test(expected = NoIndexException.class)
+    public void indexWithNoIndex() {
+        service.index("unknown", "doc1", "cid1", null, null, true, null);
+    }
+
+    @Test
+    public void update() {
+        service.index(INDEX_NAME, "doc1", "cid1", "text/plain", "hello".getBytes(), true, fields("Hello world", "alice", 10, null));
+        service.index(INDEX_NAME, "doc1", "cid2", "text/plain", null, true, Collections.singletonMap(VIEWS_FIELD, 20));
+
+        Metadata metadata = service.getDocument(INDEX_NAME, "doc1");
+        assertEquals("cid2", metadata.getContentId());
+        assertArrayEquals("hello".getBytes(), metadata.getContent());
+        assertEquals("alice", metadata.getIndexFields().get(AUTHOR_FIELD));
+        assertEquals(20, metadata.getIndexFields().get(VIEWS_FIELD));
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().equals(VIEWS_FIELD, 20))));
+        assertEquals(ids(), ids(search(Query.newQuery().equals(VIEWS_FIELD, 10))));
+    }
+
+    @Test
+    public void updateField() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, true, fields("Hello world", "alice", 10, null));
+        service.index(INDEX_NAME, "doc2", "cid2", null, null, true, fields("Hello world", "bob", 10, null));
+
+        service.updateField(INDEX_NAME, "doc1", IndexingService.PINNED_KEY, false);
+        service.bulkUpdateField(INDEX_NAME, Arrays.asList("doc1", "doc2"), AUTHOR_FIELD, "carol", RefreshPolicy.NONE);
+
+        assertFalse(service.getDocument(INDEX_NAME, "doc1").isPinned());
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().equals(IndexingService.PINNED_KEY, false))));
+        assertEquals(ids("doc1", "doc2"), ids(search(Query.newQuery().equals(AUTHOR_FIELD, "carol"))));
+        assertEquals(ids(), ids(search(Query.newQuery().equals(AUTHOR_FIELD, "alice"))));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void updateFieldNotFound() {
+        service.updateField(INDEX_NAME, "doc1", AUTHOR_FIELD, "carol");
+    }
+
+    @Test
+    public void deindex() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, true, fields("Hello world", "alice", 10, null));
+
+        service.deindex(INDEX_NAME, "doc1");
+
+        assertEquals(ids(), ids(search(Query.newQuery())));
+        assertEquals(ids(), ids(search(Query.newQuery().fullText(TITLE_FIELD, "hello"))));
+        try {
+            service.getDocument(INDEX_NAME, "doc1");
+        } catch (NotFoundException ex) {
+            return;
+        }
+        throw new AssertionError("document should have been deindexed");
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void deindexNotFound() {
+        service.deindex(INDEX_NAME, "doc1");
+    }
+
+    @Test
+    public void searchDocumentsWithFilters() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, true, fields("The quick brown fox", "alice", 10, new Date(1000)));
+        service.index(INDEX_NAME, "doc2", "cid2", null, null, true, fields("A lazy dog", "bob", 20, new Date(2000)));
+        service.index(INDEX_NAME, "doc3", "cid3", null, null, false, fields("The brown dog", "carol", 30, null));
+
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().equals(AUTHOR_FIELD, "alice"))));
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().equals(VIEWS_FIELD, 10.0))));
+        assertEquals(ids("doc1", "doc2"), ids(search(Query.newQuery().equals(TAGS_FIELD, "all").notEquals(AUTHOR_FIELD, "carol"))));
+        assertEquals(ids("doc2", "doc3"), ids(search(Query.newQuery().notEquals(AUTHOR_FIELD, "alice"))));
+        assertEquals(ids("doc3"), ids(search(Query.newQuery().equals(IndexingService.PINNED_KEY, false))));
+        assertEquals(ids("doc2", "doc3"), ids(search(Query.newQuery().contains(TITLE_FIELD, "dog"))));
+        assertEquals(ids("doc1", "doc2", "doc3"), ids(search(Query.newQuery().contains(TITLE_FIELD, "fox dog"))));
+        assertEquals(ids("doc1", "doc3"), ids(search(Query.newQuery().fullText(TITLE_FIELD, "bro"))));
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().fullText(new String[] { AUTHOR_FIELD, TITLE_FIELD }, "quick bro"))));
+        assertEquals(ids(), ids(search(Query.newQuery().fullText(TITLE_FIELD, "brown quick"))));
+        assertEquals(ids("doc1", "doc3"), ids(search(Query.newQuery().in(AUTHOR_FIELD, Arrays.asList("alice", "carol")))));
+        assertEquals(ids("doc2"), ids(search(Query.newQuery().notIn(AUTHOR_FIELD, Arrays.asList("alice", "carol")))));
+        assertEquals(ids("doc1", "doc3"), ids(search(Query.newQuery().in(VIEWS_FIELD, Arrays.asList(10, 30)))));
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().lessThan(VIEWS_FIELD, 20))));
+        assertEquals(ids("doc1", "doc2"), ids(search(Query.newQuery().lessThanOrEquals(VIEWS_FIELD, 20))));
+        assertEquals(ids("doc3"), ids(search(Query.newQuery().greaterThan(VIEWS_FIELD, 20))));
+        assertEquals(ids("doc2", "doc3"), ids(search(Query.newQuery().greaterThanOrEquals(VIEWS_FIELD, 20))));
+        assertEquals(ids("doc2"), ids(search(Query.newQuery().greaterThan(DATE_CREATED_FIELD, new Date(1000)))));
+        assertEquals(ids("doc2", "doc3"), ids(search(Query.newQuery().greaterThan(AUTHOR_FIELD, "alice"))));
+        assertEquals(ids("doc3"), ids(search(Query.newQuery().equals(DATE_CREATED_FIELD, null))));
+        assertEquals(ids("doc1", "doc2"), ids(search(Query.newQuery().notEquals(DATE_CREATED_FIELD, null))));
+        assertEquals(ids("doc1", "doc2"), ids(search(Query.newQuery()
+                .or(Query.newQuery().equals(AUTHOR_FIELD, "alice"))
+                .or(Query.newQuery().equals(AUTHOR_FIELD, "bob")))));
+        assertEquals(ids("doc1", "doc3"), ids(search(Query.newQuery().filter(VIEWS_FIELD, QueryOperation.IN, "invalid").in(AUTHOR_FIELD, Arrays.asList("alice", "carol")))));
+    }
+
+    @Test
+    public void searchSorted() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, true, fields("b", "bob", 30, null));
+        service.index(INDEX_NAME, "doc2", "cid2", null, null, true, fields("c", "carol", 5, null));
+        service.index(INDEX_NAME, "doc3", "cid3", null, null, true, fields("a", "alice", 100, null));
+        service.index(INDEX_NAME, "doc4", "cid4", null, null, true, null);
+
+        assertEquals(Arrays.asList("doc2", "doc1", "doc3", "doc4"),
+                order(service.searchDocuments(INDEX_NAME, null, PageRequest.of(0, 10, VIEWS_FIELD, SortDirection.ASC))));
+        assertEquals(Arrays.asList("doc2", "doc1", "doc3", "doc4"),
+                order(service.searchDocuments(INDEX_NAME, null, PageRequest.of(0, 10, AUTHOR_FIELD, SortDirection.DESC))));
+        assertEquals(Arrays.asList("doc1"),
+                order(service.searchDocuments(INDEX_NAME, null, PageRequest.of(1, 1, TITLE_FIELD, SortDirection.ASC))));
+        assertEquals(Arrays.asList("doc1", "doc2", "doc3", "doc4"),
+                order(service.searchDocuments(INDEX_NAME, null, PageRequest.of(0, 10))));
+        Page<Metadata> page = service.searchDocuments(INDEX_NAME, null, PageRequest.of(5, 10));
+        assertEquals(0, page.getElements().size());
+        assertEquals(4, page.getTotalElements().intValue());
+    }
+
+    @Test
+    public void searchAllWithCursor() {
+        service.createIndex("other");
+        IntStream.range(0, 25).forEach(i -> service.index(i % 2 == 0 ? INDEX_NAME : "other", "doc" + i, "cid" + i, null, null, true,
+                Collections.singletonMap(VIEWS_FIELD, i % 3)));
+
+        List<String> ids = new ArrayList<>();
+        Page<Metadata> page = service.searchDocuments(null, null, PageRequest.ofCursor(10, VIEWS_FIELD, SortDirection.DESC));
+        ids.addAll(order(page));
+        while (page.getNextCursor() != null) {
+            page = service.searchDocuments(null, null, PageRequest.ofCursor(page.getNextCursor(), 10, VIEWS_FIELD, SortDirection.DESC));
+            ids.addAll(order(page));
+        }
+
+        assertEquals(25, ids.size());
+        assertEquals(25, ids.stream().distinct().count());
+        assertEquals("doc14", ids.get(0));
+        assertEquals("doc9", ids.get(24));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void searchWithInvalidCursor() {
+        service.searchDocuments(INDEX_NAME, null, PageRequest.ofCursor("invalid", 10, null, SortDirection.ASC));
+    }
+
+    @Test
+    public void concurrentWrites() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CompletableFuture.allOf(IntStream.range(0, 1000)
+                    .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                        service.index(INDEX_NAME, "doc" + (i % 100), "cid" + i, null, null, true, Collections.singletonMap(VIEWS_FIELD, i % 100));
+                        service.searchDocuments(INDEX_NAME, Query.newQuery().greaterThanOrEquals(VIEWS_FIELD, 50), PageRequest.of(0, 10));
+                    }, executor))
+                    .toArray(CompletableFuture[]::new)).join();
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(100, search(Query.newQuery()).getTotalElements().intValue());
+        assertEquals(50, search(Query.newQuery().greaterThanOrEquals(VIEWS_FIELD, 50)).getTotalElements().intValue());
+    }
+
+    @Test
+    public void mahutaPipeline() {
+        StorageService storageService = Mockito.mock(StorageService.class);
+        when(storageService.write(any(byte[].class), anyBoolean())).thenAnswer(i -> "cid-" + new String((byte[]) i.getArgument(0)));
+        when(storageService.readAsync(any())).thenAnswer(i -> CompletableFuture.completedFuture(
+                BytesUtils.convertToOutputStream(((String) i.getArgument(0)).substring(4).getBytes())));
+        Mahuta mahuta = new MahutaFactory()
+                .configureStorage(storageService)
+                .configureIndexer(service)
+                .defaultImplementation();
+
+        IntStream.range(0, 5).forEach(i -> mahuta.prepareStringIndexing(INDEX_NAME, "content" + i)
+                .indexDocId("doc" + i)
+                .indexFields(Collections.singletonMap(VIEWS_FIELD, i))
+                .execute());
+
+        List<MetadataAndPayload> elements = mahuta.prepareSearch()
+                .indexName(INDEX_NAME)
+                .query(Query.newQuery().greaterThan(VIEWS_FIELD, 2))
+                .pageRequest(PageRequest.of(0, 10, VIEWS_FIELD, SortDirection.DESC))
+                .loadFile(true)
+                .execute().getPage().getElements();
+
+        assertEquals(Arrays.asList("content4", "content3"),
+                elements.stream().map(e -> e.getPayload().toString()).collect(Collectors.toList()));
+    }
+
+    private Page<Metadata> search(Query query) {
+        return service.searchDocuments(INDEX_NAME, query, PageRequest.of(0, 100));
+    }
+
+    private static List<String> ids(String... ids) {
+        return Arrays.asList(ids);
+    }
+
+    private static List<String> ids(Page<Metadata> page) {
+        return page.getElements().stream().map(Metadata::getIndexDocId).sorted().collect(Collectors.toList());
+    }
+
+    private static List<String> order(Page<Metadata> page) {
+        return page.getElements().stream().map(Metadata::getIndexDocId).collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> fields(String title, String author, int views, Date dateCreated) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(TITLE_FIELD, title);
+        fields.put(AUTHOR_FIELD, author);
+        fields.put(VIEWS_FIELD, views);
+        fields.put(DATE_CREATED_FIELD, dateCreated);
+        fields.put(TAGS_FIELD, Arrays.asList("tag-" + author, "all"));
+        return fields;
+    }
+}
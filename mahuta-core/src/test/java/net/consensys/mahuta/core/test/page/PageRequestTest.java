@@ -3,6 +3,7 @@ package net.consensys.mahuta.core.test.page;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -49,6 +50,21 @@ public class PageRequestTest {
 
     }
 
+    @Test
+    public void checkFieldCursor() {
+        Integer size = 20;
+
+        /////////////////////////////
+        PageRequest pageRequest = PageRequest.ofCursor(size);
+        log.debug("pageRequest: {}", pageRequest);
+        /////////////////////////////
+
+        assertEquals(size, pageRequest.getSize());
+        assertEquals(PageRequest.FIRST_CURSOR, pageRequest.getCursor());
+        assertTrue(pageRequest.isCursorBased());
+        assertFalse(PageRequest.of().isCursorBased());
+    }
+
     @Test
     public void checkField3() {
         /////////////////////////////
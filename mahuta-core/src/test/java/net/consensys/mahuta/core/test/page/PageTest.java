@@ -13,6 +13,7 @@ import org.junit.Test;
 import lombok.extern.slf4j.Slf4j;
 import net.consensys.mahuta.core.domain.common.pagination.Page;
 import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest.SortDirection;
 
 @Slf4j
 public class PageTest {
@@ -96,6 +97,32 @@ public class PageTest {
         assertFalse(page2.hasNext());
     }
 
+    @Test
+    public void getNextCursorPageRequest() {
+        Integer size = 10;
+
+        PageRequest pageRequest1 = PageRequest.ofCursor(size, "date", SortDirection.DESC);
+        List<Integer> elements = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        Integer totalElements = 12;
+        
+        /////////////////////////////
+        Page<Integer> page1 = Page.of(pageRequest1, elements, totalElements, "cursor1");
+        /////////////////////////////
+        assertTrue(pageRequest1.isFirstCursor());
+        assertTrue(page1.hasNext());
+
+        /////////////////////////////
+        PageRequest pageRequest2 = page1.nextPageRequest();
+        Page<Integer> page2 = Page.of(pageRequest2, elements.subList(0, 2), totalElements, null);
+        /////////////////////////////
+        assertEquals(Integer.valueOf(1), pageRequest2.getPage());
+        assertEquals("cursor1", pageRequest2.getCursor());
+        assertEquals("date", pageRequest2.getSort());
+        assertEquals(SortDirection.DESC, pageRequest2.getDirection());
+        assertFalse(pageRequest2.isFirstCursor());
+        assertTrue(page2.isLast());
+    }
+
     @Test(expected=IllegalArgumentException.class)
     public void exceptionIllegalArgumentExceptionOnPageRequest() {
         Integer pageNo = 0;
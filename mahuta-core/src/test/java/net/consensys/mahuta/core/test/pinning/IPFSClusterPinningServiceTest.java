@@ -0,0 +1,103 @@
+package net.consensys.mahuta.core.test.pinning;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.deleteRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.delete;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.service.pinning.PinningResult;
+import net.consensys.mahuta.core.service.pinning.ipfs.IPFSClusterPinningService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class IPFSClusterPinningServiceTest extends TestUtils {
+
+    private WireMockServer cluster;
+    private IPFSClusterPinningService service;
+
+    @Before
+    public void setup() {
+        cluster = new WireMockServer(options().dynamicPort());
+        cluster.stubFor(get(urlPathEqualTo("/id")).willReturn(okJson("{\"id\":\"cluster\"}")));
+        cluster.stubFor(post(urlPathMatching("/pins/.*")).willReturn(okJson("{}")));
+        cluster.stubFor(delete(urlPathMatching("/pins/.*")).willReturn(okJson("{}")));
+        cluster.stubFor(post(urlPathEqualTo("/pins/bad")).willReturn(aResponse().withStatus(500).withBody("error")));
+        cluster.start();
+
+        service = IPFSClusterPinningService.connect("localhost", cluster.port())
+                .configureCoalescing(Duration.ofMillis(50), 4);
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+        cluster.stop();
+    }
+
+    @Test
+    public void pinBatchReportsResultPerCid() {
+        List<PinningResult> results = service.pin(Arrays.asList("cid1", "bad", "cid2", "cid1"));
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("bad", results.get(1).getCid());
+        assertTrue(results.get(1).getError().contains("500"));
+        assertTrue(results.get(2).isSuccess());
+        assertTrue(results.get(3).isSuccess());
+        cluster.verify(1, postRequestedFor(urlPathEqualTo("/pins/cid1")));
+        cluster.verify(1, postRequestedFor(urlPathEqualTo("/pins/cid2")));
+    }
+
+    @Test
+    public void unpinBatch() {
+        List<PinningResult> results = service.unpin(Arrays.asList("cid1", "cid2"));
+
+        assertTrue(results.stream().allMatch(PinningResult::isSuccess));
+        cluster.verify(1, deleteRequestedFor(urlPathEqualTo("/pins/cid1")));
+        cluster.verify(1, deleteRequestedFor(urlPathEqualTo("/pins/cid2")));
+    }
+
+    @Test
+    public void pin() {
+        service.pin("cid1");
+
+        cluster.verify(1, postRequestedFor(urlPathEqualTo("/pins/cid1")));
+    }
+
+    @Test(expected = TechnicalException.class)
+    public void pinFailure() {
+        service.pin("bad");
+    }
+
+    @Test
+    public void streamTracked() {
+        cluster.stubFor(get(urlPathEqualTo("/pins")).willReturn(okJson("{\"pins\":[\"cid1\",\"cid2\",\"cid3\"]}")));
+
+        try (Stream<String> tracked = service.streamTracked()) {
+            assertEquals(Arrays.asList("cid1", "cid2", "cid3"), tracked.collect(Collectors.toList()));
+        }
+        assertEquals(Arrays.asList("cid1", "cid2", "cid3"), service.getTracked());
+    }
+}
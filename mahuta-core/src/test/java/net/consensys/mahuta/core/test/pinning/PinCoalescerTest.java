@@ -0,0 +1,92 @@
+package net.consensys.mahuta.core.test.pinning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import net.consensys.mahuta.core.service.pinning.PinCoalescer;
+import net.consensys.mahuta.core.service.pinning.PinCoalescer.Operation;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class PinCoalescerTest extends TestUtils {
+
+    private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+
+    private CompletableFuture<Void> send(Operation operation, String cid) {
+        sent.add(operation + " " + cid);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Test
+    public void coalesceIdenticalRequests() throws Exception {
+        try (PinCoalescer coalescer = PinCoalescer.of(this::send, Duration.ofMillis(100), 4, 1000)) {
+            CompletableFuture<Void> first = coalescer.submit(Operation.PIN, "cid1");
+            CompletableFuture<Void> second = coalescer.submit(Operation.PIN, "cid1");
+            coalescer.submit(Operation.PIN, "cid2").get(5, TimeUnit.SECONDS);
+
+            assertTrue(first == second);
+            assertTrue(first.isDone());
+            assertEquals(1, coalescer.getCoalesced());
+            assertEquals(2, sent.size());
+        }
+    }
+
+    @Test
+    public void laterOppositeRequestWins() throws Exception {
+        try (PinCoalescer coalescer = PinCoalescer.of(this::send, Duration.ofMillis(100), 4, 1000)) {
+            CompletableFuture<Void> pin = coalescer.submit(Operation.PIN, "cid1");
+            coalescer.submit(Operation.UNPIN, "cid1").get(5, TimeUnit.SECONDS);
+
+            assertTrue(pin.isCompletedExceptionally());
+            assertEquals(Collections.singletonList("UNPIN cid1"), sent);
+        }
+    }
+
+    @Test
+    public void capRequestsInFlight() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        PinCoalescer.Sender slow = (operation, cid) -> CompletableFuture.runAsync(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+        });
+
+        try (PinCoalescer coalescer = PinCoalescer.of(slow, Duration.ofMillis(10), 3, 10)) {
+            List<CompletableFuture<Void>> futures = IntStream.range(0, 30)
+                    .mapToObj(i -> coalescer.submit(Operation.PIN, "cid" + i))
+                    .collect(Collectors.toList());
+
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+            assertTrue(maxRunning.get() <= 3);
+            assertEquals(0, coalescer.getInFlight());
+        }
+    }
+
+    @Test
+    public void closeSendsPendingRequests() {
+        PinCoalescer coalescer = PinCoalescer.of(this::send, Duration.ofMinutes(1), 4, 1000);
+        CompletableFuture<Void> future = coalescer.submit(Operation.PIN, "cid1");
+
+        coalescer.close();
+
+        assertTrue(future.isDone());
+        assertEquals(1, sent.size());
+        assertTrue(coalescer.submit(Operation.PIN, "cid2").isCompletedExceptionally());
+    }
+}
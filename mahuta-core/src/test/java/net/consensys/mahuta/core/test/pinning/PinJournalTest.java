@@ -0,0 +1,200 @@
+package net.consensys.mahuta.core.test.pinning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import net.consensys.mahuta.core.service.pinning.journal.PinJournal;
+import net.consensys.mahuta.core.service.pinning.journal.PinTask;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class PinJournalTest extends TestUtils {
+
+    private static final String INDEX_NAME = "index";
+    private static final List<String> REPLICA_SET = Arrays.asList("node1", "node2");
+    
+    private Path directory;
+    
+    @Before
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("mahuta-journal-test");
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    public void addPinnedDone() {
+        try (PinJournal journal = PinJournal.open(directory.toString())) {
+            PinTask task = journal.add(INDEX_NAME, "doc1", "cid1", ImmutableMap.of("author", "bob"));
+            
+            assertEquals(task.getId(), journal.add(INDEX_NAME, "doc1", "cid1", null).getId());
+            assertTrue(journal.contains(INDEX_NAME, "doc1"));
+            assertEquals(1, journal.size());
+            
+            journal.pinned(task.getId(), "node1");
+            PinTask due = journal.due(REPLICA_SET, System.currentTimeMillis(), 0, 10).get(0);
+            assertTrue(due.isPinned("node1"));
+            assertFalse(due.isPinned(REPLICA_SET));
+            assertFalse(due.isDue("node1", System.currentTimeMillis()));
+            assertTrue(due.isDue("node2", System.currentTimeMillis()));
+            
+            journal.done(task.getId());
+            assertFalse(journal.contains(INDEX_NAME, "doc1"));
+            assertEquals(0, journal.size());
+        }
+    }
+
+    @Test
+    public void replaceTaskOfAnotherContent() {
+        try (PinJournal journal = PinJournal.open(directory.toString())) {
+            PinTask task = journal.add(INDEX_NAME, "doc1", "cid1", null);
+            journal.pinned(task.getId(), "node1");
+            
+            PinTask replacement = journal.add(INDEX_NAME, "doc1", "cid2", null);
+            
+            assertFalse(journal.isPending(task.getId()));
+            assertTrue(journal.isPending(replacement.getId()));
+            assertEquals(1, journal.size());
+            PinTask due = journal.due(REPLICA_SET, System.currentTimeMillis(), 0, 10).get(0);
+            assertEquals("cid2", due.getContentId());
+            assertTrue(due.isDue("node1", System.currentTimeMillis()));
+        }
+        
+        try (PinJournal journal = PinJournal.open(directory.toString())) {
+            assertEquals(1, journal.size());
+            assertEquals("cid2", journal.due(REPLICA_SET, System.currentTimeMillis(), 0, 10).get(0).getContentId());
+        }
+    }
+
+    @Test
+    public void removeTaskOfDocument() {
+        try (PinJournal journal = PinJournal.open(directory.toString())) {
+            journal.add(INDEX_NAME, "doc1", "cid1", null);
+            journal.add(INDEX_NAME, "doc2", "cid2", null);
+            
+            journal.remove(INDEX_NAME, "doc1");
+            journal.remove(INDEX_NAME, "doc3");
+            
+            assertFalse(journal.contains(INDEX_NAME, "doc1"));
+            assertTrue(journal.contains(INDEX_NAME, "doc2"));
+        }
+    }
+
+    @Test
+    public void reopenRecoversPendingTasks() {
+        try (PinJournal journal = PinJournal.open(directory.toString())) {
+            long id1 = journal.add(INDEX_NAME, "doc1", "cid1", ImmutableMap.of("author", "bob")).getId();
+            long id2 = journal.add(INDEX_NAME, "doc2", "cid2", null).getId();
+            journal.add(INDEX_NAME, "doc3", "cid3", null);
+            journal.pinned(id1, "node1");
+            journal.failed(id1, "node2");
+            journal.done(id2);
+        }
+        
+        try (PinJournal journal = PinJournal.open(directory.toString())) {
+            assertEquals(2, journal.size());
+            assertFalse(journal.contains(INDEX_NAME, "doc2"));
+            
+            PinTask task = journal.due(REPLICA_SET, Long.MAX_VALUE, 0, 10).get(0);
+            assertEquals("cid1", task.getContentId());
+            assertEquals("bob", task.getIndexFields().get("author"));
+            assertTrue(task.isPinned("node1"));
+            assertEquals(1, task.getReplicas().get("node2").getAttempts());
+            
+            long id4 = journal.add(INDEX_NAME, "doc4", "cid4", null).getId();
+            assertTrue(id4 > task.getId());
+        }
+    }
+
+    @Test
+    public void exponentialBackoff() {
+        try (PinJournal journal = PinJournal.open(directory.toString())
+                .configureBackoff(Duration.ofSeconds(10), Duration.ofSeconds(30))) {
+            long id = journal.add(INDEX_NAME, "doc1", "cid1", null).getId();
+            
+            assertDelay(journal.failed(id, "node1"), 5000, 10000);
+            assertDelay(journal.failed(id, "node1"), 10000, 20000);
+            assertDelay(journal.failed(id, "node1"), 15000, 30000);
+            long nextAttemptAt = journal.failed(id, "node1");
+            assertDelay(nextAttemptAt, 15000, 30000);
+            
+            // Not due on node1 before the next attempt, still due on node2
+            assertEquals(1, journal.due(REPLICA_SET, System.currentTimeMillis(), 0, 10).size());
+            assertEquals(0, journal.due(Collections.singletonList("node1"), System.currentTimeMillis(), 0, 10).size());
+            assertEquals(1, journal.due(Collections.singletonList("node1"), nextAttemptAt, 0, 10).size());
+        }
+    }
+
+    @Test
+    public void tornRecordIsIgnored() throws Exception {
+        try (PinJournal journal = PinJournal.open(directory.toString())) {
+            journal.add(INDEX_NAME, "doc1", "cid1", null);
+            journal.add(INDEX_NAME, "doc2", "cid2", null);
+        }
+        
+        // Corrupt the last byte of the second record
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("pins.journal").toFile(), "rw")) {
+            long position = 0;
+            long last = 0;
+            file.seek(position);
+            int length;
+            while ((length = file.readInt()) > 0) {
+                last = position + 8 + length - 1;
+                position += 8 + length;
+                file.seek(position);
+            }
+            file.seek(last);
+            byte b = file.readByte();
+            file.seek(last);
+            file.writeByte(b ^ 0xFF);
+        }
+        
+        try (PinJournal journal = PinJournal.open(directory.toString())) {
+            assertEquals(1, journal.size());
+            assertTrue(journal.contains(INDEX_NAME, "doc1"));
+        }
+    }
+
+    @Test
+    public void compactWhenFull() {
+        try (PinJournal journal = PinJournal.open(directory.toString(), 256)) {
+            for (int i = 0; i < 100; i++) {
+                long id = journal.add(INDEX_NAME, "doc" + i, "cid" + i, null).getId();
+                journal.failed(id, "node1");
+                if (i % 2 == 0) {
+                    journal.done(id);
+                }
+            }
+            assertEquals(50, journal.size());
+        }
+        
+        try (PinJournal journal = PinJournal.open(directory.toString(), 256)) {
+            assertEquals(50, journal.size());
+            assertTrue(journal.contains(INDEX_NAME, "doc99"));
+            assertFalse(journal.contains(INDEX_NAME, "doc98"));
+        }
+    }
+    
+    private static void assertDelay(long nextAttemptAt, long min, long max) {
+        long delay = nextAttemptAt - System.currentTimeMillis();
+        assertTrue("delay " + delay, delay > min - 1000 && delay <= max);
+    }
+}
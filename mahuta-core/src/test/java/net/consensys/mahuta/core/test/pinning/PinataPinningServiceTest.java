@@ -0,0 +1,115 @@
+package net.consensys.mahuta.core.test.pinning;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static com.github.tomakehurst.wiremock.stubbing.Scenario.STARTED;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.service.pinning.ipfs.PinataPinningService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class PinataPinningServiceTest extends TestUtils {
+
+    private static final String PIN = "/pinning/pinHashToIPFS";
+    private static final String PIN_LIST = "/data/pinList";
+
+    private WireMockServer pinata;
+    private PinataPinningService service;
+
+    @Before
+    public void setup() {
+        pinata = new WireMockServer(options().dynamicPort());
+        pinata.stubFor(get(urlPathEqualTo("/data/testAuthentication")).willReturn(okJson("{\"message\":\"ok\"}")));
+        pinata.start();
+
+        service = PinataPinningService.connect("http://localhost:" + pinata.port(), "apiKey", "secret", null)
+                .configureRetry(2, Duration.ofMillis(10));
+    }
+
+    @After
+    public void tearDown() {
+        pinata.stop();
+    }
+
+    @Test
+    public void retryAfterRateLimit() {
+        pinata.stubFor(post(urlPathEqualTo(PIN)).inScenario("rate-limit").whenScenarioStateIs(STARTED)
+                .willReturn(aResponse().withStatus(429).withHeader("Retry-After", "1"))
+                .willSetStateTo("retry"));
+        pinata.stubFor(post(urlPathEqualTo(PIN)).inScenario("rate-limit").whenScenarioStateIs("retry")
+                .willReturn(okJson("{\"IpfsHash\":\"cid\"}")));
+
+        long start = System.currentTimeMillis();
+        service.pin("cid");
+
+        assertTrue(System.currentTimeMillis() - start >= 1000);
+        pinata.verify(2, postRequestedFor(urlPathEqualTo(PIN)));
+    }
+
+    @Test(expected = TechnicalException.class)
+    public void failAfterMaxRetry() {
+        pinata.stubFor(post(urlPathEqualTo(PIN)).willReturn(aResponse().withStatus(429)));
+
+        try {
+            service.pin("cid");
+        } finally {
+            pinata.verify(3, postRequestedFor(urlPathEqualTo(PIN)));
+        }
+    }
+
+    @Test
+    public void getTrackedFetchesAllPages() {
+        pinata.stubFor(get(urlPathEqualTo(PIN_LIST)).withQueryParam("pageOffset", equalTo("0"))
+                .willReturn(okJson(page(0, 1000, 2005))));
+        pinata.stubFor(get(urlPathEqualTo(PIN_LIST)).withQueryParam("pageOffset", equalTo("1000"))
+                .willReturn(okJson(page(1000, 2000, 2005))));
+        pinata.stubFor(get(urlPathEqualTo(PIN_LIST)).withQueryParam("pageOffset", equalTo("2000"))
+                .willReturn(okJson(page(2000, 2005, 2005))));
+
+        List<String> tracked = service.getTracked();
+
+        assertEquals(2005, tracked.size());
+        assertEquals("cid2004", tracked.get(2004));
+        pinata.verify(3, getRequestedFor(urlPathEqualTo(PIN_LIST)));
+    }
+
+    @Test
+    public void streamTrackedIsLazy() {
+        pinata.stubFor(get(urlPathEqualTo(PIN_LIST)).willReturn(okJson(page(0, 1000, 5000))));
+
+        try (Stream<String> tracked = service.streamTracked()) {
+            pinata.verify(0, getRequestedFor(urlPathEqualTo(PIN_LIST)));
+
+            assertEquals(Arrays.asList("cid0", "cid1"), tracked.limit(2).collect(Collectors.toList()));
+            pinata.verify(1, getRequestedFor(urlPathEqualTo(PIN_LIST)));
+        }
+    }
+
+    private static String page(int from, int to, int count) {
+        return "{\"count\":" + count + ",\"rows\":[" + IntStream.range(from, to)
+                .mapToObj(i -> "{\"id\":\"" + i + "\",\"ipfs_pin_hash\":\"cid" + i + "\"}")
+                .collect(Collectors.joining(",")) + "]}";
+    }
+}
@@ -0,0 +1,194 @@
+package net.consensys.mahuta.core.test.pinning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.MahutaFactory;
+import net.consensys.mahuta.core.domain.indexing.IndexingResponse;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.pinning.PinningExecutor;
+import net.consensys.mahuta.core.service.pinning.PinningExecutor.RejectionPolicy;
+import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class PinningExecutorTest extends TestUtils {
+
+    private PinningService replica;
+    private CountDownLatch blocked;
+    private CountDownLatch release;
+    private PinningExecutor executor;
+
+    @Before
+    public void setup() {
+        replica = Mockito.mock(PinningService.class);
+        when(replica.getName()).thenReturn("replica");
+        blocked = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        doAnswer(i -> {
+            blocked.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(replica).pin(eq("slow"), anyString(), any());
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.close();
+        }
+    }
+
+    @Test
+    public void pin() throws Exception {
+        try (PinningExecutor executor = PinningExecutor.of()) {
+            executor.pin(replica, "cid", "index_doc", null).get(5, TimeUnit.SECONDS);
+
+            verify(replica).pin("cid", "index_doc", null);
+            assertEquals(0, executor.getInFlight());
+            assertEquals(0, executor.getFailed());
+        }
+    }
+
+    @Test
+    public void pinFailure() throws Exception {
+        doThrow(new RuntimeException("node down")).when(replica).pin(eq("cid"), anyString(), any());
+
+        try (PinningExecutor executor = PinningExecutor.of()) {
+            CompletableFuture<Void> future = executor.pin(replica, "cid", "index_doc", null);
+            try {
+                future.get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException ex) {
+                assertEquals("node down", ex.getCause().getMessage());
+            }
+            assertTrue(future.isCompletedExceptionally());
+            assertEquals(1, executor.getFailed());
+        }
+    }
+
+    @Test
+    public void callerRunsWhenQueueIsFull() throws Exception {
+        executor = PinningExecutor.of(1, 1, RejectionPolicy.CALLER_RUNS);
+        executor.pin(replica, "slow", "index_slow", null);
+        blocked.await(5, TimeUnit.SECONDS);
+        executor.pin(replica, "queued", "index_queued", null);
+
+        CompletableFuture<Void> future = executor.pin(replica, "cid", "index_doc", null);
+
+        assertTrue(future.isDone());
+        assertEquals(1, executor.getRejected());
+        assertEquals(2, executor.getInFlight());
+    }
+
+    @Test
+    public void pinAsyncNeverRunsOnTheCallerWhenQueueIsFull() throws Exception {
+        executor = PinningExecutor.of(1, 1, RejectionPolicy.CALLER_RUNS);
+        executor.pin(replica, "slow", "index_slow", null);
+        blocked.await(5, TimeUnit.SECONDS);
+        executor.pin(replica, "queued", "index_queued", null);
+
+        CompletableFuture<Void> future = executor.pinAsync(replica, "cid", "index_doc", null);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(1, executor.getRejected());
+        assertEquals(2, executor.getInFlight());
+    }
+
+    @Test(expected = TechnicalException.class)
+    public void abortWhenQueueIsFull() throws Exception {
+        executor = PinningExecutor.of(1, 1, RejectionPolicy.ABORT);
+        executor.pin(replica, "slow", "index_slow", null);
+        blocked.await(5, TimeUnit.SECONDS);
+        executor.pin(replica, "queued", "index_queued", null);
+
+        executor.pin(replica, "cid", "index_doc", null);
+    }
+
+    @Test
+    public void discardWhenQueueIsFull() throws Exception {
+        executor = PinningExecutor.of(1, 1, RejectionPolicy.DISCARD);
+        executor.pin(replica, "slow", "index_slow", null);
+        blocked.await(5, TimeUnit.SECONDS);
+        executor.pin(replica, "queued", "index_queued", null);
+
+        CompletableFuture<Void> future = executor.pin(replica, "cid", "index_doc", null);
+
+        assertTrue(future.isCompletedExceptionally());
+        assertEquals(2, executor.getInFlight());
+        try {
+            future.get();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void closeDrainsPinsInFlight() throws Exception {
+        executor = PinningExecutor.of(1, 10, RejectionPolicy.ABORT).configureDrainTimeout(Duration.ofSeconds(5));
+        CompletableFuture<Void> slow = executor.pin(replica, "slow", "index_slow", null);
+        CompletableFuture<Void> queued = executor.pin(replica, "queued", "index_queued", null);
+        blocked.await(5, TimeUnit.SECONDS);
+
+        new Thread(() -> release.countDown()).start();
+        executor.close();
+
+        assertTrue(slow.isDone());
+        assertTrue(queued.isDone());
+        assertEquals(0, executor.getInFlight());
+    }
+
+    @Test
+    public void sharedExecutorIsCreatedOnce() {
+        assertSame(PinningExecutor.shared(), PinningExecutor.shared());
+    }
+
+    @Test
+    public void indexingResponseTracksReplicaPinning() throws Exception {
+        StorageService storageService = Mockito.mock(StorageService.class);
+        when(storageService.getReplicaSet()).thenReturn(new HashSet<>(Arrays.asList(replica)));
+        when(storageService.write(any(byte[].class), anyBoolean())).thenReturn("slow");
+        IndexingService indexingService = Mockito.mock(IndexingService.class);
+        when(indexingService.index(any(), any(), any(), any(), any(), anyBoolean(), any(), any())).thenReturn("doc");
+
+        try (PinningExecutor executor = PinningExecutor.of()) {
+            IndexingResponse response = new MahutaFactory()
+                    .configureStorage(storageService)
+                    .configureIndexer(indexingService)
+                    .defaultImplementation(executor)
+                    .prepareStringIndexing("index", "content")
+                    .execute();
+
+            blocked.await(5, TimeUnit.SECONDS);
+            assertFalse(response.getReplicaPinning().isDone());
+            release.countDown();
+            response.getReplicaPinning().get(5, TimeUnit.SECONDS);
+            verify(replica).pin(eq("slow"), eq("index_doc"), any());
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package net.consensys.mahuta.core.test.pinning;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.pagination.Page;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.service.pinning.reconciliation.ReconciliationReport;
+import net.consensys.mahuta.core.service.pinning.reconciliation.ReplicaReconciler;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class ReplicaReconcilerTest extends TestUtils {
+
+    private static final String INDEX_NAME = "index";
+
+    private StorageService storageService;
+    private IndexingService indexingService;
+    private PinningService replica1;
+    private PinningService replica2;
+    private List<Metadata> documents;
+
+    @Before
+    public void setup() {
+        // 10 documents cid0...cid9 (cid9 not pinned yet)
+        documents = IntStream.range(0, 10)
+                .mapToObj(i -> Metadata.of(INDEX_NAME, "doc" + i, "cid" + i, null, null, i != 9, null))
+                .collect(Collectors.toList());
+
+        replica1 = Mockito.mock(PinningService.class);
+        when(replica1.getName()).thenReturn("replica1");
+        when(replica1.streamTracked()).thenAnswer(i -> IntStream.range(0, 9).mapToObj(n -> "cid" + n));
+        replica2 = Mockito.mock(PinningService.class);
+        when(replica2.getName()).thenReturn("replica2");
+        when(replica2.streamTracked()).thenAnswer(i -> Arrays.asList("cid0", "cid1", "cid2", "orphan1", "orphan2", "orphan3").stream());
+
+        storageService = Mockito.mock(StorageService.class);
+        when(storageService.getReplicaSet()).thenReturn(new LinkedHashSet<>(Arrays.asList(replica1, replica2)));
+
+        indexingService = Mockito.mock(IndexingService.class);
+        when(indexingService.getIndexes()).thenReturn(Arrays.asList(INDEX_NAME));
+        when(indexingService.searchDocuments(eq(INDEX_NAME), any(Query.class), any(PageRequest.class))).thenAnswer(i -> {
+            PageRequest pageRequest = i.getArgument(2);
+            int from = pageRequest.getPage() * pageRequest.getSize();
+            int to = Math.min(documents.size(), from + pageRequest.getSize());
+            return Page.of(pageRequest, documents.subList(from, to), documents.size(), to < documents.size() ? "cursor" + to : null);
+        });
+    }
+
+    @Test
+    public void repairMissingAndReportOrphans() {
+        List<List<String>> orphans = new ArrayList<>();
+
+        ReconciliationReport report = ReplicaReconciler.of(storageService, indexingService)
+                .configureBatchSize(2)
+                .configureOrphanReporter((replica, cids) -> orphans.add(cids))
+                .reconcile();
+
+        assertEquals(10, report.getIndexed());
+        assertEquals(9, report.getReplicas().get("replica1").getTracked());
+        assertEquals(0, report.getReplicas().get("replica1").getOrphans());
+        assertEquals(0, report.getReplicas().get("replica1").getMissing());
+        assertEquals(6, report.getReplicas().get("replica2").getTracked());
+        assertEquals(3, report.getReplicas().get("replica2").getOrphans());
+        assertEquals(6, report.getReplicas().get("replica2").getMissing());
+        assertEquals(6, report.getReplicas().get("replica2").getRepaired());
+        assertEquals(Arrays.asList(Arrays.asList("orphan1", "orphan2"), Collections.singletonList("orphan3")), orphans);
+
+        verify(replica1, never()).pin(anyString(), anyString(), any());
+        IntStream.range(3, 9).forEach(n -> verify(replica2).pin("cid" + n, INDEX_NAME + "_doc" + n, null));
+        verify(replica2, never()).pin(eq("cid9"), anyString(), any());
+    }
+
+    @Test
+    public void reportOnly() {
+        ReconciliationReport report = ReplicaReconciler.of(storageService, indexingService)
+                .configureRepair(false)
+                .reconcile();
+
+        assertEquals(6, report.getReplicas().get("replica2").getMissing());
+        assertEquals(0, report.getReplicas().get("replica2").getRepaired());
+        verify(replica2, never()).pin(anyString(), anyString(), any());
+    }
+
+    @Test
+    public void repairFailure() {
+        doThrow(new RuntimeException("node down")).when(replica2).pin(eq("cid5"), anyString(), any());
+
+        ReconciliationReport report = ReplicaReconciler.of(storageService, indexingService).reconcile();
+
+        assertEquals(5, report.getReplicas().get("replica2").getRepaired());
+        assertEquals(1, report.getReplicas().get("replica2").getFailed());
+    }
+}
@@ -0,0 +1,166 @@
+package net.consensys.mahuta.core.test.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.Mahuta;
+import net.consensys.mahuta.core.MahutaFactory;
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.MetadataAndPayload;
+import net.consensys.mahuta.core.domain.common.pagination.Page;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.domain.get.GetResponse;
+import net.consensys.mahuta.core.domain.indexing.IndexingResponse;
+import net.consensys.mahuta.core.domain.search.SearchResponse;
+import net.consensys.mahuta.core.exception.NoIndexException;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+import net.consensys.mahuta.core.utils.BytesUtils;
+
+public class AsyncMahutaServiceTest extends TestUtils {
+
+    private static final String INDEX_NAME = "index";
+
+    private StorageService storageService;
+    private IndexingService indexingService;
+    private PinningService replica;
+    private Mahuta mahuta;
+
+    @Before
+    public void setup() {
+        replica = Mockito.mock(PinningService.class);
+        when(replica.unpinAsync(anyString())).thenReturn(CompletableFuture.completedFuture(null));
+
+        storageService = Mockito.mock(StorageService.class);
+        when(storageService.getReplicaSet()).thenReturn(Collections.singleton(replica));
+
+        indexingService = Mockito.mock(IndexingService.class);
+
+        mahuta = new MahutaFactory()
+                .configureStorage(storageService)
+                .configureIndexer(indexingService)
+                .defaultImplementation();
+    }
+
+    @Test
+    public void indexDoesntBlock() throws Exception {
+        CompletableFuture<String> written = new CompletableFuture<>();
+        when(storageService.writeAsync(any(byte[].class), anyBoolean())).thenReturn(written);
+        when(indexingService.indexAsync(eq(INDEX_NAME), eq("doc"), eq("cid"), any(), any(), anyBoolean(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture("doc"));
+
+        CompletableFuture<IndexingResponse> response = mahuta.prepareStringIndexing(INDEX_NAME, "hello").indexDocId("doc").executeAsync();
+
+        // Nothing is indexed until the content is written
+        assertFalse(response.isDone());
+        verify(indexingService, never()).indexAsync(any(), any(), any(), any(), any(), anyBoolean(), any(), any());
+
+        written.complete("cid");
+
+        assertTrue(response.isDone());
+        assertEquals("cid", response.get().getContentId());
+        assertEquals("doc", response.get().getIndexDocId());
+        verify(storageService, never()).write(any(byte[].class), anyBoolean());
+        verify(indexingService, never()).index(any(), any(), any(), any(), any(), anyBoolean(), any(), any());
+    }
+
+    @Test
+    public void indexFailure() throws Exception {
+        when(storageService.writeAsync(any(byte[].class), anyBoolean())).thenReturn(CompletableFuture.completedFuture("cid"));
+        CompletableFuture<String> indexed = new CompletableFuture<>();
+        indexed.completeExceptionally(new NoIndexException(INDEX_NAME));
+        when(indexingService.indexAsync(any(), any(), any(), any(), any(), anyBoolean(), any(), any())).thenReturn(indexed);
+
+        CompletableFuture<IndexingResponse> response = mahuta.prepareStringIndexing(INDEX_NAME, "hello").executeAsync();
+
+        try {
+            response.get();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof NoIndexException);
+            return;
+        }
+        throw new AssertionError("indexing should have failed");
+    }
+
+    @Test
+    public void getWithPayload() throws Exception {
+        when(indexingService.getDocumentAsync(INDEX_NAME, "doc")).thenReturn(CompletableFuture.completedFuture(
+                Metadata.of(INDEX_NAME, "doc", "cid", null, null, true, null)));
+        when(storageService.readAsync("cid")).thenReturn(CompletableFuture.completedFuture(BytesUtils.convertToOutputStream("hello".getBytes())));
+
+        GetResponse response = mahuta.prepareGet().indexName(INDEX_NAME).indexDocId("doc").loadFile(true).executeAsync().get();
+
+        assertEquals("cid", response.getMetadata().getContentId());
+        assertArrayEquals("hello".getBytes(), ((ByteArrayOutputStream) response.getPayload()).toByteArray());
+        verify(storageService, never()).read(anyString());
+        verify(indexingService, never()).getDocument(anyString(), anyString());
+    }
+
+    @Test
+    public void searchKeepsTheOrderOfThePayloads() throws Exception {
+        List<Metadata> documents = IntStream.range(0, 5)
+                .mapToObj(i -> Metadata.of(INDEX_NAME, "doc" + i, "cid" + i, null, null, true, null))
+                .collect(Collectors.toList());
+        when(indexingService.searchDocumentsAsync(eq(INDEX_NAME), any(Query.class), any(PageRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(Page.of(PageRequest.of(0, 5), documents, 5)));
+        Map<String, CompletableFuture<OutputStream>> reads = new HashMap<>();
+        documents.forEach(m -> reads.put(m.getContentId(), new CompletableFuture<>()));
+        when(storageService.readAsync(anyString())).thenAnswer(i -> reads.get(i.getArgument(0)));
+
+        CompletableFuture<SearchResponse> response = mahuta.prepareSearch().indexName(INDEX_NAME).loadFile(true)
+                .pageRequest(PageRequest.of(0, 5)).executeAsync();
+
+        // Payloads read concurrently, received in any order
+        assertFalse(response.isDone());
+        for (int i = 4; i >= 0; i--) {
+            reads.get("cid" + i).complete(BytesUtils.convertToOutputStream(("content" + i).getBytes()));
+        }
+
+        List<MetadataAndPayload> elements = response.get().getPage().getElements();
+        assertEquals(5, elements.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("doc" + i, elements.get(i).getMetadata().getIndexDocId());
+            assertEquals("content" + i, elements.get(i).getPayload().toString());
+        }
+    }
+
+    @Test
+    public void deindexUnpinsWithoutBlocking() throws Exception {
+        when(indexingService.getDocumentAsync(INDEX_NAME, "doc")).thenReturn(CompletableFuture.completedFuture(
+                Metadata.of(INDEX_NAME, "doc", "cid", null, null, true, null)));
+        when(indexingService.deindexAsync(eq(INDEX_NAME), eq("doc"), any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        mahuta.prepareDeindexing(INDEX_NAME, "doc").executeAsync().get();
+
+        verify(replica).unpinAsync("cid");
+        verify(replica, never()).unpin(anyString());
+        verify(indexingService, never()).deindex(anyString(), anyString(), any());
+    }
+}
@@ -0,0 +1,237 @@
+package net.consensys.mahuta.core.test.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
+import net.consensys.mahuta.core.domain.common.pagination.Page;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.domain.deindexing.DeindexingRequest;
+import net.consensys.mahuta.core.exception.NotFoundException;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.service.AsynchonousPinningMahutaService;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.pinning.PinningService;
+import net.consensys.mahuta.core.service.pinning.journal.PinJournal;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class AsynchonousPinningTest extends TestUtils {
+
+    private static final String INDEX_NAME = "index";
+    private static final long TIMEOUT = 5000;
+    
+    private StorageService storageService;
+    private IndexingService indexingService;
+    private PinningService replica1;
+    private PinningService replica2;
+    
+    @Before
+    public void setup() {
+        replica1 = Mockito.mock(PinningService.class);
+        replica2 = Mockito.mock(PinningService.class);
+        storageService = Mockito.mock(StorageService.class);
+        when(storageService.getReplicaSet()).thenReturn(new HashSet<>(Arrays.asList(replica1, replica2)));
+        
+        indexingService = Mockito.mock(IndexingService.class);
+        when(indexingService.getIndexes()).thenReturn(Arrays.asList(INDEX_NAME));
+    }
+
+    @Test
+    public void pinPendingDocumentsWithCursor() {
+        List<Metadata> page1 = documents(0, 3);
+        List<Metadata> page2 = documents(3, 4);
+        when(indexingService.searchDocuments(eq(INDEX_NAME), any(Query.class), 
+                argThat(p -> p != null && p.isFirstCursor())))
+            .thenReturn(Page.of(PageRequest.ofCursor(3), page1, 4, "next"));
+        when(indexingService.searchDocuments(eq(INDEX_NAME), any(Query.class), 
+                argThat(p -> p != null && "next".equals(p.getCursor()))))
+            .thenReturn(Page.of(PageRequest.ofCursor("next", 3, null, null), page2, 4, null));
+        
+        new AsynchonousPinningMahutaService(storageService, indexingService, Long.MAX_VALUE, 2, 3);
+        
+        verify(indexingService, timeout(TIMEOUT)).bulkUpdateField(INDEX_NAME, Arrays.asList("doc0", "doc1", "doc2"), 
+                IndexingService.PINNED_KEY, true, RefreshPolicy.NONE);
+        verify(indexingService, timeout(TIMEOUT)).bulkUpdateField(INDEX_NAME, Arrays.asList("doc3"), 
+                IndexingService.PINNED_KEY, true, RefreshPolicy.WAIT_UNTIL);
+        IntStream.range(0, 4).forEach(i -> {
+            verify(replica1).pin(eq("cid" + i), anyString(), any());
+            verify(replica2).pin(eq("cid" + i), anyString(), any());
+        });
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void documentFailingOnOneReplicaIsNotFlagged() {
+        when(indexingService.searchDocuments(eq(INDEX_NAME), any(Query.class), any(PageRequest.class)))
+            .thenReturn(Page.of(PageRequest.ofCursor(10), documents(0, 3), 3, null));
+        doThrow(new RuntimeException("node down")).when(replica2).pin(eq("cid1"), anyString(), any());
+        
+        new AsynchonousPinningMahutaService(storageService, indexingService, Long.MAX_VALUE, 4, 10);
+        
+        ArgumentCaptor<Collection<String>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(indexingService, timeout(TIMEOUT)).bulkUpdateField(eq(INDEX_NAME), captor.capture(), 
+                eq(IndexingService.PINNED_KEY), eq(true), eq(RefreshPolicy.WAIT_UNTIL));
+        assertEquals(Arrays.asList("doc0", "doc2"), captor.getValue());
+    }
+    
+    @Test
+    public void pinJournalWithBackoff() throws Exception {
+        when(replica1.getName()).thenReturn("node1");
+        when(replica2.getName()).thenReturn("node2");
+        when(indexingService.searchDocuments(eq(INDEX_NAME), any(Query.class), any(PageRequest.class)))
+            .thenReturn(Page.of(PageRequest.ofCursor(10), documents(2, 3), 1, null));
+        doThrow(new RuntimeException("node down")).doNothing().when(replica2).pin(eq("cid1"), anyString(), any());
+        
+        Path directory = Files.createTempDirectory("mahuta-journal-test");
+        try (PinJournal journal = PinJournal.open(directory.toString()).configureBackoff(Duration.ZERO, Duration.ZERO)) {
+            journal.add(INDEX_NAME, "doc0", "cid0", null);
+            journal.add(INDEX_NAME, "doc1", "cid1", null);
+            
+            AsynchonousPinningMahutaService service = new AsynchonousPinningMahutaService(storageService, indexingService, Long.MAX_VALUE, 4, 10, journal);
+            
+            // First run: doc2 recovered from the indexer, doc1 failed on node2
+            verify(indexingService, timeout(TIMEOUT)).bulkUpdateField(INDEX_NAME, Arrays.asList("doc0", "doc2"), 
+                    IndexingService.PINNED_KEY, true, RefreshPolicy.NONE);
+            waitForJournalSize(journal, 1);
+            
+            // Second run: doc1 retried on node2 only
+            Thread.sleep(10);
+            service.run();
+            verify(indexingService).bulkUpdateField(INDEX_NAME, Arrays.asList("doc1"), 
+                    IndexingService.PINNED_KEY, true, RefreshPolicy.NONE);
+            verify(replica1, times(1)).pin(eq("cid1"), anyString(), any());
+            verify(replica2, times(2)).pin(eq("cid1"), anyString(), any());
+            verify(indexingService, times(1)).searchDocuments(eq(INDEX_NAME), any(Query.class), any(PageRequest.class));
+            assertEquals(0, journal.size());
+            
+        } finally {
+            FileUtils.deleteDirectory(directory.toFile());
+        }
+    }
+    
+    @Test
+    public void deindexedDocumentIsRemovedFromJournal() throws Exception {
+        when(replica1.getName()).thenReturn("node1");
+        when(replica2.getName()).thenReturn("node2");
+        when(indexingService.searchDocuments(eq(INDEX_NAME), any(Query.class), any(PageRequest.class)))
+            .thenReturn(Page.of(PageRequest.ofCursor(10), Collections.emptyList(), 0, null));
+        doThrow(new TechnicalException("document missing")).when(indexingService)
+            .bulkUpdateField(eq(INDEX_NAME), any(), eq(IndexingService.PINNED_KEY), eq(true), eq(RefreshPolicy.NONE));
+        doThrow(new TechnicalException("document missing")).when(indexingService)
+            .updateField(INDEX_NAME, "doc1", IndexingService.PINNED_KEY, true, RefreshPolicy.NONE);
+        when(indexingService.getDocument(INDEX_NAME, "doc1")).thenThrow(new NotFoundException("doc1 not found"));
+        
+        Path directory = Files.createTempDirectory("mahuta-journal-test");
+        try (PinJournal journal = PinJournal.open(directory.toString())) {
+            journal.add(INDEX_NAME, "doc0", "cid0", null);
+            journal.add(INDEX_NAME, "doc1", "cid1", null);
+            
+            new AsynchonousPinningMahutaService(storageService, indexingService, Long.MAX_VALUE, 4, 10, journal);
+            
+            // doc0 is flagged on its own, the task of doc1 (deindexed) is removed
+            waitForJournalSize(journal, 0);
+            verify(indexingService).updateField(INDEX_NAME, "doc0", IndexingService.PINNED_KEY, true, RefreshPolicy.NONE);
+            
+        } finally {
+            FileUtils.deleteDirectory(directory.toFile());
+        }
+    }
+    
+    @Test
+    public void deindexRemovesPendingPin() throws Exception {
+        when(indexingService.searchDocuments(eq(INDEX_NAME), any(Query.class), any(PageRequest.class)))
+            .thenReturn(Page.of(PageRequest.ofCursor(10), Collections.emptyList(), 0, null));
+        when(indexingService.getDocument(INDEX_NAME, "doc0")).thenReturn(documents(0, 1).get(0));
+        
+        Path directory = Files.createTempDirectory("mahuta-journal-test");
+        try (PinJournal journal = PinJournal.open(directory.toString())) {
+            journal.add(INDEX_NAME, "doc0", "cid0", null);
+            AsynchonousPinningMahutaService service = new AsynchonousPinningMahutaService(storageService, indexingService, Long.MAX_VALUE, 4, 10, journal) {
+                @Override
+                public synchronized void run() { } // no scheduled run
+            };
+            
+            DeindexingRequest request = new DeindexingRequest();
+            request.setIndexName(INDEX_NAME);
+            request.setIndexDocId("doc0");
+            service.deindex(request);
+            
+            assertEquals(0, journal.size());
+            verify(replica1).unpin("cid0");
+            
+        } finally {
+            FileUtils.deleteDirectory(directory.toFile());
+        }
+    }
+    
+    @Test
+    public void closeDrainsTheRunInProgress() throws Exception {
+        when(indexingService.searchDocuments(eq(INDEX_NAME), any(Query.class), any(PageRequest.class)))
+            .thenReturn(Page.of(PageRequest.ofCursor(10), Collections.emptyList(), 0, null));
+        doAnswer(i -> {
+            Thread.sleep(200);
+            return null;
+        }).when(replica1).pin(eq("cid0"), anyString(), any());
+        
+        Path directory = Files.createTempDirectory("mahuta-journal-test");
+        try {
+            PinJournal journal = PinJournal.open(directory.toString());
+            journal.add(INDEX_NAME, "doc0", "cid0", null);
+            AsynchonousPinningMahutaService service = new AsynchonousPinningMahutaService(storageService, indexingService, Long.MAX_VALUE, 4, 10, journal);
+            verify(replica1, timeout(TIMEOUT)).pin(eq("cid0"), anyString(), any());
+            
+            service.close();
+            
+            // The slow pin was completed and recorded before the journal was closed
+            try (PinJournal reopened = PinJournal.open(directory.toString())) {
+                assertEquals(0, reopened.size());
+            }
+            
+        } finally {
+            FileUtils.deleteDirectory(directory.toFile());
+        }
+    }
+    
+    private static void waitForJournalSize(PinJournal journal, int size) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (journal.size() != size && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(size, journal.size());
+    }
+    
+    private static List<Metadata> documents(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> Metadata.of(INDEX_NAME, "doc" + i, "cid" + i, "text/plain", null, false, null))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,123 @@
+package net.consensys.mahuta.core.test.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.Mahuta;
+import net.consensys.mahuta.core.MahutaFactory;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingItem;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingResponse;
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
+import net.consensys.mahuta.core.domain.indexing.IndexingResponse;
+import net.consensys.mahuta.core.domain.indexing.StringIndexingRequest;
+import net.consensys.mahuta.core.exception.ValidationException;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class BulkIndexingTest extends TestUtils {
+
+    private static final String INDEX_NAME = "index";
+    
+    private StorageService storageService;
+    private IndexingService indexingService;
+    private Mahuta mahuta;
+    
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        storageService = Mockito.mock(StorageService.class);
+        when(storageService.write(any(byte[].class), anyBoolean())).thenAnswer(i -> "cid-" + new String((byte[]) i.getArgument(0)));
+        
+        indexingService = Mockito.mock(IndexingService.class);
+        when(indexingService.bulkIndex(anyList(), any())).thenAnswer(i -> ((List<Metadata>) i.getArgument(0)).stream()
+                .map(d -> BulkIndexingItem.success(IndexingResponse.of(d.getIndexName(), "doc-" + d.getContentId(), 
+                        d.getContentId(), d.getContentType(), d.isPinned(), d.getIndexFields())))
+                .collect(Collectors.toList()));
+        
+        mahuta = new MahutaFactory()
+                .configureStorage(storageService)
+                .configureIndexer(indexingService)
+                .defaultImplementation();
+    }
+
+    @Test
+    public void bulkIndexInBatches() {
+        int count = mockNeat.ints().range(10, 50).get();
+        
+        BulkIndexingResponse response = mahuta.prepareBulkIndexing()
+                .requests(requests(count))
+                .concurrency(3)
+                .batchSize(4)
+                .refreshPolicy(RefreshPolicy.NONE)
+                .execute();
+        
+        assertFalse(response.hasFailures());
+        assertEquals(count, response.getItems().size());
+        for (int i = 0; i < count; i++) {
+            assertEquals("cid-" + i, response.getItems().get(i).getResponse().getContentId());
+            assertEquals("doc-cid-" + i, response.getItems().get(i).getResponse().getIndexDocId());
+        }
+        verify(indexingService, times((count + 3) / 4)).bulkIndex(anyList(), eq(RefreshPolicy.NONE));
+        verify(indexingService, times(0)).index(any(), any(), any(), any(), any(), anyBoolean(), any(), any());
+    }
+
+    @Test
+    public void storageFailureIsReportedPerItem() {
+        when(storageService.write(eq("2".getBytes()), anyBoolean())).thenThrow(new RuntimeException("IPFS down"));
+        
+        BulkIndexingResponse response = mahuta.prepareBulkIndexing()
+                .requests(requests(5))
+                .execute();
+        
+        assertTrue(response.hasFailures());
+        assertEquals(5, response.getItems().size());
+        assertFalse(response.getItems().get(2).isSuccess());
+        assertEquals("IPFS down", response.getItems().get(2).getError());
+        assertTrue(response.getItems().get(3).isSuccess());
+        assertEquals("cid-3", response.getItems().get(3).getResponse().getContentId());
+    }
+
+    @Test
+    public void indexerFailureIsReportedPerItem() {
+        when(indexingService.bulkIndex(anyList(), any())).thenThrow(new RuntimeException("ElasticSearch down"));
+        
+        BulkIndexingResponse response = mahuta.prepareBulkIndexing()
+                .requests(requests(3))
+                .execute();
+        
+        assertEquals(3, response.getItems().size());
+        response.getItems().forEach(item -> assertEquals("ElasticSearch down", item.getError()));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void invalidBatchSize() {
+        mahuta.prepareBulkIndexing().requests(requests(1)).batchSize(0).execute();
+    }
+
+    private static List<StringIndexingRequest> requests(int count) {
+        return IntStream.range(0, count).mapToObj(i -> {
+            StringIndexingRequest request = new StringIndexingRequest();
+            request.setIndexName(INDEX_NAME);
+            request.setContent(String.valueOf(i));
+            return request;
+        }).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,112 @@
+package net.consensys.mahuta.core.test.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.Mahuta;
+import net.consensys.mahuta.core.MahutaFactory;
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.get.GetResponse;
+import net.consensys.mahuta.core.exception.RangeNotSatisfiableException;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class RangeRequestTest extends TestUtils {
+
+    private static final String CID = "QmUXTtySmd7LD4p6RG6rZW6RuUuPZXTtNMmRQ6DSQo3aMw";
+    private static final long SIZE = 100;
+    
+    private StorageService storageService;
+    private Mahuta mahuta;
+    
+    @Before
+    public void setup() {
+        storageService = Mockito.mock(StorageService.class);
+        when(storageService.getSize(CID)).thenReturn(SIZE);
+        when(storageService.readStream(eq(CID), anyLong(), anyLong())).thenReturn(new ByteArrayInputStream(new byte[0]));
+        
+        mahuta = new MahutaFactory()
+                .configureStorage(storageService)
+                .configureIndexer(Mockito.mock(IndexingService.class))
+                .defaultImplementation();
+    }
+
+    @Test
+    public void fullContent() {
+        when(storageService.readStream(CID)).thenReturn(new ByteArrayInputStream(new byte[0]));
+        
+        GetResponse response = mahuta.prepareGet().contentId(CID).streamFile(true).execute();
+        
+        assertFalse(response.isPartial());
+        verify(storageService).readStream(CID);
+    }
+
+    @Test
+    public void boundedRange() {
+        GetResponse response = mahuta.prepareGet().contentId(CID).streamFile(true).range(10L, 19L).execute();
+        
+        assertTrue(response.isPartial());
+        assertEquals(Long.valueOf(10), response.getRangeStart());
+        assertEquals(Long.valueOf(19), response.getRangeEnd());
+        assertEquals(Long.valueOf(SIZE), response.getPayloadLength());
+        verify(storageService).readStream(CID, 10, 10);
+    }
+
+    @Test
+    public void openEndedRange() {
+        GetResponse response = mahuta.prepareGet().contentId(CID).streamFile(true).range(90L, null).execute();
+        
+        assertEquals(Long.valueOf(99), response.getRangeEnd());
+        verify(storageService).readStream(CID, 90, 10);
+    }
+
+    @Test
+    public void suffixRange() {
+        GetResponse response = mahuta.prepareGet().contentId(CID).streamFile(true).range(null, 30L).execute();
+        
+        assertEquals(Long.valueOf(70), response.getRangeStart());
+        assertEquals(Long.valueOf(99), response.getRangeEnd());
+        verify(storageService).readStream(CID, 70, 30);
+    }
+
+    @Test
+    public void rangeEndBeyondContent() {
+        GetResponse response = mahuta.prepareGet().contentId(CID).streamFile(true).range(50L, 500L).execute();
+        
+        assertEquals(Long.valueOf(99), response.getRangeEnd());
+        verify(storageService).readStream(CID, 50, 50);
+    }
+
+    @Test(expected = RangeNotSatisfiableException.class)
+    public void rangeNotSatisfiable() {
+        mahuta.prepareGet().contentId(CID).streamFile(true).range(100L, null).execute();
+    }
+
+    @Test
+    public void rangeOnIndexedContent() throws Exception {
+        IndexingService indexingService = Mockito.mock(IndexingService.class);
+        byte[] content = "0123456789".getBytes();
+        when(indexingService.getDocument("index", "doc")).thenReturn(
+                Metadata.of("index", "doc", CID, "text/plain", content, true, null));
+        Mahuta mahuta = new MahutaFactory().configureStorage(storageService).configureIndexer(indexingService).defaultImplementation();
+        
+        GetResponse response = mahuta.prepareGet().indexName("index").indexDocId("doc").streamFile(true).range(2L, 4L).execute();
+        
+        assertArrayEquals("234".getBytes(), IOUtils.toByteArray(response.getPayloadStream()));
+        assertEquals(Long.valueOf(10), response.getPayloadLength());
+    }
+}
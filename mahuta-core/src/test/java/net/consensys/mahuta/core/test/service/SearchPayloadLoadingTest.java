@@ -0,0 +1,195 @@
+package net.consensys.mahuta.core.test.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.Mahuta;
+import net.consensys.mahuta.core.MahutaFactory;
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.MetadataAndPayload;
+import net.consensys.mahuta.core.domain.common.pagination.Page;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.domain.search.SearchResponse;
+import net.consensys.mahuta.core.exception.TimeoutException;
+import net.consensys.mahuta.core.exception.ValidationException;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+import net.consensys.mahuta.core.utils.BytesUtils;
+
+public class SearchPayloadLoadingTest extends TestUtils {
+
+    private static final String INDEX_NAME = "index";
+
+    private StorageService storageService;
+    private IndexingService indexingService;
+    private Mahuta mahuta;
+
+    @Before
+    public void setup() {
+        storageService = Mockito.mock(StorageService.class);
+        indexingService = Mockito.mock(IndexingService.class);
+
+        mahuta = new MahutaFactory()
+                .configureStorage(storageService)
+                .configureIndexer(indexingService)
+                .defaultImplementation();
+    }
+
+    @Test
+    public void boundedConcurrencyKeepsTheOrder() {
+        // doc0..doc5 -> cid0..cid5, read asynchronously and completed out of order
+        List<Metadata> documents = documents(6);
+        List<CompletableFuture<OutputStream>> reads = Collections.synchronizedList(new ArrayList<>());
+        when(storageService.readAsync(anyString())).thenAnswer(i -> {
+            CompletableFuture<OutputStream> read = new CompletableFuture<>();
+            reads.add(read);
+            return read;
+        });
+
+        search(documents);
+
+        CompletableFuture<SearchResponse> response = mahuta.prepareSearch().indexName(INDEX_NAME).loadFile(true)
+                .loadFileConcurrency(2).executeAsync();
+
+        // Only two reads in flight, the next one starts when one completes
+        assertEquals(2, reads.size());
+        reads.get(1).complete(BytesUtils.convertToOutputStream("content1".getBytes()));
+        assertEquals(3, reads.size());
+        reads.get(2).complete(BytesUtils.convertToOutputStream("content2".getBytes()));
+        reads.get(0).complete(BytesUtils.convertToOutputStream("content0".getBytes()));
+        assertEquals(5, reads.size());
+        reads.get(4).complete(BytesUtils.convertToOutputStream("content4".getBytes()));
+        reads.get(5).complete(BytesUtils.convertToOutputStream("content5".getBytes()));
+        assertFalse(response.isDone());
+        reads.get(3).complete(BytesUtils.convertToOutputStream("content3".getBytes()));
+
+        List<MetadataAndPayload> elements = response.join().getPage().getElements();
+        assertEquals(6, elements.size());
+        for (int i = 0; i < 6; i++) {
+            assertEquals("doc" + i, elements.get(i).getMetadata().getIndexDocId());
+            assertEquals("content" + i, elements.get(i).getPayload().toString());
+        }
+        verify(storageService, never()).read(anyString());
+    }
+
+    @Test
+    public void sharedContentsAreReadOnce() {
+        List<Metadata> documents = new ArrayList<>();
+        documents.add(Metadata.of(INDEX_NAME, "doc0", "cidA", null, null, true, null));
+        documents.add(Metadata.of(INDEX_NAME, "doc1", "cidB", null, "indexed".getBytes(), true, null));
+        documents.add(Metadata.of(INDEX_NAME, "doc2", "cidA", null, null, true, null));
+        search(documents);
+        when(storageService.readAsync("cidA")).thenAnswer(i -> CompletableFuture.completedFuture(BytesUtils.convertToOutputStream("A".getBytes())));
+
+        List<MetadataAndPayload> elements = mahuta.prepareSearch().indexName(INDEX_NAME).loadFile(true).execute()
+                .getPage().getElements();
+
+        assertEquals("A", elements.get(0).getPayload().toString());
+        assertEquals("indexed", elements.get(1).getPayload().toString());
+        assertEquals("A", elements.get(2).getPayload().toString());
+        assertNotSame(elements.get(0).getPayload(), elements.get(2).getPayload());
+        verify(storageService, times(1)).readAsync("cidA");
+        verify(storageService, never()).readAsync("cidB");
+    }
+
+    @Test
+    public void largePageOfCachedContents() {
+        // Reads completed on the calling thread
+        search(documents(5000));
+        when(storageService.readAsync(anyString())).thenAnswer(i -> CompletableFuture.completedFuture(
+                BytesUtils.convertToOutputStream(((String) i.getArgument(0)).getBytes())));
+
+        List<MetadataAndPayload> elements = mahuta.prepareSearch().indexName(INDEX_NAME).loadFile(true).execute()
+                .getPage().getElements();
+
+        assertEquals(5000, elements.size());
+        assertEquals("cid4999", elements.get(4999).getPayload().toString());
+    }
+
+    @Test
+    public void deadline() {
+        search(documents(3));
+        CompletableFuture<OutputStream> slow = new CompletableFuture<>();
+        when(storageService.readAsync(anyString())).thenReturn(slow);
+
+        try {
+            mahuta.prepareSearch().indexName(INDEX_NAME).loadFile(true).loadFileConcurrency(1).loadFileTimeout(100).execute();
+        } catch (TimeoutException ex) {
+            // The read in flight is cancelled and the others never start
+            assertTrue(slow.isCancelled());
+            verify(storageService, times(1)).readAsync(anyString());
+            return;
+        }
+        throw new AssertionError("search should have timed out");
+    }
+
+    @Test
+    public void readFailure() {
+        search(documents(3));
+        CompletableFuture<OutputStream> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("node down"));
+        CompletableFuture<OutputStream> inFlight = new CompletableFuture<>();
+        when(storageService.readAsync("cid0")).thenReturn(inFlight);
+        when(storageService.readAsync("cid1")).thenReturn(failed);
+
+        CompletableFuture<SearchResponse> response = mahuta.prepareSearch().indexName(INDEX_NAME).loadFile(true)
+                .loadFileConcurrency(2).executeAsync();
+
+        // Fails without waiting for the other reads
+        assertTrue(response.isCompletedExceptionally());
+        assertTrue(inFlight.isCancelled());
+        verify(storageService, never()).readAsync("cid2");
+    }
+
+    @Test(expected = ValidationException.class)
+    public void invalidConcurrency() {
+        mahuta.prepareSearch().indexName(INDEX_NAME).loadFile(true).loadFileConcurrency(0).execute();
+    }
+
+    @Test
+    public void noLoadFile() {
+        search(documents(3));
+
+        List<MetadataAndPayload> elements = mahuta.prepareSearch().indexName(INDEX_NAME).execute().getPage().getElements();
+
+        assertEquals(3, elements.size());
+        assertFalse(elements.stream().anyMatch(e -> e.getPayload() != null));
+        verify(storageService, never()).readAsync(anyString());
+    }
+
+    private static List<Metadata> documents(int n) {
+        return IntStream.range(0, n)
+                .mapToObj(i -> Metadata.of(INDEX_NAME, "doc" + i, "cid" + i, null, null, true, null))
+                .collect(Collectors.toList());
+    }
+
+    private void search(List<Metadata> documents) {
+        Page<Metadata> page = Page.of(PageRequest.of(), documents, documents.size());
+        when(indexingService.searchDocuments(eq(INDEX_NAME), any(Query.class), any(PageRequest.class))).thenReturn(page);
+        when(indexingService.searchDocumentsAsync(eq(INDEX_NAME), any(Query.class), any(PageRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(page));
+    }
+}
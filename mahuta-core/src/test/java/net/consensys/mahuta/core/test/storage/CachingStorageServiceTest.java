@@ -0,0 +1,127 @@
+package net.consensys.mahuta.core.test.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.service.storage.cache.CachingStorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class CachingStorageServiceTest extends TestUtils {
+
+    private static final String CID1 = "QmUXTtySmd7LD4p6RG6rZW6RuUuPZXTtNMmRQ6DSQo3aMw";
+    private static final String CID2 = "QmNRCQWfgze6AbBCaT1rkrkV5tJ2aP4oTNPb5JZcXYywve";
+    private static final String CID3 = "QmYwAPJzv5CZsnA625s3Xf2nemtYgPpHdWEz79ojWnPbdG";
+    
+    private StorageService storage;
+    private Path directory;
+    
+    @Before
+    public void setup() throws Exception {
+        storage = Mockito.mock(StorageService.class);
+        when(storage.readStream(anyString())).thenAnswer(i -> new ByteArrayInputStream(content(i.getArgument(0))));
+        directory = Files.createTempDirectory("mahuta-cache-test");
+    }
+    
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    public void readTwice() throws Exception {
+        CachingStorageService cache = CachingStorageService.of(storage, directory.toString(), 1000);
+        
+        assertArrayEquals(content(CID1), ((ByteArrayOutputStream) cache.read(CID1)).toByteArray());
+        assertArrayEquals(content(CID1), ((ByteArrayOutputStream) cache.read(CID1)).toByteArray());
+        
+        verify(storage, times(1)).readStream(CID1);
+        assertEquals(1, cache.count());
+        assertEquals(content(CID1).length, cache.getSize(CID1));
+        assertEquals(content(CID1).length, cache.getSize());
+    }
+
+    @Test
+    public void readRange() throws Exception {
+        CachingStorageService cache = CachingStorageService.of(storage, directory.toString(), 1000);
+        cache.read(CID1);
+        
+        try (InputStream is = cache.readStream(CID1, 4, 3)) {
+            assertArrayEquals("-Qm".getBytes(), IOUtils.toByteArray(is));
+        }
+        verify(storage, times(0)).readStream(anyString(), Mockito.anyLong(), Mockito.anyLong());
+    }
+
+    @Test
+    public void partialReadIsNotCached() throws Exception {
+        CachingStorageService cache = CachingStorageService.of(storage, directory.toString(), 1000);
+        
+        try (InputStream is = cache.readStream(CID1)) {
+            is.read();
+        }
+        
+        assertEquals(0, cache.count());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void evictLeastRecentlyUsed() throws Exception {
+        long entrySize = content(CID1).length;
+        CachingStorageService cache = CachingStorageService.of(storage, directory.toString(), entrySize * 2);
+        
+        cache.read(CID1);
+        cache.read(CID2);
+        cache.read(CID1);
+        cache.read(CID3); // evicts CID2
+        cache.read(CID1);
+        cache.read(CID2);
+        
+        verify(storage, times(1)).readStream(CID1);
+        verify(storage, times(2)).readStream(CID2);
+        verify(storage, times(1)).readStream(CID3);
+        assertEquals(2, cache.count());
+        assertEquals(entrySize * 2, cache.getSize());
+    }
+
+    @Test
+    public void contentLargerThanMaxSizeIsNotCached() throws Exception {
+        CachingStorageService cache = CachingStorageService.of(storage, directory.toString(), 10);
+        
+        assertArrayEquals(content(CID1), ((ByteArrayOutputStream) cache.read(CID1)).toByteArray());
+        
+        assertEquals(0, cache.count());
+    }
+
+    @Test
+    public void reloadAfterRestart() throws Exception {
+        CachingStorageService.of(storage, directory.toString(), 1000).read(CID1);
+        Files.createFile(directory.resolve("Mw").resolve(CID2 + ".tmp"));
+        
+        CachingStorageService cache = CachingStorageService.of(storage, directory.toString(), 1000);
+        
+        assertEquals(1, cache.count());
+        assertArrayEquals(content(CID1), ((ByteArrayOutputStream) cache.read(CID1)).toByteArray());
+        verify(storage, times(1)).readStream(CID1);
+    }
+
+    private static byte[] content(String cid) {
+        return ("data-" + cid).getBytes();
+    }
+}
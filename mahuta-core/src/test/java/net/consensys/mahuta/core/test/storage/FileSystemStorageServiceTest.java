@@ -0,0 +1,249 @@
+package net.consensys.mahuta.core.test.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import net.consensys.mahuta.core.Mahuta;
+import net.consensys.mahuta.core.MahutaFactory;
+import net.consensys.mahuta.core.domain.get.GetResponse;
+import net.consensys.mahuta.core.domain.indexing.IndexingResponse;
+import net.consensys.mahuta.core.exception.NotFoundException;
+import net.consensys.mahuta.core.exception.ValidationException;
+import net.consensys.mahuta.core.service.indexing.memory.InMemoryIndexingService;
+import net.consensys.mahuta.core.service.storage.fs.FileSystemStorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class FileSystemStorageServiceTest extends TestUtils {
+
+    // CIDs given by `ipfs add` (go-ipfs, default options)
+    private static final String EMPTY_CID = "QmbFMke1KXqnYyBBWxB74N4c5SBnJMVAiMNRcGu6x1AwQH";
+    private static final String HELLO_WORLD_CID = "Qmf412jQZiuVUtdgnB36FXFX7xg5V6KEbSJ4dpQuhkLyfD";
+    private static final String HELLO_WORLD_NEWLINE_CID = "QmT78zSuBmuS4z925WZfrqQ1qHaJ56DQaTfyMUF7F8ff5o";
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_LINKS = 174;
+    // CIDs of the contents generated by PatternInputStream, laid out as `ipfs add` does (balanced DAG, checked
+    // against an IPFS node by IPFSStorageServiceTest.fileSystemStorageCompatibility)
+    public static final Map<Long, String> PATTERN_CIDS = ImmutableMap.of(
+            (long) CHUNK_SIZE, "QmeqfRyS3vkku7n6krqC3DgGMex3x2sCpSeKMDmrG13QQq", // 1 leaf
+            CHUNK_SIZE + 1L, "QmUSjGawaz4ptvREcMKSMJneWCa5j8dAz2wSAAvHtW2rnB", // 2 leaves
+            4L * CHUNK_SIZE, "QmXgkY4miMKJBrg8YYke4xw6C2n8WNsUc1GXLhN84k4QM3", // 4 leaves
+            (MAX_LINKS + 1L) * CHUNK_SIZE, "Qmbp67kThKoJFnWu7pUgwCu81WttemMnD13oG4uj9DiY5E"); // 2 levels (174 + 1 leaves)
+
+    private Path directory;
+    private FileSystemStorageService storage;
+
+    @Before
+    public void setup() throws Exception {
+        directory = Files.createTempDirectory("mahuta-fs-test");
+        storage = FileSystemStorageService.of(directory.toString());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(directory.toFile());
+    }
+
+    @Test
+    public void ipfsCompatibleCIDs() {
+        assertEquals(EMPTY_CID, storage.write(new byte[0], false));
+        assertEquals(HELLO_WORLD_CID, storage.write("hello world".getBytes(), false));
+        assertEquals(HELLO_WORLD_NEWLINE_CID, storage.write(new ByteArrayInputStream("hello world\n".getBytes()), false));
+    }
+
+    @Test
+    public void writeAndRead() {
+        String id = storage.write("hello world".getBytes(), false);
+
+        assertArrayEquals("hello world".getBytes(), ((ByteArrayOutputStream) storage.read(id)).toByteArray());
+        assertEquals(11, storage.getSize(id));
+        assertTrue(Files.isRegularFile(directory.resolve("fD").resolve(HELLO_WORLD_CID)));
+    }
+
+    @Test
+    public void writeAndReadMultipleChunks() {
+        byte[] content = random(CHUNK_SIZE * 3 + 123);
+
+        String id = storage.write(new ByteArrayInputStream(content), false);
+
+        assertTrue(id.startsWith("Qm"));
+        assertEquals(46, id.length());
+        assertArrayEquals(content, ((ByteArrayOutputStream) storage.read(id)).toByteArray());
+        assertEquals(content.length, storage.getSize(id));
+        // The CID doesn't depend on how the stream is read
+        assertEquals(id, storage.write(new SlowInputStream(content), false));
+        // Each chunk is hashed, not only the first one
+        content[content.length - 1]++;
+        assertNotEquals(id, storage.write(content, false));
+    }
+
+    @Test
+    public void ipfsCompatibleCIDsOfMultipleChunks() {
+        PATTERN_CIDS.forEach((size, cid) -> assertEquals("size " + size, cid, storage.write(new PatternInputStream(size), true)));
+    }
+
+    @Test
+    public void chunkBoundary() {
+        String oneChunk = storage.write(new byte[CHUNK_SIZE], false);
+        String twoChunks = storage.write(new byte[CHUNK_SIZE + 1], false);
+
+        assertNotEquals(oneChunk, twoChunks);
+        assertEquals(CHUNK_SIZE, storage.getSize(oneChunk));
+        assertEquals(CHUNK_SIZE + 1, storage.getSize(twoChunks));
+    }
+
+    @Test
+    public void readRange() throws Exception {
+        String id = storage.write("hello world".getBytes(), false);
+
+        try (InputStream is = storage.readStream(id, 6, 3)) {
+            assertArrayEquals("wor".getBytes(), IOUtils.toByteArray(is));
+        }
+        try (InputStream is = storage.readStream(id, 6, Long.MAX_VALUE)) {
+            assertArrayEquals("world".getBytes(), IOUtils.toByteArray(is));
+        }
+    }
+
+    @Test
+    public void sameContentIsStoredOnce() throws Exception {
+        assertEquals(storage.write("hello world".getBytes(), false), storage.write("hello world".getBytes(), true));
+
+        assertEquals(Collections.singletonList(HELLO_WORLD_CID), storage.getTracked());
+        try (Stream<Path> files = Files.walk(directory)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count()); // no temporary file left
+        }
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void readNotFound() {
+        storage.readStream(HELLO_WORLD_CID);
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void getSizeNotFound() {
+        storage.getSize(HELLO_WORLD_CID);
+    }
+
+    @Test(expected = ValidationException.class)
+    public void readInvalidId() {
+        storage.readStream("../" + HELLO_WORLD_CID);
+    }
+
+    @Test
+    public void pinAndUnpin() {
+        String id = storage.write("hello world".getBytes(), false);
+        storage.pin(id);
+
+        storage.unpin(id);
+
+        assertTrue(storage.getTracked().isEmpty());
+        assertFalse(Files.exists(directory.resolve("fD").resolve(HELLO_WORLD_CID)));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void pinNotFound() {
+        storage.pin(HELLO_WORLD_CID);
+    }
+
+    @Test
+    public void reloadRemovesTemporaryFiles() throws Exception {
+        String id = storage.write("hello world".getBytes(), false);
+        Files.write(directory.resolve("interrupted.tmp"), "hello".getBytes());
+
+        FileSystemStorageService reloaded = FileSystemStorageService.of(directory.toString());
+
+        assertFalse(Files.exists(directory.resolve("interrupted.tmp")));
+        assertEquals(Collections.singletonList(id), reloaded.getTracked());
+        assertArrayEquals("hello world".getBytes(), ((ByteArrayOutputStream) reloaded.read(id)).toByteArray());
+    }
+
+    @Test
+    public void mahutaPipeline() throws Exception {
+        Mahuta mahuta = new MahutaFactory()
+                .configureStorage(storage)
+                .configureIndexer(InMemoryIndexingService.of().withIndex("article"))
+                .defaultImplementation();
+
+        IndexingResponse indexingResponse = mahuta.prepareStringIndexing("article", "hello world")
+                .indexDocId("doc")
+                .execute();
+        assertEquals(HELLO_WORLD_CID, indexingResponse.getContentId());
+
+        GetResponse getResponse = mahuta.prepareGet().indexName("article").indexDocId("doc").streamFile(true).execute();
+        try (InputStream is = getResponse.getPayloadStream()) {
+            assertArrayEquals("hello world".getBytes(), IOUtils.toByteArray(is));
+        }
+
+        mahuta.prepareDeindexing("article", "doc").execute();
+        assertTrue(storage.getTracked().isEmpty());
+    }
+
+    private static byte[] random(int length) {
+        byte[] content = new byte[length];
+        new Random(42).nextBytes(content);
+        return content;
+    }
+
+    /**
+     * Content of a given size where the byte at position i is i % 251 (so that two chunks are never equal)
+     */
+    public static class PatternInputStream extends InputStream {
+        private final long size;
+        private long position;
+
+        public PatternInputStream(long size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            return position < size ? (int) (position++ % 251) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= size) {
+                return -1;
+            }
+            int n = (int) Math.min(len, size - position);
+            for (int i = 0; i < n; i++) {
+                b[off + i] = (byte) (position++ % 251);
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Return at most 1000 bytes per read
+     */
+    private static class SlowInputStream extends ByteArrayInputStream {
+        SlowInputStream(byte[] content) {
+            super(content);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, 1000));
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package net.consensys.mahuta.core.test.storage;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.containing;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.matching;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.postRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.exception.TimeoutException;
+import net.consensys.mahuta.core.service.storage.ipfs.IPFSService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class IPFSHttpTransportTest extends TestUtils {
+
+    private static final String CID = "QmPZ9gcCEpqKTo6aq61g2nXGUhM4iCL3ewB6LDXZCtioEB";
+    private static final String API = "/api/v0/";
+
+    private WireMockServer ipfs;
+    private IPFSService service;
+
+    @Before
+    public void setup() {
+        ipfs = new WireMockServer(options().dynamicPort());
+        ipfs.stubFor(post(urlPathEqualTo(API + "version")).willReturn(okJson("{\"Version\":\"0.4.20\"}")));
+        ipfs.stubFor(post(urlPathEqualTo(API + "id")).willReturn(okJson("{\"ID\":\"peer\"}")));
+        ipfs.stubFor(post(urlPathEqualTo(API + "add")).willReturn(okJson("{\"Name\":\"\",\"Hash\":\"" + CID + "\",\"Size\":\"11\"}")));
+        ipfs.stubFor(post(urlPathEqualTo(API + "cat")).willReturn(aResponse().withStatus(200).withBody(new byte[100_000])));
+        ipfs.stubFor(post(urlPathEqualTo(API + "files/stat")).willReturn(okJson("{\"Hash\":\"" + CID + "\",\"Size\":100000}")));
+        ipfs.stubFor(post(urlPathEqualTo(API + "pin/add")).willReturn(okJson("{\"Pins\":[\"" + CID + "\"]}")));
+        ipfs.start();
+
+        service = IPFSService.connect("localhost", ipfs.port())
+                .configureRetry(0)
+                .configureConnectionPool(1, Duration.ofSeconds(30));
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+        ipfs.stop();
+    }
+
+    @Test
+    public void callsShareTheConnection() throws Exception {
+        assertEquals(CID, service.write("hello world".getBytes(StandardCharsets.UTF_8), true));
+        service.pin(CID);
+        assertEquals("peer", service.getPeerConfig("ID"));
+        assertEquals(100_000, ((ByteArrayOutputStream) service.read(CID)).size());
+        assertEquals(100_000, service.getSize(CID));
+
+        ipfs.verify(postRequestedFor(urlPathEqualTo(API + "add")).withQueryParam("pin", equalTo("false"))
+                .withRequestBody(containing("hello world")));
+        ipfs.verify(postRequestedFor(urlPathEqualTo(API + "pin/add")).withQueryParam("arg", equalTo(CID)));
+    }
+
+    @Test
+    public void fileIsStreamedAsMultipart() throws Exception {
+        assertEquals(CID, service.write(new ByteArrayInputStream("hello world".getBytes(StandardCharsets.UTF_8)), true));
+
+        ipfs.verify(postRequestedFor(urlPathEqualTo(API + "add"))
+                .withHeader("Transfer-Encoding", equalTo("chunked"))
+                .withHeader("Content-Type", containing("multipart/form-data; boundary="))
+                .withRequestBody(matching("(?s)--.*Content-Disposition: form-data; name=\"file\".*\r\n\r\nhello world\r\n--.*--\r\n")));
+    }
+
+    @Test
+    public void streamIsWrittenOnceWithoutReplay() throws Exception {
+        failFirstAdd();
+        service.configureRetry(1, Duration.ofMillis(10));
+
+        try {
+            service.write(new ByteArrayInputStream("hello world".getBytes(StandardCharsets.UTF_8)), true);
+            fail("The first attempt fails");
+        } catch (TechnicalException ex) {
+            ipfs.verify(1, postRequestedFor(urlPathEqualTo(API + "add")));
+        }
+    }
+
+    @Test
+    public void streamIsReplayedOnRetry() throws Exception {
+        failFirstAdd();
+        service.configureRetry(1, Duration.ofMillis(10)).configureStreamReplay(true);
+
+        assertEquals(CID, service.write(new ByteArrayInputStream("hello world".getBytes(StandardCharsets.UTF_8)), true));
+
+        ipfs.verify(2, postRequestedFor(urlPathEqualTo(API + "add")).withRequestBody(containing("hello world")));
+    }
+
+    @Test
+    public void partialReadReleasesTheConnection() throws Exception {
+        service.configureTimeout(1000, 5000);
+
+        // The pool has a single connection: a stream closed before the end mustn't hold it
+        for (int i = 0; i < 3; i++) {
+            try (InputStream in = service.readStream(CID)) {
+                in.read();
+            }
+        }
+        assertEquals("peer", service.getPeerConfig("ID"));
+    }
+
+    @Test
+    public void asyncCalls() throws Exception {
+        ipfs.stubFor(post(urlPathEqualTo(API + "pin/rm")).willReturn(okJson("{\"Pins\":[\"" + CID + "\"]}")));
+
+        // More calls in flight than connections in the pool
+        List<CompletableFuture<OutputStream>> reads = IntStream.range(0, 10)
+                .mapToObj(i -> service.readAsync(CID))
+                .collect(Collectors.toList());
+        CompletableFuture<String> write = service.writeAsync("hello world".getBytes(StandardCharsets.UTF_8), true);
+
+        assertEquals(CID, write.get());
+        for (CompletableFuture<OutputStream> read : reads) {
+            assertEquals(100_000, ((ByteArrayOutputStream) read.get()).size());
+        }
+        service.unpinAsync(CID).get();
+
+        ipfs.verify(postRequestedFor(urlPathEqualTo(API + "add")).withQueryParam("pin", equalTo("false"))
+                .withRequestBody(containing("hello world")));
+        ipfs.verify(postRequestedFor(urlPathEqualTo(API + "pin/rm")).withQueryParam("arg", equalTo(CID)));
+    }
+
+    @Test
+    public void asyncReadTimeout() throws Exception {
+        ipfs.stubFor(post(urlPathEqualTo(API + "cat")).willReturn(aResponse().withStatus(200).withFixedDelay(1000)));
+        service.configureTimeout(1000, 100);
+
+        try {
+            service.readAsync(CID).get();
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof TimeoutException);
+            return;
+        }
+        throw new AssertionError("read should have timed out");
+    }
+
+    @Test(expected = TimeoutException.class)
+    public void readTimeout() {
+        ipfs.stubFor(post(urlPathEqualTo(API + "cat")).willReturn(aResponse().withStatus(200).withFixedDelay(1000)));
+        service.configureTimeout(1000, 100);
+
+        service.readStream(CID);
+    }
+
+    @Test
+    public void trackedFilesAreRecursivePins() {
+        ipfs.stubFor(post(urlPathEqualTo(API + "pin/ls")).willReturn(okJson("{\"Keys\":{\"" + CID + "\":{\"Type\":\"recursive\"}}}")));
+
+        assertEquals(Collections.singletonList(CID), service.getTracked());
+
+        ipfs.verify(postRequestedFor(urlPathEqualTo(API + "pin/ls")).withQueryParam("type", equalTo("recursive")));
+    }
+
+    private void failFirstAdd() {
+        ipfs.stubFor(post(urlPathEqualTo(API + "add")).inScenario("retry").whenScenarioStateIs(Scenario.STARTED)
+                .willReturn(aResponse().withStatus(500).withBody("node down")).willSetStateTo("up"));
+        ipfs.stubFor(post(urlPathEqualTo(API + "add")).inScenario("retry").whenScenarioStateIs("up")
+                .willReturn(okJson("{\"Name\":\"\",\"Hash\":\"" + CID + "\",\"Size\":\"11\"}")));
+    }
+}
@@ -7,19 +7,28 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Ignore;
 import org.junit.Test;
 
 import io.ipfs.api.IPFS;
+import io.ipfs.api.IPFS.PinType;
 import io.ipfs.api.NamedStreamable;
+import io.ipfs.multihash.Multihash;
 import lombok.extern.slf4j.Slf4j;
 import net.consensys.mahuta.core.exception.ConnectionException;
 import net.consensys.mahuta.core.exception.TechnicalException;
 import net.consensys.mahuta.core.exception.TimeoutException;
+import net.consensys.mahuta.core.service.storage.fs.FileSystemStorageService;
 import net.consensys.mahuta.core.service.storage.ipfs.IPFSService;
 import net.consensys.mahuta.core.test.utils.ContainerUtils;
 import net.consensys.mahuta.core.test.utils.ContainerUtils.ContainerType;
@@ -143,6 +152,43 @@ public class IPFSStorageServiceTest extends TestUtils {
         assertTrue(hashes.stream().anyMatch(h -> h.equals(hash)));
     }
 
+    @Test
+    public void getPinnedFilesExcludesBlocks() throws Exception {
+        byte[] content = new byte[1024 * 1024]; // 4 chunks
+        new Random().nextBytes(content);
+        IPFSService service = IPFSService.connect(ContainerUtils.getHost("ipfs1"), ContainerUtils.getPort("ipfs1"));
+        IPFS ipfs = new IPFS(ContainerUtils.getHost("ipfs1"), ContainerUtils.getPort("ipfs1"));
+
+        //////////////////////////////
+        String hash = service.write(content, false);
+        List<String> hashes = service.getTracked();
+        //////////////////////////////
+        
+        Set<String> blocks = ipfs.pin.ls(PinType.indirect).keySet().stream().map(Multihash::toBase58).collect(Collectors.toSet());
+        assertFalse(blocks.isEmpty());
+        assertTrue(hashes.contains(hash));
+        assertTrue(hashes.stream().noneMatch(blocks::contains));
+    }
+
+    @Test
+    public void fileSystemStorageCompatibility() throws Exception {
+        IPFSService service = IPFSService.connect(ContainerUtils.getHost("ipfs1"), ContainerUtils.getPort("ipfs1"));
+        Path directory = Files.createTempDirectory("mahuta-fs-test");
+        try {
+            FileSystemStorageService fileSystem = FileSystemStorageService.of(directory.toString());
+
+            //////////////////////////////
+            FileSystemStorageServiceTest.PATTERN_CIDS.forEach((size, cid) -> {
+                assertEquals("size " + size, cid, service.write(new FileSystemStorageServiceTest.PatternInputStream(size), true));
+                assertEquals("size " + size, cid, fileSystem.write(new FileSystemStorageServiceTest.PatternInputStream(size), true));
+            });
+            //////////////////////////////
+
+        } finally {
+            FileUtils.deleteDirectory(directory.toFile());
+        }
+    }
+
     @Test
     public void pinFile() throws Exception {
         FileInfo file = mockNeat.fromValues(FileTestUtils.files).get();
@@ -0,0 +1,99 @@
+package net.consensys.mahuta.core.test.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.service.storage.cache.MemoryCachingStorageService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class MemoryCachingStorageServiceTest extends TestUtils {
+
+    private StorageService storage;
+    
+    @Before
+    public void setup() {
+        storage = Mockito.mock(StorageService.class);
+        when(storage.readStream(anyString())).thenAnswer(i -> new ByteArrayInputStream(content(i.getArgument(0))));
+    }
+
+    @Test
+    public void readTwice() throws Exception {
+        MemoryCachingStorageService cache = MemoryCachingStorageService.of(storage, 1000, 100);
+        
+        assertArrayEquals(content("hash"), ((ByteArrayOutputStream) cache.read("hash")).toByteArray());
+        assertArrayEquals(content("hash"), ((ByteArrayOutputStream) cache.read("hash")).toByteArray());
+        
+        verify(storage, times(1)).readStream("hash");
+        assertEquals(1, cache.getStats().hitCount());
+        assertEquals(1, cache.getStats().missCount());
+        assertEquals(content("hash").length, cache.getSize());
+    }
+
+    @Test
+    public void readRange() throws Exception {
+        MemoryCachingStorageService cache = MemoryCachingStorageService.of(storage, 1000, 100);
+        cache.read("hash");
+        
+        try (InputStream is = cache.readStream("hash", 5, 2)) {
+            assertArrayEquals("ha".getBytes(), IOUtils.toByteArray(is));
+        }
+        assertEquals(content("hash").length, cache.getSize("hash"));
+        verify(storage, times(0)).readStream(anyString(), Mockito.anyLong(), Mockito.anyLong());
+    }
+
+    @Test
+    public void largeObjectIsNotCached() throws Exception {
+        MemoryCachingStorageService cache = MemoryCachingStorageService.of(storage, 1000, 5);
+        
+        assertArrayEquals(content("hash"), ((ByteArrayOutputStream) cache.read("hash")).toByteArray());
+        assertArrayEquals(content("hash"), ((ByteArrayOutputStream) cache.read("hash")).toByteArray());
+        
+        verify(storage, times(2)).readStream("hash");
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void hotObjectsSurviveOneOffReads() throws Exception {
+        int hot = 50;
+        int size = content("hot-00").length;
+        MemoryCachingStorageService cache = MemoryCachingStorageService.of(storage, (long) size * hot, 100);
+        
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < hot; i++) {
+                cache.read(String.format("hot-%02d", i));
+            }
+        }
+        for (int i = 0; i < hot * 10; i++) {
+            cache.read(String.format("c-%04d", i));
+        }
+        
+        // A LRU would have evicted every hot object
+        int hits = 0;
+        for (int i = 0; i < hot; i++) {
+            long misses = cache.getStats().missCount();
+            cache.read(String.format("hot-%02d", i));
+            hits += cache.getStats().missCount() == misses ? 1 : 0;
+        }
+        assertTrue(hits > hot / 2);
+        assertTrue(cache.getSize() <= (long) size * hot);
+    }
+
+    private static byte[] content(String id) {
+        return ("data-" + id).getBytes();
+    }
+}
@@ -0,0 +1,55 @@
+package net.consensys.mahuta.core.test.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.consensys.mahuta.core.service.storage.StorageService;
+
+public class StorageServiceDefaultsTest {
+
+    private static final String ID = "QmWPCRv8jBfr9sDjKuB5sxpVzXhMycZzwqxifrZZdQ6K9o";
+    private static final byte[] CONTENT = "Hello world, this is my first file stored on IPFS".getBytes();
+
+    private StorageService storageService;
+
+    @Before
+    public void setup() {
+        storageService = Mockito.mock(StorageService.class, Mockito.CALLS_REAL_METHODS);
+        doAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(1);
+            output.write(CONTENT);
+            return output;
+        }).when(storageService).read(eq(ID), any(OutputStream.class));
+    }
+
+    @Test
+    public void readStreamWrapsRead() throws IOException {
+        try (InputStream content = storageService.readStream(ID)) {
+            assertArrayEquals(CONTENT, IOUtils.toByteArray(content));
+        }
+    }
+
+    @Test
+    public void readStreamRangeSkipsAndLimitsRead() throws IOException {
+        try (InputStream content = storageService.readStream(ID, 6, 5)) {
+            assertEquals("world", new String(IOUtils.toByteArray(content)));
+        }
+    }
+
+    @Test
+    public void getSizeFallsBackToRead() {
+        assertEquals(CONTENT.length, storageService.getSize(ID));
+    }
+}
@@ -215,7 +215,8 @@ public abstract class MahutaTestAbstract extends TestUtils {
                     eq(builderAndResponse.getBuilder().getRequest().getContentType()), 
                     any(byte[].class),
                     any(boolean.class),
-                    eq(builderAndResponse.getBuilder().getRequest().getIndexFields())))
+                    eq(builderAndResponse.getBuilder().getRequest().getIndexFields()),
+                    eq(builderAndResponse.getBuilder().getRequest().getRefreshPolicy())))
             .thenReturn(builderAndResponse.getResponse().getIndexDocId());
             
         } else {
@@ -226,7 +227,8 @@ public abstract class MahutaTestAbstract extends TestUtils {
                     eq(builderAndResponse.getBuilder().getRequest().getContentType()), 
                     eq(null),
                     any(boolean.class),
-                    eq(builderAndResponse.getBuilder().getRequest().getIndexFields())))
+                    eq(builderAndResponse.getBuilder().getRequest().getIndexFields()),
+                    eq(builderAndResponse.getBuilder().getRequest().getRefreshPolicy())))
             .thenReturn(builderAndResponse.getResponse().getIndexDocId());
             
         }
@@ -1,5 +1,6 @@
 package net.consensys.mahuta.api.http.configuration;
 
+import java.time.Duration;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -8,12 +9,18 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.util.StringUtils;
 
+import net.consensys.mahuta.api.http.configuration.MahutaSettings.Cache;
 import net.consensys.mahuta.api.http.configuration.MahutaSettings.IPFS;
 import net.consensys.mahuta.api.http.configuration.MahutaSettings.IPFSCluster;
+import net.consensys.mahuta.api.http.configuration.MahutaSettings.Pinning;
 import net.consensys.mahuta.core.Mahuta;
 import net.consensys.mahuta.core.MahutaFactory;
 import net.consensys.mahuta.core.indexer.elasticsearch.ElasticSearchService;
+import net.consensys.mahuta.core.service.pinning.PinningExecutor;
 import net.consensys.mahuta.core.service.pinning.ipfs.IPFSClusterPinningService;
+import net.consensys.mahuta.core.service.storage.StorageService;
+import net.consensys.mahuta.core.service.storage.cache.CachingStorageService;
+import net.consensys.mahuta.core.service.storage.cache.MemoryCachingStorageService;
 import net.consensys.mahuta.core.service.storage.ipfs.IPFSService;
 import net.consensys.mahuta.core.utils.BytesUtils;
 
@@ -27,8 +34,18 @@ public class MahutaConfiguration {
         this.settings = settings;
     }
 
+    /**
+     * Pinning executor (closed by the context on shutdown, draining the pins in flight)
+     */
     @Bean
-    public Mahuta mahuta() {
+    public PinningExecutor pinningExecutor() {
+        Pinning pinning = settings.getPinning();
+        return PinningExecutor.of(pinning.getThreads(), pinning.getQueueCapacity(), pinning.getRejectionPolicy())
+                .configureDrainTimeout(Duration.ofMillis(pinning.getDrainTimeout()));
+    }
+
+    @Bean
+    public Mahuta mahuta(PinningExecutor pinningExecutor) {
         
         // Configure IPFS service
         IPFSService storageService = readSettings(settings.getIpfs());
@@ -45,20 +62,32 @@ public class MahutaConfiguration {
             .filter(Objects::nonNull)
             .forEach(storageService::addReplica);
 
+        // Configure local cache (disk, then memory)
+        Optional<Cache> cacheSettings = Optional.ofNullable(settings.getIpfs().getCache());
+        StorageService diskCachedStorageService = cacheSettings
+            .filter(cache -> !StringUtils.isEmpty(cache.getDirectory()))
+            .map(cache -> (StorageService) CachingStorageService.of(storageService, cache.getDirectory(), cache.getMaxSize()))
+            .orElse(storageService);
+        StorageService cachedStorageService = cacheSettings
+            .filter(cache -> cache.getMemoryMaxSize() > 0)
+            .map(cache -> (StorageService) MemoryCachingStorageService.of(diskCachedStorageService, cache.getMemoryMaxSize(), cache.getMemoryMaxObjectSize()))
+            .orElse(diskCachedStorageService);
+
         // Configure ElasticSearch
         ElasticSearchService indexerService = ElasticSearchService.connect(settings.getElasticSearch().getHost(),
-                settings.getElasticSearch().getPort(), settings.getElasticSearch().getClusterName());
+                settings.getElasticSearch().getPort(), settings.getElasticSearch().getClusterName())
+                .configureRefreshPolicy(settings.getElasticSearch().getRefreshPolicy());
 
         // Configure ElasticSearch index 
         settings.getElasticSearch().getIndexConfigs().stream()
                 .filter(index -> !StringUtils.isEmpty(index.getName()))
-                .forEach(index -> indexerService.withIndex(index.getName(), BytesUtils.readFileInputStream(index.getMap())));
+                .forEach(index -> indexerService.withIndex(index.getName(), BytesUtils.readFileInputStream(index.getMap()), index.getRefreshPolicy()));
         
         
         return new MahutaFactory()
-                .configureStorage(storageService)
+                .configureStorage(cachedStorageService)
                 .configureIndexer(indexerService)
-                .defaultImplementation();
+                .defaultImplementation(pinningExecutor);
     }
     
     private IPFSService readSettings(IPFS ipfs) {
@@ -70,7 +99,8 @@ public class MahutaConfiguration {
         return Optional.ofNullable(ipfs.getMultiaddress())
                 .map(IPFSService::connect)
                 .orElseGet(() -> IPFSService.connect(ipfs.getHost(), ipfs.getPort()))
-                .configureTimeout(ipfs.getTimeout());
+                .configureTimeout(Optional.ofNullable(ipfs.getConnectTimeout()).orElse(ipfs.getTimeout()), ipfs.getTimeout())
+                .configureConnectionPool(ipfs.getMaxConnections(), Duration.ofMillis(ipfs.getKeepAlive()));
     }
     
     private IPFSClusterPinningService readSettings(IPFSCluster ipfsCluster) {
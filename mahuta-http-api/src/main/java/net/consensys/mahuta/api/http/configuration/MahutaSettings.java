@@ -9,6 +9,9 @@ import org.springframework.context.annotation.Configuration;
 
 import lombok.Getter;
 import lombok.Setter;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
+import net.consensys.mahuta.core.service.pinning.PinningExecutor;
+import net.consensys.mahuta.core.service.pinning.PinningExecutor.RejectionPolicy;
 
 @Configuration
 @EnableConfigurationProperties
@@ -20,18 +23,34 @@ public class MahutaSettings {
     private static final String IPFSCLUSTER_PROTOCOL = "http";
     private static final int IPFS_TIMEOUT_MS = 5000;
     private static final int IPFS_THREAD_POOL = 10;
+    private static final int IPFS_MAX_CONNECTIONS = 20;
+    private static final long IPFS_KEEP_ALIVE_MS = 30000;
     private static final int ELATIC_PORT = 9200;
+    private static final long IPFS_CACHE_MAX_SIZE = 1024L * 1024 * 1024;
+    private static final int IPFS_CACHE_MEMORY_MAX_OBJECT_SIZE = 64 * 1024;
     
     private @Setter @Getter IPFS ipfs;
     private @Setter @Getter ElasticSearch elasticSearch;
+    private @Setter @Getter Pinning pinning = new Pinning();
     public static class IPFS {
         private @Getter @Setter String host;
         private @Getter @Setter Integer port = IPFS_PORT;
         private @Getter @Setter String multiaddress;
         private @Getter @Setter Integer timeout = IPFS_TIMEOUT_MS;
+        private @Getter @Setter Integer connectTimeout;
+        private @Getter @Setter int maxConnections = IPFS_MAX_CONNECTIONS;
+        private @Getter @Setter long keepAlive = IPFS_KEEP_ALIVE_MS;
         private @Getter @Setter int threadPool = IPFS_THREAD_POOL;
         private @Getter @Setter List<IPFS> replicaIPFS = new ArrayList<>();
         private @Getter @Setter List<IPFSCluster> replicaIPFSCluster = new ArrayList<>();
+        private @Getter @Setter Cache cache = new Cache();
+    }
+
+    public static class Cache {
+        private @Getter @Setter String directory;
+        private @Getter @Setter long maxSize = IPFS_CACHE_MAX_SIZE;
+        private @Getter @Setter long memoryMaxSize;
+        private @Getter @Setter int memoryMaxObjectSize = IPFS_CACHE_MEMORY_MAX_OBJECT_SIZE;
     }
 
     public static class ElasticSearch {
@@ -39,12 +58,21 @@ public class MahutaSettings {
         private @Getter @Setter Integer port = ELATIC_PORT;
         private @Getter @Setter String clusterName;
         private @Getter @Setter boolean indexNullValue;
+        private @Getter @Setter RefreshPolicy refreshPolicy = RefreshPolicy.IMMEDIATE;
         private @Getter @Setter List<IndexConfig> indexConfigs = new ArrayList<>();
     }
 
     public static class IndexConfig {
         private @Getter @Setter String name;
         private @Getter @Setter String map;
+        private @Getter @Setter RefreshPolicy refreshPolicy;
+    }
+    
+    public static class Pinning {
+        private @Getter @Setter int threads = PinningExecutor.DEFAULT_THREADS;
+        private @Getter @Setter int queueCapacity = PinningExecutor.DEFAULT_QUEUE_CAPACITY;
+        private @Getter @Setter RejectionPolicy rejectionPolicy = PinningExecutor.DEFAULT_REJECTION_POLICY;
+        private @Getter @Setter long drainTimeout = PinningExecutor.DEFAULT_DRAIN_TIMEOUT.toMillis();
     }
     
     public static class IPFSCluster {
@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
 
 import net.consensys.mahuta.core.Mahuta;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 import net.consensys.mahuta.core.domain.deindexing.DeindexingResponse;
 import net.consensys.mahuta.core.exception.NoIndexException;
 import net.consensys.mahuta.core.exception.NotFoundException;
@@ -30,15 +31,17 @@ public class DeleteController {
      *
      * @param id
      * @param index
+     * @param refreshPolicy
      * @throws NotFoundException
      */
     @DeleteMapping("${mahuta.api-spec.v1.persistence.delete.id}")
     public DeindexingResponse deleteById(
             @PathVariable(value = "id") @NotNull String id,
-            @RequestParam(value = "index", required = true) String indexName) {
+            @RequestParam(value = "index", required = true) String indexName,
+            @RequestParam(value = "refreshPolicy", required = false) RefreshPolicy refreshPolicy) {
 
         try {
-            return mahuta.prepareDeindexing(indexName, id).execute();
+            return mahuta.prepareDeindexing(indexName, id).refreshPolicy(refreshPolicy).execute();
         } catch (NoIndexException ex) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
         } catch (NotFoundException ex) {
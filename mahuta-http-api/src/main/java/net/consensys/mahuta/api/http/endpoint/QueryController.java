@@ -1,20 +1,25 @@
 package net.consensys.mahuta.api.http.endpoint;
 
-import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 import javax.servlet.http.HttpServletResponse;
 import javax.validation.constraints.NotNull;
 
+import org.apache.commons.io.IOUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
@@ -28,6 +33,8 @@ import net.consensys.mahuta.core.domain.common.query.Query;
 import net.consensys.mahuta.core.domain.get.GetResponse;
 import net.consensys.mahuta.core.domain.search.SearchResponse;
 import net.consensys.mahuta.core.exception.NotFoundException;
+import net.consensys.mahuta.core.exception.RangeNotSatisfiableException;
+import net.consensys.mahuta.core.exception.TechnicalException;
 import net.consensys.mahuta.core.exception.ValidationException;
 
 @RestController
@@ -36,6 +43,11 @@ public class QueryController {
 
     private static final String DEFAULT_PAGE_SIZE = "20";
     private static final String DEFAULT_PAGE_NO = "0";
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    private static final String BYTES_UNIT = "bytes";
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^" + BYTES_UNIT + "=(\\d*)-(\\d*)$");
+    private static final String CACHE_CONTROL_IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String WEAK_ETAG_PREFIX = "W/";
     private final Mahuta mahuta;
 
     @Autowired
@@ -44,15 +56,37 @@ public class QueryController {
     }
 
     @GetMapping(value = "${mahuta.api-spec.v1.query.fetch}")
-    public @ResponseBody ResponseEntity<byte[]> getFile(@PathVariable(value = "hash") @NotNull String hash,
-            @RequestParam(value = "index", required = false) String indexName, HttpServletResponse response) {
+    public void getFile(@PathVariable(value = "hash") @NotNull String hash,
+            @RequestParam(value = "index", required = false) String indexName, 
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            HttpServletResponse response) {
 
-        // Find and get content by hash
+        // Content addressed by hash is immutable: the hash is a strong validator and the content can be cached forever
+        String etag = "\"" + hash + "\"";
+        if(matchETag(ifNoneMatch, etag)) {
+            log.trace("Content not modified [hash: {}]", hash);
+            response.setHeader(HttpHeaders.ETAG, etag);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL_IMMUTABLE);
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        // Parse the Range header (only a single byte-range is supported, otherwise the full content is returned)
+        Long[] byteRange = parseRange(range, ifRange, hash);
+        
+        // Find content by hash and open a stream on it
         GetResponse resp;
         try {
-            resp = mahuta.prepareGet().indexName(indexName).contentId(hash).loadFile(true).execute();
+            resp = mahuta.prepareGet().indexName(indexName).contentId(hash).streamFile(true)
+                    .range(byteRange[0], byteRange[1])
+                    .execute();
         } catch (NotFoundException ex) {
             throw new ResponseStatusException(HttpStatus.NOT_FOUND, ex.getMessage(), ex);
+        } catch (RangeNotSatisfiableException ex) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + ex.getContentLength());
+            throw new ResponseStatusException(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, ex.getMessage(), ex);
         } catch (ValidationException ex) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage(), ex);
         }
@@ -61,19 +95,40 @@ public class QueryController {
         if(resp.getMetadata() != null && resp.getMetadata().getContentType() != null) {
             response.setContentType(resp.getMetadata().getContentType());
         } else {
-            response.setContentType("application/octet-stream");
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
         }
         log.trace("response.getContentType()={}", response.getContentType());
+        
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL_IMMUTABLE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+        if(resp.isPartial()) {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, 
+                    BYTES_UNIT + " " + resp.getRangeStart() + "-" + resp.getRangeEnd() + "/" + resp.getPayloadLength());
+            response.setContentLengthLong(resp.getRangeEnd() - resp.getRangeStart() + 1);
+        } else {
+            response.setStatus(HttpStatus.OK.value());
+            Optional.ofNullable(resp.getPayloadLength()).ifPresent(response::setContentLengthLong);
+        }
 
-        final HttpHeaders httpHeaders = new HttpHeaders();
-        httpHeaders.setContentType(MediaType.valueOf(response.getContentType()));
-
-        return new ResponseEntity<>(
-                ((ByteArrayOutputStream) resp.getPayload()).toByteArray(),
-                httpHeaders, 
-                HttpStatus.OK);
+        // Write the content to the servlet output as it arrives
+        try (InputStream payload = resp.getPayloadStream()) {
+            IOUtils.copyLarge(payload, response.getOutputStream(), new byte[STREAM_BUFFER_SIZE]);
+            response.flushBuffer();
+            
+        } catch (IOException ex) {
+            log.error("Error while streaming content [hash: {}]", hash, ex);
+            throw new TechnicalException("Error while streaming content " + hash, ex);
+        }
     }
 
+    /**
+     * Search contents
+     * 
+     * With a cursor, pageNo is ignored: the page of the response reports the cursor (pageRequest.cursor) and always 
+     * the page 0, the client walks the pages with nextCursor (null on the last page)
+     */
     @PostMapping(value = "${mahuta.api-spec.v1.query.search}", produces = MediaType.APPLICATION_JSON_VALUE)
     public @ResponseBody SearchResponse searchContentsByPost(
             @RequestParam(value = "index", required = false) String indexName,
@@ -82,11 +137,17 @@ public class QueryController {
             @RequestParam(value = "sort", required = false) Optional<String> sortAttribute,
             @RequestParam(value = "dir", required = false, defaultValue = "ASC") SortDirection sortDirection,
             @RequestParam(value = "loadFile", required = false, defaultValue = "false") boolean loadFile,
+            @RequestParam(value = "cursor", required = false) String cursor,
             @RequestBody Query query) {
 
-        PageRequest pageRequest = sortAttribute
+        PageRequest pageRequest;
+        if (cursor != null) {
+            pageRequest = PageRequest.ofCursor(cursor, pageSize, sortAttribute.orElse(null), sortDirection);
+        } else {
+            pageRequest = sortAttribute
                 .map(s -> PageRequest.of(pageNo, pageSize, sortAttribute.get(), sortDirection))
                 .orElse(PageRequest.of(pageNo, pageSize));
+        }
 
         return mahuta.prepareSearch()
                 .indexName(indexName)
@@ -96,4 +157,59 @@ public class QueryController {
                 .execute();
     }
 
+    /**
+     * Check if an If-None-Match header matches an entity-tag (RFC 7232 weak comparison)
+     * 
+     * @param ifNoneMatch If-None-Match header (list of entity-tags)
+     * @param etag Entity-tag of the content
+     * @return true if one of the entity-tags matches
+     */
+    private static boolean matchETag(String ifNoneMatch, String etag) {
+        if(ifNoneMatch == null) {
+            return false;
+        }
+        
+        return Stream.of(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith(WEAK_ETAG_PREFIX) ? tag.substring(WEAK_ETAG_PREFIX.length()) : tag)
+                .anyMatch(etag::equals);
+    }
+
+    /**
+     * Parse a Range header (RFC 7233)
+     * 
+     * @param range Range header
+     * @param ifRange If-Range header
+     * @param hash Content hash (entity-tag of the content)
+     * @return [start, end] (both null if the full content should be returned)
+     */
+    private static Long[] parseRange(String range, String ifRange, String hash) {
+        Long[] noRange = new Long[] {null, null};
+        
+        if(range == null) {
+            return noRange;
+        }
+
+        // If-Range: content addressed by hash is immutable, so only a different entity-tag invalidates the range
+        if(ifRange != null && ifRange.trim().startsWith("\"") && !ifRange.trim().equals("\"" + hash + "\"")) {
+            return noRange;
+        }
+        
+        Matcher matcher = RANGE_PATTERN.matcher(range.trim());
+        if(!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            log.debug("Range {} ignored (unsupported or invalid)", range);
+            return noRange;
+        }
+        
+        try {
+            return new Long[] {
+                    matcher.group(1).isEmpty() ? null : Long.valueOf(matcher.group(1)),
+                    matcher.group(2).isEmpty() ? null : Long.valueOf(matcher.group(2))
+            };
+        } catch (NumberFormatException ex) {
+            log.debug("Range {} ignored (invalid)", range);
+            return noRange;
+        }
+    }
+
 }
@@ -1,10 +1,12 @@
 package net.consensys.mahuta.api.http.test;
 
+import static org.hamcrest.Matchers.containsString;
 import static org.junit.Assert.assertEquals;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.io.IOException;
@@ -17,6 +19,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -77,6 +80,39 @@ public class QueryControllerTest extends WebTestUtils {
         assertEquals(request.getContent(), response.getResponse().getContentAsString());
     }
     
+    @Test
+    public void fetchNotModified() throws Exception {
+        BuilderAndResponse<IndexingRequest, IndexingResponse> builderAndResponse = indexingRequestUtils.generateRandomStringIndexingRequest();
+        StringIndexingRequest request = (StringIndexingRequest) builderAndResponse.getBuilder().getRequest();
+        
+        // Create Index 
+        mockMvc.perform(post("/config/index/" + request.getIndexName())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(BytesUtils.readFile("index_mapping.json")))
+            .andExpect(status().isOk())
+            .andDo(print());
+
+        mockMvc.perform(post("/index").contentType(MediaType.APPLICATION_JSON).content(mapper.writeValueAsBytes(request)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andReturn();
+
+        String etag = "\"" + builderAndResponse.getResponse().getContentId() + "\"";
+        
+        mockMvc.perform(get("/query/fetch/"+builderAndResponse.getResponse().getContentId() + "?index="+request.getIndexName()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, containsString("immutable")));
+
+        mockMvc.perform(get("/query/fetch/"+builderAndResponse.getResponse().getContentId() + "?index="+request.getIndexName())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+    }
+    
     @Test
     public void findAll() throws Exception {
         int no = 30;
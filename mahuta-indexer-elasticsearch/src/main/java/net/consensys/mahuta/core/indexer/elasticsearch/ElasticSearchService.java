@@ -5,54 +5,85 @@ import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.IOUtils;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.ResourceAlreadyExistsException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.DocWriteResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
+import org.elasticsearch.action.admin.indices.get.GetIndexRequest.Feature;
+import org.elasticsearch.action.admin.indices.get.GetIndexResponse;
 import org.elasticsearch.action.admin.indices.mapping.get.GetMappingsResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.get.GetResponse;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.support.WriteRequest;
 import org.elasticsearch.client.transport.TransportClient;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.IndexNotFoundException;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.MultiMatchQueryBuilder.Type;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.script.Script;
 import org.elasticsearch.script.ScriptType;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.sort.FieldSortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.client.PreBuiltTransportClient;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.common.primitives.Longs;
 
 import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingItem;
 import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 import net.consensys.mahuta.core.domain.common.pagination.Page;
 import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
 import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.domain.indexing.IndexingResponse;
 import net.consensys.mahuta.core.exception.ConnectionException;
 import net.consensys.mahuta.core.exception.NoIndexException;
 import net.consensys.mahuta.core.exception.NotFoundException;
 import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.exception.ValidationException;
 import net.consensys.mahuta.core.service.indexing.IndexingService;
 import net.consensys.mahuta.core.utils.ValidatorUtils;
 
@@ -62,11 +93,20 @@ public class ElasticSearchService implements IndexingService {
     private static final String DEFAULT_TYPE = "_doc";
     private static final String ALL_INDICES = "_all";
     private static final String NULL = "null";
+    private static final String INDEX_FIELD = "_index";
+    // Copy of the document ID in a keyword field (doc values): unique tie-breaker of the cursor-based pagination
+    private static final String DOC_ID_KEY = "__id";
     private static final Integer RETRY_ON_CONFLICT = 5;
+    private static final long MAPPING_RELOAD_INTERVAL_MS = 10000;
+    private static final String KEYWORD_TYPE = "keyword";
+    private static final String UNKNOWN_UUID = "";
 
     private final ElasticSearchSettings settings;
     private final TransportClient client;
     private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, IndexMapping> mappings = new ConcurrentHashMap<>();
+    private final Map<String, String> knownIndexes = new ConcurrentHashMap<>(); // index name -> index UUID
+    private final Set<String> docIdMappedIndexes = ConcurrentHashMap.newKeySet();
 
     private ElasticSearchService(ElasticSearchSettings settings, TransportClient transportClient) {
         ValidatorUtils.rejectIfNull("settings", settings);
@@ -74,6 +114,7 @@ public class ElasticSearchService implements IndexingService {
 
         this.settings = settings;
         this.client = transportClient;
+        this.warmIndexRegistry();
     }
 
     public static ElasticSearchService connect(String clusterName) {
@@ -115,6 +156,17 @@ public class ElasticSearchService implements IndexingService {
         return this;
     }
 
+    /**
+     * Configure the default refresh policy of the write operations (IMMEDIATE by default)
+     * @param refreshPolicy Refresh policy
+     * @return this
+     */
+    public ElasticSearchService configureRefreshPolicy(RefreshPolicy refreshPolicy) {
+        ValidatorUtils.rejectIfNull("refreshPolicy", refreshPolicy);
+        this.settings.setRefreshPolicy(refreshPolicy);
+        return this;
+    }
+
     public ElasticSearchService withIndex(String indexName) {
         return this.withIndex(indexName, null);
     }
@@ -132,6 +184,22 @@ public class ElasticSearchService implements IndexingService {
         return this;
     }
 
+    /**
+     * Create an index (if it doesn't exist) with its own refresh policy
+     * @param indexName Index name
+     * @param configuration Index configuration (mapping)
+     * @param refreshPolicy Refresh policy of the write operations on this index (override the default refresh policy)
+     * @return this
+     */
+    public ElasticSearchService withIndex(String indexName, InputStream configuration, RefreshPolicy refreshPolicy) {
+        this.withIndex(indexName, configuration);
+
+        Optional.ofNullable(refreshPolicy)
+            .ifPresent(policy -> this.settings.getIndexRefreshPolicies().put(indexName.toLowerCase(), policy));
+
+        return this;
+    }
+
     @Override
     public void createIndex(String indexName, InputStream configuration) {
         log.debug("Create index in ElasticSearch [indexName: {}, configuration present: {}]", indexName,
@@ -144,7 +212,7 @@ public class ElasticSearchService implements IndexingService {
             // Format index
             indexName = indexName.toLowerCase();
 
-            // Check existence
+            // Check existence (ElasticSearch is always requested, the index may have been deleted by another client)
             boolean exists = indexExists(indexName);
 
             if (!exists) {
@@ -159,17 +227,26 @@ public class ElasticSearchService implements IndexingService {
                             DEFAULT_TYPE, HASH_INDEX_KEY, "type=keyword", 
                             CONTENT_TYPE_INDEX_KEY, "type=keyword", 
                             CONTENT_INDEX_KEY, "type=binary", 
-                            PINNED_KEY, "type=boolean");
+                            PINNED_KEY, "type=boolean",
+                            DOC_ID_KEY, "type=keyword");
                 }
                 
-                request.get();
-
-                log.debug("Index [indexName: {}] created in ElasticSearch", indexName);
+                try {
+                    request.get();
+                    log.debug("Index [indexName: {}] created in ElasticSearch", indexName);
+                } catch (ResourceAlreadyExistsException ex) {
+                    log.debug("Index [indexName: {}] already exists in ElasticSearch (created concurrently)", indexName);
+                }
 
             } else {
                 log.debug("Index [indexName: {}] already exists in ElasticSearch", indexName);
             }
 
+            // Register the index and invalidate the cached mapping
+            register(indexName);
+            mappings.remove(indexName);
+            mapDocId(indexName);
+
         } catch (IOException ex) {
             log.error("Error whist reading configuration InputStream", ex);
             throw new TechnicalException("Error whist reading configuration InputStream", ex);
@@ -183,20 +260,25 @@ public class ElasticSearchService implements IndexingService {
         
         log.debug("Get indices in ElasticSearch []");
 
-        String[] response = client.admin().indices().prepareGetIndex().setFeatures().get().getIndices();
+        GetIndexResponse response = client.admin().indices().prepareGetIndex().setFeatures(Feature.SETTINGS).get();
         
-        log.debug("Get indices in ElasticSearch []: {}", Arrays.asList(response));
+        log.debug("Get indices in ElasticSearch []: {}", Arrays.asList(response.getIndices()));
 
-        return Arrays.asList(response);
+        Arrays.stream(response.getIndices()).forEach(index -> knownIndexes.put(index, 
+                Optional.ofNullable(response.getSettings().get(index))
+                    .map(indexSettings -> indexSettings.get(IndexMetaData.SETTING_INDEX_UUID, UNKNOWN_UUID))
+                    .orElse(UNKNOWN_UUID)));
+        
+        return Arrays.asList(response.getIndices());
     }
 
     @Override
     public String index(String indexName, String indexDocId, String contentId, String contentType, 
-            byte[] content, boolean pinned, Map<String, Object> indexFields) {
+            byte[] content, boolean pinned, Map<String, Object> indexFields, RefreshPolicy refreshPolicy) {
 
         log.debug(
-                "Index document in ElasticSearch [indexName: {}, indexDocId:{}, contentId: {}, contentType: {}, content: {}, pinned: {}, indexFields: {}]",
-                indexName, indexDocId, contentId, contentType, content!=null ? "null": "not present", pinned, indexFields);
+                "Index document in ElasticSearch [indexName: {}, indexDocId:{}, contentId: {}, contentType: {}, content: {}, pinned: {}, indexFields: {}, refreshPolicy: {}]",
+                indexName, indexDocId, contentId, contentType, content!=null ? "null": "not present", pinned, indexFields, refreshPolicy);
 
         // Validation
         ValidatorUtils.rejectIfEmpty("indexName", indexName);
@@ -205,48 +287,162 @@ public class ElasticSearchService implements IndexingService {
         indexName = indexName.toLowerCase();
 
         // Check if index exists
-        if(!indexExists(indexName)) {
-            throw new NoIndexException(indexName);
-        }
+        rejectIfNoIndex(indexName);
         
-        // Populate the ElasticSearch Document
-        Map<String, Object> source = new HashMap<>();
-        source.put(HASH_INDEX_KEY, contentId);
-        source.put(CONTENT_TYPE_INDEX_KEY, contentType);
-        source.put(PINNED_KEY, pinned);
-        Optional.ofNullable(content)
-            .map(bytearray -> Base64.getEncoder().encode(bytearray))
-            .ifPresent(base64 -> source.put(CONTENT_INDEX_KEY, new String(base64)));
+        mapDocId(indexName);
         
-        if (indexFields != null) {
-            source.putAll(transformFields(indexFields));
-        }
+        // Populate the ElasticSearch Document
+        Map<String, Object> source = buildSource(contentId, contentType, content, pinned, indexFields);
         log.trace("source={}", source.toString());
 
-        // Upsert
         DocWriteResponse response;
-        if (indexDocId == null || !this.documentExists(indexName, indexDocId)) {
-            response = client.prepareIndex(indexName, DEFAULT_TYPE, indexDocId)
-                    .setSource(convertObjectToJsonString(source), XContentType.JSON).get();
-
-        } else {
-            response = client.prepareUpdate(indexName, DEFAULT_TYPE, indexDocId)
-                    .setRetryOnConflict(RETRY_ON_CONFLICT)
-                    .setDoc(convertObjectToJsonString(source), XContentType.JSON).get();
+        try {
+            response = prepareIndex(indexName, indexDocId, source, refreshPolicy).get();
+        } catch (IndexNotFoundException ex) {
+            throw noIndex(indexName, ex);
         }
+        checkIndexInstance(indexName, response.getShardId());
 
         log.debug(
                 "Document indexed ElasticSearch [indexName: {}, indexDocId:{}, contentId: {}, contentType: {}, indexFields: {}]. Result ID= {} ",
                 indexName, indexDocId, contentId, contentType, indexFields, response.getId());
 
-        this.refreshIndex(indexName);
-
         return response.getId();
     }
 
     @Override
-    public void updateField(String indexName, String indexDocId, String key, Object value) {
-        log.debug("Update field on document in ElasticSearch [indexName: {}, indexDocId: {}, key: {}, value: {}]", indexName, indexDocId, key, value);
+    public CompletableFuture<String> indexAsync(String indexName, String indexDocId, String contentId, String contentType, 
+            byte[] content, boolean pinned, Map<String, Object> indexFields, RefreshPolicy refreshPolicy) {
+
+        log.debug(
+                "Index document in ElasticSearch [indexName: {}, indexDocId:{}, contentId: {}, contentType: {}, pinned: {}, indexFields: {}, refreshPolicy: {}, async: true]",
+                indexName, indexDocId, contentId, contentType, pinned, indexFields, refreshPolicy);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+
+        // Format index
+        String index = indexName.toLowerCase();
+
+        // Check if index exists (registry of known indexes, only requested for unknown indexes)
+        rejectIfNoIndex(index);
+
+        mapDocId(index);
+
+        Map<String, Object> source = buildSource(contentId, contentType, content, pinned, indexFields);
+
+        return executeAsync(prepareIndex(index, indexDocId, source, refreshPolicy), index)
+                .thenApply(response -> {
+                    checkIndexInstance(index, response.getShardId());
+                    return response.getId();
+                });
+    }
+
+    /**
+     * Upsert (single round trip): create a document with a generated ID, or update the document (created if it 
+     * doesn't exist). The ID is generated by the client (same generator as ElasticSearch) so it can be copied in the 
+     * source (__id)
+     */
+    private ActionRequestBuilder<?, ? extends DocWriteResponse, ?> prepareIndex(String indexName, String indexDocId, 
+            Map<String, Object> source, RefreshPolicy refreshPolicy) {
+        
+        if (indexDocId == null) {
+            String id = UUIDs.base64UUID();
+            source.put(DOC_ID_KEY, id);
+            return client.prepareIndex(indexName, DEFAULT_TYPE, id)
+                    .setOpType(DocWriteRequest.OpType.CREATE)
+                    .setRefreshPolicy(getRefreshPolicy(indexName, refreshPolicy))
+                    .setSource(convertObjectToJsonString(source), XContentType.JSON);
+
+        } else {
+            source.put(DOC_ID_KEY, indexDocId);
+            return client.prepareUpdate(indexName, DEFAULT_TYPE, indexDocId)
+                    .setRetryOnConflict(RETRY_ON_CONFLICT)
+                    .setRefreshPolicy(getRefreshPolicy(indexName, refreshPolicy))
+                    .setDoc(convertObjectToJsonString(source), XContentType.JSON)
+                    .setDocAsUpsert(true);
+        }
+    }
+
+    @Override
+    public List<BulkIndexingItem> bulkIndex(List<Metadata> documents, RefreshPolicy refreshPolicy) {
+        log.debug("Bulk index documents in ElasticSearch [documents: {}, refreshPolicy: {}]", documents.size(), refreshPolicy);
+
+        BulkIndexingItem[] items = new BulkIndexingItem[documents.size()];
+        List<Integer> positions = new ArrayList<>();
+        Set<String> indexNames = new HashSet<>();
+        BulkRequestBuilder bulk = client.prepareBulk();
+        
+        for (int i = 0; i < documents.size(); i++) {
+            Metadata document = documents.get(i);
+            try {
+                // Validation
+                ValidatorUtils.rejectIfEmpty("indexName", document.getIndexName());
+                String indexName = document.getIndexName().toLowerCase();
+                rejectIfNoIndex(indexName);
+                mapDocId(indexName);
+                
+                // Upsert (same as index)
+                String id = Optional.ofNullable(document.getIndexDocId()).orElseGet(UUIDs::base64UUID);
+                Map<String, Object> sourceMap = buildSource(document.getContentId(), document.getContentType(), 
+                        document.getContent(), document.isPinned(), document.getIndexFields());
+                sourceMap.put(DOC_ID_KEY, id);
+                String source = convertObjectToJsonString(sourceMap);
+                if (document.getIndexDocId() == null) {
+                    bulk.add(client.prepareIndex(indexName, DEFAULT_TYPE, id)
+                            .setOpType(DocWriteRequest.OpType.CREATE)
+                            .setSource(source, XContentType.JSON));
+                } else {
+                    bulk.add(client.prepareUpdate(indexName, DEFAULT_TYPE, document.getIndexDocId())
+                            .setRetryOnConflict(RETRY_ON_CONFLICT)
+                            .setDoc(source, XContentType.JSON)
+                            .setDocAsUpsert(true));
+                }
+                indexNames.add(indexName);
+                positions.add(i);
+                
+            } catch (Exception ex) {
+                items[i] = BulkIndexingItem.failure(ex.getMessage());
+            }
+        }
+        
+        if (!positions.isEmpty()) {
+            // The refresh policy applies to the whole request: the strictest policy of the indexes is used
+            BulkResponse response = bulk
+                    .setRefreshPolicy(getRefreshPolicy(indexNames, refreshPolicy))
+                    .get();
+            
+            Map<String, NoIndexException> autoCreatedIndexes = new HashMap<>();
+            for (int j = 0; j < positions.size(); j++) {
+                Metadata document = documents.get(positions.get(j));
+                BulkItemResponse result = response.getItems()[j];
+                
+                if (!result.isFailed() && checkIndexInstance(result.getIndex(), result.getResponse().getShardId(), autoCreatedIndexes)) {
+                    items[positions.get(j)] = BulkIndexingItem.success(IndexingResponse.of(document.getIndexName(), result.getId(), 
+                            document.getContentId(), document.getContentType(), document.isPinned(), document.getIndexFields()));
+                    
+                } else if (!result.isFailed()) {
+                    items[positions.get(j)] = BulkIndexingItem.failure(autoCreatedIndexes.get(result.getIndex()).getMessage());
+                    
+                } else if (ExceptionsHelper.unwrapCause(result.getFailure().getCause()) instanceof IndexNotFoundException) {
+                    items[positions.get(j)] = BulkIndexingItem.failure(
+                            noIndex(result.getIndex(), (IndexNotFoundException) ExceptionsHelper.unwrapCause(result.getFailure().getCause())).getMessage());
+                    
+                } else {
+                    items[positions.get(j)] = BulkIndexingItem.failure(result.getFailureMessage());
+                }
+            }
+            
+            log.debug("Documents bulk indexed in ElasticSearch [documents: {}, took: {}, failures: {}]", 
+                    documents.size(), response.getTook(), response.hasFailures());
+        }
+
+        return Arrays.asList(items);
+    }
+
+    @Override
+    public void updateField(String indexName, String indexDocId, String key, Object value, RefreshPolicy refreshPolicy) {
+        log.debug("Update field on document in ElasticSearch [indexName: {}, indexDocId: {}, key: {}, value: {}, refreshPolicy: {}]", indexName, indexDocId, key, value, refreshPolicy);
 
         // Validation
         ValidatorUtils.rejectIfEmpty("indexName", indexName);
@@ -257,22 +453,16 @@ public class ElasticSearchService implements IndexingService {
         indexName = indexName.toLowerCase();
         
         try {
-            Map<String, Object> params = new HashMap<>();
-            params.put("value", transformValue(value));
-            
             client.prepareUpdate(indexName, DEFAULT_TYPE, indexDocId)
                 .setRetryOnConflict(RETRY_ON_CONFLICT)
-                .setScript(new Script(
-                        ScriptType.INLINE,
-                        "painless",
-                        "ctx._source."+key+" = params.value",
-                        params
-                )).execute().actionGet();
+                .setRefreshPolicy(getRefreshPolicy(indexName, refreshPolicy))
+                .setScript(buildUpdateFieldScript(key, value))
+                .execute().actionGet();
 
             log.debug("Field updated on document in ElasticSearch [indexName: {}, indexDocId: {}, key: {}, value: {}]", indexName, indexDocId, key, value);
 
-            this.refreshIndex(indexName);
-
+        } catch (IndexNotFoundException ex) {
+            throw noIndex(indexName, ex);
         } catch (Exception ex) {
             log.error("Error while updating field [indexName: {}, indexDocId: {}, key: {}, value: {}]", indexName, indexDocId, key, value, ex);
             throw new TechnicalException("Error while updating key " + key + " of doc indexDocId: " + indexDocId, ex);
@@ -280,9 +470,48 @@ public class ElasticSearchService implements IndexingService {
     }
 
     @Override
-    public void deindex(String indexName, String indexDocId) {
+    public void bulkUpdateField(String indexName, Collection<String> indexDocIds, String key, Object value, RefreshPolicy refreshPolicy) {
+        log.debug("Bulk update field on documents in ElasticSearch [indexName: {}, indexDocIds: {}, key: {}, value: {}, refreshPolicy: {}]", indexName, indexDocIds.size(), key, value, refreshPolicy);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("key", key);
+        if (indexDocIds.isEmpty()) {
+            return;
+        }
+
+        // Format index
+        indexName = indexName.toLowerCase();
+        
+        BulkResponse response;
+        try {
+            Script script = buildUpdateFieldScript(key, value);
+            BulkRequestBuilder bulk = client.prepareBulk().setRefreshPolicy(getRefreshPolicy(indexName, refreshPolicy));
+            for (String indexDocId : indexDocIds) {
+                bulk.add(client.prepareUpdate(indexName, DEFAULT_TYPE, indexDocId)
+                        .setRetryOnConflict(RETRY_ON_CONFLICT)
+                        .setScript(script));
+            }
+            response = bulk.get();
+
+        } catch (IndexNotFoundException ex) {
+            throw noIndex(indexName, ex);
+        } catch (Exception ex) {
+            log.error("Error while updating field [indexName: {}, indexDocIds: {}, key: {}, value: {}]", indexName, indexDocIds, key, value, ex);
+            throw new TechnicalException("Error while updating key " + key + " of " + indexDocIds.size() + " docs", ex);
+        }
+        
+        if (response.hasFailures()) {
+            throw new TechnicalException("Error while updating key " + key + " of docs: " + response.buildFailureMessage());
+        }
+
+        log.debug("Field updated on documents in ElasticSearch [indexName: {}, indexDocIds: {}, key: {}, value: {}, took: {}]", indexName, indexDocIds.size(), key, value, response.getTook());
+    }
+
+    @Override
+    public void deindex(String indexName, String indexDocId, RefreshPolicy refreshPolicy) {
 
-        log.debug("Deindex document in ElasticSearch [indexName: {}, indexDocId:{}]", indexName, indexDocId);
+        log.debug("Deindex document in ElasticSearch [indexName: {}, indexDocId:{}, refreshPolicy: {}]", indexName, indexDocId, refreshPolicy);
 
         // Validation
         ValidatorUtils.rejectIfEmpty("indexName", indexName);
@@ -292,19 +521,46 @@ public class ElasticSearchService implements IndexingService {
         indexName = indexName.toLowerCase();
 
         // Check if index exists
-        if(!indexExists(indexName)) {
-            throw new NoIndexException(indexName);
-        }
+        rejectIfNoIndex(indexName);
         
-        if (!this.documentExists(indexName, indexDocId)) {
-            throw new NotFoundException("Document [indexName: " + indexName + ", id: " + indexDocId + "] not found");
+        DeleteResponse response;
+        try {
+            response = client.prepareDelete(indexName, DEFAULT_TYPE, indexDocId)
+                .setRefreshPolicy(getRefreshPolicy(indexName, refreshPolicy))
+                .get();
+        } catch (IndexNotFoundException ex) {
+            throw noIndex(indexName, ex);
         }
 
-        client.prepareDelete(indexName, DEFAULT_TYPE, indexDocId).get();
+        checkDeleted(indexName, indexDocId, response);
+    }
 
-        log.debug("Document deindexed ElasticSearch [indexName: {}, indexDocId:{}]", indexName, indexDocId);
+    @Override
+    public CompletableFuture<Void> deindexAsync(String indexName, String indexDocId, RefreshPolicy refreshPolicy) {
+
+        log.debug("Deindex document in ElasticSearch [indexName: {}, indexDocId:{}, refreshPolicy: {}, async: true]", indexName, indexDocId, refreshPolicy);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("indexDocId", indexDocId);
+
+        // Format index
+        String index = indexName.toLowerCase();
+
+        // Check if index exists
+        rejectIfNoIndex(index);
+
+        return executeAsync(client.prepareDelete(index, DEFAULT_TYPE, indexDocId)
+                    .setRefreshPolicy(getRefreshPolicy(index, refreshPolicy)), index)
+                .thenAccept(response -> checkDeleted(index, indexDocId, response));
+    }
 
-        this.refreshIndex(indexName);
+    private void checkDeleted(String indexName, String indexDocId, DeleteResponse response) {
+        if (response.getResult() == DocWriteResponse.Result.NOT_FOUND) {
+            throw new NotFoundException("Document [indexName: " + indexName + ", id: " + indexDocId + "] not found");
+        }
+
+        log.debug("Document deindexed ElasticSearch [indexName: {}, indexDocId:{}]", indexName, indexDocId);
     }
 
     @Override
@@ -320,6 +576,25 @@ public class ElasticSearchService implements IndexingService {
 
         GetResponse response = client.prepareGet(indexName, DEFAULT_TYPE, indexDocId).get();
 
+        return convertDocument(indexName, indexDocId, response);
+    }
+
+    @Override
+    public CompletableFuture<Metadata> getDocumentAsync(String indexName, String indexDocId) {
+        log.debug("Get document in ElasticSearch [indexName: {}, indexDocId:{}, async: true]", indexName, indexDocId);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("indexDocId", indexDocId);
+
+        // Format index
+        String index = indexName.toLowerCase();
+
+        return executeAsync(client.prepareGet(index, DEFAULT_TYPE, indexDocId), null)
+                .thenApply(response -> convertDocument(index, indexDocId, response));
+    }
+
+    private Metadata convertDocument(String indexName, String indexDocId, GetResponse response) {
         log.trace("Get document in ElasticSearch [indexName: {}, indexDocId: {}] : response= {}", indexName, indexDocId,
                 response);
 
@@ -342,20 +617,58 @@ public class ElasticSearchService implements IndexingService {
         // Format index
         indexName = Optional.ofNullable(indexName).map(String::toLowerCase).orElse(ALL_INDICES);
 
+        // Run query
+        SearchResponse searchResponse = prepareSearch(indexName, query, pageRequest).execute().actionGet();
+
+        return convertPage(indexName, query, pageRequest, searchResponse);
+    }
+
+    @Override
+    public CompletableFuture<Page<Metadata>> searchDocumentsAsync(String indexName, Query query, PageRequest pageRequest) {
+
+        log.debug("Search documents in ElasticSearch [indexName: {}, query: {}, async: true]", indexName, query);
+
+        // Validation
+        ValidatorUtils.rejectIfNull("pageRequest", pageRequest);
+
+        // Format index
+        String index = Optional.ofNullable(indexName).map(String::toLowerCase).orElse(ALL_INDICES);
+
+        return executeAsync(prepareSearch(index, query, pageRequest), null)
+                .thenApply(searchResponse -> convertPage(index, query, pageRequest, searchResponse));
+    }
+
+    private SearchRequestBuilder prepareSearch(String indexName, Query query, PageRequest pageRequest) {
+
         // Build query
         SearchRequestBuilder requestBuilder = client.prepareSearch(indexName)
                 .setSearchType(SearchType.DFS_QUERY_THEN_FETCH).setQuery(buildQuery(query))
-                .setFrom(pageRequest.getSize() * pageRequest.getPage()).setSize(pageRequest.getSize());
+                .setSize(pageRequest.getSize());
 
         if (pageRequest.getSort() != null) {
             requestBuilder.addSort(new FieldSortBuilder(pageRequest.getSort())
                     .order(pageRequest.isAscending() ? SortOrder.ASC : SortOrder.DESC).unmappedType("date"));
         }
+        
+        if (pageRequest.isCursorBased()) {
+            // search_after: the sort must be unique to resume after the last hit, break ties by index and ID (keyword
+            // copy of the ID with doc values, sorting on _id would load it in the heap as fielddata)
+            requestBuilder
+                .addSort(SortBuilders.fieldSort(INDEX_FIELD).order(SortOrder.ASC))
+                .addSort(SortBuilders.fieldSort(DOC_ID_KEY).order(SortOrder.ASC).unmappedType(KEYWORD_TYPE));
+            if (!pageRequest.isFirstCursor()) {
+                requestBuilder.searchAfter(decodeCursor(pageRequest.getCursor()));
+            }
+        } else {
+            requestBuilder.setFrom(pageRequest.getSize() * pageRequest.getPage());
+        }
 
         log.trace(requestBuilder.toString());
 
-        // Run query
-        SearchResponse searchResponse = requestBuilder.execute().actionGet();
+        return requestBuilder;
+    }
+
+    private Page<Metadata> convertPage(String indexName, Query query, PageRequest pageRequest, SearchResponse searchResponse) {
 
         log.trace("Search documents in ElasticSearch [indexName: {}, query: {}]: {}", indexName, query, searchResponse);
 
@@ -364,7 +677,14 @@ public class ElasticSearchService implements IndexingService {
 
         log.debug("Search documents in ElasticSearch [indexName: {}, query: {}]: {}", indexName, query, result);
 
-        return Page.of(pageRequest, result, Math.toIntExact(searchResponse.getHits().getTotalHits()));
+        // Cursor of the next page: sort values of the last hit (no next page if this page isn't full)
+        SearchHit[] hits = searchResponse.getHits().getHits();
+        String nextCursor = null;
+        if (pageRequest.isCursorBased() && hits.length > 0 && hits.length == pageRequest.getSize()) {
+            nextCursor = encodeCursor(hits[hits.length - 1].getSortValues());
+        }
+
+        return Page.of(pageRequest, result, Math.toIntExact(searchResponse.getHits().getTotalHits()), nextCursor);
     }
 
     private Map<String, Object> transformFields(Map<String, Object> indexFields) {
@@ -390,9 +710,21 @@ public class ElasticSearchService implements IndexingService {
         return value;
     }
 
-    private Boolean documentExists(String indexName, String id) {
-        GetResponse response = client.prepareGet(indexName, DEFAULT_TYPE, id).setRefresh(true).get();
-        return response.isExists();
+    private Map<String, Object> buildSource(String contentId, String contentType, byte[] content, boolean pinned, 
+            Map<String, Object> indexFields) {
+        
+        Map<String, Object> source = new HashMap<>();
+        source.put(HASH_INDEX_KEY, contentId);
+        source.put(CONTENT_TYPE_INDEX_KEY, contentType);
+        source.put(PINNED_KEY, pinned);
+        Optional.ofNullable(content)
+            .map(bytearray -> Base64.getEncoder().encode(bytearray))
+            .ifPresent(base64 -> source.put(CONTENT_INDEX_KEY, new String(base64)));
+        
+        if (indexFields != null) {
+            source.putAll(transformFields(indexFields));
+        }
+        return source;
     }
 
     private String convertObjectToJsonString(Object object) {
@@ -404,14 +736,198 @@ public class ElasticSearchService implements IndexingService {
         }
     }
 
-    private void refreshIndex(String indexName) {
-        this.client.admin().indices().prepareRefresh(indexName).get();
+    private Script buildUpdateFieldScript(String key, Object value) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("value", transformValue(value));
+        
+        return new Script(
+                ScriptType.INLINE,
+                "painless",
+                "ctx._source."+key+" = params.value",
+                params);
+    }
+
+    private String encodeCursor(Object[] sortValues) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(convertObjectToJsonString(sortValues).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Object[] decodeCursor(String cursor) {
+        try {
+            return mapper.readValue(Base64.getUrlDecoder().decode(cursor), Object[].class);
+        } catch (IllegalArgumentException | IOException ex) {
+            throw new ValidationException("Invalid cursor: " + cursor);
+        }
+    }
+
+    private WriteRequest.RefreshPolicy getRefreshPolicy(String indexName, RefreshPolicy refreshPolicy) {
+        return getRefreshPolicy(Collections.singleton(indexName), refreshPolicy);
+    }
+
+    /**
+     * Refresh policy of a write on one or more indexes (bulk): the strictest policy configured for the indexes 
+     * (IMMEDIATE, then WAIT_UNTIL, then NONE) unless overridden
+     */
+    private WriteRequest.RefreshPolicy getRefreshPolicy(Set<String> indexNames, RefreshPolicy refreshPolicy) {
+        RefreshPolicy policy = Optional.ofNullable(refreshPolicy)
+                .orElseGet(() -> indexNames.stream()
+                        .map(indexName -> settings.getIndexRefreshPolicies().getOrDefault(indexName, settings.getRefreshPolicy()))
+                        .min(Comparator.naturalOrder())
+                        .orElse(settings.getRefreshPolicy()));
+
+        switch (policy) {
+        case WAIT_UNTIL:
+            return WriteRequest.RefreshPolicy.WAIT_UNTIL;
+        case NONE:
+            return WriteRequest.RefreshPolicy.NONE;
+        default:
+            return WriteRequest.RefreshPolicy.IMMEDIATE;
+        }
+    }
+    
+    /**
+     * Send a request without blocking. The future is completed by a thread of the listener pool of the client (never 
+     * by a network thread), so the continuations can block (e.g. to load the mapping of an index)
+     * @param indexName Index of the request (an IndexNotFoundException is translated to a NoIndexException), or null
+     */
+    private <T extends ActionResponse> CompletableFuture<T> executeAsync(ActionRequestBuilder<?, T, ?> request, String indexName) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Executor executor = client.threadPool().executor(ThreadPool.Names.LISTENER);
+
+        request.execute(ActionListener.wrap(
+                response -> executor.execute(() -> future.complete(response)),
+                ex -> executor.execute(() -> {
+                    Throwable cause = ExceptionsHelper.unwrapCause(ex);
+                    future.completeExceptionally(indexName != null && cause instanceof IndexNotFoundException 
+                            ? noIndex(indexName, (IndexNotFoundException) cause) : cause);
+                })));
+
+        return future;
     }
     
     private boolean indexExists(String indexName) {
         return client.admin().indices().prepareExists(indexName).execute().actionGet().isExists();
     }
 
+    /**
+     * Check an index exists using the registry of known indexes, ElasticSearch is only requested for unknown indexes 
+     * (e.g. created by another client since the startup)
+     */
+    private void rejectIfNoIndex(String indexName) {
+        if (knownIndexes.containsKey(indexName)) {
+            return;
+        }
+        try {
+            register(indexName);
+        } catch (IndexNotFoundException ex) {
+            throw new NoIndexException(indexName);
+        }
+    }
+
+    /**
+     * Map __id as a keyword before the first write of this service to an index, so that it isn't mapped dynamically 
+     * as text (not sortable) in an index created without it (e.g. before the field was introduced, or with its own
+     * configuration). The documents written before don't have the field: their order is only partially defined by
+     * the cursor-based pagination until they are re-indexed
+     */
+    private void mapDocId(String indexName) {
+        if (docIdMappedIndexes.contains(indexName)) {
+            return;
+        }
+        try {
+            client.admin().indices().preparePutMapping(indexName).setType(DEFAULT_TYPE)
+                .setSource(DOC_ID_KEY, "type=keyword")
+                .get();
+        } catch (IndexNotFoundException ex) {
+            throw noIndex(indexName, ex);
+        } catch (Exception ex) {
+            log.warn("Error while mapping {} as a keyword [indexName: {}]: {}", DOC_ID_KEY, indexName, ex.getMessage());
+        }
+        docIdMappedIndexes.add(indexName);
+    }
+
+    /**
+     * Register an index with its UUID, which identifies an instance of the index (a re-created index gets a new UUID)
+     */
+    private void register(String indexName) {
+        String uuid = client.admin().indices().prepareGetSettings(indexName).get()
+                .getSetting(indexName, IndexMetaData.SETTING_INDEX_UUID);
+        knownIndexes.put(indexName, Optional.ofNullable(uuid).orElse(UNKNOWN_UUID));
+    }
+
+    /**
+     * Check an upsert was written in the registered instance of the index.
+     * 
+     * An index deleted by another client after it was registered is silently re-created by the upsert (auto-create)
+     * with a dynamic mapping (e.g. __hash mapped as text), so the write succeeds in another instance of the index 
+     * (new UUID). If this instance doesn't map __hash as a keyword, it was not created by Mahuta: the index is 
+     * unregistered and the write fails with NoIndexException, as if ElasticSearch had reported the index missing. 
+     * The index is left as it is (it may hold documents written by other clients), the operator decides whether to 
+     * delete it and re-create it with its mapping. Otherwise the index was re-created with its mapping (e.g. by 
+     * another Mahuta instance) and is registered again.
+     */
+    private void checkIndexInstance(String indexName, ShardId shardId) {
+        NoIndexException ex = checkIndexInstance(indexName, shardId.getIndex().getUUID());
+        if (ex != null) {
+            throw ex;
+        }
+    }
+
+    /**
+     * Same as checkIndexInstance for the items of a bulk request, each index is only checked once
+     * @return true if the item was written in the registered instance of the index
+     */
+    private boolean checkIndexInstance(String indexName, ShardId shardId, Map<String, NoIndexException> autoCreatedIndexes) {
+        if (!autoCreatedIndexes.containsKey(indexName)) {
+            NoIndexException ex = checkIndexInstance(indexName, shardId.getIndex().getUUID());
+            if (ex == null) {
+                return true;
+            }
+            autoCreatedIndexes.put(indexName, ex);
+        }
+        return false;
+    }
+
+    private NoIndexException checkIndexInstance(String indexName, String uuid) {
+        String registeredUuid = knownIndexes.get(indexName);
+        if (uuid.equals(registeredUuid) || UNKNOWN_UUID.equals(registeredUuid)) {
+            return null;
+        }
+        
+        mappings.remove(indexName);
+        if (KEYWORD_TYPE.equals(loadMapping(indexName).getType(HASH_INDEX_KEY))) {
+            log.info("Index [indexName: {}] re-created in ElasticSearch [uuid: {}]", indexName, uuid);
+            knownIndexes.put(indexName, uuid);
+            docIdMappedIndexes.remove(indexName);
+            return null;
+        }
+        
+        log.warn("Index [indexName: {}] re-created in ElasticSearch without the Mahuta mapping (__hash isn't a keyword, e.g. "
+                + "auto-created by a write after the index was deleted) [uuid: {}], the index should be re-created with its mapping", 
+                indexName, uuid);
+        knownIndexes.remove(indexName);
+        docIdMappedIndexes.remove(indexName);
+        return new NoIndexException(indexName);
+    }
+
+    /**
+     * Unregister an index reported missing by ElasticSearch (e.g. deleted by another client)
+     */
+    private NoIndexException noIndex(String indexName, IndexNotFoundException ex) {
+        log.debug("Index [indexName: {}] not found in ElasticSearch", indexName, ex);
+        knownIndexes.remove(indexName);
+        mappings.remove(indexName);
+        docIdMappedIndexes.remove(indexName);
+        return new NoIndexException(indexName);
+    }
+
+    private void warmIndexRegistry() {
+        try {
+            this.getIndexes();
+        } catch (Exception ex) {
+            log.warn("Error while loading the indexes from ElasticSearch, the index registry will be populated on demand", ex);
+        }
+    }
+
     private Metadata convert(String indexName, String documentId, Map<String, Object> sourceMap) {
         String contentId = null;
         String contentType = null;
@@ -421,19 +937,7 @@ public class ElasticSearchService implements IndexingService {
         if (sourceMap != null) {
             
             // Cast from mapping
-            Map<String, String> mapping = this.getMapping(indexName);
-            log.debug("mapping={}", mapping);
-            sourceMap.forEach((key, value) -> {
-                if (mapping.containsKey(key)) {
-                    if ("date".equals(mapping.get(key))) {
-                        Long date = Longs.tryParse(value.toString());
-                        if (date != null) {
-                            sourceMap.put(key, new Date(date));
-                        }
-                    }
-                }
-
-            });
+            getMapping(indexName, sourceMap.keySet()).decode(sourceMap);
             
             // Extract special key __hash
             if (sourceMap.containsKey(HASH_INDEX_KEY) && sourceMap.get(HASH_INDEX_KEY) != null) {
@@ -450,6 +954,8 @@ public class ElasticSearchService implements IndexingService {
                 content = Base64.getDecoder().decode(sourceMap.get(CONTENT_INDEX_KEY).toString());
                 sourceMap.remove(CONTENT_INDEX_KEY);
             }
+            // Remove special key __id (copy of the document ID)
+            sourceMap.remove(DOC_ID_KEY);
             // Extract special key __pinned
             if (sourceMap.containsKey(PINNED_KEY) && sourceMap.get(PINNED_KEY) != null) {
                 pinned = (boolean) sourceMap.get(PINNED_KEY);
@@ -544,17 +1050,40 @@ public class ElasticSearchService implements IndexingService {
         return elasticSearchQuery;
     }
     
-    private Map<String, String> getMapping(String indexName) {
+    /**
+     * Get the mapping of an index from the cache (loaded from ElasticSearch the first time)
+     * 
+     * The mapping is reloaded if the document contains fields not present in the cached mapping (e.g. new fields 
+     * dynamically mapped since), at most once every MAPPING_RELOAD_INTERVAL_MS.
+     */
+    private IndexMapping getMapping(String indexName, Collection<String> fields) {
+        IndexMapping mapping = mappings.computeIfAbsent(indexName, this::loadMapping);
+        
+        if (!mapping.isMapped(fields) && System.currentTimeMillis() - mapping.getLoadedAt() > MAPPING_RELOAD_INTERVAL_MS) {
+            // Only reload if another thread hasn't done it in the meantime
+            return mappings.compute(indexName, (name, current) -> current != null && current != mapping ? current : loadMapping(name));
+        }
+        
+        return mapping;
+    }
+    
+    private IndexMapping loadMapping(String indexName) {
         Map<String, String> mapping = new HashMap<>();
 
         GetMappingsResponse response = this.client.admin().indices().prepareGetMappings(indexName).get();
         log.debug("GetMappingsResponse={}", response);
+        
+        if (response.getMappings().get(indexName) == null || response.getMappings().get(indexName).get(DEFAULT_TYPE) == null) {
+            return IndexMapping.empty();
+        }
        
-        MappingMetaData mappingMetaData = response.getMappings().get(indexName).get(DEFAULT_TYPE).get();
+        MappingMetaData mappingMetaData = response.getMappings().get(indexName).get(DEFAULT_TYPE);
         LinkedHashMap<String, LinkedHashMap> map = (LinkedHashMap<String, LinkedHashMap>) mappingMetaData.getSourceAsMap().get("properties");
         
-        map.forEach((key, value) -> mapping.put(key, (String) value.get("type")));
+        if (map != null) {
+            map.forEach((key, value) -> mapping.put(key, (String) value.get("type")));
+        }
         
-        return mapping;
+        return IndexMapping.of(mapping);
     }
 }
@@ -1,18 +1,25 @@
 package net.consensys.mahuta.core.indexer.elasticsearch;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import lombok.Getter;
 import lombok.Setter;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 
 public class ElasticSearchSettings {
     
     public static final String DEFAULT_HOST = "localhost";
     public static final int DEFAULT_PORT = 9300;
     public static final boolean DEFAULT_INDEX_NULL_VALUES = true;
+    public static final RefreshPolicy DEFAULT_REFRESH_POLICY = RefreshPolicy.IMMEDIATE;
 
     private @Setter @Getter String host = DEFAULT_HOST;
     private @Setter @Getter Integer port = DEFAULT_PORT;
     private @Setter @Getter String clusterName;
     private @Setter @Getter boolean indexNullValue = DEFAULT_INDEX_NULL_VALUES;
+    private @Setter @Getter RefreshPolicy refreshPolicy = DEFAULT_REFRESH_POLICY;
+    private final @Getter Map<String, RefreshPolicy> indexRefreshPolicies = new ConcurrentHashMap<>();
 
     public static ElasticSearchSettings of() {
         return new ElasticSearchSettings();
@@ -0,0 +1,85 @@
+package net.consensys.mahuta.core.indexer.elasticsearch;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Longs;
+
+import lombok.Getter;
+
+/**
+ * Field types of an index, read once from the ElasticSearch mapping, and the codec used to convert the values
+ * of a document source to their Java type (e.g. date fields are stored as timestamps and returned as Date)
+ */
+public class IndexMapping {
+
+    private static final Map<String, Function<Object, Object>> DECODERS = ImmutableMap.of(
+            "date", IndexMapping::decodeDate);
+
+    private final Map<String, String> types;
+    private final Map<String, Function<Object, Object>> decoders;
+    private final @Getter long loadedAt;
+
+    private IndexMapping(Map<String, String> types, long loadedAt) {
+        this.types = Collections.unmodifiableMap(new HashMap<>(types));
+        this.decoders = new HashMap<>();
+        this.loadedAt = loadedAt;
+        
+        types.forEach((field, type) -> {
+            if (type != null && DECODERS.containsKey(type)) {
+                decoders.put(field, DECODERS.get(type));
+            }
+        });
+    }
+
+    public static IndexMapping of(Map<String, String> types) {
+        return new IndexMapping(types, System.currentTimeMillis());
+    }
+
+    public static IndexMapping empty() {
+        return of(Collections.emptyMap());
+    }
+
+    /**
+     * Get the type of a field
+     * @param field Field name
+     * @return Type (null if the field isn't mapped)
+     */
+    public String getType(String field) {
+        return types.get(field);
+    }
+
+    /**
+     * Check if all the fields are present in the mapping
+     * @param fields Field names
+     * @return true if all the fields are mapped
+     */
+    public boolean isMapped(Collection<String> fields) {
+        return types.keySet().containsAll(fields);
+    }
+
+    /**
+     * Convert the values of a document source to their Java type (in place)
+     * @param source Document source
+     * @return source
+     */
+    public Map<String, Object> decode(Map<String, Object> source) {
+        decoders.forEach((field, decoder) -> {
+            Object value = source.get(field);
+            if (value != null) {
+                source.put(field, decoder.apply(value));
+            }
+        });
+        return source;
+    }
+
+    private static Object decodeDate(Object value) {
+        Long date = Longs.tryParse(value.toString());
+        return date != null ? new Date(date) : value;
+    }
+}
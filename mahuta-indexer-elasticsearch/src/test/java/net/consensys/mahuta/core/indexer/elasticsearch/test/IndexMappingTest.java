@@ -0,0 +1,66 @@
+package net.consensys.mahuta.core.indexer.elasticsearch.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import net.consensys.mahuta.core.indexer.elasticsearch.IndexMapping;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class IndexMappingTest extends TestUtils {
+
+    private static IndexMapping mapping() {
+        Map<String, String> types = new HashMap<>();
+        types.put("title", "text");
+        types.put("date_created", "date");
+        types.put("views", "integer");
+        return IndexMapping.of(types);
+    }
+
+    @Test
+    public void decodeDate() {
+        long timestamp = mockNeat.localDates().thisYear().toUtilDate().get().getTime();
+        
+        Map<String, Object> source = new HashMap<>();
+        source.put("title", "hello");
+        source.put("date_created", timestamp);
+        source.put("views", 10);
+        
+        mapping().decode(source);
+        
+        assertEquals("hello", source.get("title"));
+        assertEquals(new Date(timestamp), source.get("date_created"));
+        assertEquals(10, source.get("views"));
+    }
+
+    @Test
+    public void decodeNullAndInvalidDate() {
+        Map<String, Object> source = new HashMap<>();
+        source.put("title", "hello");
+        source.put("date_created", "null");
+        
+        mapping().decode(source);
+        
+        assertEquals("null", source.get("date_created"));
+        assertFalse(source.containsKey("views"));
+    }
+
+    @Test
+    public void isMapped() {
+        IndexMapping mapping = mapping();
+        
+        assertTrue(mapping.isMapped(Arrays.asList("title", "views")));
+        assertFalse(mapping.isMapped(Arrays.asList("title", "author")));
+        assertEquals("date", mapping.getType("date_created"));
+        assertNull(mapping.getType("author"));
+        assertTrue(IndexMapping.empty().isMapped(Arrays.asList()));
+    }
+}
@@ -7,19 +7,30 @@ import static net.consensys.mahuta.core.test.utils.IndexingRequestUtils.STATUS_F
 import static net.consensys.mahuta.core.test.utils.IndexingRequestUtils.TITLE_FIELD;
 import static net.consensys.mahuta.core.test.utils.IndexingRequestUtils.VIEWS_FIELD;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.stream.IntStream;
 
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.transport.client.PreBuiltTransportClient;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import io.ipfs.api.IPFS;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingItem;
 import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
 import net.consensys.mahuta.core.domain.common.pagination.Page;
 import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
 import net.consensys.mahuta.core.domain.common.pagination.PageRequest.SortDirection;
@@ -153,6 +164,36 @@ public class ElasticSearchIndexerTest extends TestUtils  {
         assertEquals(builderAndResponse.getBuilder().getRequest().getIndexDocId(), docId);
     }
 
+    @Test
+    public void indexWithoutRefresh() throws Exception {
+
+        BuilderAndResponse<IndexingRequest, IndexingResponse> builderAndResponse = indexingRequestUtils.generateRandomStringIndexingRequest();
+
+        IndexingService service = ElasticSearchService
+                .connect(ContainerUtils.getHost("elasticsearch"), ContainerUtils.getPort("elasticsearch"), ContainerUtils.getConfig("elasticsearch", "cluster-name"))
+                .withIndex(builderAndResponse.getBuilder().getRequest().getIndexName(), BytesUtils.readFileInputStream("index_mapping.json"), RefreshPolicy.NONE);
+        
+        //////////////////////////////
+        String docId = service.index(
+                builderAndResponse.getBuilder().getRequest().getIndexName(), 
+                builderAndResponse.getBuilder().getRequest().getIndexDocId(), 
+                builderAndResponse.getResponse().getContentId(), 
+                builderAndResponse.getBuilder().getRequest().getContentType(), 
+                null, true,
+                builderAndResponse.getBuilder().getRequest().getIndexFields());
+        //////////////////////////////
+
+        // Realtime get: the document is available straight away without refresh
+        Metadata metadata = service.getDocument(builderAndResponse.getBuilder().getRequest().getIndexName(), docId);
+        assertEquals(builderAndResponse.getResponse().getContentId(), metadata.getContentId());
+        
+        // Per-request override
+        service.updateField(builderAndResponse.getBuilder().getRequest().getIndexName(), docId, TITLE_FIELD, "new title", RefreshPolicy.WAIT_UNTIL);
+        Page<Metadata> result = service.searchDocuments(builderAndResponse.getBuilder().getRequest().getIndexName(), 
+                Query.newQuery().equals(TITLE_FIELD, "new title"), PageRequest.of());
+        assertEquals(1, result.getTotalElements().intValue());
+    }
+
     @Test
     public void indexWithoutId() throws Exception {
         String indexName = mockNeat.strings().size(20).get();
@@ -195,6 +236,47 @@ public class ElasticSearchIndexerTest extends TestUtils  {
         //////////////////////////////
     }
 
+    @Test
+    public void indexWithIndexDeletedByAnotherClient() throws Exception {
+
+        BuilderAndResponse<IndexingRequest, IndexingResponse> builderAndResponse = indexingRequestUtils.generateRandomStringIndexingRequest();
+        String indexName = builderAndResponse.getBuilder().getRequest().getIndexName();
+
+        IndexingService service = ElasticSearchService
+                .connect(ContainerUtils.getHost("elasticsearch"), ContainerUtils.getPort("elasticsearch"), ContainerUtils.getConfig("elasticsearch", "cluster-name"))
+                .withIndex(indexName, BytesUtils.readFileInputStream("index_mapping.json"));
+        
+        PreBuiltTransportClient otherClient = new PreBuiltTransportClient(
+                Settings.builder().put("cluster.name", ContainerUtils.getConfig("elasticsearch", "cluster-name")).build());
+        otherClient.addTransportAddress(new TransportAddress(InetAddress.getByName(ContainerUtils.getHost("elasticsearch")), ContainerUtils.getPort("elasticsearch")));
+        otherClient.admin().indices().prepareDelete(indexName.toLowerCase()).get();
+        
+        //////////////////////////////
+        try {
+            service.index(
+                    indexName, 
+                    builderAndResponse.getBuilder().getRequest().getIndexDocId(), 
+                    builderAndResponse.getResponse().getContentId(), 
+                    builderAndResponse.getBuilder().getRequest().getContentType(), 
+                    null, true,
+                    builderAndResponse.getBuilder().getRequest().getIndexFields());
+            fail("NoIndexException expected");
+        } catch (NoIndexException ex) {
+            // The index auto-created by the upsert (dynamic mapping) is left to the operator
+            assertTrue(otherClient.admin().indices().prepareExists(indexName.toLowerCase()).get().isExists());
+            
+            // Once re-created with its mapping, the index can be used again
+            otherClient.admin().indices().prepareDelete(indexName.toLowerCase()).get();
+        } finally {
+            otherClient.close();
+        }
+        //////////////////////////////
+        
+        service.createIndex(indexName);
+        service.index(indexName, null, builderAndResponse.getResponse().getContentId(), 
+                builderAndResponse.getBuilder().getRequest().getContentType(), null, true, null);
+    }
+
 
     @Test
     public void update() throws Exception {
@@ -298,6 +380,46 @@ public class ElasticSearchIndexerTest extends TestUtils  {
         //////////////////////////////
     }
 
+    @Test(expected=NotFoundException.class)
+    public void deindexNotFound() throws Exception {
+        String indexName = mockNeat.strings().size(20).get();
+
+        IndexingService service = ElasticSearchService
+                .connect(ContainerUtils.getHost("elasticsearch"), ContainerUtils.getPort("elasticsearch"), ContainerUtils.getConfig("elasticsearch", "cluster-name"))
+                .withIndex(indexName, BytesUtils.readFileInputStream("index_mapping.json"));
+        
+        //////////////////////////////
+        service.deindex(indexName, mockNeat.strings().size(50).get());
+        //////////////////////////////
+    }
+
+    @Test
+    public void bulkIndex() throws Exception {
+        String indexName = mockNeat.strings().size(20).get();
+        String unknownIndexName = mockNeat.strings().size(20).get();
+
+        IndexingService service = ElasticSearchService
+                .connect(ContainerUtils.getHost("elasticsearch"), ContainerUtils.getPort("elasticsearch"), ContainerUtils.getConfig("elasticsearch", "cluster-name"))
+                .withIndex(indexName, BytesUtils.readFileInputStream("index_mapping.json"));
+        
+        List<Metadata> documents = Arrays.asList(
+                Metadata.of(indexName, "doc1", mockNeat.strings().size(46).get(), "text/plain", null, true, null),
+                Metadata.of(unknownIndexName, "doc2", mockNeat.strings().size(46).get(), "text/plain", null, true, null),
+                Metadata.of(indexName, null, mockNeat.strings().size(46).get(), "text/plain", null, true, null));
+
+        //////////////////////////////
+        List<BulkIndexingItem> items = service.bulkIndex(documents, RefreshPolicy.IMMEDIATE);
+        //////////////////////////////
+        
+        assertEquals(3, items.size());
+        assertTrue(items.get(0).isSuccess());
+        assertEquals("doc1", items.get(0).getResponse().getIndexDocId());
+        assertFalse(items.get(1).isSuccess());
+        assertTrue(items.get(2).isSuccess());
+        assertNotNull(items.get(2).getResponse().getIndexDocId());
+        assertEquals(documents.get(2).getContentId(), service.getDocument(indexName, items.get(2).getResponse().getIndexDocId()).getContentId());
+    }
+
     @Test
     public void findDocument() throws Exception {
         
@@ -331,6 +453,40 @@ public class ElasticSearchIndexerTest extends TestUtils  {
         assertEquals(builderAndResponse.getBuilder().getRequest().getIndexFields().get(VIEWS_FIELD), metadata.getIndexFields().get(VIEWS_FIELD));
     }
     
+    @Test
+    public void asyncRoundTrip() throws Exception {
+        
+        BuilderAndResponse<IndexingRequest, IndexingResponse> builderAndResponse = indexingRequestUtils.generateRandomStringIndexingRequest();
+        String indexName = builderAndResponse.getBuilder().getRequest().getIndexName();
+
+        IndexingService service = ElasticSearchService
+                .connect(ContainerUtils.getHost("elasticsearch"), ContainerUtils.getPort("elasticsearch"), ContainerUtils.getConfig("elasticsearch", "cluster-name"))
+                .withIndex(indexName, BytesUtils.readFileInputStream("index_mapping.json"));
+
+        //////////////////////////////
+        String docId = service.indexAsync(
+                indexName, 
+                builderAndResponse.getBuilder().getRequest().getIndexDocId(), 
+                builderAndResponse.getResponse().getContentId(), 
+                builderAndResponse.getBuilder().getRequest().getContentType(), 
+                null, true,
+                builderAndResponse.getBuilder().getRequest().getIndexFields(), 
+                RefreshPolicy.WAIT_UNTIL).get();
+        
+        Metadata metadata = service.getDocumentAsync(indexName, docId).get();
+        Page<Metadata> result = service.searchDocumentsAsync(indexName, 
+                Query.newQuery().equals(IndexingService.HASH_INDEX_KEY, builderAndResponse.getResponse().getContentId()), 
+                PageRequest.of(0, 10)).get();
+        service.deindexAsync(indexName, docId, RefreshPolicy.WAIT_UNTIL).get();
+        //////////////////////////////
+
+        assertEquals(builderAndResponse.getBuilder().getRequest().getIndexDocId(), docId);
+        assertEquals(builderAndResponse.getResponse().getContentId(), metadata.getContentId());
+        assertEquals(1, result.getTotalElements().intValue());
+        assertFalse(service.searchDocuments(indexName, Query.newQuery(), PageRequest.of(0, 10)).getElements().stream()
+                .anyMatch(m -> docId.equals(m.getIndexDocId())));
+    }
+    
     @Test
     public void findDocumentWithContent() throws Exception {
         
@@ -415,6 +571,42 @@ public class ElasticSearchIndexerTest extends TestUtils  {
 
     }
 
+    @Test
+    public void searchAllWithCursor() throws Exception {
+        String indexName = mockNeat.strings().size(20).get();
+        Integer pageSize = 10;
+        Integer noDocs = 35;
+        
+        IndexingService service = ElasticSearchService
+                .connect(ContainerUtils.getHost("elasticsearch"), ContainerUtils.getPort("elasticsearch"), ContainerUtils.getConfig("elasticsearch", "cluster-name"))
+                .withIndex(indexName, BytesUtils.readFileInputStream("index_mapping.json"));
+        
+        IntStream.range(0, noDocs).forEach(i-> {
+            BuilderAndResponse<IndexingRequest, IndexingResponse> x = indexingRequestUtils.generateRandomStringIndexingRequest(indexName, String.format("%05d", i));
+            service.index(
+                    x.getBuilder().getRequest().getIndexName(), 
+                    x.getBuilder().getRequest().getIndexDocId(), 
+                    x.getResponse().getContentId(), 
+                    x.getBuilder().getRequest().getContentType(), 
+                    null, true,
+                    x.getBuilder().getRequest().getIndexFields());
+        });
+        
+        //////////////////////////////
+        List<String> ids = new ArrayList<>();
+        Page<Metadata> result = service.searchDocuments(indexName, null, PageRequest.ofCursor(pageSize, VIEWS_FIELD, SortDirection.DESC));
+        result.getElements().forEach(m -> ids.add(m.getIndexDocId()));
+        while (result.hasNext()) {
+            result = service.searchDocuments(indexName, null, result.nextPageRequest());
+            result.getElements().forEach(m -> ids.add(m.getIndexDocId()));
+        }
+        //////////////////////////////
+
+        assertEquals(noDocs.intValue(), ids.size());
+        assertEquals(noDocs.intValue(), new HashSet<>(ids).size());
+        assertEquals(Integer.valueOf(3), result.getPageRequest().getPage());
+    }
+
     @Test
     public void searchDocumentsWithEqualsFilter() throws Exception {
         
@@ -0,0 +1,307 @@
+package net.consensys.mahuta.core.indexer.lucene;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.exception.ValidationException;
+
+/**
+ * A Lucene index stored in its own directory (memory-mapped), written with an IndexWriter and searched with
+ * near-real-time searchers (SearcherManager)
+ *
+ * A write is only visible to the searches after a refresh (reopen of the searcher), but the documents written since
+ * the last refresh are kept in a "live" map so a document can be read by ID straight away without forcing a refresh
+ * (realtime get). The live map is swapped when a refresh starts and dropped once the refreshed searcher is published.
+ */
+@Slf4j
+class LuceneIndex implements Closeable {
+
+    static final String ID_FIELD = "_id";
+
+    private final @Getter String name;
+    private final Directory directory;
+    private final IndexWriter writer;
+    private final SearcherManager searcherManager;
+
+    // Documents written (or deleted: empty) since the last refresh
+    private final ReadWriteLock liveLock = new ReentrantReadWriteLock();
+    private volatile Map<String, Optional<Document>> live = new ConcurrentHashMap<>();
+    private volatile Map<String, Optional<Document>> refreshing = Collections.emptyMap();
+
+    // Refreshes started / published (WAIT_UNTIL)
+    private final Object refreshMonitor = new Object();
+    private long refreshStarted;
+    private long refreshPublished;
+
+    private LuceneIndex(String name, Directory directory, IndexWriter writer, SearcherManager searcherManager) {
+        this.name = name;
+        this.directory = directory;
+        this.writer = writer;
+        this.searcherManager = searcherManager;
+        this.searcherManager.addListener(new LiveRefreshListener());
+    }
+
+    /**
+     * Open an index (created if it doesn't exist)
+     * @param path Directory of the index
+     * @param name Index name
+     * @param analyzer Analyzer of the text fields
+     * @return Index
+     */
+    static LuceneIndex open(Path path, String name, Analyzer analyzer) {
+        Directory directory = null;
+        try {
+            directory = new MMapDirectory(path);
+            boolean exists = DirectoryReader.indexExists(directory);
+
+            IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+            if (!exists) {
+                // First commit so the directory is recognised as an index on restart
+                writer.commit();
+            }
+
+            log.debug("Lucene index [indexName: {}, path: {}] opened (created: {})", name, path, !exists);
+
+            return new LuceneIndex(name, directory, writer, new SearcherManager(writer, null));
+
+        } catch (IOException ex) {
+            closeQuietly(directory);
+            log.error("Error while opening the Lucene index [indexName: {}, path: {}]", name, path, ex);
+            throw new TechnicalException("Error while opening the Lucene index " + name, ex);
+        }
+    }
+
+    /**
+     * Check if a directory contains an index
+     * @param path Directory
+     * @return true if it's an index
+     */
+    static boolean exists(Path path) {
+        try (Directory directory = new MMapDirectory(path)) {
+            return DirectoryReader.indexExists(directory);
+        } catch (IOException ex) {
+            log.warn("Error while reading the directory {}", path, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Add or replace a document
+     * @param indexDocId Document ID
+     * @param document Document
+     */
+    void write(String indexDocId, Document document) {
+        liveLock.readLock().lock();
+        try {
+            writer.updateDocument(new Term(ID_FIELD, indexDocId), document);
+            live.put(indexDocId, Optional.of(document));
+
+        } catch (IllegalArgumentException ex) {
+            // A field indexed with another type than in the other documents
+            throw new ValidationException("Document %s rejected by the Lucene index %s: %s", indexDocId, name, ex.getMessage());
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while writing document " + indexDocId + " in the Lucene index " + name, ex);
+        } finally {
+            liveLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Delete a document
+     * @param indexDocId Document ID
+     */
+    void delete(String indexDocId) {
+        liveLock.readLock().lock();
+        try {
+            writer.deleteDocuments(new Term(ID_FIELD, indexDocId));
+            live.put(indexDocId, Optional.empty());
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while deleting document " + indexDocId + " from the Lucene index " + name, ex);
+        } finally {
+            liveLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the last version of a document (realtime, including the writes not refreshed yet)
+     * @param indexDocId Document ID
+     * @return Document (null if it doesn't exist)
+     */
+    Document get(String indexDocId) {
+        Optional<Document> document = live.get(indexDocId);
+        if (document == null) {
+            document = refreshing.get(indexDocId);
+        }
+        if (document != null) {
+            return document.orElse(null);
+        }
+
+        IndexSearcher searcher = acquire();
+        try {
+            TopDocs result = searcher.search(new TermQuery(new Term(ID_FIELD, indexDocId)), 1);
+            return result.totalHits > 0 ? searcher.doc(result.scoreDocs[0].doc) : null;
+
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while reading document " + indexDocId + " from the Lucene index " + name, ex);
+        } finally {
+            release(searcher);
+        }
+    }
+
+    /**
+     * Acquire the current searcher, to be released after use
+     * @return Searcher
+     */
+    IndexSearcher acquire() {
+        try {
+            return searcherManager.acquire();
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while acquiring a searcher on the Lucene index " + name, ex);
+        }
+    }
+
+    void release(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException ex) {
+            log.warn("Error while releasing a searcher on the Lucene index {}", name, ex);
+        }
+    }
+
+    /**
+     * Refresh the searcher so the writes are visible to the searches (wait if a refresh is running)
+     */
+    void refresh() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while refreshing the Lucene index " + name, ex);
+        }
+    }
+
+    /**
+     * Refresh the searcher, unless a refresh is already running (scheduled refresh)
+     */
+    void maybeRefresh() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException ex) {
+            log.warn("Error while refreshing the Lucene index {}", name, ex);
+        }
+    }
+
+    /**
+     * Wait until the writes done so far are visible to the searches (next refresh)
+     */
+    void waitForRefresh() {
+        synchronized (refreshMonitor) {
+            // The next refresh to start includes the writes done so far
+            long target = refreshStarted + 1;
+            while (refreshPublished < target) {
+                try {
+                    refreshMonitor.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new TechnicalException("Interrupted while waiting for the refresh of the Lucene index " + name, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Commit the changes (durable on disk)
+     */
+    void commit() {
+        try {
+            if (writer.hasUncommittedChanges()) {
+                writer.commit();
+                log.trace("Lucene index [indexName: {}] committed", name);
+            }
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while committing the Lucene index " + name, ex);
+        }
+    }
+
+    /**
+     * Close the index (the changes are committed)
+     */
+    @Override
+    public void close() {
+        try {
+            searcherManager.close();
+            writer.close();
+        } catch (IOException ex) {
+            log.error("Error while closing the Lucene index {}", name, ex);
+        } finally {
+            closeQuietly(directory);
+            synchronized (refreshMonitor) {
+                refreshPublished = Long.MAX_VALUE;
+                refreshMonitor.notifyAll();
+            }
+        }
+    }
+
+    private static void closeQuietly(Directory directory) {
+        try {
+            if (directory != null) {
+                directory.close();
+            }
+        } catch (IOException ex) {
+            log.warn("Error while closing directory {}", directory, ex);
+        }
+    }
+
+    private class LiveRefreshListener implements ReferenceManager.RefreshListener {
+        private long generation;
+
+        @Override
+        public void beforeRefresh() {
+            // Exclusive with the writes: a document in the swapped map is written before the searcher is reopened
+            liveLock.writeLock().lock();
+            try {
+                refreshing = live;
+                live = new ConcurrentHashMap<>();
+            } finally {
+                liveLock.writeLock().unlock();
+            }
+            synchronized (refreshMonitor) {
+                generation = ++refreshStarted;
+            }
+        }
+
+        @Override
+        public void afterRefresh(boolean didRefresh) {
+            refreshing = Collections.emptyMap();
+            synchronized (refreshMonitor) {
+                refreshPublished = generation;
+                refreshMonitor.notifyAll();
+            }
+        }
+    }
+}
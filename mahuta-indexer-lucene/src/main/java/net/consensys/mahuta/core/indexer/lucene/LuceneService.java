@@ -0,0 +1,978 @@
+package net.consensys.mahuta.core.indexer.lucene;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.SortedSetSortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.spans.SpanMultiTermQueryWrapper;
+import org.apache.lucene.search.spans.SpanNearQuery;
+import org.apache.lucene.search.spans.SpanQuery;
+import org.apache.lucene.search.spans.SpanTermQuery;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingItem;
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
+import net.consensys.mahuta.core.domain.common.pagination.Page;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.domain.indexing.IndexingResponse;
+import net.consensys.mahuta.core.exception.NoIndexException;
+import net.consensys.mahuta.core.exception.NotFoundException;
+import net.consensys.mahuta.core.exception.TechnicalException;
+import net.consensys.mahuta.core.exception.ValidationException;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.utils.ValidatorUtils;
+
+/**
+ * IndexingService embedding the indexes in the JVM (Lucene), no cluster to run and no network hop
+ *
+ * Each index is a Lucene index in a sub-directory of the configured path. Index fields are indexed according to
+ * the type of their value (no mapping): strings as keywords (EQUALS, IN, ranges, sort) and as analysed text
+ * (FULL_TEXT, CONTAINS), numbers and dates as points (EQUALS, IN, ranges) and numeric doc values (sort), booleans as
+ * keywords. The writes follow the refresh policy (searchers reopened every refreshInterval otherwise) and are
+ * committed to disk every commitInterval and when the service is closed (or on JVM shutdown if it isn't closed before).
+ */
+@Slf4j
+public class LuceneService implements IndexingService, Closeable {
+
+    private static final String NULL = "null";
+    private static final String INDEX_FIELD = "_index";
+    private static final String ID_FIELD = LuceneIndex.ID_FIELD;
+    private static final String SOURCE_FIELD = "_source";
+    private static final String DATES_FIELD = "_dates";
+    private static final String TEXT_SUFFIX = "#text";
+    private static final String THREAD_NAME = "mahuta-lucene";
+
+    private final LuceneSettings settings;
+    private final Analyzer analyzer = new StandardAnalyzer(CharArraySet.EMPTY_SET);
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, LuceneIndex> indexes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Thread shutdownHook = new Thread(this::close, THREAD_NAME + "-shutdown");
+    private ScheduledFuture<?> refreshTask;
+    private ScheduledFuture<?> commitTask;
+
+    private LuceneService(LuceneSettings settings) {
+        ValidatorUtils.rejectIfNull("settings", settings);
+
+        this.settings = settings;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.openIndexes();
+        this.scheduleRefresh();
+        this.scheduleCommit();
+
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public static LuceneService open(String path) {
+        ValidatorUtils.rejectIfEmpty("path", path);
+        return open(Paths.get(path));
+    }
+
+    public static LuceneService open(Path path) {
+        ValidatorUtils.rejectIfNull("path", path);
+
+        try {
+            Files.createDirectories(path);
+        } catch (IOException ex) {
+            log.error("Error while creating the Lucene directory [path: {}]", path, ex);
+            throw new TechnicalException("Error while creating the Lucene directory " + path, ex);
+        }
+
+        LuceneService service = new LuceneService(LuceneSettings.of(path));
+        log.info("Lucene indexer opened [path: {}] : {}", path, service.indexes.keySet());
+
+        return service;
+    }
+
+    public LuceneService configureIndexNullValue(boolean indexNullValue) {
+        this.settings.setIndexNullValue(indexNullValue);
+        return this;
+    }
+
+    /**
+     * Configure the default refresh policy of the write operations (IMMEDIATE by default)
+     * @param refreshPolicy Refresh policy
+     * @return this
+     */
+    public LuceneService configureRefreshPolicy(RefreshPolicy refreshPolicy) {
+        ValidatorUtils.rejectIfNull("refreshPolicy", refreshPolicy);
+        this.settings.setRefreshPolicy(refreshPolicy);
+        return this;
+    }
+
+    /**
+     * Configure the interval between two refreshes of the searchers (1s by default): the maximum delay before a write
+     * with the refresh policy NONE is visible to the searches, and the maximum wait of a write with WAIT_UNTIL
+     * @param refreshInterval Refresh interval
+     * @return this
+     */
+    public LuceneService configureRefreshInterval(Duration refreshInterval) {
+        rejectIfNotPositive("refreshInterval", refreshInterval);
+        this.settings.setRefreshInterval(refreshInterval);
+        this.scheduleRefresh();
+        return this;
+    }
+
+    /**
+     * Configure the interval between two commits of the indexes (5s by default): the writes of the last interval
+     * can be lost if the process crashes
+     * @param commitInterval Commit interval
+     * @return this
+     */
+    public LuceneService configureCommitInterval(Duration commitInterval) {
+        rejectIfNotPositive("commitInterval", commitInterval);
+        this.settings.setCommitInterval(commitInterval);
+        this.scheduleCommit();
+        return this;
+    }
+
+    public LuceneService withIndex(String indexName) {
+        return this.withIndex(indexName, null);
+    }
+
+    @Override
+    public void createIndex(String indexName) {
+        this.createIndex(indexName, null);
+    }
+
+    public LuceneService withIndex(String indexName, InputStream configuration) {
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+
+        this.createIndex(indexName, configuration);
+
+        return this;
+    }
+
+    /**
+     * Create an index (if it doesn't exist) with its own refresh policy
+     * @param indexName Index name
+     * @param configuration Index configuration (ignored)
+     * @param refreshPolicy Refresh policy of the write operations on this index (override the default refresh policy)
+     * @return this
+     */
+    public LuceneService withIndex(String indexName, InputStream configuration, RefreshPolicy refreshPolicy) {
+        this.withIndex(indexName, configuration);
+
+        Optional.ofNullable(refreshPolicy)
+            .ifPresent(policy -> this.settings.getIndexRefreshPolicies().put(indexName.toLowerCase(), policy));
+
+        return this;
+    }
+
+    /**
+     * Create an index (if it doesn't exist). The configuration (ElasticSearch mapping) is ignored, the fields are
+     * indexed according to the type of their values
+     */
+    @Override
+    public void createIndex(String indexName, InputStream configuration) {
+        log.debug("Create index in Lucene [indexName: {}, configuration present: {}]", indexName, configuration != null);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        if (indexName.contains("/") || indexName.contains("\\") || indexName.startsWith(".")) {
+            throw new ValidationException("indexName must not contain '/', '\\' or start with '.'");
+        }
+
+        // Format index
+        String index = indexName.toLowerCase();
+
+        indexes.computeIfAbsent(index, name -> LuceneIndex.open(settings.getPath().resolve(name), name, analyzer));
+    }
+
+    @Override
+    public List<String> getIndexes() {
+        return new ArrayList<>(indexes.keySet());
+    }
+
+    @Override
+    public String index(String indexName, String indexDocId, String contentId, String contentType,
+            byte[] content, boolean pinned, Map<String, Object> indexFields, RefreshPolicy refreshPolicy) {
+
+        log.debug(
+                "Index document in Lucene [indexName: {}, indexDocId:{}, contentId: {}, contentType: {}, content: {}, pinned: {}, indexFields: {}, refreshPolicy: {}]",
+                indexName, indexDocId, contentId, contentType, content != null ? "present" : "null", pinned, indexFields, refreshPolicy);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+
+        LuceneIndex index = getIndex(indexName);
+        String id = write(index, Metadata.of(index.getName(), indexDocId, contentId, contentType, content, pinned, indexFields));
+        refresh(index, refreshPolicy);
+
+        log.debug("Document indexed Lucene [indexName: {}, indexDocId:{}, contentId: {}]. Result ID= {} ",
+                indexName, indexDocId, contentId, id);
+
+        return id;
+    }
+
+    @Override
+    public List<BulkIndexingItem> bulkIndex(List<Metadata> documents, RefreshPolicy refreshPolicy) {
+        log.debug("Bulk index documents in Lucene [documents: {}, refreshPolicy: {}]", documents.size(), refreshPolicy);
+
+        Set<LuceneIndex> written = new HashSet<>();
+        List<BulkIndexingItem> items = documents.stream().map(document -> {
+            try {
+                // Validation
+                ValidatorUtils.rejectIfEmpty("indexName", document.getIndexName());
+
+                LuceneIndex index = getIndex(document.getIndexName());
+                String id = write(index, document);
+                written.add(index);
+
+                return BulkIndexingItem.success(IndexingResponse.of(document.getIndexName(), id, document.getContentId(),
+                        document.getContentType(), document.isPinned(), document.getIndexFields()));
+
+            } catch (Exception ex) {
+                return BulkIndexingItem.failure(ex.getMessage());
+            }
+        }).collect(Collectors.toList());
+
+        // One refresh per index for the whole batch
+        written.forEach(index -> refresh(index, refreshPolicy));
+
+        return items;
+    }
+
+    /**
+     * Upsert: write a document with an autogenerated ID, or merge the fields into the existing document
+     * @return Document ID
+     */
+    private String write(LuceneIndex index, Metadata document) {
+
+        if (document.getIndexDocId() == null) {
+            String id = UUID.randomUUID().toString();
+            index.write(id, buildDocument(index.getName(), id, document, null));
+            return id;
+        }
+
+        // Read-modify-write of a document, serialised per index
+        synchronized (index) {
+            Metadata current = Optional.ofNullable(index.get(document.getIndexDocId())).map(this::convert).orElse(null);
+            index.write(document.getIndexDocId(), buildDocument(index.getName(), document.getIndexDocId(), document, current));
+            return document.getIndexDocId();
+        }
+    }
+
+    @Override
+    public void updateField(String indexName, String indexDocId, String key, Object value, RefreshPolicy refreshPolicy) {
+        log.debug("Update field on document in Lucene [indexName: {}, indexDocId: {}, key: {}, value: {}, refreshPolicy: {}]", indexName, indexDocId, key, value, refreshPolicy);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("indexDocId", indexDocId);
+        ValidatorUtils.rejectIfEmpty("key", key);
+
+        LuceneIndex index = getIndex(indexName);
+        updateField(index, indexDocId, key, value);
+        refresh(index, refreshPolicy);
+
+        log.debug("Field updated on document in Lucene [indexName: {}, indexDocId: {}, key: {}, value: {}]", indexName, indexDocId, key, value);
+    }
+
+    @Override
+    public void bulkUpdateField(String indexName, Collection<String> indexDocIds, String key, Object value, RefreshPolicy refreshPolicy) {
+        log.debug("Bulk update field on documents in Lucene [indexName: {}, indexDocIds: {}, key: {}, value: {}, refreshPolicy: {}]", indexName, indexDocIds.size(), key, value, refreshPolicy);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("key", key);
+        if (indexDocIds.isEmpty()) {
+            return;
+        }
+
+        LuceneIndex index = getIndex(indexName);
+        indexDocIds.forEach(indexDocId -> updateField(index, indexDocId, key, value));
+        refresh(index, refreshPolicy);
+    }
+
+    private void updateField(LuceneIndex index, String indexDocId, String key, Object value) {
+        synchronized (index) {
+            Document current = index.get(indexDocId);
+            if (current == null) {
+                throw new NotFoundException("Document [indexName: " + index.getName() + ", indexDocId: " + indexDocId + "] not found");
+            }
+
+            Metadata metadata = convert(current);
+            Map<String, Object> source = buildSource(metadata);
+            source.put(key, transformValue(value));
+            index.write(indexDocId, buildDocument(index.getName(), indexDocId, source, metadata.getContent()));
+        }
+    }
+
+    @Override
+    public void deindex(String indexName, String indexDocId, RefreshPolicy refreshPolicy) {
+
+        log.debug("Deindex document in Lucene [indexName: {}, indexDocId:{}, refreshPolicy: {}]", indexName, indexDocId, refreshPolicy);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("indexDocId", indexDocId);
+
+        LuceneIndex index = getIndex(indexName);
+        synchronized (index) {
+            if (index.get(indexDocId) == null) {
+                throw new NotFoundException("Document [indexName: " + index.getName() + ", id: " + indexDocId + "] not found");
+            }
+            index.delete(indexDocId);
+        }
+        refresh(index, refreshPolicy);
+
+        log.debug("Document deindexed Lucene [indexName: {}, indexDocId:{}]", indexName, indexDocId);
+    }
+
+    @Override
+    public Metadata getDocument(String indexName, String indexDocId) {
+        log.debug("Get document in Lucene [indexName: {}, indexDocId:{}]", indexName, indexDocId);
+
+        // Validation
+        ValidatorUtils.rejectIfEmpty("indexName", indexName);
+        ValidatorUtils.rejectIfEmpty("indexDocId", indexDocId);
+
+        LuceneIndex index = getIndex(indexName);
+        Document document = index.get(indexDocId);
+        if (document == null) {
+            throw new NotFoundException(
+                    "Document [indexName: " + index.getName() + ", indexDocId: " + indexDocId + "] not found");
+        }
+
+        return convert(document);
+    }
+
+    @Override
+    public Page<Metadata> searchDocuments(String indexName, Query query, PageRequest pageRequest) {
+
+        log.debug("Search documents in Lucene [indexName: {}, query: {}]", indexName, query);
+
+        // Validation
+        ValidatorUtils.rejectIfNull("pageRequest", pageRequest);
+
+        // All the indexes if no index is passed
+        List<LuceneIndex> targets = indexName != null ? Collections.singletonList(getIndex(indexName)) : new ArrayList<>(indexes.values());
+        if (targets.isEmpty()) {
+            return Page.of(pageRequest, Collections.emptyList(), 0);
+        }
+
+        List<IndexSearcher> searchers = new ArrayList<>();
+        try {
+            targets.forEach(index -> searchers.add(index.acquire()));
+            IndexSearcher searcher = searchers.size() == 1 ? searchers.get(0) : new IndexSearcher(new MultiReader(
+                    searchers.stream().map(IndexSearcher::getIndexReader).toArray(IndexReader[]::new), false));
+
+            return search(searcher, query, pageRequest);
+
+        } catch (IOException ex) {
+            log.error("Error while searching documents [indexName: {}, query: {}]", indexName, query, ex);
+            throw new TechnicalException("Error while searching documents", ex);
+        } finally {
+            for (int i = 0; i < searchers.size(); i++) {
+                targets.get(i).release(searchers.get(i));
+            }
+        }
+    }
+
+    private Page<Metadata> search(IndexSearcher searcher, Query query, PageRequest pageRequest) throws IOException {
+        org.apache.lucene.search.Query luceneQuery = buildQuery(query);
+        Sort sort = buildSort(searcher.getIndexReader(), pageRequest);
+        log.trace("query: {}, sort: {}", luceneQuery, sort);
+
+        TopDocs topDocs;
+        int from;
+        if (pageRequest.isCursorBased()) {
+            // search_after: resume after the sort values of the last hit of the previous page
+            FieldDoc after = pageRequest.isFirstCursor() ? null : decodeCursor(pageRequest.getCursor(), sort, searcher.getIndexReader().maxDoc());
+            topDocs = searcher.searchAfter(after, luceneQuery, Math.max(1, pageRequest.getSize()), sort);
+            from = 0;
+        } else {
+            from = pageRequest.getSize() * pageRequest.getPage();
+            int n = Math.max(1, from + pageRequest.getSize());
+            topDocs = sort != null ? searcher.search(luceneQuery, n, sort) : searcher.search(luceneQuery, n);
+        }
+
+        List<Metadata> result = new ArrayList<>();
+        for (int i = from; i < Math.min(topDocs.scoreDocs.length, from + pageRequest.getSize()); i++) {
+            result.add(convert(searcher.doc(topDocs.scoreDocs[i].doc)));
+        }
+
+        log.debug("Search documents in Lucene [query: {}]: {}", query, result);
+
+        // Cursor of the next page: sort values of the last hit (no next page if this page isn't full)
+        String nextCursor = null;
+        if (pageRequest.isCursorBased() && !result.isEmpty() && result.size() == pageRequest.getSize()) {
+            nextCursor = encodeCursor(((FieldDoc) topDocs.scoreDocs[topDocs.scoreDocs.length - 1]).fields);
+        }
+
+        return Page.of(pageRequest, result, Math.toIntExact(topDocs.totalHits), nextCursor);
+    }
+
+    /**
+     * Close the indexes (the changes are committed)
+     * 
+     * The shutdown hook is removed, so that a closed service (index writers and directories) isn't retained until 
+     * the JVM exits.
+     */
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ex) {
+            // JVM shutting down (close called by the shutdown hook)
+        }
+
+        log.info("Close Lucene indexer [path: {}, indexes: {}]", settings.getPath(), indexes.keySet());
+        scheduler.shutdownNow();
+        indexes.values().forEach(LuceneIndex::close);
+        indexes.clear();
+    }
+
+    private LuceneIndex getIndex(String indexName) {
+        LuceneIndex index = indexes.get(indexName.toLowerCase());
+        if (index == null) {
+            throw new NoIndexException(indexName.toLowerCase());
+        }
+        return index;
+    }
+
+    private void openIndexes() {
+        try (Stream<Path> directories = Files.list(settings.getPath())) {
+            directories
+                .filter(Files::isDirectory)
+                .filter(LuceneIndex::exists)
+                .forEach(path -> {
+                    String name = path.getFileName().toString();
+                    indexes.put(name, LuceneIndex.open(path, name, analyzer));
+                });
+        } catch (IOException ex) {
+            log.error("Error while loading the indexes [path: {}]", settings.getPath(), ex);
+            throw new TechnicalException("Error while loading the indexes from " + settings.getPath(), ex);
+        }
+    }
+
+    /**
+     * Make the writes visible to the searches according to the refresh policy: refresh now (IMMEDIATE), wait for the
+     * next scheduled refresh (WAIT_UNTIL) or nothing (NONE)
+     */
+    private void refresh(LuceneIndex index, RefreshPolicy refreshPolicy) {
+        RefreshPolicy policy = Optional.ofNullable(refreshPolicy)
+                .orElseGet(() -> settings.getIndexRefreshPolicies().getOrDefault(index.getName(), settings.getRefreshPolicy()));
+
+        switch (policy) {
+        case WAIT_UNTIL:
+            index.waitForRefresh();
+            break;
+        case NONE:
+            break;
+        default:
+            index.refresh();
+        }
+    }
+
+    private synchronized void scheduleRefresh() {
+        Optional.ofNullable(refreshTask).ifPresent(task -> task.cancel(false));
+        long interval = settings.getRefreshInterval().toMillis();
+        refreshTask = scheduler.scheduleWithFixedDelay(
+                () -> indexes.values().forEach(LuceneIndex::maybeRefresh), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void scheduleCommit() {
+        Optional.ofNullable(commitTask).ifPresent(task -> task.cancel(false));
+        long interval = settings.getCommitInterval().toMillis();
+        commitTask = scheduler.scheduleWithFixedDelay(() -> indexes.values().forEach(index -> {
+            try {
+                index.commit();
+            } catch (Exception ex) {
+                log.error("Error while committing the index {}", index.getName(), ex);
+            }
+        }), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private static void rejectIfNotPositive(String name, Duration duration) {
+        ValidatorUtils.rejectIfNull(name, duration);
+        if (duration.isNegative() || duration.isZero()) {
+            throw new ValidationException(name + " must be greater than 0");
+        }
+    }
+
+    private Map<String, Object> transformFields(Map<String, Object> indexFields) {
+
+        return indexFields.entrySet().stream()
+                .filter(e -> settings.isIndexNullValue() || e.getValue() != null)
+                .collect(HashMap::new, (map, e) -> map.put(e.getKey(), transformValue(e.getValue())), HashMap::putAll);
+    }
+
+    private Object transformValue(Object value) {
+
+        // Manage null values
+        if (settings.isIndexNullValue()
+                && (value == null || value instanceof String && ValidatorUtils.isEmpty((String) value))) {
+            value = NULL;
+        }
+
+        return value;
+    }
+
+    /**
+     * Source of a document (special keys and index fields)
+     */
+    private Map<String, Object> buildSource(Metadata document) {
+        Map<String, Object> source = new HashMap<>();
+        source.put(HASH_INDEX_KEY, document.getContentId());
+        source.put(CONTENT_TYPE_INDEX_KEY, document.getContentType());
+        source.put(PINNED_KEY, document.isPinned());
+
+        if (document.getIndexFields() != null) {
+            source.putAll(transformFields(document.getIndexFields()));
+        }
+        return source;
+    }
+
+    private Document buildDocument(String indexName, String indexDocId, Metadata document, Metadata current) {
+        Map<String, Object> source = new HashMap<>();
+        byte[] content = document.getContent();
+
+        if (current != null) {
+            source.putAll(buildSource(current));
+            content = Optional.ofNullable(content).orElse(current.getContent());
+        }
+        source.putAll(buildSource(document));
+
+        return buildDocument(indexName, indexDocId, source, content);
+    }
+
+    private Document buildDocument(String indexName, String indexDocId, Map<String, Object> source, byte[] content) {
+        Document document = new Document();
+        document.add(new StringField(ID_FIELD, indexDocId, Store.YES));
+        document.add(new SortedDocValuesField(ID_FIELD, new BytesRef(indexDocId)));
+        document.add(new StringField(INDEX_FIELD, indexName, Store.YES));
+        document.add(new SortedDocValuesField(INDEX_FIELD, new BytesRef(indexName)));
+
+        // Source stored as JSON, dates as timestamps (the names of the date fields are stored to decode them)
+        Map<String, Object> stored = new HashMap<>(source);
+        source.forEach((key, value) -> {
+            if (value instanceof Date) {
+                stored.put(key, ((Date) value).getTime());
+                document.add(new StoredField(DATES_FIELD, key));
+            }
+            indexValue(document, key, value);
+        });
+        document.add(new StoredField(SOURCE_FIELD, convertObjectToJsonString(stored)));
+
+        if (content != null) {
+            document.add(new StoredField(CONTENT_INDEX_KEY, content));
+        }
+
+        return document;
+    }
+
+    /**
+     * Index a value according to its type (collections: each element, maps: each entry as name.key)
+     */
+    private static void indexValue(Document document, String name, Object value) {
+        if (value == null) {
+            return;
+        }
+
+        if (value instanceof Collection<?>) {
+            ((Collection<?>) value).forEach(v -> indexValue(document, name, v));
+
+        } else if (value instanceof Map<?, ?>) {
+            ((Map<?, ?>) value).forEach((k, v) -> indexValue(document, name + "." + k, v));
+
+        } else if (NULL.equals(value)) {
+            // Null value of any field (whatever the type of the field): keyword only
+            document.add(new StringField(name, NULL, Store.NO));
+
+        } else if (value instanceof Number || value instanceof Date) {
+            double number = value instanceof Date ? ((Date) value).getTime() : ((Number) value).doubleValue();
+            document.add(new DoublePoint(name, number));
+            document.add(new SortedNumericDocValuesField(name, NumericUtils.doubleToSortableLong(number)));
+            document.add(new StringField(name, toTerm(value), Store.NO));
+
+        } else {
+            String term = value.toString();
+            // Keywords longer than the maximum term length are only indexed as text
+            if (term.getBytes(StandardCharsets.UTF_8).length <= IndexWriter.MAX_TERM_LENGTH) {
+                document.add(new StringField(name, term, Store.NO));
+                document.add(new SortedSetDocValuesField(name, new BytesRef(term)));
+            }
+            if (value instanceof String) {
+                document.add(new TextField(name + TEXT_SUFFIX, term, Store.NO));
+            }
+        }
+    }
+
+    private static String toTerm(Object value) {
+        return value instanceof Date ? String.valueOf(((Date) value).getTime()) : value.toString();
+    }
+
+    private String convertObjectToJsonString(Object object) {
+        try {
+            return mapper.writeValueAsString(object);
+        } catch (JsonProcessingException ex) {
+            log.error("Exception occur:{}", ex);
+            throw new TechnicalException("Error while convering object to JSON", ex);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Metadata convert(Document document) {
+        String contentId = null;
+        String contentType = null;
+        byte[] content = null;
+        boolean pinned = false;
+
+        Map<String, Object> sourceMap;
+        try {
+            sourceMap = mapper.readValue(document.get(SOURCE_FIELD), LinkedHashMap.class);
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while reading the source of document " + document.get(ID_FIELD), ex);
+        }
+
+        // Cast dates
+        Arrays.stream(document.getValues(DATES_FIELD))
+            .filter(field -> sourceMap.get(field) instanceof Number)
+            .forEach(field -> sourceMap.put(field, new Date(((Number) sourceMap.get(field)).longValue())));
+
+        // Extract special key __hash
+        if (sourceMap.get(HASH_INDEX_KEY) != null) {
+            contentId = sourceMap.get(HASH_INDEX_KEY).toString();
+        }
+        sourceMap.remove(HASH_INDEX_KEY);
+        // Extract special key __content_type
+        if (sourceMap.get(CONTENT_TYPE_INDEX_KEY) != null) {
+            contentType = sourceMap.get(CONTENT_TYPE_INDEX_KEY).toString();
+        }
+        sourceMap.remove(CONTENT_TYPE_INDEX_KEY);
+        // Extract special key __content
+        BytesRef binary = document.getBinaryValue(CONTENT_INDEX_KEY);
+        if (binary != null) {
+            content = Arrays.copyOfRange(binary.bytes, binary.offset, binary.offset + binary.length);
+        }
+        // Extract special key __pinned
+        if (sourceMap.get(PINNED_KEY) != null) {
+            pinned = (boolean) sourceMap.get(PINNED_KEY);
+        }
+        sourceMap.remove(PINNED_KEY);
+
+        return Metadata.of(document.get(INDEX_FIELD), document.get(ID_FIELD), contentId, contentType, content, pinned, sourceMap);
+    }
+
+    private org.apache.lucene.search.Query buildQuery(Query query) {
+        log.trace("Converting query: " + query);
+
+        if (query == null || query.isEmpty()) {
+            return new MatchAllDocsQuery();
+        }
+
+        // Initialize query
+        BooleanQuery.Builder luceneQuery = new BooleanQuery.Builder();
+        boolean positive = false;
+
+        // Filters
+        for (net.consensys.mahuta.core.domain.common.query.Filter f : query.getFilterClauses()) {
+
+            Object value = transformValue(f.getValue());
+
+            try {
+                switch (f.getOperation()) {
+                case FULL_TEXT:
+                    luceneQuery.add(new DisjunctionMaxQuery(Arrays.stream(f.getNames())
+                            .map(name -> phrasePrefixQuery(name + TEXT_SUFFIX, value.toString()))
+                            .collect(Collectors.toList()), 0), Occur.MUST);
+                    positive = true;
+                    break;
+                case EQUALS:
+                    luceneQuery.add(exactQuery(f.getName(), value), Occur.MUST);
+                    positive = true;
+                    break;
+                case NOT_EQUALS:
+                    luceneQuery.add(exactQuery(f.getName(), value), Occur.MUST_NOT);
+                    break;
+                case CONTAINS:
+                    luceneQuery.add(matchQuery(f.getName() + TEXT_SUFFIX, value.toString()), Occur.MUST);
+                    positive = true;
+                    break;
+                case IN:
+                    luceneQuery.add(termsQuery(f.getName(), value), Occur.MUST);
+                    positive = true;
+                    break;
+                case NOT_IN:
+                    luceneQuery.add(termsQuery(f.getName(), value), Occur.MUST_NOT);
+                    break;
+                case LT:
+                    luceneQuery.add(rangeQuery(f.getName(), null, value, false, false), Occur.MUST);
+                    positive = true;
+                    break;
+                case LTE:
+                    luceneQuery.add(rangeQuery(f.getName(), null, value, false, true), Occur.MUST);
+                    positive = true;
+                    break;
+                case GT:
+                    luceneQuery.add(rangeQuery(f.getName(), value, null, false, false), Occur.MUST);
+                    positive = true;
+                    break;
+                case GTE:
+                    luceneQuery.add(rangeQuery(f.getName(), value, null, true, false), Occur.MUST);
+                    positive = true;
+                    break;
+                default:
+                    log.warn("Operation [" + f.getOperation() + "] not supported for  filter [" + f + "]- Ignore it!");
+                    break;
+                }
+
+            } catch (Exception e) {
+                log.warn("Error while converting filter [" + f + "] - Ignore it!", e);
+            }
+        }
+
+        // Sub queries (OR)
+        for (Query q : query.getSubFilterClauses()) {
+            luceneQuery.add(this.buildQuery(q), Occur.SHOULD);
+            positive = true;
+        }
+
+        // Only negative clauses: exclude from all the documents
+        if (!positive) {
+            luceneQuery.add(new MatchAllDocsQuery(), Occur.FILTER);
+        }
+
+        return luceneQuery.build();
+    }
+
+    private static org.apache.lucene.search.Query exactQuery(String name, Object value) {
+        if (value instanceof Number || value instanceof Date) {
+            return DoublePoint.newExactQuery(name, toDouble(value));
+        }
+        return new TermQuery(new Term(name, value.toString()));
+    }
+
+    private static org.apache.lucene.search.Query termsQuery(String name, Object value) {
+        if (!(value instanceof Collection<?>)) {
+            throw new IllegalArgumentException("in operation: expected type Collection<?>");
+        }
+        Collection<?> values = (Collection<?>) value;
+
+        if (!values.isEmpty() && values.stream().allMatch(v -> v instanceof Number || v instanceof Date)) {
+            return DoublePoint.newSetQuery(name, values.stream().mapToDouble(LuceneService::toDouble).toArray());
+        }
+        return new TermInSetQuery(name, values.stream()
+                .map(v -> new BytesRef(toTerm(v)))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Range on a numeric (points) or a keyword field depending on the type of the bound
+     * @param lower Lower bound (null: unbounded)
+     * @param upper Upper bound (null: unbounded)
+     */
+    private static org.apache.lucene.search.Query rangeQuery(String name, Object lower, Object upper,
+            boolean includeLower, boolean includeUpper) {
+        Object bound = lower != null ? lower : upper;
+
+        if (bound instanceof Number || bound instanceof Date) {
+            double min = lower == null ? Double.NEGATIVE_INFINITY : includeLower ? toDouble(lower) : Math.nextUp(toDouble(lower));
+            double max = upper == null ? Double.POSITIVE_INFINITY : includeUpper ? toDouble(upper) : Math.nextDown(toDouble(upper));
+            return DoublePoint.newRangeQuery(name, min, max);
+        }
+        return TermRangeQuery.newStringRange(name, lower != null ? lower.toString() : null,
+                upper != null ? upper.toString() : null, includeLower, includeUpper);
+    }
+
+    /**
+     * Match any of the words of the text
+     */
+    private org.apache.lucene.search.Query matchQuery(String field, String text) {
+        List<String> terms = analyze(field, text);
+        if (terms.isEmpty()) {
+            return new MatchNoDocsQuery();
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        terms.forEach(term -> query.add(new TermQuery(new Term(field, term)), Occur.SHOULD));
+        return query.build();
+    }
+
+    /**
+     * Match the words of the text in the same order, the last one as a prefix (search as you type)
+     */
+    private org.apache.lucene.search.Query phrasePrefixQuery(String field, String text) {
+        List<String> terms = analyze(field, text);
+        if (terms.isEmpty()) {
+            return new MatchNoDocsQuery();
+        }
+
+        PrefixQuery last = new PrefixQuery(new Term(field, terms.get(terms.size() - 1)));
+        if (terms.size() == 1) {
+            return last;
+        }
+
+        SpanQuery[] clauses = new SpanQuery[terms.size()];
+        for (int i = 0; i < terms.size() - 1; i++) {
+            clauses[i] = new SpanTermQuery(new Term(field, terms.get(i)));
+        }
+        clauses[terms.size() - 1] = new SpanMultiTermQueryWrapper<>(last);
+        return new SpanNearQuery(clauses, 0, true);
+    }
+
+    private List<String> analyze(String field, String text) {
+        List<String> terms = new ArrayList<>();
+        try (TokenStream stream = analyzer.tokenStream(field, text)) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                terms.add(term.toString());
+            }
+            stream.end();
+        } catch (IOException ex) {
+            throw new TechnicalException("Error while analysing " + text, ex);
+        }
+        return terms;
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Date ? ((Date) value).getTime() : ((Number) value).doubleValue();
+    }
+
+    /**
+     * Sort of a search: the sort field (numeric or keyword, missing values last, ignored if the field doesn't exist),
+     * then the index and the ID for a cursor-based page so the sort is unique
+     */
+    private static Sort buildSort(IndexReader reader, PageRequest pageRequest) {
+        List<SortField> fields = new ArrayList<>();
+
+        if (pageRequest.getSort() != null) {
+            boolean reverse = !pageRequest.isAscending();
+            FieldInfo field = MultiFields.getMergedFieldInfos(reader).fieldInfo(pageRequest.getSort());
+            DocValuesType type = field != null ? field.getDocValuesType() : DocValuesType.NONE;
+
+            if (type == DocValuesType.SORTED_NUMERIC) {
+                SortField sortField = new SortedNumericSortField(pageRequest.getSort(), SortField.Type.DOUBLE, reverse);
+                sortField.setMissingValue(reverse ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+                fields.add(sortField);
+            } else if (type == DocValuesType.SORTED_SET) {
+                SortField sortField = new SortedSetSortField(pageRequest.getSort(), reverse);
+                sortField.setMissingValue(reverse ? SortField.STRING_FIRST : SortField.STRING_LAST);
+                fields.add(sortField);
+            }
+        }
+
+        if (pageRequest.isCursorBased()) {
+            fields.add(new SortField(INDEX_FIELD, SortField.Type.STRING));
+            fields.add(new SortField(ID_FIELD, SortField.Type.STRING));
+        }
+
+        return fields.isEmpty() ? null : new Sort(fields.toArray(new SortField[0]));
+    }
+
+    private String encodeCursor(Object[] sortValues) {
+        Object[] values = Arrays.stream(sortValues)
+                .map(value -> value instanceof BytesRef ? ((BytesRef) value).utf8ToString() : value)
+                .toArray();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(convertObjectToJsonString(values).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private FieldDoc decodeCursor(String cursor, Sort sort, int maxDoc) {
+        try {
+            Object[] values = mapper.readValue(Base64.getUrlDecoder().decode(cursor), Object[].class);
+            SortField[] sortFields = sort.getSort();
+            if (values.length != sortFields.length) {
+                throw new ValidationException("Invalid cursor: " + cursor);
+            }
+
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
+                    continue;
+                }
+                if (sortFields[i] instanceof SortedNumericSortField) {
+                    values[i] = values[i] instanceof Number ? ((Number) values[i]).doubleValue() : Double.valueOf(values[i].toString());
+                } else {
+                    values[i] = new BytesRef(values[i].toString());
+                }
+            }
+            // The sort is unique (index and ID), the doc only breaks ties
+            return new FieldDoc(maxDoc - 1, Float.NaN, values);
+
+        } catch (IllegalArgumentException | IOException ex) {
+            throw new ValidationException("Invalid cursor: " + cursor);
+        }
+    }
+}
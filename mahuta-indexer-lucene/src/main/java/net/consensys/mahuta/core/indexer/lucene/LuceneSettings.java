@@ -0,0 +1,31 @@
+package net.consensys.mahuta.core.indexer.lucene;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.Getter;
+import lombok.Setter;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
+
+public class LuceneSettings {
+
+    public static final boolean DEFAULT_INDEX_NULL_VALUES = true;
+    public static final RefreshPolicy DEFAULT_REFRESH_POLICY = RefreshPolicy.IMMEDIATE;
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofSeconds(1);
+    public static final Duration DEFAULT_COMMIT_INTERVAL = Duration.ofSeconds(5);
+
+    private @Setter @Getter Path path;
+    private @Setter @Getter boolean indexNullValue = DEFAULT_INDEX_NULL_VALUES;
+    private @Setter @Getter RefreshPolicy refreshPolicy = DEFAULT_REFRESH_POLICY;
+    private @Setter @Getter Duration refreshInterval = DEFAULT_REFRESH_INTERVAL;
+    private @Setter @Getter Duration commitInterval = DEFAULT_COMMIT_INTERVAL;
+    private final @Getter Map<String, RefreshPolicy> indexRefreshPolicies = new ConcurrentHashMap<>();
+
+    public static LuceneSettings of(Path path) {
+        LuceneSettings s = new LuceneSettings();
+        s.setPath(path);
+        return s;
+    }
+}
@@ -0,0 +1,304 @@
+package net.consensys.mahuta.core.indexer.lucene.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.consensys.mahuta.core.domain.bulkindexing.BulkIndexingItem;
+import net.consensys.mahuta.core.domain.common.Metadata;
+import net.consensys.mahuta.core.domain.common.RefreshPolicy;
+import net.consensys.mahuta.core.domain.common.pagination.Page;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest.SortDirection;
+import net.consensys.mahuta.core.domain.common.query.Query;
+import net.consensys.mahuta.core.exception.NoIndexException;
+import net.consensys.mahuta.core.exception.NotFoundException;
+import net.consensys.mahuta.core.exception.ValidationException;
+import net.consensys.mahuta.core.indexer.lucene.LuceneService;
+import net.consensys.mahuta.core.service.indexing.IndexingService;
+import net.consensys.mahuta.core.test.utils.TestUtils;
+
+public class LuceneIndexerTest extends TestUtils {
+
+    private static final String INDEX_NAME = "article";
+    private static final String TITLE_FIELD = "title";
+    private static final String AUTHOR_FIELD = "author";
+    private static final String VIEWS_FIELD = "views";
+    private static final String DATE_CREATED_FIELD = "dateCreated";
+    private static final String TAGS_FIELD = "tags";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path path;
+    private LuceneService service;
+
+    @Before
+    public void setup() throws IOException {
+        path = folder.newFolder("lucene").toPath();
+        service = LuceneService.open(path).withIndex(INDEX_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        service.close();
+    }
+
+    @Test
+    public void createIndex() {
+        service.createIndex("Other");
+        service.createIndex("other");
+
+        assertTrue(service.getIndexes().containsAll(Arrays.asList(INDEX_NAME, "other")));
+        assertEquals(2, service.getIndexes().size());
+    }
+
+    @Test(expected = ValidationException.class)
+    public void createIndexInvalidName() {
+        service.createIndex("../other");
+    }
+
+    @Test
+    public void indexWithId() {
+        String id = service.index(INDEX_NAME, "doc1", "cid1", "text/plain", "hello".getBytes(), true, fields("Hello world", "alice", 10, new Date(1000)));
+
+        Metadata metadata = service.getDocument(INDEX_NAME, id);
+        assertEquals("doc1", id);
+        assertEquals(INDEX_NAME, metadata.getIndexName());
+        assertEquals("cid1", metadata.getContentId());
+        assertEquals("text/plain", metadata.getContentType());
+        assertArrayEquals("hello".getBytes(), metadata.getContent());
+        assertTrue(metadata.isPinned());
+        assertEquals("Hello world", metadata.getIndexFields().get(TITLE_FIELD));
+        assertEquals(10, metadata.getIndexFields().get(VIEWS_FIELD));
+        assertEquals(new Date(1000), metadata.getIndexFields().get(DATE_CREATED_FIELD));
+    }
+
+    @Test
+    public void indexWithoutId() {
+        String id = service.index(INDEX_NAME, null, "cid1", null, null, false, null);
+
+        assertNotNull(id);
+        assertEquals("cid1", service.getDocument(INDEX_NAME, id).getContentId());
+    }
+
+    @Test
+    public void indexWithoutRefresh() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, true, fields("Hello world", "alice", 10, null), RefreshPolicy.NONE);
+
+        // Realtime get, not searchable before the refresh
+        assertEquals("cid1", service.getDocument(INDEX_NAME, "doc1").getContentId());
+        assertEquals(0, search(Query.newQuery()).getTotalElements().intValue());
+
+        service.index(INDEX_NAME, "doc2", "cid2", null, null, true, null, RefreshPolicy.WAIT_UNTIL);
+        assertEquals(2, search(Query.newQuery()).getTotalElements().intValue());
+    }
+
+    @Test(expected = NoIndexException.class)
+    public void indexWithNoIndex() {
+        service.index("unknown", "doc1", "cid1", null, null, true, null);
+    }
+
+    @Test
+    public void update() {
+        service.index(INDEX_NAME, "doc1", "cid1", "text/plain", "hello".getBytes(), true, fields("Hello world", "alice", 10, null));
+        service.index(INDEX_NAME, "doc1", "cid2", "text/plain", null, true, Collections.singletonMap(VIEWS_FIELD, 20));
+
+        Metadata metadata = service.getDocument(INDEX_NAME, "doc1");
+        assertEquals("cid2", metadata.getContentId());
+        assertArrayEquals("hello".getBytes(), metadata.getContent());
+        assertEquals("alice", metadata.getIndexFields().get(AUTHOR_FIELD));
+        assertEquals(20, metadata.getIndexFields().get(VIEWS_FIELD));
+        assertEquals(1, search(Query.newQuery().equals(VIEWS_FIELD, 20)).getElements().size());
+        assertEquals(0, search(Query.newQuery().equals(VIEWS_FIELD, 10)).getElements().size());
+    }
+
+    @Test
+    public void updateField() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, true, fields("Hello world", "alice", 10, null));
+        service.index(INDEX_NAME, "doc2", "cid2", null, null, true, fields("Hello world", "bob", 10, null));
+
+        service.updateField(INDEX_NAME, "doc1", IndexingService.PINNED_KEY, false);
+        service.bulkUpdateField(INDEX_NAME, Arrays.asList("doc1", "doc2"), AUTHOR_FIELD, "carol", null);
+
+        assertFalse(service.getDocument(INDEX_NAME, "doc1").isPinned());
+        assertEquals(1, search(Query.newQuery().equals(IndexingService.PINNED_KEY, false)).getElements().size());
+        assertEquals(2, search(Query.newQuery().equals(AUTHOR_FIELD, "carol")).getElements().size());
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void updateFieldNotFound() {
+        service.updateField(INDEX_NAME, "doc1", AUTHOR_FIELD, "carol");
+    }
+
+    @Test
+    public void deindex() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, true, null);
+
+        service.deindex(INDEX_NAME, "doc1");
+
+        assertEquals(0, search(Query.newQuery()).getElements().size());
+        try {
+            service.getDocument(INDEX_NAME, "doc1");
+        } catch (NotFoundException ex) {
+            return;
+        }
+        throw new AssertionError("document should have been deindexed");
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void deindexNotFound() {
+        service.deindex(INDEX_NAME, "doc1");
+    }
+
+    @Test
+    public void bulkIndex() {
+        List<Metadata> documents = IntStream.range(0, 10)
+                .mapToObj(i -> Metadata.of(i < 9 ? INDEX_NAME : "unknown", "doc" + i, "cid" + i, null, null, true, null))
+                .collect(Collectors.toList());
+
+        List<BulkIndexingItem> items = service.bulkIndex(documents, RefreshPolicy.IMMEDIATE);
+
+        assertEquals(9, items.stream().filter(BulkIndexingItem::isSuccess).count());
+        assertFalse(items.get(9).isSuccess());
+        assertEquals(9, search(Query.newQuery()).getTotalElements().intValue());
+    }
+
+    @Test
+    public void searchDocumentsWithFilters() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, true, fields("The quick brown fox", "alice", 10, new Date(1000)));
+        service.index(INDEX_NAME, "doc2", "cid2", null, null, true, fields("A lazy dog", "bob", 20, new Date(2000)));
+        service.index(INDEX_NAME, "doc3", "cid3", null, null, false, fields("The brown dog", "carol", 30, null));
+
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().equals(AUTHOR_FIELD, "alice"))));
+        assertEquals(ids("doc2", "doc3"), ids(search(Query.newQuery().notEquals(AUTHOR_FIELD, "alice"))));
+        assertEquals(ids("doc3"), ids(search(Query.newQuery().equals(IndexingService.PINNED_KEY, false))));
+        assertEquals(ids("doc2", "doc3"), ids(search(Query.newQuery().contains(TITLE_FIELD, "dog"))));
+        assertEquals(ids("doc1", "doc3"), ids(search(Query.newQuery().fullText(TITLE_FIELD, "bro"))));
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().fullText(new String[] { AUTHOR_FIELD, TITLE_FIELD }, "quick bro"))));
+        assertEquals(ids("doc1", "doc3"), ids(search(Query.newQuery().in(AUTHOR_FIELD, Arrays.asList("alice", "carol")))));
+        assertEquals(ids("doc2"), ids(search(Query.newQuery().notIn(AUTHOR_FIELD, Arrays.asList("alice", "carol")))));
+        assertEquals(ids("doc1", "doc3"), ids(search(Query.newQuery().in(VIEWS_FIELD, Arrays.asList(10, 30)))));
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().lessThan(VIEWS_FIELD, 20))));
+        assertEquals(ids("doc1", "doc2"), ids(search(Query.newQuery().lessThanOrEquals(VIEWS_FIELD, 20))));
+        assertEquals(ids("doc3"), ids(search(Query.newQuery().greaterThan(VIEWS_FIELD, 20))));
+        assertEquals(ids("doc2", "doc3"), ids(search(Query.newQuery().greaterThanOrEquals(VIEWS_FIELD, 20))));
+        assertEquals(ids("doc2"), ids(search(Query.newQuery().greaterThan(DATE_CREATED_FIELD, new Date(1000)))));
+        assertEquals(ids("doc2", "doc3"), ids(search(Query.newQuery().greaterThan(AUTHOR_FIELD, "alice"))));
+        assertEquals(ids("doc3"), ids(search(Query.newQuery().equals(DATE_CREATED_FIELD, null))));
+        assertEquals(ids("doc1", "doc2"), ids(search(Query.newQuery().notEquals(DATE_CREATED_FIELD, null))));
+        assertEquals(ids("doc1", "doc2"), ids(search(Query.newQuery()
+                .or(Query.newQuery().equals(AUTHOR_FIELD, "alice"))
+                .or(Query.newQuery().equals(AUTHOR_FIELD, "bob")))));
+    }
+
+    @Test
+    public void searchSorted() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, true, fields("b", "bob", 30, null));
+        service.index(INDEX_NAME, "doc2", "cid2", null, null, true, fields("c", "carol", 5, null));
+        service.index(INDEX_NAME, "doc3", "cid3", null, null, true, fields("a", "alice", 100, null));
+
+        assertEquals(Arrays.asList("doc2", "doc1", "doc3"),
+                order(service.searchDocuments(INDEX_NAME, null, PageRequest.of(0, 10, VIEWS_FIELD, SortDirection.ASC))));
+        assertEquals(Arrays.asList("doc2", "doc1", "doc3"),
+                order(service.searchDocuments(INDEX_NAME, null, PageRequest.of(0, 10, AUTHOR_FIELD, SortDirection.DESC))));
+        assertEquals(Arrays.asList("doc1"),
+                order(service.searchDocuments(INDEX_NAME, null, PageRequest.of(1, 1, TITLE_FIELD, SortDirection.ASC))));
+        assertEquals(3, service.searchDocuments(INDEX_NAME, null, PageRequest.of(0, 10, "unknown", SortDirection.ASC))
+                .getElements().size());
+    }
+
+    @Test
+    public void searchAllWithCursor() {
+        service.bulkIndex(IntStream.range(0, 25)
+                .mapToObj(i -> Metadata.of(INDEX_NAME, "doc" + i, "cid" + i, null, null, true, Collections.singletonMap(VIEWS_FIELD, i % 3)))
+                .collect(Collectors.toList()), RefreshPolicy.IMMEDIATE);
+
+        List<String> ids = new ArrayList<>();
+        Page<Metadata> page = service.searchDocuments(null, null, PageRequest.ofCursor(10, VIEWS_FIELD, SortDirection.ASC));
+        ids.addAll(ids(page));
+        while (page.getNextCursor() != null) {
+            page = service.searchDocuments(null, null, PageRequest.ofCursor(page.getNextCursor(), 10, VIEWS_FIELD, SortDirection.ASC));
+            ids.addAll(ids(page));
+        }
+
+        assertEquals(25, ids.size());
+        assertEquals(25, ids.stream().distinct().count());
+    }
+
+    @Test(expected = ValidationException.class)
+    public void searchWithInvalidCursor() {
+        service.searchDocuments(INDEX_NAME, null, PageRequest.ofCursor("invalid", 10, null, SortDirection.ASC));
+    }
+
+    @Test
+    public void reopen() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, "hello".getBytes(), true, fields("Hello world", "alice", 10, new Date(1000)), RefreshPolicy.NONE);
+        service.close();
+
+        service = LuceneService.open(path);
+
+        assertEquals(Collections.singletonList(INDEX_NAME), service.getIndexes());
+        Metadata metadata = service.getDocument(INDEX_NAME, "doc1");
+        assertArrayEquals("hello".getBytes(), metadata.getContent());
+        assertEquals(new Date(1000), metadata.getIndexFields().get(DATE_CREATED_FIELD));
+        assertEquals(ids("doc1"), ids(search(Query.newQuery().fullText(TITLE_FIELD, "hel"))));
+    }
+
+    @Test(expected = ValidationException.class)
+    public void conflictingFieldTypes() {
+        service.index(INDEX_NAME, "doc1", "cid1", null, null, true, Collections.singletonMap(VIEWS_FIELD, 10));
+        service.index(INDEX_NAME, "doc2", "cid2", null, null, true, Collections.singletonMap(VIEWS_FIELD, "ten"));
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void getDocumentNotFound() {
+        service.getDocument(INDEX_NAME, "doc1");
+    }
+
+    private Page<Metadata> search(Query query) {
+        return service.searchDocuments(INDEX_NAME, query, PageRequest.of(0, 100));
+    }
+
+    private static List<String> ids(String... ids) {
+        return Arrays.asList(ids);
+    }
+
+    private static List<String> ids(Page<Metadata> page) {
+        return page.getElements().stream().map(Metadata::getIndexDocId).sorted().collect(Collectors.toList());
+    }
+
+    private static List<String> order(Page<Metadata> page) {
+        return page.getElements().stream().map(Metadata::getIndexDocId).collect(Collectors.toList());
+    }
+
+    private static Map<String, Object> fields(String title, String author, int views, Date dateCreated) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(TITLE_FIELD, title);
+        fields.put(AUTHOR_FIELD, author);
+        fields.put(VIEWS_FIELD, views);
+        fields.put(DATE_CREATED_FIELD, dateCreated);
+        fields.put(TAGS_FIELD, Arrays.asList("tag-" + author, "all"));
+        return fields;
+    }
+}
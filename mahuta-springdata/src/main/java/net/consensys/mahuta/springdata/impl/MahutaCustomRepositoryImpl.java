@@ -49,6 +49,8 @@ import net.consensys.mahuta.springdata.annotation.Hash;
 import net.consensys.mahuta.springdata.annotation.IPFSDocument;
 import net.consensys.mahuta.springdata.annotation.Indexfield;
 import net.consensys.mahuta.springdata.exception.MahutaSpringDataRuntimeException;
+import net.consensys.mahuta.springdata.model.CursorPage;
+import net.consensys.mahuta.springdata.model.CursorPageable;
 import net.consensys.mahuta.springdata.model.EntityField;
 import net.consensys.mahuta.springdata.utils.EntityFieldUtils;
 import net.consensys.mahuta.springdata.utils.JsonIgnoreHashMixIn;
@@ -234,6 +236,10 @@ public abstract class MahutaCustomRepositoryImpl<E> implements MahutaCustomRepos
                 .map(Throwing.rethrowFunc(mp -> deserialize(mp.getPayload(), mp.getMetadata().getContentId())))
                 .collect(Collectors.toList());
 
+        if (pageable instanceof CursorPageable) {
+            return new CursorPage<>(result, (CursorPageable) pageable, response.getPage().getTotalElements(), 
+                    response.getPage().getNextCursor());
+        }
         return new PageImpl<>(result, pageable, response.getPage().getTotalElements());
     }
 
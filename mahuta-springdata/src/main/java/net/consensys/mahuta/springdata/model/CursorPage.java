@@ -0,0 +1,45 @@
+package net.consensys.mahuta.springdata.model;
+
+import java.util.List;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Page of a cursor-based pagination (see CursorPageable)
+ *
+ * @param <E> Entity type
+ */
+public class CursorPage<E> extends PageImpl<E> {
+
+    private static final long serialVersionUID = 1L;
+    
+    private final String nextCursor;
+
+    public CursorPage(List<E> content, CursorPageable pageable, long total, String nextCursor) {
+        super(content, pageable.withNextCursor(nextCursor), total);
+        this.nextCursor = nextCursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public boolean isLast() {
+        return !hasNext();
+    }
+
+    @Override
+    public Pageable nextPageable() {
+        if (!hasNext()) {
+            return Pageable.unpaged();
+        }
+        return getPageable().next();
+    }
+}
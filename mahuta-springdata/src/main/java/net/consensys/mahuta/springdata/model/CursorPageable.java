@@ -0,0 +1,103 @@
+package net.consensys.mahuta.springdata.model;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
+
+/**
+ * Pageable of a cursor-based pagination: each page is fetched after the last element of the previous page, so walking 
+ * millions of elements costs the same for each page. The pageable of a CursorPage carries the cursor of the next page,
+ * so next() (and CursorPage.nextPageable()) continue the cursor-based pagination
+ */
+public class CursorPageable implements Pageable {
+
+    private final String cursor;
+    private final int page;
+    private final int size;
+    private final Sort sort;
+    private final String nextCursor;
+    
+    private CursorPageable(String cursor, int page, int size, Sort sort, String nextCursor) {
+        this.cursor = cursor;
+        this.page = page;
+        this.size = size;
+        this.sort = sort;
+        this.nextCursor = nextCursor;
+    }
+    
+    public static CursorPageable of(int size) {
+        return of(size, Sort.unsorted());
+    }
+    
+    public static CursorPageable of(int size, Sort sort) {
+        return of(PageRequest.FIRST_CURSOR, 0, size, sort);
+    }
+    
+    public static CursorPageable of(String cursor, int page, int size, Sort sort) {
+        return new CursorPageable(cursor, page, size, sort, null);
+    }
+
+    /**
+     * @param nextCursor Cursor of the next page (returned with the page)
+     * @return Same pageable, carrying the cursor of the next page
+     */
+    public CursorPageable withNextCursor(String nextCursor) {
+        return new CursorPageable(cursor, page, size, sort, nextCursor);
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public int getPageNumber() {
+        return page;
+    }
+
+    @Override
+    public int getPageSize() {
+        return size;
+    }
+
+    @Override
+    public long getOffset() {
+        return (long) page * size;
+    }
+
+    @Override
+    public Sort getSort() {
+        return sort;
+    }
+
+    /**
+     * Pageable of the next page: the cursor-based pageable of the next page if the cursor of the next page is known 
+     * (pageable of a CursorPage), otherwise the page-number pageable of the next page
+     */
+    @Override
+    public Pageable next() {
+        if (nextCursor == null) {
+            return org.springframework.data.domain.PageRequest.of(page + 1, size, sort);
+        }
+        return of(nextCursor, page + 1, size, sort);
+    }
+
+    @Override
+    public Pageable previousOrFirst() {
+        return first();
+    }
+
+    @Override
+    public Pageable first() {
+        return of(size, sort);
+    }
+
+    @Override
+    public boolean hasPrevious() {
+        return false;
+    }
+}
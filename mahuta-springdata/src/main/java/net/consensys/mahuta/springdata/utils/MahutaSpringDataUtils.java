@@ -5,12 +5,20 @@ import org.springframework.data.domain.Sort.Order;
 
 import net.consensys.mahuta.core.domain.common.pagination.PageRequest;
 import net.consensys.mahuta.core.domain.common.pagination.PageRequest.SortDirection;
+import net.consensys.mahuta.springdata.model.CursorPageable;
 
 public class MahutaSpringDataUtils {
 
     private MahutaSpringDataUtils() {}
     
     public static PageRequest convertPageable(Pageable pageable) {
+        if (pageable instanceof CursorPageable) {
+            return PageRequest.ofCursor(
+                    ((CursorPageable) pageable).getCursor(), 
+                    pageable.getPageSize(), 
+                    pageable.getSort().get().findFirst().map(Order::getProperty).orElseGet(() -> null), 
+                    pageable.getSort().get().findFirst().map(s->s.getDirection().isAscending() ? SortDirection.ASC : SortDirection.DESC).orElse(SortDirection.ASC));
+        }
         return PageRequest.of(
                 pageable.getPageNumber(), 
                 pageable.getPageSize(), 
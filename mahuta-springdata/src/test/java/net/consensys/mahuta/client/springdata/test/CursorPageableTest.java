@@ -0,0 +1,49 @@
+package net.consensys.mahuta.client.springdata.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import net.consensys.mahuta.springdata.model.CursorPage;
+import net.consensys.mahuta.springdata.model.CursorPageable;
+
+public class CursorPageableTest {
+
+    @Test
+    public void nextPageableCarriesTheNextCursor() {
+        CursorPage<String> page = new CursorPage<>(Arrays.asList("a", "b"), CursorPageable.of(2, Sort.by("name")), 5, "cursor1");
+
+        Pageable next = page.nextPageable();
+        assertTrue(next instanceof CursorPageable);
+        assertEquals("cursor1", ((CursorPageable) next).getCursor());
+        assertEquals(1, next.getPageNumber());
+        assertEquals(Sort.by("name"), next.getSort());
+        
+        // Spring Data defaults go through Pageable.next()
+        assertEquals("cursor1", ((CursorPageable) page.getPageable().next()).getCursor());
+    }
+
+    @Test
+    public void lastPage() {
+        CursorPage<String> page = new CursorPage<>(Collections.singletonList("a"), CursorPageable.of("cursor1", 2, 2, Sort.unsorted()), 5, null);
+
+        assertFalse(page.hasNext());
+        assertFalse(page.nextPageable().isPaged());
+    }
+
+    @Test
+    public void nextWithoutCursorFallsBackToPageNumber() {
+        Pageable next = CursorPageable.of(10).next();
+
+        assertFalse(next instanceof CursorPageable);
+        assertEquals(1, next.getPageNumber());
+        assertEquals(10, next.getPageSize());
+    }
+}